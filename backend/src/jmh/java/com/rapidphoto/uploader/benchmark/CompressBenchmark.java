@@ -0,0 +1,91 @@
+package com.rapidphoto.uploader.benchmark;
+
+import com.rapidphoto.uploader.infrastructure.image.AdaptiveCompressor;
+import com.rapidphoto.uploader.infrastructure.image.DecodedImage;
+import com.rapidphoto.uploader.infrastructure.image.ImageBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-resolution recompression of the original, as done by the FINALIZE stage.
+ * Throughput gives images per second per thread, sample time its percentiles (p99 per
+ * size class) and the gc profiler configured in build.gradle the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class CompressBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE", "PANORAMA"})
+    private ImageCorpus.SizeClass sizeClass;
+
+    @Param({"jpeg", "png"})
+    private String format;
+
+    private Pipeline pipeline;
+    private byte[] original;
+    private DecodedImage decoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        pipeline = new Pipeline();
+        original = ImageCorpus.encoded(sizeClass, format);
+        decoded = decode();
+    }
+
+    /**
+     * Decode and recompress: the whole CPU cost of the FINALIZE stage.
+     */
+    @Benchmark
+    public long decodeAndCompress() throws IOException {
+        DecodedImage image = decode();
+        try (ImageBuffer output = pipeline.bufferPool.newBuffer()) {
+            pipeline.compressor.compress(image, output);
+            return output.size();
+        }
+    }
+
+    /**
+     * Recompression with the SSIM-guided quality search.
+     */
+    @Benchmark
+    public AdaptiveCompressor.CompressionResult compressAdaptive() throws IOException {
+        try (ImageBuffer output = pipeline.bufferPool.newBuffer()) {
+            return pipeline.compressor.compress(decoded, output);
+        }
+    }
+
+    /**
+     * Recompression at the configured quality without a search, the baseline for the adaptive path.
+     */
+    @Benchmark
+    public long compressFixedQuality() throws IOException {
+        try (ImageBuffer output = pipeline.bufferPool.newBuffer()) {
+            pipeline.codec.encode(decoded, pipeline.properties.getCompression().getQuality(), output);
+            return output.size();
+        }
+    }
+
+    private DecodedImage decode() throws IOException {
+        try (InputStream input = new ByteArrayInputStream(original)) {
+            return pipeline.codec.decode(input);
+        }
+    }
+}
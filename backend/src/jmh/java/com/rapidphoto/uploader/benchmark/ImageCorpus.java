@@ -0,0 +1,113 @@
+package com.rapidphoto.uploader.benchmark;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic, reproducible originals for the benchmarks.
+ * Images combine smooth gradients, a few sharp-edged shapes and sensor-like noise, so
+ * encoders see both flat areas and detail as in real photos; the same size class and
+ * format always produce the same bytes.
+ */
+final class ImageCorpus {
+
+    private static final long SEED = 0x5EEDL;
+
+    /**
+     * Image sizes the pipeline sees, from phone screenshots to stitched panoramas.
+     */
+    enum SizeClass {
+        SMALL(1280, 960),
+        MEDIUM(4032, 3024),
+        LARGE(6000, 4000),
+        PANORAMA(12000, 3000);
+
+        private final int width;
+        private final int height;
+
+        SizeClass(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        int width() {
+            return width;
+        }
+
+        int height() {
+            return height;
+        }
+    }
+
+    private ImageCorpus() {
+    }
+
+    /**
+     * Encode a synthetic image of the given size class.
+     *
+     * @param sizeClass image dimensions
+     * @param format ImageIO format name ("jpeg" or "png")
+     * @return encoded original
+     */
+    static byte[] encoded(SizeClass sizeClass, String format) {
+        BufferedImage image = generate(sizeClass.width(), sizeClass.height());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            if (!ImageIO.write(image, format, output)) {
+                throw new IllegalArgumentException("No ImageIO writer for " + format);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    private static BufferedImage generate(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        SplittableRandom random = new SplittableRandom(SEED);
+
+        // A handful of discs in fixed relative positions give the image sharp edges
+        int discs = 6;
+        int[] centreX = new int[discs];
+        int[] centreY = new int[discs];
+        long[] radiusSquared = new long[discs];
+        int[] colour = new int[discs];
+        for (int i = 0; i < discs; i++) {
+            centreX[i] = random.nextInt(width);
+            centreY[i] = random.nextInt(height);
+            long radius = Math.min(width, height) / (4 + random.nextInt(6));
+            radiusSquared[i] = radius * radius;
+            colour[i] = random.nextInt(0x1000000);
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = 40 + 180 * x / width;
+                int g = 60 + 150 * y / height;
+                int b = 200 - 120 * (x + y) / (width + height);
+                for (int i = 0; i < discs; i++) {
+                    long dx = x - centreX[i];
+                    long dy = y - centreY[i];
+                    if (dx * dx + dy * dy < radiusSquared[i]) {
+                        r = (colour[i] >> 16) & 0xFF;
+                        g = (colour[i] >> 8) & 0xFF;
+                        b = colour[i] & 0xFF;
+                    }
+                }
+                int noise = random.nextInt(17) - 8;
+                pixels[y * width + x] = clamp(r + noise) << 16 | clamp(g + noise) << 8 | clamp(b + noise);
+            }
+        }
+        return image;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
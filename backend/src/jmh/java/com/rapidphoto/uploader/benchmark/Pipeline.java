@@ -0,0 +1,41 @@
+package com.rapidphoto.uploader.benchmark;
+
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import com.rapidphoto.uploader.infrastructure.image.AdaptiveCompressor;
+import com.rapidphoto.uploader.infrastructure.image.ImageBufferPool;
+import com.rapidphoto.uploader.infrastructure.image.ImageCodec;
+import com.rapidphoto.uploader.infrastructure.image.ParallelResizer;
+import com.rapidphoto.uploader.infrastructure.processing.DecodeMemoryGovernor;
+
+/**
+ * The image processing components wired as in the application, with default configuration.
+ * Benchmarks call these directly rather than through {@code ImageProcessingService}, which
+ * also downloads from storage and writes to the database.
+ */
+final class Pipeline {
+
+    final ImageProcessingProperties properties = new ImageProcessingProperties();
+    final DecodeMemoryGovernor memoryGovernor = new DecodeMemoryGovernor(properties);
+    final ParallelResizer resizer = new ParallelResizer(properties);
+    final ImageCodec codec = new ImageCodec(memoryGovernor, resizer);
+    final AdaptiveCompressor compressor = new AdaptiveCompressor(codec, properties);
+    final ImageBufferPool bufferPool = new ImageBufferPool(properties);
+
+    /**
+     * Resolution renditions are decoded at, as in {@code ImageProcessingService}.
+     */
+    int renditionSourceSize() {
+        int largest = properties.getRenditions().stream()
+                .mapToInt(ImageProcessingProperties.Rendition::getSize)
+                .max()
+                .orElse(0);
+        return largest * properties.getDecode().getSubsamplingOversample();
+    }
+
+    ImageProcessingProperties.Rendition rendition(String name) {
+        return properties.getRenditions().stream()
+                .filter(profile -> profile.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No rendition profile " + name));
+    }
+}
@@ -0,0 +1,70 @@
+package com.rapidphoto.uploader.benchmark;
+
+import net.coobird.thumbnailator.Thumbnails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downscaling a full-resolution image to the largest rendition, on one thread with
+ * Thumbnailator against parallel tiles. Resize only; decoding and encoding are excluded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class ResizeBenchmark {
+
+    private static final String LARGE = "large";
+
+    @Param({"MEDIUM", "LARGE", "PANORAMA"})
+    private ImageCorpus.SizeClass sizeClass;
+
+    private Pipeline pipeline;
+    private BufferedImage image;
+    private Dimension dimension;
+
+    @Setup
+    public void setUp() throws IOException {
+        pipeline = new Pipeline();
+        try (InputStream input = new ByteArrayInputStream(ImageCorpus.encoded(sizeClass, "jpeg"))) {
+            image = pipeline.codec.decode(input).getImage();
+        }
+        dimension = pipeline.codec.fitWithin(image.getWidth(), image.getHeight(), pipeline.rendition(LARGE).getSize());
+    }
+
+    @TearDown
+    public void tearDown() {
+        pipeline.resizer.shutdown();
+    }
+
+    @Benchmark
+    public BufferedImage thumbnailator() throws IOException {
+        return Thumbnails.of(image)
+                .forceSize(dimension.width, dimension.height)
+                .asBufferedImage();
+    }
+
+    @Benchmark
+    public BufferedImage tiled() {
+        return pipeline.resizer.resizeTiled(image, dimension.width, dimension.height);
+    }
+}
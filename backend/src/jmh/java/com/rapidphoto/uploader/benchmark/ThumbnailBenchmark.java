@@ -0,0 +1,135 @@
+package com.rapidphoto.uploader.benchmark;
+
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import com.rapidphoto.uploader.infrastructure.image.DecodedImage;
+import com.rapidphoto.uploader.infrastructure.image.ImageBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendition generation, as done by the RENDITIONS stage, against alternative resize paths.
+ * Throughput gives images per second per thread, sample time its percentiles (p99 per
+ * size class) and the gc profiler configured in build.gradle the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class ThumbnailBenchmark {
+
+    private static final String THUMBNAIL = "thumb";
+
+    @Param({"SMALL", "MEDIUM", "LARGE", "PANORAMA"})
+    private ImageCorpus.SizeClass sizeClass;
+
+    @Param({"jpeg", "png"})
+    private String format;
+
+    private Pipeline pipeline;
+    private ImageProcessingProperties.Rendition thumbnail;
+    private byte[] original;
+    private DecodedImage subsampled;
+
+    @Setup
+    public void setUp() throws IOException {
+        pipeline = new Pipeline();
+        thumbnail = pipeline.rendition(THUMBNAIL);
+        original = ImageCorpus.encoded(sizeClass, format);
+        subsampled = decode(pipeline.renditionSourceSize());
+    }
+
+    /**
+     * Every rendition profile from one subsampled decode: the whole CPU cost of the RENDITIONS stage.
+     */
+    @Benchmark
+    public long allRenditions() throws IOException {
+        DecodedImage image = decode(pipeline.renditionSourceSize());
+        long total = 0;
+        for (ImageProcessingProperties.Rendition profile : pipeline.properties.getRenditions()) {
+            total += render(image, profile);
+        }
+        return total;
+    }
+
+    /**
+     * The thumbnail from a subsampled decode, as generated today.
+     */
+    @Benchmark
+    public long thumbnailFromSubsampledDecode() throws IOException {
+        return render(decode(pipeline.renditionSourceSize()), thumbnail);
+    }
+
+    /**
+     * The thumbnail from a full-resolution decode, the path subsampling replaced.
+     */
+    @Benchmark
+    public long thumbnailFromFullDecode() throws IOException {
+        return render(decode(0), thumbnail);
+    }
+
+    /**
+     * Resize and encode only, with Thumbnailator through {@code ImageCodec}.
+     */
+    @Benchmark
+    public long resizeThumbnailator() throws IOException {
+        return render(subsampled, thumbnail);
+    }
+
+    /**
+     * Resize and encode only, with a single bilinear Java2D draw and a plain ImageIO write.
+     */
+    @Benchmark
+    public long resizeJava2d() throws IOException {
+        Dimension dimension = fit(thumbnail);
+        BufferedImage resized = new BufferedImage(dimension.width, dimension.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(subsampled.getImage(), 0, 0, dimension.width, dimension.height, null);
+        } finally {
+            graphics.dispose();
+        }
+        try (ImageBuffer output = pipeline.bufferPool.newBuffer()) {
+            ImageIO.write(resized, subsampled.getFormatName(), output);
+            return output.size();
+        }
+    }
+
+    private long render(DecodedImage image, ImageProcessingProperties.Rendition profile) throws IOException {
+        try (ImageBuffer output = pipeline.bufferPool.newBuffer()) {
+            pipeline.codec.encodeResized(image, fit(profile), profile.getQuality(), output);
+            return output.size();
+        }
+    }
+
+    private Dimension fit(ImageProcessingProperties.Rendition profile) {
+        return pipeline.codec.fitWithin(sizeClass.width(), sizeClass.height(), profile.getSize());
+    }
+
+    private DecodedImage decode(int targetSize) throws IOException {
+        try (InputStream input = new ByteArrayInputStream(original)) {
+            return pipeline.codec.decode(input, targetSize);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.rapidphoto.uploader.api.controller;
+
+import com.rapidphoto.uploader.api.dto.BackfillJobDto;
+import com.rapidphoto.uploader.api.mapper.BackfillJobMapper;
+import com.rapidphoto.uploader.application.service.BackfillService;
+import com.rapidphoto.uploader.domain.BackfillJob;
+import com.rapidphoto.uploader.domain.ProcessingStage;
+import com.rapidphoto.uploader.domain.User;
+import com.rapidphoto.uploader.infrastructure.config.BackfillProperties;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * REST controller for reprocessing existing photos.
+ * Restricted to the users listed in processing.backfill.admin-emails.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/backfills")
+@RequiredArgsConstructor
+public class BackfillController {
+
+    private final BackfillService backfillService;
+    private final BackfillJobMapper backfillJobMapper;
+    private final BackfillProperties properties;
+
+    @Data
+    public static class StartBackfillRequest {
+        private ProcessingStage stage;
+        private boolean missingMetadataOnly;
+        private Double ratePerSecond;
+        private Integer maxInFlight;
+    }
+
+    /**
+     * Start reprocessing every processed photo through a stage.
+     * 
+     * @param request the stage, an optional filter and throttling limits
+     * @param user the authenticated user
+     * @return the started job
+     */
+    @PostMapping
+    public ResponseEntity<BackfillJobDto> start(
+            @RequestBody StartBackfillRequest request,
+            @AuthenticationPrincipal User user) {
+        if (!isAdmin(user)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (request.getStage() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        BackfillJob job = backfillService.start(request.getStage(), request.isMissingMetadataOnly(),
+                request.getRatePerSecond(), request.getMaxInFlight(), user.getId());
+        return ResponseEntity.status(HttpStatus.CREATED).body(backfillJobMapper.toDto(job));
+    }
+
+    /**
+     * List backfill jobs, newest first.
+     * 
+     * @param user the authenticated user
+     * @return jobs with their progress
+     */
+    @GetMapping
+    public ResponseEntity<List<BackfillJobDto>> list(@AuthenticationPrincipal User user) {
+        if (!isAdmin(user)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(backfillJobMapper.toDtoList(backfillService.findAll()));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<BackfillJobDto> get(@PathVariable UUID id, @AuthenticationPrincipal User user) {
+        return respond(user, () -> backfillService.find(id));
+    }
+
+    @PostMapping("/{id}/pause")
+    public ResponseEntity<BackfillJobDto> pause(@PathVariable UUID id, @AuthenticationPrincipal User user) {
+        return respond(user, () -> backfillService.pause(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<BackfillJobDto> resume(@PathVariable UUID id, @AuthenticationPrincipal User user) {
+        return respond(user, () -> backfillService.resume(id));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<BackfillJobDto> cancel(@PathVariable UUID id, @AuthenticationPrincipal User user) {
+        return respond(user, () -> backfillService.cancel(id));
+    }
+
+    private ResponseEntity<BackfillJobDto> respond(User user, Supplier<Optional<BackfillJob>> action) {
+        if (!isAdmin(user)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return action.get()
+                .map(job -> ResponseEntity.ok(backfillJobMapper.toDto(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private boolean isAdmin(User user) {
+        return user != null && properties.getAdminEmails().stream()
+                .anyMatch(email -> email.equalsIgnoreCase(user.getEmail()));
+    }
+}
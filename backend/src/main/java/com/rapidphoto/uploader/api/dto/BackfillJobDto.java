@@ -0,0 +1,32 @@
+package com.rapidphoto.uploader.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object for a backfill job.
+ * Used for API requests and responses.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillJobDto {
+    private UUID id;
+    private String stage;
+    private boolean missingMetadataOnly;
+    private String status;
+    
+    // Last photo queued; the job resumes after it
+    private UUID cursorPhotoId;
+    private long queuedCount;
+    private Double ratePerSecond;
+    private Integer maxInFlight;
+    private Instant createdAt;
+    private Instant completedAt;
+}
@@ -29,6 +29,19 @@ public class PhotoDto {
     private Instant createdAt;
     private Instant updatedAt;
     
+    // Image metadata; dimensions are as displayed, so clients can lay out the grid before loading
+    private Integer width;
+    private Integer height;
+    private Integer orientation;
+    private Instant capturedAt;
+    private String cameraMake;
+    private String cameraModel;
+    private Double latitude;
+    private Double longitude;
+    
+    // BlurHash placeholder, painted while the thumbnail URL loads
+    private String blurHash;
+    
     // Pre-signed URLs for accessing photos (generated on-demand)
     private String thumbnailUrl;  // URL to download thumbnail
     private String downloadUrl;   // URL to download full photo
@@ -0,0 +1,23 @@
+package com.rapidphoto.uploader.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for a single rendition of a photo.
+ * Used for API responses.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RenditionDto {
+    private String name;
+    private Integer width;
+    private Integer height;
+    
+    // Pre-signed download URL
+    private String url;
+}
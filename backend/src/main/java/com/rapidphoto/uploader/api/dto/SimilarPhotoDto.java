@@ -0,0 +1,21 @@
+package com.rapidphoto.uploader.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for a photo similar to a requested one.
+ * Used for API responses.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarPhotoDto {
+    private PhotoDto photo;
+    
+    // Number of differing perceptual hash bits; 0 for visually identical photos
+    private int distance;
+}
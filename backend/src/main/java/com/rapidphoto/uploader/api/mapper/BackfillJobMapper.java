@@ -0,0 +1,19 @@
+package com.rapidphoto.uploader.api.mapper;
+
+import com.rapidphoto.uploader.api.dto.BackfillJobDto;
+import com.rapidphoto.uploader.domain.BackfillJob;
+import org.mapstruct.Mapper;
+import org.mapstruct.MappingConstants;
+
+import java.util.List;
+
+/**
+ * MapStruct mapper for converting BackfillJob entities to DTOs.
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface BackfillJobMapper {
+
+    BackfillJobDto toDto(BackfillJob job);
+
+    List<BackfillJobDto> toDtoList(List<BackfillJob> jobs);
+}
@@ -0,0 +1,21 @@
+package com.rapidphoto.uploader.api.slices.deletephotos;
+
+import com.rapidphoto.uploader.application.Command;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Command to delete photos of a user.
+ * Part of the DeletePhotos vertical slice.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletePhotosCommand implements Command<DeletePhotosResult> {
+    private UUID userId;
+    private List<UUID> photoIds;
+}
@@ -0,0 +1,33 @@
+package com.rapidphoto.uploader.api.slices.deletephotos;
+
+import com.rapidphoto.uploader.domain.User;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for the DeletePhotos vertical slice.
+ */
+@RestController
+@RequestMapping("/api/v1/photos")
+@RequiredArgsConstructor
+public class DeletePhotosController {
+
+    private final DeletePhotosHandler handler;
+
+    /**
+     * Delete photos of the authenticated user in bulk.
+     * Returns as soon as the photos are marked deleted; their files are removed from
+     * storage in the background.
+     */
+    @PostMapping("/delete")
+    public ResponseEntity<DeletePhotosResult> deletePhotos(
+            @Valid @RequestBody DeletePhotosRequest request,
+            @AuthenticationPrincipal User user) {
+        
+        DeletePhotosResult result = handler.handle(new DeletePhotosCommand(user.getId(), request.getPhotoIds()));
+        return ResponseEntity.ok(result);
+    }
+}
@@ -0,0 +1,46 @@
+package com.rapidphoto.uploader.api.slices.deletephotos;
+
+import com.rapidphoto.uploader.application.CommandHandler;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import com.rapidphoto.uploader.infrastructure.repository.ProcessingTaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Handler for DeletePhotosCommand.
+ * Marks the photos deleted with one statement however many there are, and drops their
+ * queued processing. Their originals and renditions are purged from storage in the
+ * background.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeletePhotosHandler implements CommandHandler<DeletePhotosCommand, DeletePhotosResult> {
+
+    private final PhotoRepository photoRepository;
+    private final ProcessingTaskRepository processingTaskRepository;
+
+    @Override
+    @Transactional
+    public DeletePhotosResult handle(DeletePhotosCommand command) {
+        Set<UUID> photoIds = new LinkedHashSet<>(command.getPhotoIds());
+        
+        int deleted = photoRepository.markDeleted(command.getUserId(), photoIds, Instant.now());
+        if (deleted > 0) {
+            processingTaskRepository.deletePendingForDeleted(command.getUserId(), photoIds);
+        }
+        log.info("Deleted {} of {} photos for user: {}", deleted, photoIds.size(), command.getUserId());
+        
+        return DeletePhotosResult.builder()
+                .requested(photoIds.size())
+                .deleted(deleted)
+                .build();
+    }
+}
@@ -0,0 +1,23 @@
+package com.rapidphoto.uploader.api.slices.deletephotos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Request DTO for deleting photos in bulk.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletePhotosRequest {
+    
+    @NotEmpty(message = "Photo IDs cannot be empty")
+    @Size(max = 10000, message = "Maximum 10000 photos per request")
+    private List<UUID> photoIds;
+}
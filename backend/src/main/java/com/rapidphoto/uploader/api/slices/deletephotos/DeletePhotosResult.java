@@ -0,0 +1,19 @@
+package com.rapidphoto.uploader.api.slices.deletephotos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of deleting photos.
+ * Photos that do not exist, belong to another user or were already deleted are not counted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletePhotosResult {
+    private Integer requested;
+    private Integer deleted;
+}
@@ -0,0 +1,25 @@
+package com.rapidphoto.uploader.api.slices.queryphotos;
+
+import com.rapidphoto.uploader.application.Query;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Query to find photos of the same user that look like a given photo,
+ * such as burst shots and near-duplicates.
+ * Part of CQRS query side.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FindSimilarPhotosQuery implements Query<List<SimilarPhoto>> {
+    private UUID photoId;
+    private Integer maxDistance;
+    private Integer limit;
+}
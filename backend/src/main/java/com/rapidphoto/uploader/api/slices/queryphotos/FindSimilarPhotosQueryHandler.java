@@ -0,0 +1,67 @@
+package com.rapidphoto.uploader.api.slices.queryphotos;
+
+import com.rapidphoto.uploader.application.QueryHandler;
+import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.infrastructure.image.PerceptualHash;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Handler for FindSimilarPhotosQuery.
+ * Looks up candidates through the per-band perceptual hash indexes instead of
+ * comparing the photo against the whole library; the database ranks them by distance.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FindSimilarPhotosQueryHandler implements QueryHandler<FindSimilarPhotosQuery, List<SimilarPhoto>> {
+
+    static final int DEFAULT_MAX_DISTANCE = 10;
+
+    /**
+     * Largest distance served; beyond it each band probe grows to hundreds of values
+     * and unrelated photos start to match.
+     */
+    static final int MAX_DISTANCE = 11;
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    private final PhotoRepository photoRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SimilarPhoto> handle(FindSimilarPhotosQuery query) {
+        Photo photo = photoRepository.findById(query.getPhotoId())
+                .orElseThrow(() -> new RuntimeException("Photo not found: " + query.getPhotoId()));
+        if (photo.getPerceptualHash() == null) {
+            return List.of();
+        }
+
+        long hash = photo.getPerceptualHash();
+        int maxDistance = Math.clamp(query.getMaxDistance() != null ? query.getMaxDistance() : DEFAULT_MAX_DISTANCE,
+                0, MAX_DISTANCE);
+        int limit = Math.clamp(query.getLimit() != null ? query.getLimit() : DEFAULT_LIMIT, 1, MAX_LIMIT);
+
+        // Pigeonhole: a match within maxDistance has some band within maxDistance / BANDS
+        int bandRadius = maxDistance / PerceptualHash.BANDS;
+        List<Photo> matches = photoRepository.findSimilarByPerceptualHash(
+                photo.getUserId(), photo.getId(), hash, maxDistance,
+                PerceptualHash.bandNeighbours(hash, 0, bandRadius),
+                PerceptualHash.bandNeighbours(hash, 1, bandRadius),
+                PerceptualHash.bandNeighbours(hash, 2, bandRadius),
+                PerceptualHash.bandNeighbours(hash, 3, bandRadius),
+                limit);
+
+        log.debug("Found {} photos similar to photo: {} within distance {}",
+                matches.size(), photo.getId(), maxDistance);
+        return matches.stream()
+                .map(match -> new SimilarPhoto(match, PerceptualHash.distance(hash, match.getPerceptualHash())))
+                .toList();
+    }
+}
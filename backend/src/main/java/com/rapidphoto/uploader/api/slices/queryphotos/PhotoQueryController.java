@@ -1,17 +1,29 @@
 package com.rapidphoto.uploader.api.slices.queryphotos;
 
 import com.rapidphoto.uploader.api.dto.PhotoDto;
+import com.rapidphoto.uploader.api.dto.RenditionDto;
+import com.rapidphoto.uploader.api.dto.SimilarPhotoDto;
 import com.rapidphoto.uploader.api.mapper.PhotoMapper;
+import com.rapidphoto.uploader.application.service.PhotoDeletedException;
+import com.rapidphoto.uploader.application.service.ProcessingDeferredException;
+import com.rapidphoto.uploader.application.service.RenditionService;
 import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.PhotoRendition;
+import com.rapidphoto.uploader.domain.User;
 import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
-import com.rapidphoto.uploader.infrastructure.storage.StorageService;
+import com.rapidphoto.uploader.infrastructure.storage.DownloadUrlCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.net.URL;
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -25,11 +37,11 @@ import java.util.UUID;
 public class PhotoQueryController {
 
     private final GetPhotosQueryHandler queryHandler;
+    private final FindSimilarPhotosQueryHandler similarPhotosQueryHandler;
     private final PhotoRepository photoRepository;
     private final PhotoMapper photoMapper;
-    private final StorageService storageService;
-    
-    private static final Duration URL_EXPIRATION = Duration.ofHours(1);
+    private final DownloadUrlCache downloadUrlCache;
+    private final RenditionService renditionService;
 
     /**
      * Get all photos with optional filtering and pagination.
@@ -41,6 +53,7 @@ public class PhotoQueryController {
      * @param size page size
      * @param sortBy field to sort by
      * @param sortDirection sort direction (ASC/DESC)
+     * @param thumbnailSize desired thumbnail size in pixels (e.g. grid cell size)
      * @return paginated photo results
      */
     @GetMapping
@@ -51,7 +64,8 @@ public class PhotoQueryController {
             @RequestParam(defaultValue = "0") Integer page,
             @RequestParam(defaultValue = "20") Integer size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDirection) {
+            @RequestParam(defaultValue = "DESC") String sortDirection,
+            @RequestParam(required = false) Integer thumbnailSize) {
 
         GetPhotosQuery query = GetPhotosQuery.builder()
                 .userId(userId)
@@ -64,7 +78,11 @@ public class PhotoQueryController {
                 .build();
 
         Page<Photo> photoPage = queryHandler.handle(query);
-        Page<PhotoDto> dtoPage = photoPage.map(photo -> enrichWithUrls(photoMapper.toDto(photo), photo));
+        Map<UUID, List<PhotoRendition>> renditions = renditionService.findByPhotoIds(
+                photoPage.map(Photo::getId).getContent());
+        Map<String, URL> urls = downloadUrls(photoPage.getContent(), renditions, thumbnailSize);
+        Page<PhotoDto> dtoPage = photoPage.map(photo -> enrichWithUrls(photoMapper.toDto(photo), photo,
+                renditions.getOrDefault(photo.getId(), List.of()), thumbnailSize, urls));
 
         return ResponseEntity.ok(Map.of(
                 "content", dtoPage.getContent(),
@@ -80,57 +98,172 @@ public class PhotoQueryController {
      * Get a specific photo by ID.
      * 
      * @param id photo ID
+     * @param thumbnailSize desired thumbnail size in pixels
      * @return photo details
      */
     @GetMapping("/{id}")
-    public ResponseEntity<PhotoDto> getPhoto(@PathVariable UUID id) {
+    public ResponseEntity<PhotoDto> getPhoto(
+            @PathVariable UUID id,
+            @RequestParam(required = false) Integer thumbnailSize) {
         Photo photo = photoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Photo not found: " + id));
         
         PhotoDto dto = photoMapper.toDto(photo);
-        enrichWithUrls(dto, photo);
+        Map<UUID, List<PhotoRendition>> renditions = Map.of(id, renditionService.findByPhotoId(id));
+        enrichWithUrls(dto, photo, renditions.get(id), thumbnailSize,
+                downloadUrls(List.of(photo), renditions, thumbnailSize));
         
         return ResponseEntity.ok(dto);
     }
     
     /**
-     * Enrich PhotoDto with pre-signed URLs for thumbnail and full photo.
+     * Get a named rendition of a photo, generating it on first request if it does not
+     * exist yet (with lazy renditions, only the default one is generated up front).
      * 
-     * @param dto the PhotoDto to enrich
-     * @param photo the source Photo entity
-     * @return enriched PhotoDto
+     * @param id photo ID
+     * @param name rendition profile name
+     * @param user the authenticated user
+     * @return the rendition with a pre-signed URL; 404 for unknown photos and profiles,
+     *         403 for other users' photos, 409 while the photo has no renditions yet,
+     *         503 when it cannot be generated right now
      */
-    private PhotoDto enrichWithUrls(PhotoDto dto, Photo photo) {
+    @GetMapping("/{id}/renditions/{name}")
+    public ResponseEntity<RenditionDto> getRendition(
+            @PathVariable UUID id,
+            @PathVariable String name,
+            @AuthenticationPrincipal User user) throws IOException {
+        Photo photo = photoRepository.findById(id).orElse(null);
+        if (photo == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        // Verify ownership
+        if (!photo.getUserId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (photo.getStatus() != Photo.PhotoStatus.THUMBNAIL_READY
+                && photo.getStatus() != Photo.PhotoStatus.COMPLETE) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        
         try {
-            // Generate thumbnail URL
-            String thumbnailKey = generateThumbnailKey(photo.getStorageKey());
-            URL thumbnailUrl = storageService.generatePresignedDownloadUrl(thumbnailKey, URL_EXPIRATION);
-            dto.setThumbnailUrl(thumbnailUrl.toString());
-            
-            // Generate full photo download URL
-            URL downloadUrl = storageService.generatePresignedDownloadUrl(photo.getStorageKey(), URL_EXPIRATION);
-            dto.setDownloadUrl(downloadUrl.toString());
+            return renditionService.findOrGenerate(photo, name)
+                    .map(rendition -> ResponseEntity.ok(RenditionDto.builder()
+                            .name(rendition.getName())
+                            .width(rendition.getWidth())
+                            .height(rendition.getHeight())
+                            .url(downloadUrlCache.getDownloadUrl(rendition.getStorageKey()).toString())
+                            .build()))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (PhotoDeletedException e) {
+            return ResponseEntity.notFound().build();
+        } catch (ProcessingDeferredException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                    .build();
+        }
+    }
+    
+    /**
+     * Find photos of the same user that look like a photo, most similar first.
+     * 
+     * @param id photo ID
+     * @param maxDistance maximum number of differing perceptual hash bits (at most 11)
+     * @param limit maximum number of results
+     * @param thumbnailSize desired thumbnail size in pixels
+     * @param user the authenticated user
+     * @return similar photos with their distance; 404 for unknown photos, 403 for other
+     *         users' photos
+     */
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<SimilarPhotoDto>> getSimilarPhotos(
+            @PathVariable UUID id,
+            @RequestParam(required = false) Integer maxDistance,
+            @RequestParam(defaultValue = "20") Integer limit,
+            @RequestParam(required = false) Integer thumbnailSize,
+            @AuthenticationPrincipal User user) {
+        Photo photo = photoRepository.findById(id).orElse(null);
+        if (photo == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        // Verify ownership
+        if (!photo.getUserId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        List<SimilarPhoto> similar = similarPhotosQueryHandler.handle(FindSimilarPhotosQuery.builder()
+                .photoId(id)
+                .maxDistance(maxDistance)
+                .limit(limit)
+                .build());
+        
+        Map<UUID, List<PhotoRendition>> renditions = renditionService.findByPhotoIds(
+                similar.stream().map(match -> match.photo().getId()).toList());
+        Map<String, URL> urls = downloadUrls(similar.stream().map(SimilarPhoto::photo).toList(),
+                renditions, thumbnailSize);
+        List<SimilarPhotoDto> results = similar.stream()
+                .map(match -> SimilarPhotoDto.builder()
+                        .photo(enrichWithUrls(photoMapper.toDto(match.photo()), match.photo(),
+                                renditions.getOrDefault(match.photo().getId(), List.of()), thumbnailSize, urls))
+                        .distance(match.distance())
+                        .build())
+                .toList();
+        
+        return ResponseEntity.ok(results);
+    }
+    
+    /**
+     * Pre-signed URLs for the thumbnails and originals of several photos, signed in one batch.
+     * URLs are stable within a time window, so repeated views hit browser caches.
+     * 
+     * @param photos the photos
+     * @param renditions recorded renditions by photo ID
+     * @param thumbnailSize requested thumbnail size in pixels, may be null
+     * @return URLs by storage key, empty if URL generation fails
+     */
+    private Map<String, URL> downloadUrls(List<Photo> photos, Map<UUID, List<PhotoRendition>> renditions,
+                                          Integer thumbnailSize) {
+        List<String> keys = new ArrayList<>(photos.size() * 2);
+        for (Photo photo : photos) {
+            renditionService.select(renditions.getOrDefault(photo.getId(), List.of()), thumbnailSize)
+                    .ifPresent(rendition -> keys.add(rendition.getStorageKey()));
+            keys.add(photo.getStorageKey());
+        }
+        try {
+            return downloadUrlCache.getDownloadUrls(keys);
         } catch (Exception e) {
             // If URL generation fails, leave URLs as null
-            // This prevents errors if thumbnail doesn't exist yet
+            return Map.of();
         }
-        
-        return dto;
     }
     
     /**
-     * Generate thumbnail storage key from original key.
-     * Must match the logic in ImageProcessingService.
+     * Enrich PhotoDto with pre-signed URLs for thumbnail and full photo.
+     * The thumbnail is the smallest recorded rendition that covers the requested size;
+     * no thumbnail URL is returned for photos without renditions.
      * 
-     * @param originalKey original storage key
-     * @return thumbnail storage key
+     * @param dto the PhotoDto to enrich
+     * @param photo the source Photo entity
+     * @param renditions recorded renditions of the photo
+     * @param thumbnailSize requested thumbnail size in pixels, may be null
+     * @param urls pre-signed URLs by storage key
+     * @return enriched PhotoDto
      */
-    private String generateThumbnailKey(String originalKey) {
-        int lastDotIndex = originalKey.lastIndexOf('.');
-        if (lastDotIndex > 0) {
-            return originalKey.substring(0, lastDotIndex) + "_thumb" + originalKey.substring(lastDotIndex);
+    private PhotoDto enrichWithUrls(PhotoDto dto, Photo photo, List<PhotoRendition> renditions,
+                                    Integer thumbnailSize, Map<String, URL> urls) {
+        // Thumbnail URL for the best-fitting rendition that exists
+        renditionService.select(renditions, thumbnailSize)
+                .map(rendition -> urls.get(rendition.getStorageKey()))
+                .ifPresent(thumbnailUrl -> dto.setThumbnailUrl(thumbnailUrl.toString()));
+        
+        // Full photo download URL
+        URL downloadUrl = urls.get(photo.getStorageKey());
+        if (downloadUrl != null) {
+            dto.setDownloadUrl(downloadUrl.toString());
         }
-        return originalKey + "_thumb";
+        
+        return dto;
     }
 
     /**
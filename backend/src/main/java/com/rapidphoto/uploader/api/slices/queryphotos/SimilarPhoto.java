@@ -0,0 +1,12 @@
+package com.rapidphoto.uploader.api.slices.queryphotos;
+
+import com.rapidphoto.uploader.domain.Photo;
+
+/**
+ * A photo found by {@link FindSimilarPhotosQuery}.
+ *
+ * @param photo the similar photo
+ * @param distance Hamming distance between the perceptual hashes; 0 for visually identical
+ */
+public record SimilarPhoto(Photo photo, int distance) {
+}
@@ -0,0 +1,180 @@
+package com.rapidphoto.uploader.api.slices.uploadphoto;
+
+import com.rapidphoto.uploader.application.service.UploadStatusService;
+import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.UploadJob;
+import com.rapidphoto.uploader.infrastructure.config.UploadPolicyProperties;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import com.rapidphoto.uploader.infrastructure.repository.UploadJobRepository;
+import com.rapidphoto.uploader.infrastructure.storage.PresignedPost;
+import com.rapidphoto.uploader.infrastructure.storage.StorageKeyGenerator;
+import com.rapidphoto.uploader.infrastructure.storage.StorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Handler for batch uploads through a single browser POST policy.
+ * One policy is signed for the whole batch, whatever its size; the files are recorded
+ * when the client reports the keys it uploaded them under. Each key is claimed in the
+ * transaction that records its photo, so a key reported twice, even concurrently or
+ * after its photo was deleted, is only recorded once.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchPolicyUploadHandler {
+
+    private final StorageService storageService;
+    private final StorageKeyGenerator keyGenerator;
+    private final PhotoRepository photoRepository;
+    private final UploadJobRepository uploadJobRepository;
+    private final UploadStatusService uploadStatusService;
+    private final UploadPolicyProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Issue a POST policy covering every file of a batch.
+     * 
+     * @param request batch upload request with the authenticated user's ID
+     * @return the policy and the form fields to post with each file
+     * @throws IllegalArgumentException if a file is too large or not of an accepted type
+     */
+    public BatchUploadPolicyResponse issuePolicy(BatchUploadRequest request) {
+        long maxContentLength = 0;
+        for (BatchUploadRequest.PhotoMetadata metadata : request.getFiles()) {
+            if (metadata.getContentType() != null
+                    && !metadata.getContentType().startsWith(properties.getContentTypePrefix())) {
+                throw new IllegalArgumentException("Unsupported content type: " + metadata.getContentType());
+            }
+            if (metadata.getFileSize() == null) {
+                maxContentLength = properties.getMaxFileSize();
+            } else if (metadata.getFileSize() > properties.getMaxFileSize()) {
+                throw new IllegalArgumentException("File too large: " + metadata.getFilename());
+            } else {
+                maxContentLength = Math.max(maxContentLength, metadata.getFileSize());
+            }
+        }
+        if (maxContentLength < 1) {
+            maxContentLength = properties.getMaxFileSize();
+        }
+        
+        UUID batchId = UUID.randomUUID();
+        String keyPrefix = keyGenerator.generateBatchPrefix(request.getUserId(), batchId);
+        PresignedPost post = storageService.generatePresignedPost(keyPrefix, properties.getContentTypePrefix(),
+                maxContentLength, properties.getExpiration());
+        log.info("Issued upload policy for batch {} of user {}, files: {}",
+                batchId, request.getUserId(), request.getFiles().size());
+        
+        return BatchUploadPolicyResponse.builder()
+                .batchId(batchId)
+                .url(post.getUrl())
+                .fields(post.getFields())
+                .keyPrefix(post.getKeyPrefix())
+                .maxFileSize(maxContentLength)
+                .expiresInSeconds((int) properties.getExpiration().getSeconds())
+                .build();
+    }
+
+    /**
+     * Record the files uploaded with a batch policy and start their processing.
+     * Uploads are verified against storage like any other completed upload, so a
+     * reported key with no object behind it fails verification.
+     * 
+     * @param userId the authenticated user's ID
+     * @param batchId the batch the policy was issued for
+     * @param request the uploaded files
+     * @return per-file results
+     */
+    public BatchUploadResponse complete(UUID userId, UUID batchId, CompleteBatchUploadRequest request) {
+        // Policies only constrain the key prefix, so check the key belongs to this user's batch
+        Pattern batchKey = Pattern.compile("^" + Pattern.quote(userId.toString())
+                + "/\\d{4}/\\d{2}/\\d{2}/" + Pattern.quote(batchId.toString()) + "/[^/]+$");
+        
+        Set<String> seen = new HashSet<>();
+        List<BatchUploadResponse.UploadResult> results = new ArrayList<>();
+        for (CompleteBatchUploadRequest.UploadedFile file : request.getFiles()) {
+            String filename = file.getFilename() != null ? file.getFilename()
+                    : file.getKey().substring(file.getKey().lastIndexOf('/') + 1);
+            if (!batchKey.matcher(file.getKey()).matches()) {
+                results.add(failure(filename, "Key is not part of this batch"));
+            } else if (!seen.add(file.getKey())) {
+                results.add(failure(filename, "Upload already recorded"));
+            } else {
+                results.add(record(userId, batchId, file, filename));
+            }
+        }
+        
+        long successful = results.stream().filter(BatchUploadResponse.UploadResult::getSuccess).count();
+        log.info("Batch {} completed: total={}, successful={}, failed={}",
+                batchId, results.size(), successful, results.size() - successful);
+        
+        return BatchUploadResponse.builder()
+                .totalFiles(results.size())
+                .successfullyInitiated((int) successful)
+                .failed((int) (results.size() - successful))
+                .uploads(results)
+                .build();
+    }
+
+    /**
+     * Create the Photo and UploadJob of an uploaded file, claim its key and mark the upload
+     * complete, all in one transaction. Verification starts once it commits.
+     */
+    private BatchUploadResponse.UploadResult record(UUID userId, UUID batchId,
+                                                    CompleteBatchUploadRequest.UploadedFile file, String filename) {
+        try {
+            BatchUploadResponse.UploadResult result = transactionTemplate.execute(status -> {
+                // Flushed so the claim below can reference the photo
+                Photo photo = photoRepository.saveAndFlush(Photo.builder()
+                        .filename(filename)
+                        .fileSize(file.getFileSize())
+                        .storageKey(file.getKey())
+                        .userId(userId)
+                        .status(Photo.PhotoStatus.UPLOADING)
+                        .contentType(file.getContentType())
+                        .declaredChecksum(file.getChecksumSha256())
+                        .build());
+                if (photoRepository.claimPolicyUpload(file.getKey(), batchId, photo.getId(), Instant.now()) == 0) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+                UploadJob uploadJob = uploadJobRepository.save(UploadJob.builder()
+                        .photoId(photo.getId())
+                        .userId(userId)
+                        .status(UploadJob.UploadStatus.PENDING)
+                        .attemptCount(0)
+                        .build());
+                uploadStatusService.markComplete(uploadJob.getId());
+
+                return BatchUploadResponse.UploadResult.builder()
+                        .uploadJobId(uploadJob.getId())
+                        .photoId(photo.getId())
+                        .filename(filename)
+                        .success(true)
+                        .build();
+            });
+            return result != null ? result : failure(filename, "Upload already recorded");
+        } catch (Exception e) {
+            log.error("Failed to record uploaded file: {}", file.getKey(), e);
+            return failure(filename, e.getMessage());
+        }
+    }
+
+    private static BatchUploadResponse.UploadResult failure(String filename, String errorMessage) {
+        return BatchUploadResponse.UploadResult.builder()
+                .filename(filename)
+                .success(false)
+                .errorMessage(errorMessage)
+                .build();
+    }
+}
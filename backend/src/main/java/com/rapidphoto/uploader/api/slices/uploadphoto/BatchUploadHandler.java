@@ -6,6 +6,7 @@ import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
 import com.rapidphoto.uploader.infrastructure.repository.UploadJobRepository;
 import com.rapidphoto.uploader.infrastructure.storage.StorageKeyGenerator;
 import com.rapidphoto.uploader.infrastructure.storage.StorageService;
+import com.rapidphoto.uploader.infrastructure.storage.UploadTarget;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -21,7 +22,7 @@ import java.util.concurrent.Executors;
 
 /**
  * Handler for batch photo upload initiation.
- * Processes multiple file uploads concurrently and generates pre-signed URLs.
+ * Processes multiple file uploads concurrently and generates their pre-signed URLs in one batch.
  */
 @Service
 @RequiredArgsConstructor
@@ -48,12 +49,16 @@ public class BatchUploadHandler {
                 request.getUserId(), request.getFiles().size());
         
         List<CompletableFuture<BatchUploadResponse.UploadResult>> futures = new ArrayList<>();
+        List<String> storageKeys = new ArrayList<>();
         
         // Process each file asynchronously
         for (BatchUploadRequest.PhotoMetadata metadata : request.getFiles()) {
+            // Generate unique storage key
+            String storageKey = keyGenerator.generateKey(request.getUserId(), metadata.getFilename());
+            storageKeys.add(storageKey);
             CompletableFuture<BatchUploadResponse.UploadResult> future = 
                     CompletableFuture.supplyAsync(() -> 
-                            processFile(request.getUserId(), metadata), EXECUTOR);
+                            processFile(request.getUserId(), metadata, storageKey), EXECUTOR);
             futures.add(future);
         }
         
@@ -62,6 +67,8 @@ public class BatchUploadHandler {
                 .map(CompletableFuture::join)
                 .toList();
         
+        presignUploads(request.getFiles(), storageKeys, results);
+        
         // Calculate statistics
         long successful = results.stream().filter(BatchUploadResponse.UploadResult::getSuccess).count();
         long failed = results.size() - successful;
@@ -77,23 +84,63 @@ public class BatchUploadHandler {
                 .build();
     }
 
+    /**
+     * Generate the pre-signed URLs of all successfully initiated files in one batch.
+     * 
+     * @param files file metadata, in request order
+     * @param storageKeys storage keys of the files, in request order
+     * @param results upload results, in request order; updated in place
+     */
+    private void presignUploads(List<BatchUploadRequest.PhotoMetadata> files, List<String> storageKeys,
+                                List<BatchUploadResponse.UploadResult> results) {
+        List<BatchUploadResponse.UploadResult> initiated = new ArrayList<>();
+        List<UploadTarget> targets = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).getSuccess()) {
+                BatchUploadRequest.PhotoMetadata metadata = files.get(i);
+                initiated.add(results.get(i));
+                targets.add(UploadTarget.builder()
+                        .key(storageKeys.get(i))
+                        .contentType(metadata.getContentType())
+                        .checksumSha256(metadata.getChecksumSha256())
+                        .build());
+            }
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
+        
+        try {
+            List<URL> presignedUrls = storageService.generatePresignedUploadUrls(targets, URL_EXPIRATION);
+            for (int i = 0; i < initiated.size(); i++) {
+                initiated.get(i).setPreSignedUrl(presignedUrls.get(i).toString());
+                initiated.get(i).setExpiresInSeconds((int) URL_EXPIRATION.getSeconds());
+            }
+        } catch (Exception e) {
+            log.error("Failed to generate pre-signed URLs for batch of {} files", targets.size(), e);
+            for (BatchUploadResponse.UploadResult result : initiated) {
+                result.setSuccess(false);
+                result.setErrorMessage(e.getMessage());
+            }
+        }
+    }
+
     /**
      * Process a single file upload.
-     * Creates Photo and UploadJob entities and generates pre-signed URL.
+     * Creates Photo and UploadJob entities; the pre-signed URL is added with the rest of the batch.
      * 
      * @param userId user ID
      * @param metadata file metadata
+     * @param storageKey storage key of the file
      * @return upload result
      */
     @Transactional
     protected BatchUploadResponse.UploadResult processFile(
             java.util.UUID userId, 
-            BatchUploadRequest.PhotoMetadata metadata) {
+            BatchUploadRequest.PhotoMetadata metadata,
+            String storageKey) {
         
         try {
-            // Generate unique storage key
-            String storageKey = keyGenerator.generateKey(userId, metadata.getFilename());
-            
             // Create Photo entity
             Photo photo = Photo.builder()
                     .filename(metadata.getFilename())
@@ -102,6 +149,7 @@ public class BatchUploadHandler {
                     .userId(userId)
                     .status(Photo.PhotoStatus.UPLOADING)
                     .contentType(metadata.getContentType())
+                    .declaredChecksum(metadata.getChecksumSha256())
                     .build();
             photo = photoRepository.save(photo);
             
@@ -114,21 +162,12 @@ public class BatchUploadHandler {
                     .build();
             uploadJob = uploadJobRepository.save(uploadJob);
             
-            // Generate pre-signed URL
-            URL presignedUrl = storageService.generatePresignedUploadUrl(
-                    storageKey, 
-                    metadata.getContentType(), 
-                    URL_EXPIRATION
-            );
-            
             log.debug("Successfully initiated upload for file: {}", metadata.getFilename());
             
             return BatchUploadResponse.UploadResult.builder()
                     .uploadJobId(uploadJob.getId())
                     .photoId(photo.getId())
                     .filename(metadata.getFilename())
-                    .preSignedUrl(presignedUrl.toString())
-                    .expiresInSeconds((int) URL_EXPIRATION.getSeconds())
                     .success(true)
                     .build();
             
@@ -0,0 +1,30 @@
+package com.rapidphoto.uploader.api.slices.uploadphoto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Response DTO for a batch upload through a single browser POST policy.
+ * Every file of the batch is posted to the same URL as a multipart form holding the
+ * signed fields, then its own "key" (starting with the key prefix) and "Content-Type",
+ * optionally its base64 "x-amz-checksum-sha256", and the file last. S3 stores a SHA-256
+ * of every file, which is checked against the checksum reported on completion.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUploadPolicyResponse {
+    
+    private UUID batchId;
+    private String url;
+    private Map<String, String> fields;
+    private String keyPrefix;
+    private Long maxFileSize;
+    private Integer expiresInSeconds;
+}
@@ -2,6 +2,7 @@ package com.rapidphoto.uploader.api.slices.uploadphoto;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -36,6 +37,12 @@ public class BatchUploadRequest {
         private String filename;
         private Long fileSize;
         private String contentType;
+        
+        /**
+         * Optional base64-encoded SHA-256 of the file, verified on completion.
+         */
+        @Pattern(regexp = "^[A-Za-z0-9+/]{43}=$", message = "Checksum must be a base64-encoded SHA-256")
+        private String checksumSha256;
     }
 }
 
@@ -0,0 +1,46 @@
+package com.rapidphoto.uploader.api.slices.uploadphoto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request DTO reporting the files uploaded with a batch POST policy.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompleteBatchUploadRequest {
+    
+    @NotEmpty(message = "Files list cannot be empty")
+    @Size(max = 100, message = "Maximum 100 files per batch")
+    @Valid
+    private List<UploadedFile> files;
+    
+    /**
+     * A single file uploaded under the batch's key prefix.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UploadedFile {
+        @NotBlank(message = "Key is required")
+        private String key;
+        private String filename;
+        private Long fileSize;
+        private String contentType;
+        
+        /**
+         * Optional base64-encoded SHA-256 of the file, verified on completion.
+         */
+        @Pattern(regexp = "^[A-Za-z0-9+/]{43}=$", message = "Checksum must be a base64-encoded SHA-256")
+        private String checksumSha256;
+    }
+}
@@ -19,5 +19,6 @@ public class InitiateUploadCommand implements Command<InitiateUploadResult> {
     private String filename;
     private Long fileSize;
     private String contentType;
+    private String checksumSha256;
 }
 
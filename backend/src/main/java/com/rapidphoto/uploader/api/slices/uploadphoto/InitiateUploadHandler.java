@@ -48,6 +48,7 @@ public class InitiateUploadHandler implements CommandHandler<InitiateUploadComma
                 .userId(command.getUserId())
                 .status(Photo.PhotoStatus.UPLOADING)
                 .contentType(command.getContentType())
+                .declaredChecksum(command.getChecksumSha256())
                 .build();
         photo = photoRepository.save(photo);
         
@@ -64,6 +65,7 @@ public class InitiateUploadHandler implements CommandHandler<InitiateUploadComma
         URL presignedUrl = storageService.generatePresignedUploadUrl(
                 storageKey, 
                 command.getContentType(), 
+                command.getChecksumSha256(),
                 URL_EXPIRATION
         );
         
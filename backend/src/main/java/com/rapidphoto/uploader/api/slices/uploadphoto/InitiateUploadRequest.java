@@ -2,6 +2,7 @@ package com.rapidphoto.uploader.api.slices.uploadphoto;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -25,5 +26,12 @@ public class InitiateUploadRequest {
     
     @NotBlank(message = "Content type is required")
     private String contentType;
+    
+    /**
+     * Optional base64-encoded SHA-256 of the file. When present, storage enforces it on
+     * upload and completion is verified against it.
+     */
+    @Pattern(regexp = "^[A-Za-z0-9+/]{43}=$", message = "Checksum must be a base64-encoded SHA-256")
+    private String checksumSha256;
 }
 
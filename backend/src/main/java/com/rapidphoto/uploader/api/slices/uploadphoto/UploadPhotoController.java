@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -21,6 +22,7 @@ public class UploadPhotoController {
 
     private final InitiateUploadHandler handler;
     private final BatchUploadHandler batchHandler;
+    private final BatchPolicyUploadHandler batchPolicyHandler;
 
     /**
      * Initiate a single photo upload.
@@ -36,7 +38,8 @@ public class UploadPhotoController {
                 user.getId(),
                 request.getFilename(),
                 request.getFileSize(),
-                request.getContentType()
+                request.getContentType(),
+                request.getChecksumSha256()
         );
         
         InitiateUploadResult result = handler.handle(command);
@@ -59,5 +62,36 @@ public class UploadPhotoController {
         BatchUploadResponse response = batchHandler.handleBatch(request);
         return ResponseEntity.ok(response);
     }
-}
 
+    /**
+     * Initiate a batch photo upload through a single browser POST policy.
+     * Returns one signed form for the whole batch instead of a URL per file.
+     */
+    @PostMapping("/batch/policy")
+    public ResponseEntity<?> batchUploadPolicy(
+            @Valid @RequestBody BatchUploadRequest request,
+            @AuthenticationPrincipal User user) {
+        
+        request.setUserId(user.getId());
+        
+        try {
+            return ResponseEntity.ok(batchPolicyHandler.issuePolicy(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Report the files uploaded with a batch POST policy.
+     * Records them and starts their processing.
+     */
+    @PostMapping("/batch/{batchId}/complete")
+    public ResponseEntity<BatchUploadResponse> completeBatchUpload(
+            @PathVariable UUID batchId,
+            @Valid @RequestBody CompleteBatchUploadRequest request,
+            @AuthenticationPrincipal User user) {
+        
+        BatchUploadResponse response = batchPolicyHandler.complete(user.getId(), batchId, request);
+        return ResponseEntity.ok(response);
+    }
+}
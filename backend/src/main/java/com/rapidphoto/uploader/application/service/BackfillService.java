@@ -0,0 +1,201 @@
+package com.rapidphoto.uploader.application.service;
+
+import com.rapidphoto.uploader.domain.BackfillJob;
+import com.rapidphoto.uploader.domain.ProcessingStage;
+import com.rapidphoto.uploader.infrastructure.config.BackfillProperties;
+import com.rapidphoto.uploader.infrastructure.repository.BackfillJobRepository;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service reprocessing existing photos, e.g. after rendition profiles or metadata
+ * extraction change.
+ * A job pages through processed photos by ID and queues one stage for each on the
+ * durable processing queue, at a priority below every stage of new uploads. Each
+ * advance queues at most what the job's rate allows for the time since it last queued,
+ * and never more than its in-flight limit leaves room for, so the queue holds a bounded
+ * backlog that workers drain when they have nothing newer to do. The cursor is saved
+ * in the transaction that queues the page, so a job resumes exactly after a restart.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BackfillService {
+
+    private static final UUID START = new UUID(0, 0);
+
+    private final BackfillJobRepository jobRepository;
+    private final PhotoRepository photoRepository;
+    private final ProcessingTaskService taskService;
+    private final BackfillProperties properties;
+
+    /**
+     * Start a job reprocessing every processed photo through a stage.
+     * Recompression in the FINALIZE stage only applies to originals that were never
+     * recompressed, so reprocessing does not recompress an original twice.
+     *
+     * @param stage the stage to run
+     * @param missingMetadataOnly whether to reprocess only photos without extracted metadata
+     * @param ratePerSecond photos queued per second, or null for the default
+     * @param maxInFlight reprocessing tasks allowed in the queue at once, or null for the default
+     * @param createdBy ID of the user starting the job
+     * @return the started job
+     */
+    @Transactional
+    public BackfillJob start(ProcessingStage stage, boolean missingMetadataOnly,
+                             Double ratePerSecond, Integer maxInFlight, UUID createdBy) {
+        BackfillJob job = jobRepository.save(BackfillJob.builder()
+                .stage(stage)
+                .missingMetadataOnly(missingMetadataOnly)
+                .status(BackfillJob.JobStatus.RUNNING)
+                .ratePerSecond(ratePerSecond != null && ratePerSecond > 0
+                        ? ratePerSecond : properties.getDefaultRatePerSecond())
+                .maxInFlight(maxInFlight != null && maxInFlight > 0 ? maxInFlight : properties.getDefaultMaxInFlight())
+                .createdBy(createdBy)
+                .build());
+        log.info("Started backfill job {}: {} stage{} at {}/s, {} in flight", job.getId(), stage,
+                missingMetadataOnly ? " for photos without metadata" : "", job.getRatePerSecond(), job.getMaxInFlight());
+        return job;
+    }
+
+    /**
+     * Stop queueing photos for a running job; tasks already queued still run.
+     *
+     * @param jobId the job ID
+     * @return the job, empty if not found
+     */
+    @Transactional
+    public Optional<BackfillJob> pause(UUID jobId) {
+        return transition(jobId, BackfillJob.JobStatus.RUNNING, BackfillJob.JobStatus.PAUSED);
+    }
+
+    /**
+     * Continue a paused job from its checkpoint.
+     *
+     * @param jobId the job ID
+     * @return the job, empty if not found
+     */
+    @Transactional
+    public Optional<BackfillJob> resume(UUID jobId) {
+        return transition(jobId, BackfillJob.JobStatus.PAUSED, BackfillJob.JobStatus.RUNNING)
+                .map(job -> {
+                    // Time spent paused does not count towards the rate
+                    job.setLastQueuedAt(null);
+                    return job;
+                });
+    }
+
+    /**
+     * Stop a running or paused job for good; tasks already queued still run.
+     *
+     * @param jobId the job ID
+     * @return the job, empty if not found
+     */
+    @Transactional
+    public Optional<BackfillJob> cancel(UUID jobId) {
+        return jobRepository.findById(jobId).map(job -> {
+            if (job.getStatus() == BackfillJob.JobStatus.RUNNING || job.getStatus() == BackfillJob.JobStatus.PAUSED) {
+                job.setStatus(BackfillJob.JobStatus.CANCELLED);
+                job.setCompletedAt(Instant.now());
+                log.info("Cancelled backfill job {} after {} photos", jobId, job.getQueuedCount());
+            }
+            return job;
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<BackfillJob> find(UUID jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<BackfillJob> findAll() {
+        return jobRepository.findAllByOrderByCreatedAtDesc();
+    }
+
+    /**
+     * Queue the next photos of every running job not being advanced by another node.
+     */
+    @Transactional
+    public void advance() {
+        List<BackfillJob> jobs = jobRepository.lockRunning();
+        if (jobs.isEmpty()) {
+            return;
+        }
+        long inFlight = taskService.countReprocessing();
+        for (BackfillJob job : jobs) {
+            inFlight += advance(job, inFlight);
+        }
+    }
+
+    /**
+     * @param inFlight reprocessing tasks currently queued or running
+     * @return number of photos queued
+     */
+    private int advance(BackfillJob job, long inFlight) {
+        Instant now = Instant.now();
+        int allowance = allowance(job, now);
+        int room = (int) Math.max(0, job.getMaxInFlight() - inFlight);
+        int limit = Math.min(allowance, room);
+        if (limit == 0) {
+            // Unused allowance accumulates, up to one page
+            return 0;
+        }
+
+        UUID after = job.getCursorPhotoId() != null ? job.getCursorPhotoId() : START;
+        List<UUID> photoIds = job.isMissingMetadataOnly()
+                ? photoRepository.findProcessedIdsWithoutMetadataAfter(after, limit)
+                : photoRepository.findProcessedIdsAfter(after, limit);
+
+        int queued = 0;
+        for (UUID photoId : photoIds) {
+            if (taskService.enqueueReprocessing(photoId, job.getStage())) {
+                queued++;
+            }
+        }
+        if (!photoIds.isEmpty()) {
+            job.setCursorPhotoId(photoIds.get(photoIds.size() - 1));
+        }
+        job.setQueuedCount(job.getQueuedCount() + queued);
+        job.setLastQueuedAt(now);
+
+        if (photoIds.size() < limit) {
+            job.setStatus(BackfillJob.JobStatus.COMPLETED);
+            job.setCompletedAt(now);
+            log.info("Backfill job {} queued its last photos, {} in total", job.getId(), job.getQueuedCount());
+        } else {
+            log.debug("Backfill job {} queued {} photos, {} in total", job.getId(), queued, job.getQueuedCount());
+        }
+        return queued;
+    }
+
+    /**
+     * Photos the job's rate allows for the time since it last queued, at most one page.
+     */
+    private int allowance(BackfillJob job, Instant now) {
+        Duration elapsed = job.getLastQueuedAt() != null
+                ? Duration.between(job.getLastQueuedAt(), now)
+                : properties.getInterval();
+        double allowed = job.getRatePerSecond() * elapsed.toMillis() / 1000.0;
+        return (int) Math.min(properties.getPageSize(), Math.floor(allowed));
+    }
+
+    private Optional<BackfillJob> transition(UUID jobId, BackfillJob.JobStatus from, BackfillJob.JobStatus to) {
+        return jobRepository.findById(jobId).map(job -> {
+            if (job.getStatus() == from) {
+                job.setStatus(to);
+                log.info("Backfill job {} is now {}", jobId, to);
+            }
+            return job;
+        });
+    }
+}
@@ -0,0 +1,184 @@
+package com.rapidphoto.uploader.application.service;
+
+import com.rapidphoto.uploader.domain.ContentObject;
+import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.PhotoRendition;
+import com.rapidphoto.uploader.infrastructure.repository.ContentObjectRepository;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRenditionRepository;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import com.rapidphoto.uploader.infrastructure.storage.StorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Service deduplicating byte-identical originals within a user's library.
+ * The first photo with a given content hash becomes canonical and is processed;
+ * later identical uploads reuse its stored original and renditions instead of being
+ * decoded, encoded and stored again. Shared content is reference counted, so it is
+ * only deleted once no photo uses it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ContentDedupService {
+
+    /**
+     * How long a duplicate waits before checking again whether its canonical photo finished processing.
+     */
+    private static final Duration CANONICAL_WAIT = Duration.ofSeconds(15);
+
+    private final ContentObjectRepository contentObjectRepository;
+    private final PhotoRepository photoRepository;
+    private final PhotoRenditionRepository renditionRepository;
+    private final StorageService storageService;
+
+    /**
+     * Resolve a photo against the user's content index by its content hash.
+     * A photo with new content is registered as canonical and must be processed. A
+     * duplicate of processed content is pointed at the existing original and renditions,
+     * and its own uploaded object is deleted once the change commits. A duplicate of
+     * content still being processed is deferred.
+     *
+     * @param photoId the photo ID; its content hash must be set
+     * @return true if the photo was resolved as a duplicate and needs no processing
+     * @throws ProcessingDeferredException if the canonical photo has not finished processing
+     * @throws PhotoDeletedException if the photo was deleted
+     */
+    @Transactional
+    public boolean deduplicate(UUID photoId) {
+        Photo photo = photoRepository.findById(photoId)
+                .orElseThrow(() -> new PhotoDeletedException(photoId));
+        String contentHash = photo.getContentHash();
+        if (contentHash == null) {
+            return false;
+        }
+
+        int inserted = contentObjectRepository.insertIfAbsent(
+                photo.getUserId(), contentHash, photo.getStorageKey(), photoId, Instant.now());
+        if (inserted == 1) {
+            return false;
+        }
+
+        ContentObject content = contentObjectRepository.findByUserIdAndContentHash(photo.getUserId(), contentHash)
+                .orElseThrow(() -> new RuntimeException("Content object disappeared for photo: " + photoId));
+        if (photoId.equals(content.getCanonicalPhotoId())) {
+            return false;
+        }
+        if (photo.getStorageKey().equals(content.getStorageKey())) {
+            return true;
+        }
+
+        Photo canonical = content.getCanonicalPhotoId() == null ? null
+                : photoRepository.findById(content.getCanonicalPhotoId()).orElse(null);
+        if (canonical == null || canonical.getStatus() == Photo.PhotoStatus.FAILED) {
+            if (content.getRefCount() > 1) {
+                // Other photos still share the stored content; process this copy on its own
+                return false;
+            }
+            log.info("Photo {} replaces unusable canonical copy of its content", photoId);
+            content.setCanonicalPhotoId(photoId);
+            content.setStorageKey(photo.getStorageKey());
+            content.setRefCount(1);
+            return false;
+        }
+        if (canonical.getStatus() != Photo.PhotoStatus.COMPLETE) {
+            throw new ProcessingDeferredException(
+                    "Waiting for canonical photo " + canonical.getId() + " to finish processing", CANONICAL_WAIT);
+        }
+
+        String uploadedKey = photo.getStorageKey();
+        for (PhotoRendition rendition : renditionRepository.findByPhotoId(canonical.getId())) {
+            PhotoRendition existing = renditionRepository.findByPhotoIdAndName(photoId, rendition.getName()).orElse(null);
+            if (existing != null && !existing.isProvisional()) {
+                continue;
+            }
+            PhotoRendition entry = existing != null ? existing : PhotoRendition.builder()
+                    .photoId(photoId)
+                    .name(rendition.getName())
+                    .build();
+            if (existing != null) {
+                // The duplicate's own embedded preview gives way to the canonical rendition
+                deleteAfterCommit(existing.getStorageKey());
+            }
+            entry.setStorageKey(rendition.getStorageKey());
+            entry.setWidth(rendition.getWidth());
+            entry.setHeight(rendition.getHeight());
+            entry.setFileSize(rendition.getFileSize());
+            entry.setContentType(rendition.getContentType());
+            entry.setProvisional(false);
+            renditionRepository.save(entry);
+        }
+
+        photo.setStorageKey(content.getStorageKey());
+        photo.setFileSize(canonical.getFileSize());
+        photo.setPerceptualHash(canonical.getPerceptualHash());
+        photo.setBlurHash(canonical.getBlurHash());
+        photo.getTags().addAll(canonical.getTags());
+        photo.advanceStatus(Photo.PhotoStatus.COMPLETE);
+        photoRepository.save(photo);
+        content.setRefCount(content.getRefCount() + 1);
+
+        deleteAfterCommit(uploadedKey);
+        log.info("Photo {} is a duplicate of {}, reusing its original and renditions", photoId, canonical.getId());
+        return true;
+    }
+
+    /**
+     * Drop a photo's reference to its stored content. When other photos still reference
+     * it and the photo was canonical, another referencing photo becomes canonical.
+     *
+     * @param photo the photo being removed
+     * @return true if no other photo uses the photo's original and renditions, so they may be deleted
+     */
+    @Transactional
+    public boolean release(Photo photo) {
+        ContentObject content = contentObjectRepository.findByStorageKey(photo.getStorageKey()).orElse(null);
+        if (content == null) {
+            return true;
+        }
+
+        int remaining = content.getRefCount() - 1;
+        if (remaining <= 0) {
+            contentObjectRepository.delete(content);
+            return true;
+        }
+
+        content.setRefCount(remaining);
+        if (Objects.equals(content.getCanonicalPhotoId(), photo.getId())) {
+            content.setCanonicalPhotoId(photoRepository
+                    .findFirstByStorageKeyAndIdNot(content.getStorageKey(), photo.getId())
+                    .map(Photo::getId)
+                    .orElse(null));
+        }
+        return false;
+    }
+
+    private void deleteAfterCommit(String key) {
+        Runnable delete = () -> {
+            try {
+                storageService.deleteFile(key);
+            } catch (Exception e) {
+                log.warn("Failed to delete superseded object: {}", key, e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    delete.run();
+                }
+            });
+        } else {
+            delete.run();
+        }
+    }
+}
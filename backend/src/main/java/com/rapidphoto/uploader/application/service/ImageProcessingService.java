@@ -1,176 +1,366 @@
 package com.rapidphoto.uploader.application.service;
 
 import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.ProcessingStage;
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import com.rapidphoto.uploader.infrastructure.image.AdaptiveCompressor;
+import com.rapidphoto.uploader.infrastructure.image.BlurHash;
+import com.rapidphoto.uploader.infrastructure.image.DecodedImage;
+import com.rapidphoto.uploader.infrastructure.image.ImageBuffer;
+import com.rapidphoto.uploader.infrastructure.image.ImageBufferPool;
+import com.rapidphoto.uploader.infrastructure.image.ImageCodec;
+import com.rapidphoto.uploader.infrastructure.image.PerceptualHash;
+import com.rapidphoto.uploader.infrastructure.processing.DecodeMemoryGovernor;
+import com.rapidphoto.uploader.infrastructure.processing.PriorityTaskExecutor;
 import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
 import com.rapidphoto.uploader.infrastructure.storage.StorageService;
 import lombok.extern.slf4j.Slf4j;
-import net.coobird.thumbnailator.Thumbnails;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.awt.Dimension;
+import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Service for processing images after upload.
- * Handles compression, thumbnail generation, and optional AI tagging.
+ * Processing runs in stages (see {@link ProcessingStage}), queued durably by
+ * {@link ProcessingTaskService}: metadata is read from a ranged fetch of the header,
+ * then renditions are generated from a cheap subsampled decode and the photo becomes
+ * THUMBNAIL_READY; the full-size recompression and tagging follow as a lower-priority stage.
+ * Every decode first reserves its raster size from the {@link DecodeMemoryGovernor}.
+ * Stages run on virtual threads and hand decoding and encoding to the CPU-bound
+ * {@code imageProcessingExecutor}, so cores never wait on storage or the database.
+ * Storage and CPU work runs outside any transaction; results are written in short
+ * transactions at the end of each stage.
  */
 @Service
 @Slf4j
 public class ImageProcessingService {
 
+    /**
+     * BlurHash components along the longer and shorter edge.
+     */
+    private static final int PLACEHOLDER_LONG_COMPONENTS = 4;
+    private static final int PLACEHOLDER_SHORT_COMPONENTS = 3;
+
     private final StorageService storageService;
     private final PhotoRepository photoRepository;
+    private final ImageCodec imageCodec;
+    private final AdaptiveCompressor compressor;
+    private final ImageBufferPool bufferPool;
+    private final RenditionService renditionService;
+    private final ImageProcessingProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final ContentDedupService contentDedupService;
+    private final PhotoMetadataService metadataService;
+    private final DecodeMemoryGovernor memoryGovernor;
+    private final PriorityTaskExecutor cpuExecutor;
     
     @Autowired(required = false)
     private ImageTaggingService taggingService;
     
-    public ImageProcessingService(StorageService storageService, PhotoRepository photoRepository) {
+    public ImageProcessingService(StorageService storageService, PhotoRepository photoRepository,
+                                  ImageCodec imageCodec, AdaptiveCompressor compressor, ImageBufferPool bufferPool,
+                                  RenditionService renditionService, ImageProcessingProperties properties,
+                                  TransactionTemplate transactionTemplate,
+                                  ContentDedupService contentDedupService,
+                                  PhotoMetadataService metadataService,
+                                  DecodeMemoryGovernor memoryGovernor,
+                                  @Qualifier("imageProcessingExecutor") PriorityTaskExecutor cpuExecutor) {
         this.storageService = storageService;
         this.photoRepository = photoRepository;
+        this.imageCodec = imageCodec;
+        this.compressor = compressor;
+        this.bufferPool = bufferPool;
+        this.renditionService = renditionService;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.contentDedupService = contentDedupService;
+        this.metadataService = metadataService;
+        this.memoryGovernor = memoryGovernor;
+        this.cpuExecutor = cpuExecutor;
     }
 
-    private static final double COMPRESSION_QUALITY = 0.85; // 85% quality
-    private static final int THUMBNAIL_SIZE = 300; // 300px thumbnail
-
     /**
-     * Process image asynchronously after upload.
-     * Compresses image, generates thumbnail, and applies AI tagging if enabled.
+     * Run one processing stage for a photo. Failures propagate to the caller, which
+     * decides whether the stage is retried.
      * 
      * @param photoId the photo ID to process
+     * @param stage the stage to run
+     * @return true if the photo's remaining stages should run
      */
-    @Async
-    @Transactional
-    public void processImageAsync(UUID photoId) {
-        try {
-            log.info("Starting async image processing for photo: {}", photoId);
-            
-            Photo photo = photoRepository.findById(photoId)
-                    .orElseThrow(() -> new RuntimeException("Photo not found: " + photoId));
-            
-            log.info("Waiting 2 seconds for S3 eventual consistency...");
-            Thread.sleep(2000); // Wait for S3 eventual consistency
-            
-            // Check if file exists before downloading
-            boolean fileExists = storageService.fileExists(photo.getStorageKey());
-            log.info("File exists check for key {}: {}", photo.getStorageKey(), fileExists);
-            
-            if (!fileExists) {
-                throw new RuntimeException("File not found in S3 after waiting: " + photo.getStorageKey());
+    public boolean runStage(UUID photoId, ProcessingStage stage) throws IOException {
+        log.info("Starting {} stage for photo: {}", stage, photoId);
+        return switch (stage) {
+            case METADATA -> {
+                metadataService.extract(photoId);
+                yield true;
             }
-            
-            // Download original image from S3
-            log.info("Downloading file from S3 with key: {}", photo.getStorageKey());
-            InputStream originalImage = storageService.downloadFile(photo.getStorageKey());
-            
-            // Compress image
-            ByteArrayOutputStream compressedOutput = new ByteArrayOutputStream();
-            compressImage(originalImage, compressedOutput, COMPRESSION_QUALITY);
-            byte[] compressedBytes = compressedOutput.toByteArray();
-            
-            // Upload compressed version (overwrite original)
-            storageService.uploadFile(
-                    photo.getStorageKey(),
-                    new ByteArrayInputStream(compressedBytes),
-                    photo.getContentType(),
-                    compressedBytes.length
-            );
-            
-            // Generate and upload thumbnail
-            String thumbnailKey = generateThumbnailKey(photo.getStorageKey());
-            ByteArrayOutputStream thumbnailOutput = new ByteArrayOutputStream();
-            generateThumbnail(new ByteArrayInputStream(compressedBytes), thumbnailOutput, THUMBNAIL_SIZE);
-            byte[] thumbnailBytes = thumbnailOutput.toByteArray();
-            
-            storageService.uploadFile(
-                    thumbnailKey,
-                    new ByteArrayInputStream(thumbnailBytes),
-                    photo.getContentType(),
-                    thumbnailBytes.length
-            );
-            
-            // Apply AI tagging if enabled
-            Set<String> tags = null;
-            if (taggingService != null) {
-                tags = taggingService.generateTags(new ByteArrayInputStream(compressedBytes));
-                if (tags != null && !tags.isEmpty()) {
-                    photo.getTags().addAll(tags);
+            case RENDITIONS -> generateRenditions(photoId);
+            case FINALIZE -> {
+                finalizeImage(photoId);
+                yield true;
+            }
+        };
+    }
+
+    /**
+     * Generate renditions from a subsampled decode, hash the image, compute its placeholder
+     * and publish the thumbnail.
+     * Byte-identical re-uploads are resolved against the user's content index first,
+     * before the original is downloaded when its hash is already known from storage.
+     * 
+     * @return false if the photo was a duplicate and needs no further processing
+     */
+    private boolean generateRenditions(UUID photoId) throws IOException {
+        Photo photo = findPhoto(photoId);
+        if (photo.getContentHash() != null && contentDedupService.deduplicate(photoId)) {
+            return false;
+        }
+        
+        MessageDigest digest = photo.getContentHash() == null ? sha256() : null;
+        int sourceWidth;
+        int sourceHeight;
+        long perceptualHash;
+        String blurHash;
+        try (ImageBuffer original = download(photo, digest)) {
+            if (digest != null) {
+                photoRepository.updateContentHash(photoId, Base64.getEncoder().encodeToString(digest.digest()));
+                if (contentDedupService.deduplicate(photoId)) {
+                    return false;
                 }
             }
             
-            // Update photo metadata
-            photo.setFileSize((long) compressedBytes.length);
-            photo.setStatus(Photo.PhotoStatus.COMPLETE);
-            photoRepository.save(photo);
-            
-            log.info("Completed image processing for photo: {}, compressed size: {} bytes, tags: {}", 
-                    photoId, compressedBytes.length, tags != null ? tags.size() : 0);
-            
-        } catch (Exception e) {
-            log.error("Failed to process image: {}", photoId, e);
-            markProcessingFailed(photoId, e.getMessage());
+            // Renditions only need a reduced image: large originals are decoded with subsampling
+            int targetSize = renditionSourceSize();
+            try (DecodeMemoryGovernor.Reservation reservation = admit(photoId, original, targetSize)) {
+                DecodedImage decoded = decode(original, targetSize, ProcessingStage.RENDITIONS);
+                renditionService.generateRenditions(photo, decoded);
+                perceptualHash = cpuExecutor.invoke(ProcessingStage.RENDITIONS.getPriority(),
+                        () -> PerceptualHash.dHash(decoded.getImage()));
+                blurHash = cpuExecutor.invoke(ProcessingStage.RENDITIONS.getPriority(),
+                        () -> placeholder(decoded));
+                sourceWidth = decoded.getSourceWidth();
+                sourceHeight = decoded.getSourceHeight();
+            }
         }
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            Photo current = findPhoto(photoId);
+            // Formats whose header metadata could not be read still get dimensions from the decode
+            if (current.getWidth() == null || current.getHeight() == null) {
+                current.setWidth(sourceWidth);
+                current.setHeight(sourceHeight);
+            }
+            current.setPerceptualHash(perceptualHash);
+            current.setBlurHash(blurHash);
+            current.advanceStatus(ProcessingStage.RENDITIONS.getCompletedStatus());
+            photoRepository.save(current);
+        });
+        log.info("Renditions ready for photo: {}", photoId);
+        return true;
     }
 
     /**
-     * Compress image with specified quality.
-     * 
-     * @param input input stream of original image
-     * @param output output stream for compressed image
-     * @param quality compression quality (0.0 to 1.0)
+     * Recompress the original at full resolution and apply AI tagging if enabled.
+     * The recompressed image only replaces the original if it is smaller; an original
+     * that was already recompressed is not recompressed again.
+     * If tagging fails, the other results are recorded before the stage fails, so its
+     * retry only tags the photo again.
+     */
+    private void finalizeImage(UUID photoId) throws IOException {
+        Photo photo = findPhoto(photoId);
+        boolean recompress = photo.getOriginalSize() == null;
+        
+        long originalSize;
+        long storedSize;
+        AdaptiveCompressor.CompressionResult compression = null;
+        CompletableFuture<Set<String>> pendingTags = null;
+        Set<String> tags = null;
+        Throwable taggingFailure = null;
+        try (ImageBuffer original = download(photo, null)) {
+            originalSize = original.size();
+            storedSize = originalSize;
+            try (DecodeMemoryGovernor.Reservation reservation = admit(photoId, original, 0)) {
+                DecodedImage decoded = decode(original, 0, ProcessingStage.FINALIZE);
+                
+                // Tagging is batched with other photos and overlaps the recompression
+                if (taggingService != null) {
+                    pendingTags = taggingService.generateTags(photo.getContentHash(), decoded.getImage());
+                }
+                
+                // Compress image into a pooled buffer that uploads in place
+                if (recompress) {
+                    try (ImageBuffer compressed = bufferPool.newBuffer()) {
+                        AdaptiveCompressor.CompressionResult result = cpuExecutor.invoke(
+                                ProcessingStage.FINALIZE.getPriority(), () -> compressor.compress(decoded, compressed));
+                        if (compressed.size() < originalSize) {
+                            // Upload compressed version (overwrite original), unless the photo was deleted meanwhile
+                            if (!photoRepository.existsById(photoId)) {
+                                throw new PhotoDeletedException(photoId);
+                            }
+                            uploadBuffer(photo.getStorageKey(), compressed, photo.getContentType());
+                            storedSize = compressed.size();
+                            compression = result;
+                        } else {
+                            log.info("Keeping original of photo: {}, recompressed at {} it would grow from {} to {} bytes",
+                                    photoId, result.quality(), originalSize, compressed.size());
+                        }
+                    }
+                }
+                if (pendingTags != null) {
+                    try {
+                        tags = pendingTags.join();
+                    } catch (CompletionException e) {
+                        taggingFailure = e.getCause() != null ? e.getCause() : e;
+                    }
+                }
+            }
+        }
+        
+        Set<String> appliedTags = tags;
+        long finalSize = storedSize;
+        Double quality = compression != null ? compression.quality() : null;
+        transactionTemplate.executeWithoutResult(status -> {
+            Photo current = findPhoto(photoId);
+            if (appliedTags != null && !appliedTags.isEmpty()) {
+                current.getTags().addAll(appliedTags);
+            }
+            if (recompress) {
+                current.setOriginalSize(originalSize);
+                current.setCompressionQuality(quality);
+                current.setBytesSaved(originalSize - finalSize);
+            }
+            current.setFileSize(finalSize);
+            current.advanceStatus(ProcessingStage.FINALIZE.getCompletedStatus());
+            photoRepository.save(current);
+        });
+        
+        log.info("Completed image processing for photo: {}, size: {} -> {} bytes (quality {}), tags: {}",
+                photoId, originalSize, finalSize, quality, tags != null ? tags.size() : 0);
+        if (taggingFailure != null) {
+            throw new IOException("Tagging failed for photo: " + photoId, taggingFailure);
+        }
+    }
+
+    /**
+     * Photos only go missing by being deleted, so the stage is dropped rather than retried.
      */
-    private void compressImage(InputStream input, ByteArrayOutputStream output, double quality) throws Exception {
-        Thumbnails.of(input)
-                .scale(1.0) // Keep original dimensions
-                .outputQuality(quality)
-                .toOutputStream(output);
+    private Photo findPhoto(UUID photoId) {
+        return photoRepository.findById(photoId)
+                .orElseThrow(() -> new PhotoDeletedException(photoId));
     }
 
     /**
-     * Generate thumbnail of specified size.
+     * Buffer the original so it can be decoded at the resolution each output needs.
      * 
-     * @param input input stream of image
-     * @param output output stream for thumbnail
-     * @param size thumbnail size (width/height)
+     * @param photo the photo
+     * @param digest digest updated with the downloaded bytes, or null
      */
-    private void generateThumbnail(InputStream input, ByteArrayOutputStream output, int size) throws Exception {
-        Thumbnails.of(input)
-                .size(size, size)
-                .keepAspectRatio(true)
-                .toOutputStream(output);
+    private ImageBuffer download(Photo photo, MessageDigest digest) throws IOException {
+        log.info("Downloading file from S3 with key: {}", photo.getStorageKey());
+        ImageBuffer original = bufferPool.newBuffer();
+        try (InputStream content = digest != null
+                ? new DigestInputStream(storageService.downloadFile(photo.getStorageKey()), digest)
+                : storageService.downloadFile(photo.getStorageKey())) {
+            content.transferTo(original);
+            return original;
+        } catch (IOException | RuntimeException e) {
+            original.close();
+            throw e;
+        }
     }
 
     /**
-     * Generate thumbnail storage key from original key.
+     * Reserve decode memory for a buffered original, sized from its header dimensions.
      * 
-     * @param originalKey original storage key
-     * @return thumbnail storage key
+     * @param photoId the photo ID
+     * @param original buffered encoded image
+     * @param targetSize minimum longer edge the image will be decoded at; 0 for full resolution
+     * @return reservation to close once the decoded image is released
+     * @throws ProcessingDeferredException if the budget stays exhausted, so the stage is re-queued
      */
-    private String generateThumbnailKey(String originalKey) {
-        int lastDotIndex = originalKey.lastIndexOf('.');
-        if (lastDotIndex > 0) {
-            return originalKey.substring(0, lastDotIndex) + "_thumb" + originalKey.substring(lastDotIndex);
+    private DecodeMemoryGovernor.Reservation admit(UUID photoId, ImageBuffer original, int targetSize)
+            throws IOException {
+        Dimension dimension;
+        try (InputStream content = original.openStream()) {
+            dimension = imageCodec.readDimensions(content);
+        }
+        long pixels = imageCodec.decodedPixels(dimension.width, dimension.height, targetSize);
+        try {
+            return memoryGovernor.reserve(dimension.width, dimension.height, pixels)
+                    .orElseThrow(() -> new ProcessingDeferredException(
+                            "Waiting for decode memory for a " + dimension.width + "x" + dimension.height + " image",
+                            properties.getMemory().getRetryDelay()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for decode memory for photo: " + photoId, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
-        return originalKey + "_thumb";
     }
 
     /**
-     * Mark photo processing as failed.
+     * Decode a buffered original on the CPU pool.
      * 
-     * @param photoId photo ID
-     * @param errorMessage error message
+     * @param original buffered encoded image
+     * @param targetSize minimum longer edge in pixels; 0 for full resolution
+     * @param stage stage the decode belongs to, for its priority
+     * @return decoded image
      */
-    @Transactional
-    protected void markProcessingFailed(UUID photoId, String errorMessage) {
-        photoRepository.findById(photoId).ifPresent(photo -> {
-            photo.setStatus(Photo.PhotoStatus.FAILED);
-            photoRepository.save(photo);
+    private DecodedImage decode(ImageBuffer original, int targetSize, ProcessingStage stage) throws IOException {
+        return cpuExecutor.invoke(stage.getPriority(), () -> {
+            try (InputStream content = original.openStream()) {
+                return imageCodec.decode(content, targetSize);
+            }
         });
     }
-}
 
+    /**
+     * BlurHash with more components along the image's longer edge.
+     */
+    private static String placeholder(DecodedImage decoded) {
+        boolean landscape = decoded.getWidth() >= decoded.getHeight();
+        return BlurHash.encode(decoded.getImage(),
+                landscape ? PLACEHOLDER_LONG_COMPONENTS : PLACEHOLDER_SHORT_COMPONENTS,
+                landscape ? PLACEHOLDER_SHORT_COMPONENTS : PLACEHOLDER_LONG_COMPONENTS);
+    }
+
+    /**
+     * Resolution renditions are generated from: the largest profile with some headroom,
+     * so the final resize still downsamples and stays sharp.
+     */
+    private int renditionSourceSize() {
+        return renditionService.largestProfileSize() * properties.getDecode().getSubsamplingOversample();
+    }
+
+    /**
+     * Upload the content of a buffer, streaming it without an intermediate copy.
+     * 
+     * @param key storage key
+     * @param buffer encoded content
+     * @param contentType content type
+     */
+    private void uploadBuffer(String key, ImageBuffer buffer, String contentType) throws IOException {
+        try (InputStream content = buffer.openStream()) {
+            storageService.uploadFile(key, content, contentType, buffer.size());
+        }
+    }
+}
@@ -1,22 +1,43 @@
 package com.rapidphoto.uploader.application.service;
 
+import com.rapidphoto.uploader.domain.ProcessingStage;
+import com.rapidphoto.uploader.infrastructure.config.ImageTaggingProperties;
+import com.rapidphoto.uploader.infrastructure.image.ParallelResizer;
+import com.rapidphoto.uploader.infrastructure.processing.PriorityTaskExecutor;
+import com.rapidphoto.uploader.infrastructure.tagging.ImageTagger;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
-import java.io.InputStream;
-import java.util.HashSet;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for AI-based image tagging.
- * This is a pluggable interface that can be integrated with various AI services.
- * Currently provides a mock implementation.
- * 
- * To integrate with real AI services:
- * - AWS Rekognition: Use AWS SDK to detect labels
- * - OpenAI Vision API: Use OpenAI client to analyze images
- * - Google Cloud Vision: Use Google Cloud client to detect labels
+ * Images are collected into micro-batches, sent once the batch is full or its first
+ * image has waited the configured delay, and tagged by the configured {@link ImageTagger}
+ * in a single call. Results are cached by content hash, and concurrent requests for the
+ * same content share one tagging call, so re-uploads are never tagged twice.
+ * Images are scaled to the tagger's input size before they are queued, so a full queue
+ * holds small copies rather than full-resolution decodes. A failed or late batch completes
+ * its results exceptionally and is not cached, so the caller can tag the content again later.
  */
 @Service
 @Slf4j
@@ -24,41 +45,193 @@ import java.util.Set;
 public class ImageTaggingService {
 
     /**
-     * Generate tags for an image using AI.
-     * This is a mock implementation that returns empty tags.
-     * 
-     * To implement real tagging:
-     * 1. Upload image to AI service or send as byte array
-     * 2. Call AI service API to detect labels/objects
-     * 3. Parse response and extract relevant tags
-     * 4. Return set of tags
-     * 
-     * @param imageStream input stream of image
-     * @return set of generated tags
+     * Batches that may queue up behind the running ones before new images are turned away.
      */
-    public Set<String> generateTags(InputStream imageStream) {
+    private static final int QUEUED_BATCHES = 4;
+
+    private final ImageTagger tagger;
+    private final ImageTaggingProperties properties;
+    private final ExecutorService ioExecutor;
+    private final PriorityTaskExecutor cpuExecutor;
+    private final ParallelResizer resizer;
+    private final Map<String, Set<String>> cache;
+    private final ConcurrentMap<String, CompletableFuture<Set<String>>> inFlight = new ConcurrentHashMap<>();
+    private final BlockingQueue<Pending> queue;
+    private final Semaphore batchPermits;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public ImageTaggingService(ImageTagger tagger, ImageTaggingProperties properties,
+                               @Qualifier("processingIoExecutor") ExecutorService ioExecutor,
+                               @Qualifier("imageProcessingExecutor") PriorityTaskExecutor cpuExecutor,
+                               ParallelResizer resizer) {
+        this.tagger = tagger;
+        this.properties = properties;
+        this.ioExecutor = ioExecutor;
+        this.cpuExecutor = cpuExecutor;
+        this.resizer = resizer;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+                return size() > properties.getCacheSize();
+            }
+        });
+        this.queue = new LinkedBlockingQueue<>(
+                properties.getBatchSize() * properties.getMaxConcurrentBatches() * QUEUED_BATCHES);
+        this.batchPermits = new Semaphore(properties.getMaxConcurrentBatches());
+        this.dispatcher = Thread.ofVirtual().name("ImageTagging-dispatcher").start(this::dispatch);
+    }
+
+    /**
+     * Request tags for an image. Returns once the image is scaled down and queued; it is
+     * tagged with the next batch unless its content was tagged before. The result completes
+     * exceptionally if tagging fails, the queue is full, or tagging takes longer than the
+     * configured timeout (with a {@link java.util.concurrent.TimeoutException}).
+     *
+     * @param contentHash content hash of the original the image was decoded from, or null
+     * @param image upright decoded image; the caller may release it once this returns
+     * @return future of the generated tags
+     */
+    public CompletableFuture<Set<String>> generateTags(String contentHash, BufferedImage image) {
+        if (contentHash != null) {
+            Set<String> cached = cache.get(contentHash);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        CompletableFuture<Set<String>> result = new CompletableFuture<>();
+        if (contentHash != null) {
+            CompletableFuture<Set<String>> existing = inFlight.putIfAbsent(contentHash, result);
+            if (existing != null) {
+                return withTimeout(existing);
+            }
+        }
+
+        Pending pending;
         try {
-            log.debug("Generating AI tags for image (mock implementation)");
-            
-            // TODO: Integrate with real AI service
-            // Example with AWS Rekognition:
-            // DetectLabelsRequest request = DetectLabelsRequest.builder()
-            //         .image(Image.builder().bytes(SdkBytes.fromInputStream(imageStream)).build())
-            //         .maxLabels(10)
-            //         .minConfidence(75F)
-            //         .build();
-            // DetectLabelsResponse response = rekognitionClient.detectLabels(request);
-            // return response.labels().stream()
-            //         .map(Label::name)
-            //         .collect(Collectors.toSet());
-            
-            // Mock implementation - return empty set
-            return new HashSet<>();
-            
-        } catch (Exception e) {
-            log.error("Error generating image tags", e);
-            return new HashSet<>();
+            // Only the scaled copy is queued, so the caller's full-size decode is not kept alive
+            BufferedImage input = cpuExecutor.invoke(ProcessingStage.FINALIZE.getPriority(), () -> scale(image));
+            pending = new Pending(contentHash, input, result);
+        } catch (IOException | RuntimeException e) {
+            fail(new Pending(contentHash, null, result), e);
+            return withTimeout(result);
+        }
+        if (!running || !queue.offer(pending)) {
+            log.warn("Tagging queue is full, skipping tags for content: {}", contentHash);
+            fail(pending, new RejectedExecutionException("Tagging queue is full"));
+        }
+        return withTimeout(result);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        dispatcher.interrupt();
+        List<Pending> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        RejectedExecutionException stopped = new RejectedExecutionException("Tagging service stopped");
+        abandoned.forEach(pending -> fail(pending, stopped));
+    }
+
+    private CompletableFuture<Set<String>> withTimeout(CompletableFuture<Set<String>> shared) {
+        // A copy, so one caller's timeout does not complete the result others wait on
+        return shared.copy().orTimeout(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Collect queued images into batches and hand each to a virtual thread, keeping at
+     * most the configured number of batches in flight. While all are busy, images keep
+     * queueing, so the next batch is fuller.
+     */
+    private void dispatch() {
+        int batchSize = properties.getBatchSize();
+        long maxDelay = properties.getMaxBatchDelay().toNanos();
+        try {
+            while (running) {
+                Pending first = queue.take();
+                List<Pending> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelay;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                batchPermits.acquire();
+                ioExecutor.execute(() -> {
+                    try {
+                        runBatch(batch);
+                    } finally {
+                        batchPermits.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Image tagging dispatcher stopped");
+    }
+
+    private void runBatch(List<Pending> batch) {
+        try {
+            List<BufferedImage> inputs = batch.stream().map(Pending::image).toList();
+            List<Set<String>> results = tagger.tag(inputs);
+            if (results.size() != batch.size()) {
+                throw new IllegalStateException(
+                        "Tagger returned " + results.size() + " result(s) for " + batch.size() + " image(s)");
+            }
+            log.debug("Tagged batch of {} image(s)", batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                Set<String> tags = Set.copyOf(results.get(i));
+                if (pending.contentHash() != null) {
+                    cache.put(pending.contentHash(), tags);
+                }
+                finish(pending, tags);
+            }
+        } catch (RuntimeException e) {
+            // Failed results are not cached, so the content is tagged again next time
+            log.error("Error tagging batch of {} image(s)", batch.size(), e);
+            batch.forEach(pending -> fail(pending, e));
         }
     }
-}
 
+    private void finish(Pending pending, Set<String> tags) {
+        if (pending.contentHash() != null) {
+            inFlight.remove(pending.contentHash(), pending.result());
+        }
+        pending.result().complete(tags);
+    }
+
+    private void fail(Pending pending, Throwable error) {
+        if (pending.contentHash() != null) {
+            inFlight.remove(pending.contentHash(), pending.result());
+        }
+        pending.result().completeExceptionally(error);
+    }
+
+    /**
+     * Scale an image down to the tagger's input size, keeping its aspect ratio.
+     */
+    private BufferedImage scale(BufferedImage image) throws IOException {
+        int inputSize = properties.getInputSize();
+        double scale = (double) inputSize / Math.max(image.getWidth(), image.getHeight());
+        if (scale >= 1) {
+            return image;
+        }
+        return resizer.resize(image,
+                Math.max(1, (int) Math.round(image.getWidth() * scale)),
+                Math.max(1, (int) Math.round(image.getHeight() * scale)));
+    }
+
+    /**
+     * @param image image already scaled to the tagger's input size
+     */
+    private record Pending(String contentHash, BufferedImage image, CompletableFuture<Set<String>> result) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.rapidphoto.uploader.application.service;
+
+import java.util.UUID;
+
+/**
+ * Thrown by work for a photo that was deleted while it ran, before it writes anything
+ * to storage. The work is dropped rather than retried.
+ */
+public class PhotoDeletedException extends RuntimeException {
+
+    public PhotoDeletedException(UUID photoId) {
+        super("Photo was deleted: " + photoId);
+    }
+}
@@ -0,0 +1,128 @@
+package com.rapidphoto.uploader.application.service;
+
+import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import com.rapidphoto.uploader.infrastructure.image.ExifMetadataReader;
+import com.rapidphoto.uploader.infrastructure.image.ImageMetadata;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import com.rapidphoto.uploader.infrastructure.storage.StorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Service extracting dimensions and EXIF metadata of photos into the photos table.
+ * Only the header of the original is fetched, with ranged reads that grow until the
+ * metadata is complete, so extraction stays cheap enough to backfill existing photos.
+ * The same header usually contains the camera's embedded preview, which is published
+ * as a provisional thumbnail before any decode.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PhotoMetadataService {
+
+    private final StorageService storageService;
+    private final PhotoRepository photoRepository;
+    private final ExifMetadataReader metadataReader;
+    private final RenditionService renditionService;
+    private final ImageProcessingProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Extract and store the metadata of a photo's original, and publish its embedded
+     * preview if it has one. A photo with a preview becomes THUMBNAIL_READY.
+     * Only values found in the header are stored: a recompressed original no longer
+     * carries the uploaded file's EXIF, so reprocessing it keeps what was extracted before.
+     *
+     * @param photoId the photo ID
+     * @throws PhotoDeletedException if the photo was deleted, so the stage is dropped
+     */
+    public void extract(UUID photoId) throws IOException {
+        Photo photo = photoRepository.findById(photoId)
+                .orElseThrow(() -> new PhotoDeletedException(photoId));
+        Header header = read(photo.getStorageKey());
+        ImageMetadata metadata = header.metadata();
+        boolean previewPublished = publishPreview(photo, header);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Photo current = photoRepository.findById(photoId)
+                    .orElseThrow(() -> new PhotoDeletedException(photoId));
+            setIfPresent(metadata.getWidth(), current::setWidth);
+            setIfPresent(metadata.getHeight(), current::setHeight);
+            setIfPresent(metadata.getOrientation(), current::setOrientation);
+            setIfPresent(metadata.getCapturedAt(), current::setCapturedAt);
+            setIfPresent(metadata.getCameraMake(), current::setCameraMake);
+            setIfPresent(metadata.getCameraModel(), current::setCameraModel);
+            setIfPresent(metadata.getLatitude(), current::setLatitude);
+            setIfPresent(metadata.getLongitude(), current::setLongitude);
+            if (metadata.getTags() != null && !metadata.getTags().isEmpty()) {
+                current.setExif(metadata.getTags());
+            }
+            current.setMetadataExtractedAt(Instant.now());
+            if (previewPublished) {
+                current.advanceStatus(Photo.PhotoStatus.THUMBNAIL_READY);
+            }
+            photoRepository.save(current);
+        });
+
+        log.info("Extracted metadata for photo: {}, {}x{}, captured: {}, camera: {}",
+                photoId, metadata.getWidth(), metadata.getHeight(), metadata.getCapturedAt(), metadata.getCameraModel());
+    }
+
+    private static <T> void setIfPresent(T value, Consumer<T> setter) {
+        if (value != null) {
+            setter.accept(value);
+        }
+    }
+
+    /**
+     * Publish the embedded preview; failing to do so only delays the thumbnail until renditions exist.
+     */
+    private boolean publishPreview(Photo photo, Header header) {
+        try {
+            return renditionService.publishPreview(photo, header.bytes(), header.metadata().getOrientation()).isPresent();
+        } catch (PhotoDeletedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Failed to publish embedded preview for photo: {}", photo.getId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Read metadata from a growing prefix of the object until the header fits or the limit is reached.
+     */
+    private Header read(String key) throws IOException {
+        long maxSize = properties.getMetadata().getMaxReadSize().toBytes();
+        long size = Math.min(properties.getMetadata().getInitialReadSize().toBytes(), maxSize);
+        while (true) {
+            byte[] head;
+            try (InputStream content = storageService.downloadRange(key, 0, size)) {
+                head = content.readAllBytes();
+            }
+
+            boolean complete = head.length < size || size >= maxSize;
+            Optional<ImageMetadata> metadata = metadataReader.read(head, complete);
+            if (metadata.isPresent()) {
+                return new Header(head, metadata.get());
+            }
+            log.debug("Metadata of {} extends past the first {} bytes, reading more", key, size);
+            size = Math.min(size * 2, maxSize);
+        }
+    }
+
+    /**
+     * Leading bytes of an original and the metadata read from them.
+     */
+    private record Header(byte[] bytes, ImageMetadata metadata) {
+    }
+}
@@ -0,0 +1,132 @@
+package com.rapidphoto.uploader.application.service;
+
+import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.PhotoRendition;
+import com.rapidphoto.uploader.infrastructure.config.PhotoPurgeProperties;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRenditionRepository;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import com.rapidphoto.uploader.infrastructure.storage.StorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Service removing deleted photos for good.
+ * Deleting photos only marks them; they are purged here in batches, oldest first, in
+ * three steps so no transaction is open while storage is called: a short transaction
+ * claims a batch and releases each photo's reference to its content, the originals and
+ * renditions no other photo shares are then deleted from storage in as few requests as
+ * possible, and a second short transaction removes the rows. A photo that owns its
+ * objects has every rendition key derived from its original deleted, not only those
+ * recorded for it: renditions generated on demand for another photo sharing the content
+ * are recorded for that photo alone. Whether a photo owns its
+ * objects is recorded with the release, so a purge retried after a failure or a crash
+ * never releases a photo twice. Photos whose objects could not all be deleted stay
+ * marked and are purged again on a later run. Photos are only purged a grace period
+ * after deletion, so processing already running for them can finish first.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PhotoPurgeService {
+
+    private final PhotoRepository photoRepository;
+    private final PhotoRenditionRepository renditionRepository;
+    private final RenditionService renditionService;
+    private final ContentDedupService contentDedupService;
+    private final StorageService storageService;
+    private final PhotoPurgeProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Purge one batch of deleted photos. Photos claimed by another node are skipped.
+     *
+     * @return number of photos purged
+     */
+    public int purge() {
+        List<Claimed> claimed = transactionTemplate.execute(status -> claim(Instant.now()));
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+
+        List<String> keys = claimed.stream().flatMap(photo -> photo.keys().stream()).distinct().toList();
+        Set<String> failed = keys.isEmpty() ? Set.of() : new HashSet<>(storageService.deleteFiles(keys));
+        Map<Boolean, List<UUID>> byOutcome = claimed.stream().collect(Collectors.partitioningBy(
+                photo -> photo.keys().stream().noneMatch(failed::contains),
+                Collectors.mapping(Claimed::photoId, Collectors.toList())));
+        List<UUID> purged = byOutcome.get(true);
+        List<UUID> retried = byOutcome.get(false);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!purged.isEmpty()) {
+                photoRepository.deletePurged(purged);
+            }
+            if (!retried.isEmpty()) {
+                photoRepository.releasePurgeClaims(retried);
+            }
+        });
+
+        log.info("Purged {} of {} deleted photos, {} objects deleted", purged.size(), claimed.size(),
+                keys.size() - failed.size());
+        return purged.size();
+    }
+
+    /**
+     * Lock and claim a batch of deleted photos, releasing the content of those not released
+     * by an earlier attempt, and collect the keys of the objects each one owns.
+     */
+    private List<Claimed> claim(Instant now) {
+        List<Photo> photos = photoRepository.lockDeletedBefore(now.minus(properties.getGracePeriod()),
+                now.minus(properties.getClaimTimeout()), properties.getBatchSize());
+        if (photos.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, List<PhotoRendition>> renditions = renditionRepository
+                .findByPhotoIdIn(photos.stream().map(Photo::getId).toList()).stream()
+                .collect(Collectors.groupingBy(PhotoRendition::getPhotoId));
+        List<Claimed> claimed = new ArrayList<>(photos.size());
+        List<UUID> owning = new ArrayList<>();
+        List<UUID> sharing = new ArrayList<>();
+        for (Photo photo : photos) {
+            // Deduplicated copies share their original and renditions; only the last one deletes them
+            boolean ownsObjects = photo.getPurgeOwnsObjects() != null
+                    ? photo.getPurgeOwnsObjects()
+                    : contentDedupService.release(photo);
+            Set<String> keys = new LinkedHashSet<>();
+            if (ownsObjects) {
+                keys.add(photo.getStorageKey());
+                renditions.getOrDefault(photo.getId(), List.of()).forEach(rendition -> keys.add(rendition.getStorageKey()));
+                keys.addAll(renditionService.renditionKeys(photo.getStorageKey()));
+                owning.add(photo.getId());
+            } else {
+                sharing.add(photo.getId());
+            }
+            claimed.add(new Claimed(photo.getId(), List.copyOf(keys)));
+        }
+        if (!owning.isEmpty()) {
+            photoRepository.claimForPurge(owning, true, now);
+        }
+        if (!sharing.isEmpty()) {
+            photoRepository.claimForPurge(sharing, false, now);
+        }
+        return claimed;
+    }
+
+    /**
+     * A photo claimed for purging and the storage keys to delete with it.
+     */
+    private record Claimed(UUID photoId, List<String> keys) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.rapidphoto.uploader.application.service;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown by a processing stage that cannot run yet but is expected to succeed later.
+ * The task is re-queued after the given delay without counting as a failed attempt.
+ */
+@Getter
+public class ProcessingDeferredException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ProcessingDeferredException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,270 @@
+package com.rapidphoto.uploader.application.service;
+
+import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.ProcessingStage;
+import com.rapidphoto.uploader.domain.ProcessingTask;
+import com.rapidphoto.uploader.infrastructure.config.ProcessingQueueProperties;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import com.rapidphoto.uploader.infrastructure.repository.ProcessingTaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service managing the durable processing queue.
+ * Tasks live in the processing_tasks table, so queued work survives restarts and
+ * any number of nodes can drain the queue. A worker claims tasks under a lease;
+ * every state change after the claim is conditional on still holding that lease,
+ * so a worker that stalled past its lease cannot overwrite the work of the worker
+ * that reclaimed the task.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProcessingTaskService {
+
+    private final ProcessingTaskRepository taskRepository;
+    private final PhotoRepository photoRepository;
+    private final ProcessingQueueProperties properties;
+
+    /**
+     * Queue a stage for a photo. Does nothing if the stage is already queued or running.
+     * @param photoId the photo ID
+     * @param stage the stage to run
+     * @param delay how long before the task may be claimed
+     */
+    @Transactional
+    public void enqueue(UUID photoId, ProcessingStage stage, Duration delay) {
+        Instant now = Instant.now();
+        int inserted = taskRepository.insertIfAbsent(
+                photoId, stage.name(), stage.getPriority(), now.plus(delay), now);
+        if (inserted == 0) {
+            log.debug("{} already queued for photo: {}", stage, photoId);
+        }
+    }
+
+    /**
+     * Queue a stage to reprocess an existing photo, behind every stage of new uploads.
+     * Only that stage runs; the photo's later stages are not queued after it.
+     * Does nothing if the stage is already queued or running.
+     * @param photoId the photo ID
+     * @param stage the stage to run
+     * @return true if the task was queued
+     */
+    @Transactional
+    public boolean enqueueReprocessing(UUID photoId, ProcessingStage stage) {
+        Instant now = Instant.now();
+        return taskRepository.insertIfAbsent(photoId, stage.name(),
+                stage.getPriority() + properties.getReprocessingPriority(), now, now) > 0;
+    }
+
+    /**
+     * @return number of reprocessing tasks queued or running
+     */
+    @Transactional(readOnly = true)
+    public long countReprocessing() {
+        return taskRepository.countLiveFromPriority(properties.getReprocessingPriority());
+    }
+
+    /**
+     * Make a delayed stage claimable now, e.g. once its upload has been verified.
+     * @param photoId the photo ID
+     * @param stage the queued stage
+     */
+    @Transactional
+    public void release(UUID photoId, ProcessingStage stage) {
+        taskRepository.makeAvailable(photoId, stage.name(), Instant.now());
+    }
+
+    /**
+     * Drop queued stages of a photo that have not started.
+     * @param photoId the photo ID
+     */
+    @Transactional
+    public void cancel(UUID photoId) {
+        int removed = taskRepository.deletePending(photoId);
+        if (removed > 0) {
+            log.info("Cancelled {} queued processing task(s) for photo: {}", removed, photoId);
+        }
+    }
+
+    /**
+     * Claim up to {@code limit} tasks for a worker. Tasks reclaimed from a worker that
+     * died are counted as attempts; a task that has exhausted its attempts this way is
+     * failed instead of being handed out again.
+     * @param owner worker identifier
+     * @param limit maximum number of tasks
+     * @return claimed tasks, in priority order
+     */
+    @Transactional
+    public List<ProcessingTask> claim(String owner, int limit) {
+        Instant now = Instant.now();
+        List<ProcessingTask> claimed = new ArrayList<>();
+        for (ProcessingTask task : taskRepository.lockClaimable(now, limit)) {
+            if (task.getAttempts() >= properties.getMaxAttempts()) {
+                log.error("Processing task {} ({} for photo {}) lost its lease on the final attempt",
+                        task.getId(), task.getStage(), task.getPhotoId());
+                failPermanently(task, "Worker lease expired after " + task.getAttempts() + " attempts");
+                continue;
+            }
+            task.setStatus(ProcessingTask.TaskStatus.RUNNING);
+            task.setAttempts(task.getAttempts() + 1);
+            task.setLeaseOwner(owner);
+            task.setLeaseExpiresAt(now.plus(properties.getLeaseDuration()));
+            claimed.add(task);
+        }
+        return claimed;
+    }
+
+    /**
+     * Extend the leases of tasks a worker is still running.
+     * @param owner worker identifier
+     * @param taskIds running task IDs
+     */
+    @Transactional
+    public void heartbeat(String owner, Collection<UUID> taskIds) {
+        if (taskIds.isEmpty()) {
+            return;
+        }
+        int extended = taskRepository.extendLeases(taskIds, owner, Instant.now().plus(properties.getLeaseDuration()));
+        if (extended < taskIds.size()) {
+            log.warn("Worker {} lost the lease on {} of {} running task(s)", owner, taskIds.size() - extended, taskIds.size());
+        }
+    }
+
+    /**
+     * Record a finished task and queue the photo's next stage, unless it was reprocessing.
+     * @param task the claimed task
+     * @param owner worker identifier
+     * @param continueStages whether the photo's remaining stages should run
+     */
+    @Transactional
+    public void complete(ProcessingTask task, String owner, boolean continueStages) {
+        if (taskRepository.deleteLeased(task.getId(), owner) == 0) {
+            log.warn("Processing task {} finished after its lease was lost; leaving it to the new owner", task.getId());
+            return;
+        }
+        if (continueStages && task.getPriority() < properties.getReprocessingPriority()) {
+            task.getStage().next().ifPresent(next -> enqueue(task.getPhotoId(), next, Duration.ZERO));
+        }
+    }
+
+    /**
+     * Put a claimed task back in the queue without counting the attempt.
+     * @param task the claimed task
+     * @param owner worker identifier
+     * @param delay how long before the task may be claimed again
+     * @param reason why the task was deferred
+     */
+    @Transactional
+    public void defer(ProcessingTask task, String owner, Duration delay, String reason) {
+        ProcessingTask current = findLeased(task, owner);
+        if (current == null) {
+            return;
+        }
+        current.setStatus(ProcessingTask.TaskStatus.PENDING);
+        current.setAttempts(Math.max(0, current.getAttempts() - 1));
+        current.setAvailableAt(Instant.now().plus(delay));
+        current.setLeaseOwner(null);
+        current.setLeaseExpiresAt(null);
+        current.setLastError(reason);
+        log.info("{} deferred for photo: {} by {}s: {}", current.getStage(), current.getPhotoId(), delay.toSeconds(), reason);
+    }
+
+    /**
+     * Record a failed attempt: retry with backoff, or fail the photo once attempts are exhausted.
+     * @param task the claimed task
+     * @param owner worker identifier
+     * @param error the failure
+     */
+    @Transactional
+    public void fail(ProcessingTask task, String owner, Exception error) {
+        ProcessingTask current = findLeased(task, owner);
+        if (current == null) {
+            return;
+        }
+
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+        if (current.getAttempts() >= properties.getMaxAttempts()) {
+            failPermanently(current, message);
+            return;
+        }
+
+        Duration delay = backoff(current.getAttempts());
+        current.setStatus(ProcessingTask.TaskStatus.PENDING);
+        current.setAvailableAt(Instant.now().plus(delay));
+        current.setLeaseOwner(null);
+        current.setLeaseExpiresAt(null);
+        current.setLastError(message);
+        log.warn("{} failed for photo: {} (attempt {}), retrying in {}s",
+                current.getStage(), current.getPhotoId(), current.getAttempts(), delay.toSeconds());
+    }
+
+    /**
+     * Fail a task and its photo without retrying, for errors that would recur on every attempt.
+     * @param task the claimed task
+     * @param owner worker identifier
+     * @param reason why the photo cannot be processed
+     */
+    @Transactional
+    public void reject(ProcessingTask task, String owner, String reason) {
+        ProcessingTask current = findLeased(task, owner);
+        if (current != null) {
+            failPermanently(current, reason);
+        }
+    }
+
+    /**
+     * Load and lock a task if the worker still holds its lease. The row lock keeps the
+     * lease from being reclaimed between this check and the caller's update.
+     */
+    private ProcessingTask findLeased(ProcessingTask task, String owner) {
+        ProcessingTask current = taskRepository.findByIdForUpdate(task.getId()).orElse(null);
+        if (current == null || !owner.equals(current.getLeaseOwner())
+                || current.getStatus() != ProcessingTask.TaskStatus.RUNNING) {
+            log.warn("Processing task {} ended after its lease was lost; leaving it to the new owner", task.getId());
+            return null;
+        }
+        return current;
+    }
+
+    private void failPermanently(ProcessingTask task, String message) {
+        task.setStatus(ProcessingTask.TaskStatus.FAILED);
+        task.setLeaseOwner(null);
+        task.setLeaseExpiresAt(null);
+        task.setLastError(message);
+        // A photo that failed reprocessing keeps what earlier processing produced, as does one
+        // that FINALIZE completed before tagging failed. Earlier stages' completed statuses are
+        // set before they finish (PROCESSING on upload, THUMBNAIL_READY by the EXIF preview),
+        // so those photos are always failed.
+        if (task.getPriority() < properties.getReprocessingPriority()) {
+            photoRepository.findById(task.getPhotoId())
+                    .filter(photo -> !isFinalized(task, photo))
+                    .ifPresent(photo -> {
+                        photo.setStatus(Photo.PhotoStatus.FAILED);
+                        photoRepository.save(photo);
+                    });
+        }
+        log.error("{} failed permanently for photo: {}: {}", task.getStage(), task.getPhotoId(), message);
+    }
+
+    private static boolean isFinalized(ProcessingTask task, Photo photo) {
+        return task.getStage() == ProcessingStage.FINALIZE && photo.getStatus() == Photo.PhotoStatus.COMPLETE;
+    }
+
+    /**
+     * Exponential backoff from the configured base delay, capped at the maximum.
+     */
+    private Duration backoff(int attempts) {
+        Duration delay = properties.getRetryBaseDelay().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(properties.getRetryMaxDelay()) > 0 ? properties.getRetryMaxDelay() : delay;
+    }
+}
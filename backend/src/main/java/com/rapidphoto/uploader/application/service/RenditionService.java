@@ -0,0 +1,579 @@
+package com.rapidphoto.uploader.application.service;
+
+import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.PhotoRendition;
+import com.rapidphoto.uploader.domain.ProcessingStage;
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import com.rapidphoto.uploader.infrastructure.image.DecodedImage;
+import com.rapidphoto.uploader.infrastructure.image.ExifThumbnailExtractor;
+import com.rapidphoto.uploader.infrastructure.image.ImageBuffer;
+import com.rapidphoto.uploader.infrastructure.image.ImageBufferPool;
+import com.rapidphoto.uploader.infrastructure.image.ImageCodec;
+import com.rapidphoto.uploader.infrastructure.processing.DecodeMemoryGovernor;
+import com.rapidphoto.uploader.infrastructure.processing.PriorityTaskExecutor;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRenditionRepository;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import com.rapidphoto.uploader.infrastructure.storage.AsyncStorageService;
+import com.rapidphoto.uploader.infrastructure.storage.StorageKeyGenerator;
+import com.rapidphoto.uploader.infrastructure.storage.StorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Service for generating and selecting photo renditions.
+ * Renditions are produced from configured profiles in parallel and recorded in the
+ * rendition manifest, so readers only ever reference renditions that exist. Each
+ * profile is encoded on the CPU pool and uploaded asynchronously, so the uploads of
+ * finished profiles overlap the encoding of the others.
+ * A JPEG's embedded EXIF preview can be published ahead of them as a provisional
+ * entry, which the generated rendition of the same name replaces.
+ * With lazy renditions enabled, processing generates only the default rendition and
+ * other profiles are generated the first time they are requested.
+ * Nothing is uploaded for a photo that has been deleted, so a purge is not followed by
+ * renditions it did not see.
+ */
+@Service
+@Slf4j
+public class RenditionService {
+
+    /**
+     * Storage key suffix of the provisional rendition taken from the EXIF preview.
+     */
+    private static final String PREVIEW_SUFFIX = "preview";
+
+    private final StorageService storageService;
+    private final AsyncStorageService asyncStorageService;
+    private final StorageKeyGenerator keyGenerator;
+    private final PhotoRenditionRepository renditionRepository;
+    private final PhotoRepository photoRepository;
+    private final ImageCodec imageCodec;
+    private final ExifThumbnailExtractor thumbnailExtractor;
+    private final ImageBufferPool bufferPool;
+    private final ImageProcessingProperties properties;
+    private final ExecutorService ioExecutor;
+    private final PriorityTaskExecutor cpuExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final DecodeMemoryGovernor memoryGovernor;
+    private final ConcurrentMap<String, CompletableFuture<PhotoRendition>> generating = new ConcurrentHashMap<>();
+
+    public RenditionService(StorageService storageService,
+                            AsyncStorageService asyncStorageService,
+                            StorageKeyGenerator keyGenerator,
+                            PhotoRenditionRepository renditionRepository,
+                            PhotoRepository photoRepository,
+                            ImageCodec imageCodec,
+                            ExifThumbnailExtractor thumbnailExtractor,
+                            ImageBufferPool bufferPool,
+                            ImageProcessingProperties properties,
+                            @Qualifier("processingIoExecutor") ExecutorService ioExecutor,
+                            @Qualifier("imageProcessingExecutor") PriorityTaskExecutor cpuExecutor,
+                            TransactionTemplate transactionTemplate,
+                            DecodeMemoryGovernor memoryGovernor) {
+        this.storageService = storageService;
+        this.asyncStorageService = asyncStorageService;
+        this.keyGenerator = keyGenerator;
+        this.renditionRepository = renditionRepository;
+        this.photoRepository = photoRepository;
+        this.imageCodec = imageCodec;
+        this.thumbnailExtractor = thumbnailExtractor;
+        this.bufferPool = bufferPool;
+        this.properties = properties;
+        this.ioExecutor = ioExecutor;
+        this.cpuExecutor = cpuExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.memoryGovernor = memoryGovernor;
+    }
+
+    /**
+     * Generate, upload and record the configured renditions of a photo: all of them, or
+     * only the default one when renditions are lazy.
+     * Profiles are encoded in parallel; profiles that would only duplicate a smaller
+     * one (because the original is already smaller than that profile) are skipped.
+     * Only recording the manifest runs in a transaction, after all uploads finish. If a
+     * profile fails, the renditions that were uploaded are still recorded, so no object
+     * is left in storage without a manifest entry, and the failure is rethrown.
+     *
+     * @param photo the photo
+     * @param decoded the decoded original, possibly subsampled
+     * @return recorded renditions
+     */
+    public List<PhotoRendition> generateRenditions(Photo photo, DecodedImage decoded) {
+        List<ImageProcessingProperties.Rendition> profiles = applicableProfiles(decoded);
+
+        List<CompletableFuture<PhotoRendition>> futures = profiles.stream()
+                .map(profile -> CompletableFuture.supplyAsync(() -> encode(photo, decoded, profile), ioExecutor)
+                        .thenCompose(this::upload))
+                .toList();
+
+        // Wait for every profile, so renditions that did upload are recorded even if others failed
+        List<PhotoRendition> rendered = new ArrayList<>(futures.size());
+        Throwable failure = null;
+        for (CompletableFuture<PhotoRendition> future : futures) {
+            try {
+                rendered.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+
+        List<PhotoRendition> recorded = recordAll(rendered);
+        if (failure instanceof PhotoDeletedException deleted) {
+            throw deleted;
+        }
+        if (failure != null) {
+            log.warn("Recorded {} of {} renditions for photo {} before failing", recorded.size(), futures.size(),
+                    photo.getId());
+            throw new RuntimeException("Failed to generate renditions for photo: " + photo.getId(), failure);
+        }
+
+        log.info("Generated {} renditions for photo: {}", recorded.size(), photo.getId());
+        return recorded;
+    }
+
+    /**
+     * Publish the preview embedded in a JPEG's EXIF header as a provisional rendition
+     * under the default profile's name, so the gallery has a thumbnail before the
+     * original is decoded. Does nothing if the header carries no preview or the photo
+     * already has that rendition.
+     *
+     * @param photo the photo
+     * @param head leading bytes of the original
+     * @param orientation EXIF orientation of the original, may be null
+     * @return the recorded preview, empty if none was published
+     */
+    public Optional<PhotoRendition> publishPreview(Photo photo, byte[] head, Integer orientation) throws IOException {
+        Optional<byte[]> preview = thumbnailExtractor.extract(head);
+        String name = properties.getDefaultRendition();
+        if (preview.isEmpty() || renditionRepository.findByPhotoIdAndName(photo.getId(), name).isPresent()) {
+            return Optional.empty();
+        }
+
+        // The embedded preview carries no orientation of its own; only rotated photos are re-encoded
+        byte[] content = preview.get();
+        Dimension dimension;
+        if (orientation == null || orientation == 1) {
+            dimension = imageCodec.readDimensions(new ByteArrayInputStream(content));
+        } else {
+            DecodedImage decoded = imageCodec.decode(new ByteArrayInputStream(content));
+            BufferedImage upright = imageCodec.orient(decoded.getImage(), orientation);
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream(content.length);
+            imageCodec.encode(upright, decoded.getFormatName(), defaultQuality(), encoded);
+            content = encoded.toByteArray();
+            dimension = new Dimension(upright.getWidth(), upright.getHeight());
+        }
+
+        String key = keyGenerator.generateRenditionKey(photo.getStorageKey(), PREVIEW_SUFFIX);
+        ensureNotDeleted(photo.getId());
+        storageService.uploadFile(key, new ByteArrayInputStream(content), "image/jpeg", content.length);
+
+        PhotoRendition rendition = PhotoRendition.builder()
+                .photoId(photo.getId())
+                .name(name)
+                .storageKey(key)
+                .width(dimension.width)
+                .height(dimension.height)
+                .fileSize((long) content.length)
+                .contentType("image/jpeg")
+                .provisional(true)
+                .build();
+        PhotoRendition recorded = transactionTemplate.execute(status -> renditionRepository
+                .findByPhotoIdAndName(photo.getId(), name)
+                .orElseGet(() -> renditionRepository.save(rendition)));
+
+        log.info("Published {}x{} embedded preview for photo: {}", dimension.width, dimension.height, photo.getId());
+        return Optional.of(recorded);
+    }
+
+    /**
+     * Find a named rendition of a photo, generating it if it does not exist yet.
+     * Concurrent requests for the same missing rendition share one generation; once
+     * recorded, later requests are served from the manifest without touching the original.
+     *
+     * @param photo the photo; its original must be in storage
+     * @param name rendition profile name
+     * @return the rendition, empty if no profile has that name
+     * @throws ProcessingDeferredException if there is no decode memory to generate it now
+     */
+    public Optional<PhotoRendition> findOrGenerate(Photo photo, String name) throws IOException {
+        ImageProcessingProperties.Rendition profile = properties.getRenditions().stream()
+                .filter(candidate -> candidate.getName().equals(name))
+                .findFirst()
+                .orElse(null);
+        if (profile == null) {
+            return Optional.empty();
+        }
+        Optional<PhotoRendition> existing = findEquivalent(photo, profile);
+        if (existing.isPresent()) {
+            return existing;
+        }
+
+        String key = photo.getId() + "/" + name;
+        CompletableFuture<PhotoRendition> generation = generating.computeIfAbsent(key,
+                ignored -> CompletableFuture.supplyAsync(() -> generateOnDemand(photo, profile), ioExecutor));
+        generation.whenComplete((rendition, error) -> generating.remove(key, generation));
+        try {
+            return Optional.of(generation.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException cause) {
+                throw cause.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException("Failed to generate rendition " + name + " for photo: " + photo.getId(), e.getCause());
+        }
+    }
+
+    /**
+     * Every storage key a rendition of an original may be stored under, whether or not
+     * it was recorded for a particular photo: generated renditions of every profile and
+     * the provisional preview.
+     *
+     * @param originalKey the original's storage key
+     * @return rendition storage keys
+     */
+    public List<String> renditionKeys(String originalKey) {
+        List<String> keys = new ArrayList<>(properties.getRenditions().size() + 1);
+        properties.getRenditions().forEach(profile ->
+                keys.add(keyGenerator.generateRenditionKey(originalKey, profile.getName())));
+        keys.add(keyGenerator.generateRenditionKey(originalKey, PREVIEW_SUFFIX));
+        return keys;
+    }
+
+    /**
+     * @return size of the largest profile generated during processing in pixels
+     */
+    public int largestProfileSize() {
+        return properties.getRenditions().stream()
+                .filter(this::isEager)
+                .mapToInt(ImageProcessingProperties.Rendition::getSize)
+                .max()
+                .orElse(0);
+    }
+
+    /**
+     * Find the renditions of several photos, grouped by photo ID.
+     *
+     * @param photoIds the photo IDs
+     * @return renditions per photo
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, List<PhotoRendition>> findByPhotoIds(Collection<UUID> photoIds) {
+        if (photoIds.isEmpty()) {
+            return Map.of();
+        }
+        return renditionRepository.findByPhotoIdIn(photoIds).stream()
+                .collect(Collectors.groupingBy(PhotoRendition::getPhotoId));
+    }
+
+    /**
+     * Find the renditions of a photo.
+     *
+     * @param photoId the photo ID
+     * @return renditions
+     */
+    @Transactional(readOnly = true)
+    public List<PhotoRendition> findByPhotoId(UUID photoId) {
+        return renditionRepository.findByPhotoId(photoId);
+    }
+
+    /**
+     * Pick the smallest rendition that covers the requested size, or the largest one
+     * if none does. Without a requested size, the default profile's size is used.
+     *
+     * @param renditions available renditions
+     * @param requestedSize desired size of the longer edge in pixels, may be null
+     * @return selected rendition, empty if none exist
+     */
+    public Optional<PhotoRendition> select(Collection<PhotoRendition> renditions, Integer requestedSize) {
+        if (renditions == null || renditions.isEmpty()) {
+            return Optional.empty();
+        }
+        int target = requestedSize != null ? requestedSize : defaultSize();
+
+        Comparator<PhotoRendition> bySize = Comparator.comparingInt(PhotoRendition::getLongestEdge);
+        return renditions.stream()
+                .filter(rendition -> rendition.getLongestEdge() >= target)
+                .min(bySize)
+                .or(() -> renditions.stream().max(bySize));
+    }
+
+    /**
+     * Profiles worth generating for an image, ordered by size.
+     */
+    private List<ImageProcessingProperties.Rendition> applicableProfiles(DecodedImage decoded) {
+        int longestEdge = Math.max(decoded.getSourceWidth(), decoded.getSourceHeight());
+        List<ImageProcessingProperties.Rendition> sorted = properties.getRenditions().stream()
+                .filter(this::isEager)
+                .sorted(Comparator.comparingInt(ImageProcessingProperties.Rendition::getSize))
+                .toList();
+
+        List<ImageProcessingProperties.Rendition> applicable = new ArrayList<>();
+        int previousSize = 0;
+        for (ImageProcessingProperties.Rendition profile : sorted) {
+            if (longestEdge > previousSize) {
+                applicable.add(profile);
+            }
+            previousSize = profile.getSize();
+        }
+        return applicable;
+    }
+
+    private boolean isEager(ImageProcessingProperties.Rendition profile) {
+        return !properties.isLazyRenditions() || profile.getName().equals(properties.getDefaultRendition());
+    }
+
+    /**
+     * A recorded rendition that serves for a profile: the profile's own, or one with the
+     * exact dimensions the profile would produce, as when the original is smaller than it.
+     */
+    private Optional<PhotoRendition> findEquivalent(Photo photo, ImageProcessingProperties.Rendition profile) {
+        List<PhotoRendition> recorded = renditionRepository.findByPhotoId(photo.getId()).stream()
+                .filter(rendition -> !rendition.isProvisional())
+                .toList();
+        Optional<PhotoRendition> named = recorded.stream()
+                .filter(rendition -> rendition.getName().equals(profile.getName()))
+                .findFirst();
+        if (named.isPresent() || photo.getWidth() == null || photo.getHeight() == null) {
+            return named;
+        }
+        Dimension dimension = imageCodec.fitWithin(photo.getWidth(), photo.getHeight(), profile.getSize());
+        return recorded.stream()
+                .filter(rendition -> rendition.getWidth() == dimension.width && rendition.getHeight() == dimension.height)
+                .findFirst();
+    }
+
+    /**
+     * Generate and record one rendition from the original. Photos sharing deduplicated
+     * content share rendition keys, so a rendition already generated for another of them
+     * is recorded without being generated again.
+     */
+    private PhotoRendition generateOnDemand(Photo photo, ImageProcessingProperties.Rendition profile) {
+        String key = keyGenerator.generateRenditionKey(photo.getStorageKey(), profile.getName());
+        PhotoRendition rendition = renditionRepository.findFirstByStorageKeyAndProvisionalFalse(key)
+                .map(shared -> PhotoRendition.builder()
+                        .photoId(photo.getId())
+                        .name(profile.getName())
+                        .storageKey(shared.getStorageKey())
+                        .width(shared.getWidth())
+                        .height(shared.getHeight())
+                        .fileSize(shared.getFileSize())
+                        .contentType(shared.getContentType())
+                        .build())
+                .orElseGet(() -> render(photo, profile));
+
+        try {
+            PhotoRendition recorded = transactionTemplate.execute(status -> record(rendition, new ArrayList<>()));
+            log.info("Generated {} rendition on demand for photo: {}", profile.getName(), photo.getId());
+            return recorded;
+        } catch (DataIntegrityViolationException e) {
+            // Another node recorded the same rendition first
+            return renditionRepository.findByPhotoIdAndName(photo.getId(), profile.getName()).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Download and decode the original at the resolution a profile needs, then render it.
+     */
+    private PhotoRendition render(Photo photo, ImageProcessingProperties.Rendition profile) {
+        int targetSize = profile.getSize() * properties.getDecode().getSubsamplingOversample();
+        try (ImageBuffer original = bufferPool.newBuffer()) {
+            try (InputStream content = storageService.downloadFile(photo.getStorageKey())) {
+                content.transferTo(original);
+            }
+            Dimension source;
+            try (InputStream content = original.openStream()) {
+                source = imageCodec.readDimensions(content);
+            }
+            long pixels = imageCodec.decodedPixels(source.width, source.height, targetSize);
+            try (DecodeMemoryGovernor.Reservation reservation = memoryGovernor
+                    .reserve(source.width, source.height, pixels)
+                    .orElseThrow(() -> new ProcessingDeferredException(
+                            "Waiting for decode memory for a " + source.width + "x" + source.height + " image",
+                            properties.getMemory().getRetryDelay()))) {
+                DecodedImage decoded = cpuExecutor.invoke(ProcessingStage.RENDITIONS.getPriority(), () -> {
+                    try (InputStream content = original.openStream()) {
+                        return imageCodec.decode(content, targetSize);
+                    }
+                });
+                return upload(encode(photo, decoded, profile)).join();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to generate rendition " + profile.getName(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException(
+                    "Interrupted while waiting for decode memory for photo: " + photo.getId()));
+        }
+    }
+
+    /**
+     * Encode a rendition into a buffer, which the returned result owns until it is uploaded.
+     */
+    private EncodedRendition encode(Photo photo, DecodedImage decoded, ImageProcessingProperties.Rendition profile) {
+        Dimension dimension = imageCodec.fitWithin(
+                decoded.getSourceWidth(), decoded.getSourceHeight(), profile.getSize());
+        String key = keyGenerator.generateRenditionKey(photo.getStorageKey(), profile.getName());
+
+        ImageBuffer buffer = bufferPool.newBuffer();
+        try {
+            cpuExecutor.invoke(ProcessingStage.RENDITIONS.getPriority(), () -> {
+                imageCodec.encodeResized(decoded, dimension, profile.getQuality(), buffer);
+                return null;
+            });
+        } catch (IOException e) {
+            closeQuietly(buffer);
+            throw new UncheckedIOException("Failed to encode rendition " + profile.getName(), e);
+        } catch (RuntimeException e) {
+            closeQuietly(buffer);
+            throw e;
+        }
+
+        PhotoRendition rendition = PhotoRendition.builder()
+                .photoId(photo.getId())
+                .name(profile.getName())
+                .storageKey(key)
+                .width(dimension.width)
+                .height(dimension.height)
+                .fileSize(buffer.size())
+                .contentType(photo.getContentType())
+                .build();
+        return new EncodedRendition(rendition, buffer);
+    }
+
+    /**
+     * Upload an encoded rendition without holding a thread, releasing its buffer afterwards.
+     */
+    private CompletableFuture<PhotoRendition> upload(EncodedRendition encoded) {
+        PhotoRendition rendition = encoded.rendition();
+        ImageBuffer buffer = encoded.buffer();
+        InputStream content;
+        try {
+            ensureNotDeleted(rendition.getPhotoId());
+            content = buffer.openStream();
+        } catch (IOException e) {
+            closeQuietly(buffer);
+            return CompletableFuture.failedFuture(
+                    new UncheckedIOException("Failed to upload rendition " + rendition.getName(), e));
+        } catch (RuntimeException e) {
+            closeQuietly(buffer);
+            return CompletableFuture.failedFuture(e);
+        }
+        return asyncStorageService
+                .uploadFile(rendition.getStorageKey(), content, rendition.getContentType(), buffer.size())
+                .whenComplete((result, error) -> closeQuietly(buffer))
+                .thenApply(result -> rendition);
+    }
+
+    /**
+     * Record uploaded renditions in one transaction, then delete the provisional
+     * entries they replaced.
+     */
+    private List<PhotoRendition> recordAll(List<PhotoRendition> rendered) {
+        if (rendered.isEmpty()) {
+            return List.of();
+        }
+        List<String> replacedKeys = new ArrayList<>();
+        List<PhotoRendition> recorded = transactionTemplate.execute(status -> {
+            List<PhotoRendition> entries = new ArrayList<>(rendered.size());
+            for (PhotoRendition rendition : rendered) {
+                entries.add(record(rendition, replacedKeys));
+            }
+            return entries;
+        });
+        replacedKeys.forEach(this::deleteQuietly);
+        return recorded;
+    }
+
+    /**
+     * Insert or replace the manifest entry for a rendition.
+     *
+     * @param replacedKeys collects the storage keys of replaced provisional entries
+     */
+    private PhotoRendition record(PhotoRendition rendition, List<String> replacedKeys) {
+        PhotoRendition entry = renditionRepository
+                .findByPhotoIdAndName(rendition.getPhotoId(), rendition.getName())
+                .orElse(rendition);
+        if (entry.isProvisional() && !entry.getStorageKey().equals(rendition.getStorageKey())) {
+            replacedKeys.add(entry.getStorageKey());
+        }
+        entry.setProvisional(false);
+        entry.setStorageKey(rendition.getStorageKey());
+        entry.setWidth(rendition.getWidth());
+        entry.setHeight(rendition.getHeight());
+        entry.setFileSize(rendition.getFileSize());
+        entry.setContentType(rendition.getContentType());
+        return renditionRepository.save(entry);
+    }
+
+    private void ensureNotDeleted(UUID photoId) {
+        if (!photoRepository.existsById(photoId)) {
+            throw new PhotoDeletedException(photoId);
+        }
+    }
+
+    private void closeQuietly(ImageBuffer buffer) {
+        try {
+            buffer.close();
+        } catch (IOException e) {
+            log.warn("Failed to release rendition buffer", e);
+        }
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            storageService.deleteFile(key);
+        } catch (Exception e) {
+            log.warn("Failed to delete replaced provisional rendition: {}", key, e);
+        }
+    }
+
+    private double defaultQuality() {
+        return properties.getRenditions().stream()
+                .filter(profile -> profile.getName().equals(properties.getDefaultRendition()))
+                .mapToDouble(ImageProcessingProperties.Rendition::getQuality)
+                .findFirst()
+                .orElse(properties.getCompression().getQuality());
+    }
+
+    private int defaultSize() {
+        return properties.getRenditions().stream()
+                .filter(profile -> profile.getName().equals(properties.getDefaultRendition()))
+                .mapToInt(ImageProcessingProperties.Rendition::getSize)
+                .findFirst()
+                .orElse(0);
+    }
+
+    private record EncodedRendition(PhotoRendition rendition, ImageBuffer buffer) {
+    }
+}
@@ -1,7 +1,9 @@
 package com.rapidphoto.uploader.application.service;
 
 import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.ProcessingStage;
 import com.rapidphoto.uploader.domain.UploadJob;
+import com.rapidphoto.uploader.infrastructure.config.ProcessingQueueProperties;
 import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
 import com.rapidphoto.uploader.infrastructure.repository.UploadJobRepository;
 import io.github.resilience4j.retry.annotation.Retry;
@@ -25,7 +27,9 @@ public class UploadStatusService {
 
     private final UploadJobRepository uploadJobRepository;
     private final PhotoRepository photoRepository;
-    private final ImageProcessingService imageProcessingService;
+    private final UploadVerificationService uploadVerificationService;
+    private final ProcessingTaskService processingTaskService;
+    private final ProcessingQueueProperties processingQueueProperties;
     
     @Value("${image.processing.enabled:true}")
     private boolean imageProcessingEnabled;
@@ -69,6 +73,7 @@ public class UploadStatusService {
 
     /**
      * Mark upload as complete and trigger image processing.
+     * Processing is queued once the uploaded file is verified in storage.
      * @param uploadJobId the upload job ID
      */
     @Transactional
@@ -79,9 +84,19 @@ public class UploadStatusService {
         if (imageProcessingEnabled) {
             UploadJob uploadJob = uploadJobRepository.findById(uploadJobId)
                     .orElseThrow(() -> new RuntimeException("Upload job not found: " + uploadJobId));
+            Photo photo = photoRepository.findById(uploadJob.getPhotoId())
+                    .orElseThrow(() -> new RuntimeException("Photo not found: " + uploadJob.getPhotoId()));
             
-            log.info("Triggering image processing for photo: {}", uploadJob.getPhotoId());
-            imageProcessingService.processImageAsync(uploadJob.getPhotoId());
+            // Uploaded but not yet viewable until renditions exist
+            photo.setStatus(Photo.PhotoStatus.PROCESSING);
+            photoRepository.save(photo);
+            
+            // Queued with the completion itself so it survives a restart; released once verified
+            processingTaskService.enqueue(photo.getId(), ProcessingStage.first(),
+                    processingQueueProperties.getVerificationTimeout());
+            
+            log.info("Verifying upload before image processing for photo: {}", photo.getId());
+            uploadVerificationService.verifyThenProcess(uploadJob, photo);
         }
     }
 
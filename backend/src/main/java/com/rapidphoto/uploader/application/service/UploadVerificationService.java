@@ -0,0 +1,254 @@
+package com.rapidphoto.uploader.application.service;
+
+import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.ProcessingStage;
+import com.rapidphoto.uploader.domain.UploadJob;
+import com.rapidphoto.uploader.infrastructure.config.UploadVerificationProperties;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import com.rapidphoto.uploader.infrastructure.repository.UploadJobRepository;
+import com.rapidphoto.uploader.infrastructure.storage.StorageService;
+import com.rapidphoto.uploader.infrastructure.storage.StoredObject;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies that a completed upload is present in storage before processing starts.
+ * The first check runs as soon as completion is committed; objects not yet visible
+ * are re-checked with exponential backoff and jitter on a small scheduler, so no
+ * thread ever sleeps waiting for storage. Declared size and checksum are enforced.
+ * Processing is queued durably before verification starts, delayed by the verification
+ * timeout; a successful check makes it claimable immediately, a failed one cancels it.
+ * A failure is recorded in one transaction, retried with the same backoff if it cannot
+ * be committed, so a rejected upload does not keep its processing queued.
+ */
+@Service
+@Slf4j
+public class UploadVerificationService {
+
+    private final StorageService storageService;
+    private final PhotoRepository photoRepository;
+    private final UploadJobRepository uploadJobRepository;
+    private final ProcessingTaskService processingTaskService;
+    private final UploadVerificationProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService scheduler;
+
+    public UploadVerificationService(StorageService storageService,
+                                     PhotoRepository photoRepository,
+                                     UploadJobRepository uploadJobRepository,
+                                     ProcessingTaskService processingTaskService,
+                                     UploadVerificationProperties properties,
+                                     TransactionTemplate transactionTemplate) {
+        this.storageService = storageService;
+        this.photoRepository = photoRepository;
+        this.uploadJobRepository = uploadJobRepository;
+        this.processingTaskService = processingTaskService;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(properties.getSchedulerThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "UploadVerification-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Verify an upload and release its queued processing once the object is confirmed.
+     * When called inside a transaction, the first check runs after commit.
+     *
+     * @param uploadJob the completed upload job
+     * @param photo the uploaded photo
+     */
+    public void verifyThenProcess(UploadJob uploadJob, Photo photo) {
+        Verification verification = new Verification(
+                uploadJob.getId(),
+                photo.getId(),
+                photo.getStorageKey(),
+                photo.getFileSize(),
+                photo.getDeclaredChecksum(),
+                System.nanoTime());
+
+        Runnable firstCheck = () -> scheduler.execute(() -> check(verification, 0));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    firstCheck.run();
+                }
+            });
+        } else {
+            firstCheck.run();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Run one HEAD check and either hand off to processing, fail, or schedule the next check.
+     */
+    private void check(Verification verification, int attempt) {
+        Optional<StoredObject> stored;
+        try {
+            stored = storageService.getObjectMetadata(verification.storageKey());
+        } catch (Exception e) {
+            log.warn("Upload check failed for photo: {} (attempt {}): {}",
+                    verification.photoId(), attempt + 1, e.getMessage());
+            stored = Optional.empty();
+        }
+
+        if (stored.isPresent()) {
+            String mismatch = findMismatch(verification, stored.get());
+            if (mismatch != null) {
+                fail(verification, mismatch, 0);
+                return;
+            }
+
+            log.info("Upload verified for photo: {} after {} check(s), {} ms",
+                    verification.photoId(), attempt + 1,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - verification.startedAt()));
+            recordContentHash(verification, stored.get());
+            try {
+                processingTaskService.release(verification.photoId(), ProcessingStage.first());
+            } catch (Exception e) {
+                // The queued stage still becomes claimable once the verification timeout passes
+                log.error("Failed to release processing for photo: {}", verification.photoId(), e);
+            }
+            return;
+        }
+
+        int nextAttempt = attempt + 1;
+        if (nextAttempt >= properties.getMaxAttempts()) {
+            fail(verification, "Uploaded file not found in storage after " + nextAttempt + " checks", 0);
+            return;
+        }
+
+        long delayMillis = backoffMillis(attempt);
+        log.debug("Upload for photo {} not visible yet, re-checking in {} ms", verification.photoId(), delayMillis);
+        scheduler.schedule(() -> check(verification, nextAttempt), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half the capped delay, plus a random share of the other half.
+     */
+    private long backoffMillis(int attempt) {
+        long base = properties.getBaseDelay().toMillis();
+        long cap = properties.getMaxDelay().toMillis();
+        long exponential = Math.min(cap, base << Math.min(attempt, 20));
+        long half = Math.max(1, exponential / 2);
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    /**
+     * Compare the stored object against what the client declared.
+     *
+     * @return description of the mismatch, or null if the object matches
+     */
+    private String findMismatch(Verification verification, StoredObject stored) {
+        Long expectedSize = verification.declaredSize();
+        if (expectedSize != null && expectedSize > 0 && stored.getContentLength() != expectedSize) {
+            return "Uploaded file size " + stored.getContentLength() + " does not match declared size " + expectedSize;
+        }
+
+        String declaredChecksum = verification.declaredChecksum();
+        if (declaredChecksum != null) {
+            String storedChecksum = stored.getChecksumSha256();
+            if (storedChecksum == null && !isMultipart(stored)) {
+                // Single-request uploads always have storage compute a SHA-256, so a missing one is not trusted
+                return "Uploaded file has no stored checksum to verify the declared checksum against";
+            } else if (storedChecksum == null || storedChecksum.contains("-")) {
+                // Multipart uploads carry no whole-object checksum; the declared size was still enforced
+                log.warn("No whole-object checksum stored for photo: {}, skipping checksum verification",
+                        verification.photoId());
+            } else if (!storedChecksum.equals(declaredChecksum)) {
+                return "Uploaded file checksum does not match declared checksum";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Multipart uploads have an ETag ending in the number of parts, e.g. {@code "abc123-4"}.
+     */
+    private static boolean isMultipart(StoredObject stored) {
+        return stored.getETag() != null && stored.getETag().contains("-");
+    }
+
+    /**
+     * Keep the whole-object SHA-256 computed by storage, so processing can resolve
+     * duplicates without downloading the original.
+     */
+    private void recordContentHash(Verification verification, StoredObject stored) {
+        String checksum = stored.getChecksumSha256();
+        if (checksum == null || checksum.contains("-")) {
+            return;
+        }
+        try {
+            photoRepository.updateContentHash(verification.photoId(), checksum);
+        } catch (Exception e) {
+            log.warn("Failed to record content hash for photo: {}", verification.photoId(), e);
+        }
+    }
+
+    /**
+     * Fail the upload job and photo and cancel the queued processing together, retrying
+     * with backoff if that cannot be committed.
+     */
+    private void fail(Verification verification, String reason, int attempt) {
+        if (attempt == 0) {
+            log.error("Upload verification failed for photo: {}: {}", verification.photoId(), reason);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                uploadJobRepository.findById(verification.uploadJobId()).ifPresent(job -> {
+                    job.setStatus(UploadJob.UploadStatus.FAILED);
+                    job.setErrorMessage(reason);
+                    uploadJobRepository.save(job);
+                });
+                photoRepository.findById(verification.photoId()).ifPresent(photo -> {
+                    photo.setStatus(Photo.PhotoStatus.FAILED);
+                    photoRepository.save(photo);
+                });
+                processingTaskService.cancel(verification.photoId());
+            });
+        } catch (Exception e) {
+            int nextAttempt = attempt + 1;
+            if (nextAttempt >= properties.getMaxAttempts()) {
+                log.error("Failed to record verification failure for photo: {} after {} attempts",
+                        verification.photoId(), nextAttempt, e);
+                return;
+            }
+            long delayMillis = backoffMillis(attempt);
+            log.warn("Failed to record verification failure for photo: {}, retrying in {} ms",
+                    verification.photoId(), delayMillis, e);
+            scheduler.schedule(() -> fail(verification, reason, nextAttempt), delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * What the client declared for an upload, captured when completion was reported.
+     */
+    private record Verification(UUID uploadJobId,
+                                UUID photoId,
+                                String storageKey,
+                                Long declaredSize,
+                                String declaredChecksum,
+                                long startedAt) {
+    }
+}
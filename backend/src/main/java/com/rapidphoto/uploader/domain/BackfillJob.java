@@ -0,0 +1,103 @@
+package com.rapidphoto.uploader.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Domain entity representing a job reprocessing existing photos through one stage.
+ * The job pages through photos in ID order and queues the stage for each; the last
+ * queued photo ID is its checkpoint, saved together with the queued tasks, so a job
+ * resumes where it stopped after a restart.
+ */
+@Entity
+@Table(name = "backfill_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ProcessingStage stage;
+
+    /**
+     * Whether only photos without extracted metadata are reprocessed.
+     */
+    @Column(nullable = false)
+    private boolean missingMetadataOnly;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStatus status;
+
+    /**
+     * ID of the last photo queued; null before the first page.
+     */
+    @Column
+    private UUID cursorPhotoId;
+
+    @Column(nullable = false)
+    private Long queuedCount;
+
+    /**
+     * Photos queued per second at most.
+     */
+    @Column(nullable = false)
+    private Double ratePerSecond;
+
+    /**
+     * Reprocessing tasks allowed in the queue at once.
+     */
+    @Column(nullable = false)
+    private Integer maxInFlight;
+
+    /**
+     * When photos were last queued; the rate limit allows photos for the time since.
+     */
+    @Column
+    private Instant lastQueuedAt;
+
+    @Column
+    private UUID createdBy;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    @Column
+    private Instant completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+        if (queuedCount == null) {
+            queuedCount = 0L;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+
+    public enum JobStatus {
+        RUNNING,
+        PAUSED,
+        COMPLETED,
+        CANCELLED
+    }
+}
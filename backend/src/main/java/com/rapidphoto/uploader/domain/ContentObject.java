@@ -0,0 +1,66 @@
+package com.rapidphoto.uploader.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Domain entity representing a stored original shared by a user's byte-identical photos.
+ * The canonical photo is the one that was processed; duplicates reference its original
+ * and renditions, and the reference count says how many photos still use them.
+ */
+@Entity
+@Table(name = "content_objects")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentObject {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID userId;
+
+    /**
+     * Base64-encoded SHA-256 of the uploaded original.
+     */
+    @Column(nullable = false)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private String storageKey;
+
+    @Column
+    private UUID canonicalPhotoId;
+
+    @Column(nullable = false)
+    private Integer refCount;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+        if (refCount == null) {
+            refCount = 1;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+}
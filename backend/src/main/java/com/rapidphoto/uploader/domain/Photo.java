@@ -5,16 +5,22 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * Domain entity representing a photo in the system.
- * Part of the core domain model.
+ * Part of the core domain model. Deleted photos are invisible to entity queries until
+ * they are purged; only native queries see them.
  */
 @Entity
 @Table(name = "photos")
+@SQLRestriction("deleted_at IS NULL")
 @Data
 @Builder
 @NoArgsConstructor
@@ -44,12 +50,109 @@ public class Photo {
     @Column
     private String contentType;
 
+    @Column
+    private String declaredChecksum;
+
+    /**
+     * Base64-encoded SHA-256 of the uploaded original, once known.
+     */
+    @Column
+    private String contentHash;
+
+    /**
+     * Size of the original as uploaded, before recompression.
+     */
+    @Column
+    private Long originalSize;
+
+    /**
+     * Quality the stored original was recompressed at; null if the upload was kept as is.
+     */
+    @Column
+    private Double compressionQuality;
+
+    @Column
+    private Long bytesSaved;
+
+    /**
+     * Displayed width in pixels, after EXIF orientation.
+     */
+    @Column
+    private Integer width;
+
+    /**
+     * Displayed height in pixels, after EXIF orientation.
+     */
+    @Column
+    private Integer height;
+
+    /**
+     * EXIF orientation (1-8) of the original.
+     */
+    @Column
+    private Integer orientation;
+
+    @Column
+    private Instant capturedAt;
+
+    @Column
+    private String cameraMake;
+
+    @Column
+    private String cameraModel;
+
+    @Column
+    private Double latitude;
+
+    @Column
+    private Double longitude;
+
+    /**
+     * 64-bit perceptual hash (dHash); near-duplicates differ in few bits.
+     */
+    @Column
+    private Long perceptualHash;
+
+    /**
+     * BlurHash of the image, rendered by clients as a placeholder.
+     */
+    @Column
+    private String blurHash;
+
+    /**
+     * All metadata tags of the original, grouped by directory.
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private Map<String, Map<String, String>> exif;
+
+    /**
+     * When metadata was last extracted; null for photos still to be extracted or backfilled.
+     */
+    @Column
+    private Instant metadataExtractedAt;
+
     @ElementCollection
     @CollectionTable(name = "photo_tags", joinColumns = @JoinColumn(name = "photo_id"))
     @Column(name = "tag")
     @Builder.Default
     private java.util.Set<String> tags = new java.util.HashSet<>();
 
+    /**
+     * When the photo was deleted; its objects are purged from storage later.
+     * Only ever written by the bulk delete statement, so saving a copy of the photo
+     * loaded before it was deleted cannot undelete it.
+     */
+    @Column(insertable = false, updatable = false)
+    private Instant deletedAt;
+
+    /**
+     * Whether purging the deleted photo deletes its original and renditions, i.e. no other
+     * photo shares them; null until the purge has released its reference to the content.
+     */
+    @Column(insertable = false, updatable = false)
+    private Boolean purgeOwnsObjects;
+
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -67,9 +170,26 @@ public class Photo {
         updatedAt = Instant.now();
     }
 
+    /**
+     * Move the status forward to the given state. Processing states are ordered,
+     * so a late or repeated stage never moves a photo back; a failed photo may be
+     * picked up again by reprocessing.
+     *
+     * @param target status reached
+     * @return true if the status changed
+     */
+    public boolean advanceStatus(PhotoStatus target) {
+        if (status == null || status == PhotoStatus.FAILED || target.ordinal() > status.ordinal()) {
+            status = target;
+            return true;
+        }
+        return false;
+    }
+
     public enum PhotoStatus {
         UPLOADING,
         PROCESSING,
+        THUMBNAIL_READY,
         COMPLETE,
         FAILED
     }
@@ -0,0 +1,80 @@
+package com.rapidphoto.uploader.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Domain entity recording a rendition (resized copy) of a photo that exists in storage.
+ * The set of renditions for a photo forms its rendition manifest.
+ */
+@Entity
+@Table(name = "photo_renditions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhotoRendition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID photoId;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private String storageKey;
+
+    @Column(nullable = false)
+    private Integer width;
+
+    @Column(nullable = false)
+    private Integer height;
+
+    @Column(nullable = false)
+    private Long fileSize;
+
+    @Column
+    private String contentType;
+
+    /**
+     * Whether this is a stand-in, such as the camera's embedded preview, to be replaced
+     * by the generated rendition of the same name.
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private boolean provisional = false;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+
+    /**
+     * @return length of the longer edge in pixels
+     */
+    public int getLongestEdge() {
+        return Math.max(width, height);
+    }
+}
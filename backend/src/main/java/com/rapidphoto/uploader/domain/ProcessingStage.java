@@ -0,0 +1,50 @@
+package com.rapidphoto.uploader.domain;
+
+import lombok.Getter;
+
+import java.util.Optional;
+
+/**
+ * Stages a photo goes through after upload, in order.
+ * Stages with a lower priority value run first when work is queued, so every
+ * photo's renditions are produced before any photo's full-size recompression.
+ */
+@Getter
+public enum ProcessingStage {
+
+    /**
+     * Read dimensions and EXIF from the header of the original.
+     */
+    METADATA(0, Photo.PhotoStatus.PROCESSING),
+
+    /**
+     * Generate renditions; the photo becomes visible with a thumbnail.
+     */
+    RENDITIONS(0, Photo.PhotoStatus.THUMBNAIL_READY),
+
+    /**
+     * Recompress the original and apply tagging.
+     */
+    FINALIZE(10, Photo.PhotoStatus.COMPLETE);
+
+    private final int priority;
+
+    /**
+     * Status published when the stage completes.
+     */
+    private final Photo.PhotoStatus completedStatus;
+
+    ProcessingStage(int priority, Photo.PhotoStatus completedStatus) {
+        this.priority = priority;
+        this.completedStatus = completedStatus;
+    }
+
+    public static ProcessingStage first() {
+        return values()[0];
+    }
+
+    public Optional<ProcessingStage> next() {
+        int next = ordinal() + 1;
+        return next < values().length ? Optional.of(values()[next]) : Optional.empty();
+    }
+}
@@ -0,0 +1,86 @@
+package com.rapidphoto.uploader.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Domain entity representing one queued processing stage of a photo.
+ * Workers claim pending tasks and hold them under a lease that they extend while
+ * working; a task whose lease expires is claimable again by any worker.
+ */
+@Entity
+@Table(name = "processing_tasks")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessingTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID photoId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ProcessingStage stage;
+
+    /**
+     * Lower values are claimed first.
+     */
+    @Column(nullable = false)
+    private Integer priority;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TaskStatus status;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(nullable = false)
+    private Instant availableAt;
+
+    @Column
+    private String leaseOwner;
+
+    @Column
+    private Instant leaseExpiresAt;
+
+    @Column
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+        if (attempts == null) {
+            attempts = 0;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+
+    public enum TaskStatus {
+        PENDING,
+        RUNNING,
+        FAILED
+    }
+}
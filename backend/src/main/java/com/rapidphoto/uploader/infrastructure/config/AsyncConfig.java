@@ -1,11 +1,12 @@
 package com.rapidphoto.uploader.infrastructure.config;
 
+import com.rapidphoto.uploader.infrastructure.processing.PriorityTaskExecutor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Configuration for asynchronous task execution.
@@ -16,18 +17,26 @@ import java.util.concurrent.Executor;
 public class AsyncConfig {
 
     /**
-     * Task executor for async image processing.
-     * Configured with appropriate pool sizes for concurrent image processing.
+     * Executor running processing stages, one virtual thread per stage.
+     * Stages spend most of their time on storage transfers and database writes, so
+     * they are cheap to block; CPU-bound steps are handed to the
+     * {@code imageProcessingExecutor} instead of occupying a core while waiting on I/O.
      */
-    @Bean(name = "imageProcessingExecutor")
-    public Executor imageProcessingExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);
-        executor.setMaxPoolSize(10);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("ImageProcessing-");
-        executor.initialize();
-        return executor;
+    @Bean(name = "processingIoExecutor", destroyMethod = "shutdown")
+    public ExecutorService processingIoExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ImageIo-", 0).factory());
     }
-}
 
+    /**
+     * Task executor for decoding, resizing and encoding images, sized to the cores.
+     * Queued work runs by priority so that thumbnails for new uploads are not
+     * stuck behind full-size recompression of earlier ones. Threads do not bound memory:
+     * each decode reserves its raster size from the DecodeMemoryGovernor first, so how
+     * many images are in memory at once depends on their sizes.
+     */
+    @Bean(name = "imageProcessingExecutor", destroyMethod = "shutdown")
+    public PriorityTaskExecutor imageProcessingExecutor(ImageProcessingProperties properties) {
+        ImageProcessingProperties.Executor executor = properties.getExecutor();
+        return new PriorityTaskExecutor("ImageCpu-", executor.resolveCpuThreads(), executor.getCpuQueueCapacity());
+    }
+}
@@ -0,0 +1,44 @@
+package com.rapidphoto.uploader.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for reprocessing existing photos.
+ * Binds to application properties prefixed with 'processing.backfill'.
+ */
+@Component
+@ConfigurationProperties(prefix = "processing.backfill")
+@Data
+public class BackfillProperties {
+
+    /**
+     * How often running jobs queue their next photos.
+     */
+    private Duration interval = Duration.ofSeconds(1);
+
+    /**
+     * Photos queued per job at most per interval, however long the job waited.
+     */
+    private int pageSize = 500;
+
+    /**
+     * Photos queued per second when a job does not say.
+     */
+    private double defaultRatePerSecond = 20;
+
+    /**
+     * Reprocessing tasks allowed in the queue at once when a job does not say.
+     */
+    private int defaultMaxInFlight = 200;
+
+    /**
+     * Emails of users allowed to manage backfill jobs.
+     */
+    private List<String> adminEmails = new ArrayList<>();
+}
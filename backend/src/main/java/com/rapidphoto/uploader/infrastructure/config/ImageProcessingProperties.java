@@ -0,0 +1,275 @@
+package com.rapidphoto.uploader.infrastructure.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for the image processing pipeline.
+ * Binds to application properties prefixed with 'image.processing'.
+ */
+@Component
+@ConfigurationProperties(prefix = "image.processing")
+@Data
+public class ImageProcessingProperties {
+
+    /**
+     * Whether uploaded photos are processed at all.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Rendition profiles generated for every photo.
+     */
+    private List<Rendition> renditions = new ArrayList<>(List.of(
+            new Rendition("small", 64, 0.7),
+            new Rendition("thumb", 300, 0.8),
+            new Rendition("large", 1080, 0.85)
+    ));
+
+    /**
+     * Rendition served as the gallery thumbnail when the client does not ask for a size.
+     */
+    private String defaultRendition = "thumb";
+
+    /**
+     * Generate only the default rendition during processing; other profiles are
+     * generated the first time they are requested.
+     */
+    private boolean lazyRenditions = false;
+
+    /**
+     * Recompression of originals.
+     */
+    private Compression compression = new Compression();
+
+    /**
+     * Buffering of encoded outputs between processing and upload.
+     */
+    private Buffer buffer = new Buffer();
+
+    /**
+     * Decoding of originals.
+     */
+    private Decode decode = new Decode();
+
+    /**
+     * Resizing of large images.
+     */
+    private Resize resize = new Resize();
+
+    /**
+     * Extraction of dimensions and EXIF metadata.
+     */
+    private Metadata metadata = new Metadata();
+
+    /**
+     * Admission of decodes against a shared memory budget.
+     */
+    private Memory memory = new Memory();
+
+    /**
+     * Threads running processing stages.
+     */
+    private Executor executor = new Executor();
+
+    @Data
+    public static class Compression {
+
+        /**
+         * Quality used for formats without adaptive compression, and the upper bound of the search.
+         */
+        private double quality = 0.85;
+
+        /**
+         * Whether lossy originals are recompressed at the lowest quality meeting the target SSIM.
+         */
+        private boolean adaptive = true;
+
+        /**
+         * Minimum mean SSIM between the original and the recompressed image.
+         */
+        private double targetSsim = 0.985;
+
+        /**
+         * Lowest quality the search may choose.
+         */
+        private double minQuality = 0.5;
+
+        /**
+         * Binary search steps; each step encodes and decodes only the sample mosaic.
+         */
+        private int searchSteps = 5;
+
+        /**
+         * Edge length in pixels of each full-resolution tile sampled into the mosaic.
+         */
+        private int sampleTileSize = 128;
+
+        /**
+         * Tiles per row and column of the sample mosaic.
+         */
+        private int sampleGrid = 4;
+    }
+
+    @Data
+    public static class Buffer {
+
+        /**
+         * Size of each pooled chunk. Kept well below the G1 humongous-object
+         * threshold (half a heap region) so chunks are ordinary young-gen allocations.
+         */
+        private DataSize chunkSize = DataSize.ofKilobytes(128);
+
+        /**
+         * Upper bound on memory retained by the chunk pool while idle.
+         */
+        private DataSize maxPooledSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Buffers growing beyond this size spill to a memory-mapped temp file.
+         */
+        private DataSize spillThreshold = DataSize.ofMegabytes(8);
+
+        /**
+         * Directory for spill files; defaults to java.io.tmpdir.
+         */
+        private String spillDirectory;
+    }
+
+    @Data
+    public static class Decode {
+
+        /**
+         * Renditions are generated from an image decoded with source subsampling so that its
+         * longer edge is at least this many times the largest rendition profile.
+         */
+        private int subsamplingOversample = 2;
+    }
+
+    @Data
+    public static class Resize {
+
+        /**
+         * Source images with at least this many pixels are resized in parallel tiles;
+         * smaller ones are resized on the calling thread.
+         */
+        private long parallelThreshold = 16_000_000L;
+
+        /**
+         * Output rows resized per tile.
+         */
+        private int tileRows = 32;
+
+        /**
+         * Threads resizing tiles; 0 uses one per available core.
+         */
+        private int parallelism = 0;
+
+        public int resolveParallelism() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    @Data
+    public static class Metadata {
+
+        /**
+         * Leading bytes of the original fetched to read its metadata.
+         */
+        private DataSize initialReadSize = DataSize.ofKilobytes(64);
+
+        /**
+         * Largest prefix fetched; the read size doubles up to this while the header is incomplete.
+         */
+        private DataSize maxReadSize = DataSize.ofKilobytes(256);
+    }
+
+    @Data
+    public static class Memory {
+
+        /**
+         * Memory shared by all decoded images of this node; defaults to a fraction of the max heap.
+         */
+        private DataSize budget;
+
+        /**
+         * Fraction of the max heap used as the budget when none is configured.
+         */
+        private double heapFraction = 0.5;
+
+        /**
+         * Bytes reserved per decoded pixel: a 4-byte raster plus a working copy, such as
+         * the one made when applying EXIF orientation.
+         */
+        private int bytesPerPixel = 8;
+
+        /**
+         * Images with more pixels than this are refused as decompression bombs.
+         */
+        private long maxPixels = 250_000_000L;
+
+        /**
+         * How long a stage waits for budget before it is re-queued.
+         */
+        private Duration admissionTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Delay before a stage re-queued for lack of budget is claimed again.
+         */
+        private Duration retryDelay = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Executor {
+
+        /**
+         * Processing stages run concurrently per node. Stages run on virtual threads and
+         * mostly wait on storage and the database; concurrent decodes are further limited
+         * by the memory budget.
+         */
+        private int ioConcurrency = 64;
+
+        /**
+         * Threads decoding, resizing and encoding; 0 uses one per available core.
+         */
+        private int cpuThreads = 0;
+
+        /**
+         * CPU work that may wait for a thread. Stages handing over more block until a slot frees.
+         */
+        private int cpuQueueCapacity = 32;
+
+        public int resolveCpuThreads() {
+            return cpuThreads > 0 ? cpuThreads : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rendition {
+
+        /**
+         * Profile name; also the storage key suffix (e.g. "thumb" produces "{key}_thumb.jpg").
+         */
+        private String name;
+
+        /**
+         * Bounding box in pixels; the longer edge is scaled down to fit.
+         */
+        private int size;
+
+        /**
+         * Encoding quality (0.0 to 1.0).
+         */
+        private double quality;
+    }
+}
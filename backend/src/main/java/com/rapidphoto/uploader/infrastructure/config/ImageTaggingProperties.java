@@ -0,0 +1,57 @@
+package com.rapidphoto.uploader.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for AI tagging.
+ * Binds to application properties prefixed with 'image.tagging'.
+ */
+@Component
+@ConfigurationProperties(prefix = "image.tagging")
+@Data
+public class ImageTaggingProperties {
+
+    /**
+     * Whether processed photos are tagged.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Tagger implementation; "local" is a deterministic stand-in that needs no service.
+     */
+    private String tagger = "local";
+
+    /**
+     * Images sent to the tagger in one call.
+     */
+    private int batchSize = 16;
+
+    /**
+     * How long the first image of a batch waits for more before the batch is sent anyway.
+     */
+    private Duration maxBatchDelay = Duration.ofMillis(50);
+
+    /**
+     * Batches tagged at the same time.
+     */
+    private int maxConcurrentBatches = 2;
+
+    /**
+     * Longer edge in pixels images are scaled to before tagging.
+     */
+    private int inputSize = 224;
+
+    /**
+     * Tag sets kept in memory by content hash.
+     */
+    private int cacheSize = 10_000;
+
+    /**
+     * How long a photo waits for its tags before it is finished without them.
+     */
+    private Duration timeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,38 @@
+package com.rapidphoto.uploader.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for purging deleted photos from storage.
+ * Binds to application properties prefixed with 'photo.purge'.
+ */
+@Component
+@ConfigurationProperties(prefix = "photo.purge")
+@Data
+public class PhotoPurgeProperties {
+
+    /**
+     * How often deleted photos are purged.
+     */
+    private Duration interval = Duration.ofSeconds(30);
+
+    /**
+     * How long a photo stays deleted before it is purged, so processing already running for it can finish.
+     */
+    private Duration gracePeriod = Duration.ofMinutes(5);
+
+    /**
+     * Photos purged per batch.
+     */
+    private int batchSize = 500;
+
+    /**
+     * How long a batch stays claimed by the purge deleting its objects; a batch left
+     * claimed longer, e.g. by a node that stopped, is purged again.
+     */
+    private Duration claimTimeout = Duration.ofMinutes(10);
+}
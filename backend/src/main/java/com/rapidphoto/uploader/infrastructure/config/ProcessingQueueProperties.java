@@ -0,0 +1,61 @@
+package com.rapidphoto.uploader.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the durable processing queue.
+ * Binds to application properties prefixed with 'processing.queue'.
+ */
+@Component
+@ConfigurationProperties(prefix = "processing.queue")
+@Data
+public class ProcessingQueueProperties {
+
+    /**
+     * How often an idle worker polls for claimable tasks.
+     */
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    /**
+     * How long a claimed task stays invisible to other workers without a heartbeat.
+     */
+    private Duration leaseDuration = Duration.ofMinutes(2);
+
+    /**
+     * How often a worker extends the leases of its running tasks. Must be well below the lease duration.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(30);
+
+    /**
+     * Attempts per task, including attempts whose worker died, before the photo is marked failed.
+     */
+    private int maxAttempts = 5;
+
+    /**
+     * Delay before retrying a failed attempt; doubled on each attempt.
+     */
+    private Duration retryBaseDelay = Duration.ofSeconds(10);
+
+    /**
+     * Upper bound on the delay between attempts.
+     */
+    private Duration retryMaxDelay = Duration.ofMinutes(10);
+
+    /**
+     * Delay before the first stage of a completed upload becomes claimable if upload
+     * verification never confirms it, e.g. because the verifying node restarted.
+     * The stage itself fails and retries if the file is missing.
+     */
+    private Duration verificationTimeout = Duration.ofMinutes(2);
+
+    /**
+     * Added to a stage's priority when it is queued to reprocess an existing photo, so
+     * reprocessing only runs when no new upload's stage is due. Such tasks run their
+     * own stage only.
+     */
+    private int reprocessingPriority = 100;
+}
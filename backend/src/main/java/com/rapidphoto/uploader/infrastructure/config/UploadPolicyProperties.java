@@ -0,0 +1,32 @@
+package com.rapidphoto.uploader.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for batch uploads through a single browser POST policy.
+ * Binds to application properties prefixed with 'upload.policy'.
+ */
+@Component
+@ConfigurationProperties(prefix = "upload.policy")
+@Data
+public class UploadPolicyProperties {
+
+    /**
+     * How long a policy accepts uploads after it is issued.
+     */
+    private Duration expiration = Duration.ofHours(1);
+
+    /**
+     * Largest file accepted by a policy, in bytes.
+     */
+    private long maxFileSize = 104_857_600L;
+
+    /**
+     * Prefix every uploaded content type must start with.
+     */
+    private String contentTypePrefix = "image/";
+}
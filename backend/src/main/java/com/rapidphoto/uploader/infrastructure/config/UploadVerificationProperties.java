@@ -0,0 +1,37 @@
+package com.rapidphoto.uploader.infrastructure.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for verifying that completed uploads are present in storage.
+ * Binds to application properties prefixed with 'upload.verification'.
+ */
+@Component
+@ConfigurationProperties(prefix = "upload.verification")
+@Data
+public class UploadVerificationProperties {
+
+    /**
+     * Delay before retrying a check that did not find the object; doubled on each attempt.
+     */
+    private Duration baseDelay = Duration.ofMillis(100);
+
+    /**
+     * Upper bound on the delay between checks.
+     */
+    private Duration maxDelay = Duration.ofSeconds(5);
+
+    /**
+     * Number of checks before the upload is declared missing.
+     */
+    private int maxAttempts = 10;
+
+    /**
+     * Threads issuing checks. Checks are short HEAD requests and never sleep.
+     */
+    private int schedulerThreads = 2;
+}
@@ -0,0 +1,155 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Set;
+
+/**
+ * Recompresses images at the lowest quality that keeps them perceptually close to the original.
+ * For lossy formats the quality is found by binary search against a target mean SSIM.
+ * Each step encodes and decodes only a mosaic of full-resolution tiles sampled across
+ * the image, so the search costs a fraction of one full encode; the image itself is
+ * encoded once, at the chosen quality. Other formats are encoded at the configured quality.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdaptiveCompressor {
+
+    private static final Set<String> LOSSY_FORMATS = Set.of("jpeg", "jpg");
+
+    /**
+     * JPEG works on 16x16 macroblocks with chroma subsampling; aligned tiles compress like the full image.
+     */
+    private static final int BLOCK_ALIGNMENT = 16;
+
+    private final ImageCodec imageCodec;
+    private final ImageProcessingProperties properties;
+
+    /**
+     * Encode an image at full size.
+     *
+     * @param image decoded image at full resolution
+     * @param output destination for the encoded bytes
+     * @return the quality used, and the SSIM measured on the sample if the quality was searched
+     */
+    public CompressionResult compress(DecodedImage image, OutputStream output) throws IOException {
+        ImageProcessingProperties.Compression config = properties.getCompression();
+        CompressionResult result = config.isAdaptive() && LOSSY_FORMATS.contains(image.getFormatName())
+                ? search(image, config)
+                : new CompressionResult(config.getQuality(), null);
+        imageCodec.encode(image, result.quality(), output);
+        return result;
+    }
+
+    private CompressionResult search(DecodedImage image, ImageProcessingProperties.Compression config)
+            throws IOException {
+        BufferedImage sample = mosaic(image.getImage(), config.getSampleTileSize(), config.getSampleGrid());
+        String format = image.getFormatName();
+
+        double low = config.getMinQuality();
+        double high = config.getQuality();
+        double chosen = high;
+        double chosenSsim = measure(sample, format, high);
+        if (chosenSsim < config.getTargetSsim()) {
+            log.debug("SSIM {} at maximum quality is below target, keeping quality {}", chosenSsim, high);
+            return new CompressionResult(chosen, chosenSsim);
+        }
+
+        for (int step = 0; step < config.getSearchSteps(); step++) {
+            double quality = (low + high) / 2;
+            double ssim = measure(sample, format, quality);
+            if (ssim >= config.getTargetSsim()) {
+                chosen = quality;
+                chosenSsim = ssim;
+                high = quality;
+            } else {
+                low = quality;
+            }
+        }
+
+        log.debug("Chose quality {} (sample SSIM {}) for {}x{} image",
+                chosen, chosenSsim, image.getWidth(), image.getHeight());
+        return new CompressionResult(chosen, chosenSsim);
+    }
+
+    /**
+     * Encode and decode the sample at a quality and compare it with the uncompressed sample.
+     */
+    private double measure(BufferedImage sample, String format, double quality) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        imageCodec.encode(sample, format, quality, encoded);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(encoded.toByteArray()));
+        if (decoded == null) {
+            throw new IOException("Unable to decode " + format + " sample");
+        }
+        return Ssim.mean(sample, decoded);
+    }
+
+    /**
+     * Assemble a grid of full-resolution tiles spread evenly over the image.
+     * Images no larger than the mosaic are sampled whole.
+     */
+    private BufferedImage mosaic(BufferedImage image, int tile, int grid) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int size = tile * grid;
+        if (width <= size && height <= size) {
+            return copy(image, 0, 0, width, height);
+        }
+
+        int tileWidth = Math.min(tile, width);
+        int tileHeight = Math.min(tile, height);
+        BufferedImage mosaic = new BufferedImage(tileWidth * grid, tileHeight * grid, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = mosaic.createGraphics();
+        try {
+            for (int row = 0; row < grid; row++) {
+                int top = tileOrigin(height, tileHeight, row, grid);
+                for (int col = 0; col < grid; col++) {
+                    int left = tileOrigin(width, tileWidth, col, grid);
+                    graphics.drawImage(image.getSubimage(left, top, tileWidth, tileHeight),
+                            col * tileWidth, row * tileHeight, null);
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return mosaic;
+    }
+
+    private int tileOrigin(int extent, int tile, int index, int count) {
+        int span = extent - tile;
+        int origin = count > 1 ? span * index / (count - 1) : span / 2;
+        return Math.min(span, origin / BLOCK_ALIGNMENT * BLOCK_ALIGNMENT);
+    }
+
+    private BufferedImage copy(BufferedImage image, int left, int top, int width, int height) {
+        BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = copy.createGraphics();
+        try {
+            graphics.drawImage(image.getSubimage(left, top, width, height), 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return copy;
+    }
+
+    /**
+     * Outcome of compressing an image.
+     *
+     * @param quality quality the image was encoded at
+     * @param ssim mean SSIM measured on the sample at that quality, or null if not searched
+     */
+    public record CompressionResult(double quality, Double ssim) {
+    }
+}
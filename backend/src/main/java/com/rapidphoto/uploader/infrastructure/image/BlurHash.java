@@ -0,0 +1,141 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * BlurHash encoder (https://blurha.sh).
+ * Describes an image as a few DCT components packed into a short base-83 string,
+ * which clients decode into a blurred placeholder before the thumbnail loads.
+ */
+public final class BlurHash {
+
+    private static final String ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    /**
+     * Samples taken along the shorter edge; the components are too coarse to need more.
+     */
+    private static final int SAMPLES = 64;
+
+    private BlurHash() {
+    }
+
+    /**
+     * @param image decoded image, upright
+     * @param xComponents horizontal components (1-9)
+     * @param yComponents vertical components (1-9)
+     * @return BlurHash string
+     */
+    public static String encode(BufferedImage image, int xComponents, int yComponents) {
+        if (xComponents < 1 || xComponents > 9 || yComponents < 1 || yComponents > 9) {
+            throw new IllegalArgumentException("Components must be between 1 and 9");
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int step = Math.max(1, Math.min(width, height) / SAMPLES);
+        int columns = Math.ceilDiv(width, step);
+        int rows = Math.ceilDiv(height, step);
+
+        // Linear RGB of the sampled pixels
+        double[][] linear = new double[3][columns * rows];
+        int[] row = new int[width];
+        for (int y = 0; y < rows; y++) {
+            image.getRGB(0, y * step, width, 1, row, 0, width);
+            for (int x = 0; x < columns; x++) {
+                int rgb = row[x * step];
+                int index = y * columns + x;
+                linear[0][index] = srgbToLinear((rgb >> 16) & 0xFF);
+                linear[1][index] = srgbToLinear((rgb >> 8) & 0xFF);
+                linear[2][index] = srgbToLinear(rgb & 0xFF);
+            }
+        }
+
+        double[][] factors = new double[xComponents * yComponents][];
+        for (int j = 0; j < yComponents; j++) {
+            for (int i = 0; i < xComponents; i++) {
+                factors[j * xComponents + i] = basis(linear, columns, rows, i, j);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        encode83((xComponents - 1) + (yComponents - 1) * 9, 1, hash);
+
+        double maxValue;
+        if (factors.length > 1) {
+            double actualMax = 0;
+            for (int k = 1; k < factors.length; k++) {
+                for (double value : factors[k]) {
+                    actualMax = Math.max(actualMax, Math.abs(value));
+                }
+            }
+            int quantisedMax = (int) Math.max(0, Math.min(82, Math.floor(actualMax * 166 - 0.5)));
+            maxValue = (quantisedMax + 1) / 166.0;
+            encode83(quantisedMax, 1, hash);
+        } else {
+            maxValue = 1;
+            encode83(0, 1, hash);
+        }
+
+        double[] dc = factors[0];
+        encode83((linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4, hash);
+        for (int k = 1; k < factors.length; k++) {
+            double[] ac = factors[k];
+            encode83(quantiseAc(ac[0], maxValue) * 19 * 19
+                    + quantiseAc(ac[1], maxValue) * 19
+                    + quantiseAc(ac[2], maxValue), 2, hash);
+        }
+        return hash.toString();
+    }
+
+    private static double[] basis(double[][] linear, int columns, int rows, int i, int j) {
+        double normalisation = (i == 0 && j == 0) ? 1 : 2;
+        double r = 0;
+        double g = 0;
+        double b = 0;
+        for (int y = 0; y < rows; y++) {
+            double cosY = Math.cos(Math.PI * j * y / rows);
+            for (int x = 0; x < columns; x++) {
+                double weight = normalisation * Math.cos(Math.PI * i * x / columns) * cosY;
+                int index = y * columns + x;
+                r += weight * linear[0][index];
+                g += weight * linear[1][index];
+                b += weight * linear[2][index];
+            }
+        }
+        double scale = 1.0 / (columns * rows);
+        return new double[]{r * scale, g * scale, b * scale};
+    }
+
+    private static int quantiseAc(double value, double maxValue) {
+        double scaled = signPow(value / maxValue, 0.5) * 9 + 9.5;
+        return (int) Math.max(0, Math.min(18, Math.floor(scaled)));
+    }
+
+    private static double signPow(double value, double exponent) {
+        return Math.copySign(Math.pow(Math.abs(value), exponent), value);
+    }
+
+    private static double srgbToLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int linearToSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308
+                ? (int) (v * 12.92 * 255 + 0.5)
+                : (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void encode83(int value, int length, StringBuilder hash) {
+        int divisor = 1;
+        for (int i = 1; i < length; i++) {
+            divisor *= 83;
+        }
+        for (int i = 0; i < length; i++) {
+            hash.append(ALPHABET.charAt((value / divisor) % 83));
+            divisor /= 83;
+        }
+    }
+}
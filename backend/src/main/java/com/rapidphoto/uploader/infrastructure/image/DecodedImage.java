@@ -0,0 +1,54 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * An image decoded into memory, with EXIF orientation already applied.
+ * Carries the source format so every rendition can be encoded in the same format.
+ * The image may have been decoded with source subsampling, in which case it is
+ * smaller than the original described by {@link #getSourceWidth()}/{@link #getSourceHeight()}.
+ */
+@Data
+@AllArgsConstructor
+public class DecodedImage {
+
+    /**
+     * Decoded pixels, upright.
+     */
+    private BufferedImage image;
+
+    /**
+     * Image format name as reported by ImageIO (e.g. "jpeg", "png").
+     */
+    private String formatName;
+
+    /**
+     * Width of the original, upright.
+     */
+    private int sourceWidth;
+
+    /**
+     * Height of the original, upright.
+     */
+    private int sourceHeight;
+
+    /**
+     * Subsampling factor used when decoding (1 = full resolution).
+     */
+    private int subsampling;
+
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    public boolean isFullResolution() {
+        return subsampling == 1;
+    }
+}
@@ -0,0 +1,144 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.imaging.ImageProcessingException;
+import com.drew.lang.GeoLocation;
+import com.drew.metadata.Directory;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.Tag;
+import com.drew.metadata.exif.ExifIFD0Directory;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import com.drew.metadata.exif.GpsDirectory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads dimensions and EXIF metadata from the leading bytes of an encoded image.
+ * Metadata sits in the header, ahead of the pixel data, so a prefix of the file is
+ * usually enough; when it is not, the caller is told to read a longer one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExifMetadataReader {
+
+    /**
+     * Longest tag description kept; longer values are binary blobs such as maker notes.
+     */
+    private static final int MAX_DESCRIPTION_LENGTH = 256;
+
+    private final ImageCodec imageCodec;
+
+    /**
+     * Read metadata from the start of an image.
+     *
+     * @param head leading bytes of the image
+     * @param complete whether no longer prefix is available, either because {@code head}
+     *                 is the whole file or because the read limit was reached
+     * @return metadata, or empty if {@code head} was cut short and a longer prefix is needed
+     */
+    public Optional<ImageMetadata> read(byte[] head, boolean complete) {
+        Metadata metadata = null;
+        boolean truncated = false;
+        try {
+            metadata = ImageMetadataReader.readMetadata(new ByteArrayInputStream(head), head.length);
+        } catch (ImageProcessingException e) {
+            log.debug("No readable metadata in image header: {}", e.getMessage());
+        } catch (IOException e) {
+            // Reading from memory only fails when the header runs past the end of the prefix
+            truncated = true;
+        }
+
+        Dimension dimension = null;
+        try {
+            dimension = imageCodec.readDimensions(new ByteArrayInputStream(head));
+        } catch (IOException e) {
+            truncated = true;
+        }
+
+        if (truncated && !complete) {
+            return Optional.empty();
+        }
+        return Optional.of(toImageMetadata(metadata, dimension));
+    }
+
+    private ImageMetadata toImageMetadata(Metadata metadata, Dimension dimension) {
+        ImageMetadata.ImageMetadataBuilder result = ImageMetadata.builder();
+        Integer orientation = null;
+        if (metadata != null) {
+            ExifIFD0Directory ifd0 = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
+            ExifSubIFDDirectory subIfd = metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
+            GpsDirectory gps = metadata.getFirstDirectoryOfType(GpsDirectory.class);
+
+            if (ifd0 != null) {
+                orientation = ifd0.getInteger(ExifIFD0Directory.TAG_ORIENTATION);
+                result.cameraMake(trimToNull(ifd0.getString(ExifIFD0Directory.TAG_MAKE)))
+                        .cameraModel(trimToNull(ifd0.getString(ExifIFD0Directory.TAG_MODEL)));
+            }
+
+            Date captured = subIfd != null ? subIfd.getDateOriginal() : null;
+            if (captured == null && ifd0 != null) {
+                captured = ifd0.getDate(ExifIFD0Directory.TAG_DATETIME);
+            }
+            if (captured != null) {
+                result.capturedAt(captured.toInstant());
+            }
+
+            GeoLocation location = gps != null ? gps.getGeoLocation() : null;
+            if (location != null && !location.isZero()) {
+                result.latitude(location.getLatitude()).longitude(location.getLongitude());
+            }
+
+            result.tags(describe(metadata));
+        }
+
+        if (orientation != null && (orientation < 1 || orientation > 8)) {
+            orientation = null;
+        }
+        if (dimension != null) {
+            // Orientations 5-8 rotate by 90 degrees, so the displayed image swaps its axes
+            boolean swapsAxes = orientation != null && orientation >= 5;
+            result.width(swapsAxes ? dimension.height : dimension.width)
+                    .height(swapsAxes ? dimension.width : dimension.height);
+        }
+        return result.orientation(orientation).build();
+    }
+
+    private Map<String, Map<String, String>> describe(Metadata metadata) {
+        Map<String, Map<String, String>> directories = new LinkedHashMap<>();
+        for (Directory directory : metadata.getDirectories()) {
+            Map<String, String> tags = new LinkedHashMap<>();
+            for (Tag tag : directory.getTags()) {
+                String description = tag.getDescription();
+                if (description != null && description.length() <= MAX_DESCRIPTION_LENGTH) {
+                    // PostgreSQL JSON text cannot hold NUL characters, which padded EXIF strings often contain
+                    tags.put(tag.getTagName(), description.replace("\u0000", "").trim());
+                }
+            }
+            if (!tags.isEmpty()) {
+                directories.merge(directory.getName(), tags, (existing, more) -> {
+                    more.forEach(existing::putIfAbsent);
+                    return existing;
+                });
+            }
+        }
+        return directories;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -0,0 +1,118 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Extracts the preview JPEG that cameras embed in the EXIF segment of a JPEG.
+ * The preview is referenced from IFD1 of the EXIF TIFF structure and sits within the
+ * APP1 segment at the start of the file, so the header prefix read for metadata
+ * already contains it.
+ */
+@Component
+@Slf4j
+public class ExifThumbnailExtractor {
+
+    private static final int MARKER_APP1 = 0xE1;
+    private static final int MARKER_SOS = 0xDA;
+    private static final int MARKER_EOI = 0xD9;
+    private static final byte[] EXIF_HEADER = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int TAG_THUMBNAIL_OFFSET = 0x0201;
+    private static final int TAG_THUMBNAIL_LENGTH = 0x0202;
+    private static final int TYPE_SHORT = 3;
+
+    /**
+     * Find the embedded preview in the leading bytes of a JPEG.
+     *
+     * @param head leading bytes of the image
+     * @return encoded preview JPEG, or empty if there is none or it is not entirely within {@code head}
+     */
+    public Optional<byte[]> extract(byte[] head) {
+        try {
+            return findExifSegment(head).flatMap(segment -> findThumbnail(head, segment[0], segment[1]));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            log.debug("Malformed EXIF segment, no embedded preview", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Walk the JPEG marker segments up to the start of scan.
+     *
+     * @return start (after the "Exif" header) and end offsets of the EXIF payload
+     */
+    private Optional<int[]> findExifSegment(byte[] head) {
+        if (head.length < 4 || (head[0] & 0xFF) != 0xFF || (head[1] & 0xFF) != 0xD8) {
+            return Optional.empty();
+        }
+        int position = 2;
+        while (position + 4 <= head.length) {
+            if ((head[position] & 0xFF) != 0xFF) {
+                return Optional.empty();
+            }
+            int marker = head[position + 1] & 0xFF;
+            if (marker == 0xFF) {
+                // Fill byte before a marker
+                position++;
+                continue;
+            }
+            if (marker == MARKER_SOS || marker == MARKER_EOI) {
+                return Optional.empty();
+            }
+            int length = ((head[position + 2] & 0xFF) << 8) | (head[position + 3] & 0xFF);
+            int payload = position + 4;
+            int end = position + 2 + length;
+            if (marker == MARKER_APP1 && end <= head.length && length - 2 >= EXIF_HEADER.length
+                    && Arrays.equals(head, payload, payload + EXIF_HEADER.length, EXIF_HEADER, 0, EXIF_HEADER.length)) {
+                return Optional.of(new int[]{payload + EXIF_HEADER.length, end});
+            }
+            position = end;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Read the preview location from IFD1 of the TIFF structure.
+     */
+    private Optional<byte[]> findThumbnail(byte[] head, int tiffStart, int tiffEnd) {
+        ByteBuffer tiff = ByteBuffer.wrap(head, tiffStart, tiffEnd - tiffStart).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+
+        int ifd0 = tiff.getInt(4);
+        int ifd1 = tiff.getInt(ifd0 + 2 + 12 * Short.toUnsignedInt(tiff.getShort(ifd0)));
+        if (ifd1 <= 0) {
+            return Optional.empty();
+        }
+
+        int offset = -1;
+        int length = -1;
+        int entries = Short.toUnsignedInt(tiff.getShort(ifd1));
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd1 + 2 + 12 * i;
+            int tag = Short.toUnsignedInt(tiff.getShort(entry));
+            int type = Short.toUnsignedInt(tiff.getShort(entry + 2));
+            int value = type == TYPE_SHORT ? Short.toUnsignedInt(tiff.getShort(entry + 8)) : tiff.getInt(entry + 8);
+            if (tag == TAG_THUMBNAIL_OFFSET) {
+                offset = value;
+            } else if (tag == TAG_THUMBNAIL_LENGTH) {
+                length = value;
+            }
+        }
+
+        if (offset <= 0 || length <= 2 || offset > tiff.limit() - length
+                || (tiff.get(offset) & 0xFF) != 0xFF || (tiff.get(offset + 1) & 0xFF) != 0xD8) {
+            return Optional.empty();
+        }
+        byte[] thumbnail = new byte[length];
+        tiff.get(offset, thumbnail);
+        return Optional.of(thumbnail);
+    }
+}
@@ -0,0 +1,284 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Growable output buffer for encoded images.
+ * Small outputs live in pooled chunks; once the buffer passes its spill threshold the
+ * content moves to a temp file that is memory-mapped for reading. Data is never copied
+ * into a single contiguous array: {@link #openStream()} reads straight from the chunks
+ * or the mapping, so storage uploads consume the buffer in place.
+ *
+ * Not thread-safe. Streams returned by {@link #openStream()} must be consumed before
+ * the buffer is closed.
+ */
+public class ImageBuffer extends OutputStream {
+
+    private final ImageBufferPool pool;
+    private final long spillThreshold;
+    private final Path spillDirectory;
+
+    private final List<byte[]> chunks = new ArrayList<>();
+    private int position; // bytes used in the last chunk
+    private long size;
+
+    private FileChannel spillChannel;
+    private ByteBuffer mapped;
+    private boolean sealed;
+    private boolean closed;
+
+    ImageBuffer(ImageBufferPool pool, long spillThreshold, Path spillDirectory) {
+        this.pool = pool;
+        this.spillThreshold = spillThreshold;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return true if the content has moved to a temp file
+     */
+    public boolean isSpilled() {
+        return spillChannel != null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureWritable();
+        byte[] chunk = writableChunk();
+        chunk[position++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        ensureWritable();
+        while (len > 0) {
+            byte[] chunk = writableChunk();
+            int n = Math.min(len, chunk.length - position);
+            System.arraycopy(b, off, chunk, position, n);
+            position += n;
+            off += n;
+            len -= n;
+            size += n;
+        }
+    }
+
+    /**
+     * Open a stream over the buffered content. Seals the buffer against further writes.
+     *
+     * @return input stream reading the buffer in place
+     */
+    public InputStream openStream() throws IOException {
+        if (closed) {
+            throw new IOException("Buffer is closed");
+        }
+        sealed = true;
+
+        if (spillChannel == null) {
+            return new ChunkInputStream(chunks, size);
+        }
+
+        if (mapped == null) {
+            if (position > 0) {
+                drain(chunks.get(0), position);
+                position = 0;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Buffer too large to map: " + size + " bytes");
+            }
+            mapped = spillChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        return new ByteBufferInputStream(mapped.duplicate());
+    }
+
+    /**
+     * Return chunks to the pool and delete the spill file, if any.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        chunks.forEach(pool::release);
+        chunks.clear();
+        mapped = null;
+        if (spillChannel != null) {
+            spillChannel.close(); // DELETE_ON_CLOSE removes the file
+        }
+    }
+
+    private void ensureWritable() throws IOException {
+        if (closed) {
+            throw new IOException("Buffer is closed");
+        }
+        if (sealed) {
+            throw new IOException("Buffer is sealed for reading");
+        }
+    }
+
+    /**
+     * Return a chunk with free space, draining or spilling first when the current one is full.
+     */
+    private byte[] writableChunk() throws IOException {
+        if (!chunks.isEmpty()) {
+            byte[] current = chunks.get(chunks.size() - 1);
+            if (position < current.length) {
+                return current;
+            }
+            if (spillChannel != null) {
+                drain(current, current.length);
+                position = 0;
+                return current;
+            }
+            if (size >= spillThreshold) {
+                spill();
+                position = 0;
+                return chunks.get(0);
+            }
+        }
+        byte[] chunk = pool.acquire();
+        chunks.add(chunk);
+        position = 0;
+        return chunk;
+    }
+
+    /**
+     * Move all (full) chunks to a temp file and keep one chunk as a write-behind staging area.
+     */
+    private void spill() throws IOException {
+        Path file = Files.createTempFile(spillDirectory, "image-buffer-", ".tmp");
+        spillChannel = FileChannel.open(file,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+
+        for (byte[] chunk : chunks) {
+            drain(chunk, chunk.length);
+        }
+        byte[] staging = chunks.get(0);
+        for (int i = 1; i < chunks.size(); i++) {
+            pool.release(chunks.get(i));
+        }
+        chunks.clear();
+        chunks.add(staging);
+    }
+
+    private void drain(byte[] chunk, int length) throws IOException {
+        ByteBuffer source = ByteBuffer.wrap(chunk, 0, length);
+        while (source.hasRemaining()) {
+            spillChannel.write(source);
+        }
+    }
+
+    /**
+     * Reads a sequence of chunks, the last of which may be partially filled.
+     */
+    private static final class ChunkInputStream extends InputStream {
+
+        private final List<byte[]> chunks;
+        private final long size;
+        private long read;
+        private int chunkIndex;
+        private int offset;
+
+        ChunkInputStream(List<byte[]> chunks, long size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            if (read >= size) {
+                return -1;
+            }
+            byte[] chunk = currentChunk();
+            read++;
+            return chunk[offset++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (read >= size) {
+                return -1;
+            }
+            byte[] chunk = currentChunk();
+            int n = (int) Math.min(Math.min(len, chunk.length - offset), size - read);
+            System.arraycopy(chunk, offset, b, off, n);
+            offset += n;
+            read += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, size - read);
+        }
+
+        private byte[] currentChunk() {
+            byte[] chunk = chunks.get(chunkIndex);
+            if (offset == chunk.length) {
+                chunk = chunks.get(++chunkIndex);
+                offset = 0;
+            }
+            return chunk;
+        }
+    }
+
+    /**
+     * Reads from a (memory-mapped) byte buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of fixed-size byte chunks backing {@link ImageBuffer}s.
+ * Chunks are recycled across processing tasks so encoding a photo does not
+ * allocate fresh, ever-growing arrays; the number of idle chunks retained is bounded.
+ */
+@Component
+@Slf4j
+public class ImageBufferPool {
+
+    private final int chunkSize;
+    private final int maxPooledChunks;
+    private final long spillThreshold;
+    private final Path spillDirectory;
+
+    private final ConcurrentLinkedQueue<byte[]> freeChunks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledChunks = new AtomicInteger();
+
+    public ImageBufferPool(ImageProcessingProperties properties) {
+        ImageProcessingProperties.Buffer config = properties.getBuffer();
+        this.chunkSize = (int) config.getChunkSize().toBytes();
+        this.maxPooledChunks = (int) Math.max(0, config.getMaxPooledSize().toBytes() / chunkSize);
+        this.spillThreshold = config.getSpillThreshold().toBytes();
+        this.spillDirectory = Path.of(config.getSpillDirectory() != null
+                ? config.getSpillDirectory()
+                : System.getProperty("java.io.tmpdir"));
+
+        log.info("Image buffer pool: chunkSize={} bytes, maxPooledChunks={}, spillThreshold={} bytes, spillDirectory={}",
+                chunkSize, maxPooledChunks, spillThreshold, spillDirectory);
+    }
+
+    /**
+     * Create an empty buffer drawing its memory from this pool.
+     * The caller must close the buffer to return its chunks.
+     *
+     * @return new buffer
+     */
+    public ImageBuffer newBuffer() {
+        return new ImageBuffer(this, spillThreshold, spillDirectory);
+    }
+
+    /**
+     * Take a chunk from the pool, allocating one if none is idle.
+     */
+    byte[] acquire() {
+        byte[] chunk = freeChunks.poll();
+        if (chunk != null) {
+            pooledChunks.decrementAndGet();
+            return chunk;
+        }
+        return new byte[chunkSize];
+    }
+
+    /**
+     * Return a chunk to the pool, dropping it if the pool is already full.
+     */
+    void release(byte[] chunk) {
+        if (chunk.length != chunkSize) {
+            return;
+        }
+        if (pooledChunks.incrementAndGet() <= maxPooledChunks) {
+            freeChunks.offer(chunk);
+        } else {
+            pooledChunks.decrementAndGet();
+        }
+    }
+}
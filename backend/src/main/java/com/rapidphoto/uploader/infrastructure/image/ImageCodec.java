@@ -0,0 +1,254 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import com.rapidphoto.uploader.infrastructure.processing.DecodeMemoryGovernor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.coobird.thumbnailator.Thumbnails;
+import net.coobird.thumbnailator.filters.ImageFilter;
+import net.coobird.thumbnailator.util.exif.ExifFilterUtils;
+import net.coobird.thumbnailator.util.exif.ExifUtils;
+import net.coobird.thumbnailator.util.exif.Orientation;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Decodes and encodes images for the processing pipeline.
+ * An original is decoded once into a {@link DecodedImage}; all outputs
+ * (compressed original, renditions, tagging input) are produced from it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImageCodec {
+
+    private static final int FIRST_IMAGE = 0;
+
+    private final DecodeMemoryGovernor memoryGovernor;
+    private final ParallelResizer resizer;
+
+    /**
+     * Decode an image stream into memory at full resolution and apply its EXIF orientation.
+     *
+     * @param input encoded image
+     * @return decoded image with its source format
+     */
+    public DecodedImage decode(InputStream input) throws IOException {
+        return decode(input, 0);
+    }
+
+    /**
+     * Decode an image stream, using source subsampling when only a smaller image is needed.
+     * Subsampling is done by the reader while decoding, so the full-resolution raster is
+     * never materialised; the result keeps at least {@code targetSize} pixels on its longer edge.
+     * Dimensions read from the header are checked before any pixels are allocated.
+     *
+     * @param input encoded image
+     * @param targetSize minimum longer edge of the result in pixels; 0 for full resolution
+     * @return decoded image with its source format
+     * @throws ImageRejectedException if the dimensions exceed the pixel limit
+     */
+    public DecodedImage decode(InputStream input, int targetSize) throws IOException {
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(input)) {
+            ImageReader reader = openReader(imageInput);
+            try {
+                String formatName = reader.getFormatName().toLowerCase(Locale.ROOT);
+                Orientation orientation = readOrientation(reader);
+                int width = reader.getWidth(FIRST_IMAGE);
+                int height = reader.getHeight(FIRST_IMAGE);
+                memoryGovernor.checkDimensions(width, height);
+                int subsampling = subsamplingFactor(width, height, targetSize);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage image = reader.read(FIRST_IMAGE, param);
+
+                log.debug("Decoded {}x{} {} image at 1/{} as {}x{} (orientation: {})",
+                        width, height, formatName, subsampling, image.getWidth(), image.getHeight(), orientation);
+
+                boolean swapsAxes = orientation != null && orientation.ordinal() >= Orientation.LEFT_TOP.ordinal();
+                return new DecodedImage(
+                        applyOrientation(image, orientation),
+                        formatName,
+                        swapsAxes ? height : width,
+                        swapsAxes ? width : height,
+                        subsampling);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Read the dimensions of an image from its header without decoding pixels.
+     *
+     * @param input encoded image
+     * @return stored dimensions (before EXIF orientation)
+     */
+    public Dimension readDimensions(InputStream input) throws IOException {
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(input)) {
+            ImageReader reader = openReader(imageInput);
+            try {
+                return new Dimension(reader.getWidth(FIRST_IMAGE), reader.getHeight(FIRST_IMAGE));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Rotate or flip an image into its upright position.
+     *
+     * @param image decoded pixels as stored
+     * @param exifOrientation EXIF orientation (1-8); null or unknown values leave the image as is
+     * @return upright image
+     */
+    public BufferedImage orient(BufferedImage image, Integer exifOrientation) {
+        if (exifOrientation == null || exifOrientation < 1 || exifOrientation > 8) {
+            return image;
+        }
+        return applyOrientation(image, Orientation.typeOf(exifOrientation));
+    }
+
+    /**
+     * Pixels of the raster {@link #decode(InputStream, int)} produces for an image.
+     *
+     * @param width source width
+     * @param height source height
+     * @param targetSize minimum longer edge in pixels; 0 or less for full resolution
+     * @return decoded pixel count
+     */
+    public long decodedPixels(int width, int height, int targetSize) {
+        int subsampling = subsamplingFactor(width, height, targetSize);
+        return (long) Math.ceilDiv(width, subsampling) * Math.ceilDiv(height, subsampling);
+    }
+
+    /**
+     * Largest integer subsampling factor that keeps the longer edge at or above the target.
+     *
+     * @param width source width
+     * @param height source height
+     * @param targetSize minimum longer edge in pixels; 0 or less for full resolution
+     * @return subsampling factor (1 = full resolution)
+     */
+    public int subsamplingFactor(int width, int height, int targetSize) {
+        if (targetSize <= 0) {
+            return 1;
+        }
+        return Math.max(1, Math.max(width, height) / targetSize);
+    }
+
+    /**
+     * Encode an image at its original dimensions.
+     *
+     * @param image decoded image
+     * @param quality compression quality (0.0 to 1.0)
+     * @param output destination for the encoded bytes
+     */
+    public void encode(DecodedImage image, double quality, OutputStream output) throws IOException {
+        encode(image.getImage(), image.getFormatName(), quality, output);
+    }
+
+    /**
+     * Encode pixels at their dimensions in the given format.
+     *
+     * @param image pixels to encode
+     * @param formatName ImageIO format name
+     * @param quality compression quality (0.0 to 1.0)
+     * @param output destination for the encoded bytes
+     */
+    public void encode(BufferedImage image, String formatName, double quality, OutputStream output)
+            throws IOException {
+        Thumbnails.of(image)
+                .scale(1.0) // Keep original dimensions
+                .outputFormat(formatName)
+                .outputQuality(quality)
+                .toOutputStream(output);
+    }
+
+    /**
+     * Encode a resized copy of an image at exact dimensions.
+     * Large images are resized in parallel tiles first.
+     *
+     * @param image decoded image
+     * @param dimension target dimensions, normally from {@link #fitWithin}
+     * @param quality compression quality (0.0 to 1.0)
+     * @param output destination for the encoded bytes
+     */
+    public void encodeResized(DecodedImage image, Dimension dimension, double quality, OutputStream output)
+            throws IOException {
+        if (resizer.isParallel(image.getImage())) {
+            encode(resizer.resizeTiled(image.getImage(), dimension.width, dimension.height),
+                    image.getFormatName(), quality, output);
+            return;
+        }
+        Thumbnails.of(image.getImage())
+                .forceSize(dimension.width, dimension.height)
+                .outputFormat(image.getFormatName())
+                .outputQuality(quality)
+                .toOutputStream(output);
+    }
+
+    /**
+     * Compute the dimensions of an image scaled to fit a square box, keeping aspect ratio.
+     * Images already inside the box are not enlarged.
+     *
+     * @param width source width
+     * @param height source height
+     * @param box bounding box size (width/height)
+     * @return target dimensions
+     */
+    public Dimension fitWithin(int width, int height, int box) {
+        double scale = Math.min(1.0, (double) box / Math.max(width, height));
+        return new Dimension(
+                Math.max(1, (int) Math.round(width * scale)),
+                Math.max(1, (int) Math.round(height * scale)));
+    }
+
+    private ImageReader openReader(ImageInputStream imageInput) throws IOException {
+        if (imageInput == null) {
+            throw new IOException("Unable to open image stream");
+        }
+
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+        if (!readers.hasNext()) {
+            throw new IOException("Unsupported image format");
+        }
+
+        ImageReader reader = readers.next();
+        reader.setInput(imageInput, true, false);
+        return reader;
+    }
+
+    /**
+     * Read EXIF orientation; images without usable metadata are treated as upright.
+     */
+    private Orientation readOrientation(ImageReader reader) {
+        try {
+            return ExifUtils.getExifOrientation(reader, FIRST_IMAGE);
+        } catch (Exception e) {
+            log.debug("Could not read EXIF orientation, assuming upright", e);
+            return null;
+        }
+    }
+
+    private BufferedImage applyOrientation(BufferedImage image, Orientation orientation) {
+        if (orientation == null || orientation == Orientation.TOP_LEFT) {
+            return image;
+        }
+        ImageFilter filter = ExifFilterUtils.getFilterForOrientation(orientation);
+        return filter != null ? filter.apply(image) : image;
+    }
+}
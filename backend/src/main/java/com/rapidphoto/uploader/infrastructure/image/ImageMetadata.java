@@ -0,0 +1,50 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Metadata read from the header of an encoded image.
+ * Every field is null when the image does not carry it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageMetadata {
+
+    /**
+     * Width as displayed, i.e. after EXIF orientation is applied.
+     */
+    private Integer width;
+
+    /**
+     * Height as displayed, i.e. after EXIF orientation is applied.
+     */
+    private Integer height;
+
+    /**
+     * EXIF orientation (1-8).
+     */
+    private Integer orientation;
+
+    private Instant capturedAt;
+
+    private String cameraMake;
+
+    private String cameraModel;
+
+    private Double latitude;
+
+    private Double longitude;
+
+    /**
+     * All tags, as descriptions keyed by tag name, grouped by metadata directory (e.g. "Exif IFD0").
+     */
+    private Map<String, Map<String, String>> tags;
+}
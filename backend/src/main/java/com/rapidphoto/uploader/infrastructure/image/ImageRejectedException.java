@@ -0,0 +1,12 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+/**
+ * Thrown when an image is refused before decoding, e.g. because its dimensions
+ * mark it as a decompression bomb. Processing it again would fail the same way.
+ */
+public class ImageRejectedException extends RuntimeException {
+
+    public ImageRejectedException(String message) {
+        super(message);
+    }
+}
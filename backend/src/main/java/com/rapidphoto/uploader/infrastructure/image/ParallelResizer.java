@@ -0,0 +1,259 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.coobird.thumbnailator.Thumbnails;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Resizes images, splitting large ones into tiles that are resampled in parallel.
+ * Small images go through Thumbnailator on the calling thread as before. Large ones
+ * (panoramas, scans, anything decoded at full resolution) are cut into strips of output
+ * rows resampled on a dedicated {@link ForkJoinPool}, so a single huge image uses all
+ * cores instead of one.
+ * <p>
+ * Resampling is separable with a triangle filter widened by the scale factor, so every
+ * source pixel contributes when downscaling. Each strip reads the source rows under
+ * its filter window, including the rows its neighbours also read, so tiles are seamless
+ * and the result does not depend on how the image was split.
+ * <p>
+ * Colour is filtered premultiplied by alpha and divided by it again on write-back, so
+ * the hidden colour of transparent pixels does not bleed into the visible ones next to them.
+ */
+@Component
+@Slf4j
+public class ParallelResizer {
+
+    private static final int CHANNELS = 4;
+
+    private final ImageProcessingProperties.Resize config;
+    private final ForkJoinPool pool;
+
+    public ParallelResizer(ImageProcessingProperties properties) {
+        this.config = properties.getResize();
+        this.pool = new ForkJoinPool(config.resolveParallelism(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("ImageResize-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+
+        log.info("Parallel resize: threshold={} pixels, tileRows={}, parallelism={}",
+                config.getParallelThreshold(), config.getTileRows(), pool.getParallelism());
+    }
+
+    /**
+     * Resize an image to exact dimensions, in parallel tiles if it is large.
+     *
+     * @param source image to resize
+     * @param width target width
+     * @param height target height
+     * @return resized image
+     */
+    public BufferedImage resize(BufferedImage source, int width, int height) throws IOException {
+        if (isParallel(source)) {
+            return resizeTiled(source, width, height);
+        }
+        return Thumbnails.of(source).forceSize(width, height).asBufferedImage();
+    }
+
+    /**
+     * @param source image to resize
+     * @return true if the image is large enough to be resized in parallel tiles
+     */
+    public boolean isParallel(BufferedImage source) {
+        return (long) source.getWidth() * source.getHeight() >= config.getParallelThreshold();
+    }
+
+    /**
+     * Resize an image in parallel tiles regardless of its size.
+     *
+     * @param source image to resize
+     * @param width target width
+     * @param height target height
+     * @return resized image; with alpha only if the source has alpha
+     */
+    public BufferedImage resizeTiled(BufferedImage source, int width, int height) {
+        boolean alpha = source.getColorModel().hasAlpha();
+        BufferedImage target = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+
+        Kernel horizontal = Kernel.of(source.getWidth(), width);
+        Kernel vertical = Kernel.of(source.getHeight(), height);
+        pool.invoke(new StripTask(source, pixels, width, horizontal, vertical, 0, height));
+
+        log.debug("Resized {}x{} to {}x{} in tiles of {} rows",
+                source.getWidth(), source.getHeight(), width, height, config.getTileRows());
+        return target;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Filter weights along one axis: each target index reads a run of source indices.
+     * Taps beyond the image edge are folded onto the edge pixel.
+     *
+     * @param first first source index read for each target index
+     * @param weights normalised weights of the source run for each target index
+     */
+    private record Kernel(int[] first, float[][] weights) {
+
+        static Kernel of(int sourceSize, int targetSize) {
+            double scale = (double) targetSize / sourceSize;
+            double support = scale < 1 ? 1 / scale : 1;
+            int[] first = new int[targetSize];
+            float[][] weights = new float[targetSize][];
+
+            for (int i = 0; i < targetSize; i++) {
+                double centre = (i + 0.5) / scale;
+                int left = (int) Math.floor(centre - support);
+                int right = (int) Math.ceil(centre + support);
+                int low = Math.max(0, left);
+                int high = Math.min(sourceSize, right);
+                float[] run = new float[high - low];
+
+                double sum = 0;
+                for (int j = left; j < right; j++) {
+                    double weight = Math.max(0, 1 - Math.abs((j + 0.5 - centre) / support));
+                    run[Math.min(sourceSize - 1, Math.max(0, j)) - low] += (float) weight;
+                    sum += weight;
+                }
+                for (int k = 0; k < run.length; k++) {
+                    run[k] = (float) (run[k] / sum);
+                }
+                first[i] = low;
+                weights[i] = run;
+            }
+            return new Kernel(first, weights);
+        }
+
+        /**
+         * @return one past the last source index read for a target index
+         */
+        int end(int i) {
+            return first[i] + weights[i].length;
+        }
+    }
+
+    /**
+     * Resamples a range of target rows, splitting it until it is one tile.
+     */
+    private final class StripTask extends RecursiveAction {
+
+        private final BufferedImage source;
+        private final int[] target;
+        private final int width;
+        private final Kernel horizontal;
+        private final Kernel vertical;
+        private final int top;
+        private final int bottom;
+
+        StripTask(BufferedImage source, int[] target, int width, Kernel horizontal, Kernel vertical,
+                  int top, int bottom) {
+            this.source = source;
+            this.target = target;
+            this.width = width;
+            this.horizontal = horizontal;
+            this.vertical = vertical;
+            this.top = top;
+            this.bottom = bottom;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = bottom - top;
+            if (rows <= config.getTileRows()) {
+                resample();
+                return;
+            }
+            int middle = top + rows / 2;
+            invokeAll(new StripTask(source, target, width, horizontal, vertical, top, middle),
+                    new StripTask(source, target, width, horizontal, vertical, middle, bottom));
+        }
+
+        /**
+         * Filter each source row under the strip's window horizontally once, then add it
+         * to every target row of the strip whose vertical window covers it.
+         */
+        private void resample() {
+            int sourceWidth = source.getWidth();
+            int[] sourceRow = new int[sourceWidth];
+            float[] filtered = new float[width * CHANNELS];
+            float[][] accumulated = new float[bottom - top][width * CHANNELS];
+
+            for (int sourceY = vertical.first()[top]; sourceY < vertical.end(bottom - 1); sourceY++) {
+                source.getRGB(0, sourceY, sourceWidth, 1, sourceRow, 0, sourceWidth);
+                filterRow(sourceRow, filtered);
+
+                for (int y = top; y < bottom; y++) {
+                    int tap = sourceY - vertical.first()[y];
+                    float[] taps = vertical.weights()[y];
+                    if (tap < 0 || tap >= taps.length) {
+                        continue;
+                    }
+                    float weight = taps[tap];
+                    float[] row = accumulated[y - top];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] += weight * filtered[i];
+                    }
+                }
+            }
+
+            for (int y = top; y < bottom; y++) {
+                float[] row = accumulated[y - top];
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    int i = x * CHANNELS;
+                    float alpha = row[i];
+                    float unpremultiply = alpha > 0 ? 255 / alpha : 0;
+                    target[offset + x] = channel(alpha) << 24 | channel(row[i + 1] * unpremultiply) << 16
+                            | channel(row[i + 2] * unpremultiply) << 8 | channel(row[i + 3] * unpremultiply);
+                }
+            }
+        }
+
+        /**
+         * Filter one source row horizontally, with colour premultiplied by alpha.
+         */
+        private void filterRow(int[] sourceRow, float[] filtered) {
+            for (int x = 0; x < width; x++) {
+                int start = horizontal.first()[x];
+                float[] taps = horizontal.weights()[x];
+                float a = 0;
+                float r = 0;
+                float g = 0;
+                float b = 0;
+                for (int k = 0; k < taps.length; k++) {
+                    int argb = sourceRow[start + k];
+                    int alpha = argb >>> 24;
+                    float weight = taps[k];
+                    float colourWeight = weight * alpha / 255;
+                    a += weight * alpha;
+                    r += colourWeight * ((argb >> 16) & 0xFF);
+                    g += colourWeight * ((argb >> 8) & 0xFF);
+                    b += colourWeight * (argb & 0xFF);
+                }
+                int i = x * CHANNELS;
+                filtered[i] = a;
+                filtered[i + 1] = r;
+                filtered[i + 2] = g;
+                filtered[i + 3] = b;
+            }
+        }
+
+        private static int channel(float value) {
+            return Math.max(0, Math.min(255, Math.round(value)));
+        }
+    }
+}
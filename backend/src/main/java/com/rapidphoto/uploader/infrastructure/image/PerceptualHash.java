@@ -0,0 +1,112 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 64-bit difference hash (dHash) of an image.
+ * The image is reduced to 9x8 cells of mean luma and each bit records whether a
+ * cell is darker than its right neighbour, so resizing, recompression and small
+ * edits change few bits; the Hamming distance between hashes measures similarity.
+ * <p>
+ * Hashes are indexed as four 16-bit bands. Two hashes within distance {@code r}
+ * have at least one band within {@code r / 4} of each other, so candidates can be
+ * found by exact lookups of each band's near neighbours.
+ */
+public final class PerceptualHash {
+
+    public static final int BANDS = 4;
+    public static final int BAND_BITS = 16;
+
+    private static final int COLUMNS = 9;
+    private static final int ROWS = 8;
+
+    /**
+     * Samples taken along the shorter edge; larger images are sampled with a stride.
+     */
+    private static final int SAMPLES = 256;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * @param image decoded image, upright
+     * @return 64-bit dHash
+     */
+    public static long dHash(BufferedImage image) {
+        double[] cells = meanLuma(image);
+        long hash = 0;
+        for (int y = 0; y < ROWS; y++) {
+            for (int x = 0; x < COLUMNS - 1; x++) {
+                hash = (hash << 1) | (cells[y * COLUMNS + x] < cells[y * COLUMNS + x + 1] ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return number of differing bits
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * @param hash the hash
+     * @param band band index, 0 for the most significant bits
+     * @return value of the band
+     */
+    public static int band(long hash, int band) {
+        return (int) ((hash >>> (BAND_BITS * (BANDS - 1 - band))) & 0xFFFF);
+    }
+
+    /**
+     * All band values within a Hamming distance of a band of the hash.
+     *
+     * @param hash the hash
+     * @param band band index
+     * @param radius maximum number of flipped bits
+     * @return band values, including the band itself
+     */
+    public static List<Long> bandNeighbours(long hash, int band, int radius) {
+        List<Long> values = new ArrayList<>();
+        collectNeighbours(band(hash, band), 0, radius, values);
+        return values;
+    }
+
+    private static void collectNeighbours(int value, int fromBit, int radius, List<Long> values) {
+        values.add((long) value);
+        if (radius == 0) {
+            return;
+        }
+        for (int bit = fromBit; bit < BAND_BITS; bit++) {
+            collectNeighbours(value ^ (1 << bit), bit + 1, radius - 1, values);
+        }
+    }
+
+    private static double[] meanLuma(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int step = Math.max(1, Math.min(width, height) / SAMPLES);
+
+        double[] sums = new double[COLUMNS * ROWS];
+        int[] counts = new int[COLUMNS * ROWS];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y += step) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellRow = (int) ((long) y * ROWS / height) * COLUMNS;
+            for (int x = 0; x < width; x += step) {
+                int rgb = row[x];
+                double luma = 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                int cell = cellRow + (int) ((long) x * COLUMNS / width);
+                sums[cell] += luma;
+                counts[cell]++;
+            }
+        }
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = counts[i] > 0 ? sums[i] / counts[i] : 0;
+        }
+        return sums;
+    }
+}
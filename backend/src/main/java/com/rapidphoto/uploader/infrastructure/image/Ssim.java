@@ -0,0 +1,84 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Structural similarity (SSIM) between two images of equal size.
+ * Computed on luma over 8x8 windows with a stride of 4, and averaged;
+ * 1.0 means identical.
+ */
+public final class Ssim {
+
+    private static final int WINDOW = 8;
+    private static final int STRIDE = 4;
+    private static final double C1 = Math.pow(0.01 * 255, 2);
+    private static final double C2 = Math.pow(0.03 * 255, 2);
+
+    private Ssim() {
+    }
+
+    /**
+     * @param reference reference image
+     * @param candidate image compared against the reference
+     * @return mean SSIM
+     */
+    public static double mean(BufferedImage reference, BufferedImage candidate) {
+        int width = reference.getWidth();
+        int height = reference.getHeight();
+        if (candidate.getWidth() != width || candidate.getHeight() != height) {
+            throw new IllegalArgumentException("Images must have the same dimensions");
+        }
+
+        double[] x = luma(reference);
+        double[] y = luma(candidate);
+        if (width < WINDOW || height < WINDOW) {
+            return window(x, y, width, 0, 0, width, height);
+        }
+
+        double total = 0;
+        int windows = 0;
+        for (int top = 0; top + WINDOW <= height; top += STRIDE) {
+            for (int left = 0; left + WINDOW <= width; left += STRIDE) {
+                total += window(x, y, width, left, top, WINDOW, WINDOW);
+                windows++;
+            }
+        }
+        return total / windows;
+    }
+
+    private static double window(double[] x, double[] y, int stride, int left, int top, int w, int h) {
+        int n = w * h;
+        double sumX = 0, sumY = 0, sumXX = 0, sumYY = 0, sumXY = 0;
+        for (int row = top; row < top + h; row++) {
+            int offset = row * stride;
+            for (int col = left; col < left + w; col++) {
+                double a = x[offset + col];
+                double b = y[offset + col];
+                sumX += a;
+                sumY += b;
+                sumXX += a * a;
+                sumYY += b * b;
+                sumXY += a * b;
+            }
+        }
+        double meanX = sumX / n;
+        double meanY = sumY / n;
+        double varX = sumXX / n - meanX * meanX;
+        double varY = sumYY / n - meanY * meanY;
+        double covariance = sumXY / n - meanX * meanY;
+        return ((2 * meanX * meanY + C1) * (2 * covariance + C2))
+                / ((meanX * meanX + meanY * meanY + C1) * (varX + varY + C2));
+    }
+
+    private static double[] luma(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+        double[] luma = new double[rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            int pixel = rgb[i];
+            luma[i] = 0.299 * ((pixel >> 16) & 0xFF) + 0.587 * ((pixel >> 8) & 0xFF) + 0.114 * (pixel & 0xFF);
+        }
+        return luma;
+    }
+}
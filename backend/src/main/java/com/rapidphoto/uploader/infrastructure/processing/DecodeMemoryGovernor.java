@@ -0,0 +1,120 @@
+package com.rapidphoto.uploader.infrastructure.processing;
+
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import com.rapidphoto.uploader.infrastructure.image.ImageRejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for decoded images.
+ * Each decode reserves its estimated raster size from a budget shared by the whole
+ * node before any pixels are allocated, so the number of images in memory at once
+ * follows their actual sizes rather than the thread count. Reservations are granted
+ * in arrival order, so a large image is not starved by a stream of small ones.
+ */
+@Component
+@Slf4j
+public class DecodeMemoryGovernor {
+
+    private static final long UNIT = 1024;
+
+    private final ImageProcessingProperties.Memory config;
+    private final long budgetBytes;
+    private final Semaphore available;
+
+    public DecodeMemoryGovernor(ImageProcessingProperties properties) {
+        this.config = properties.getMemory();
+        this.budgetBytes = config.getBudget() != null
+                ? config.getBudget().toBytes()
+                : (long) (Runtime.getRuntime().maxMemory() * config.getHeapFraction());
+        this.available = new Semaphore((int) Math.min(Integer.MAX_VALUE, budgetBytes / UNIT), true);
+
+        log.info("Decode memory budget: {} bytes, {} bytes per pixel, max {} pixels per image",
+                budgetBytes, config.getBytesPerPixel(), config.getMaxPixels());
+    }
+
+    /**
+     * Reserve memory for decoding an image, waiting up to the admission timeout.
+     *
+     * @param width width of the original in pixels
+     * @param height height of the original in pixels
+     * @param decodedPixels pixels of the decoded raster, less than width * height when subsampled
+     * @return reservation to close once the decoded image is no longer used, or empty if
+     *         the budget stayed exhausted for the whole timeout
+     * @throws ImageRejectedException if the image is too large to ever be admitted
+     */
+    public Optional<Reservation> reserve(int width, int height, long decodedPixels) throws InterruptedException {
+        checkDimensions(width, height);
+        long bytes = decodedPixels * config.getBytesPerPixel();
+        if (bytes > budgetBytes - budgetBytes % UNIT) {
+            throw new ImageRejectedException(String.format(
+                    "Decoding %dx%d needs %d bytes, more than the whole budget of %d bytes",
+                    width, height, bytes, budgetBytes));
+        }
+
+        int units = (int) Math.max(1, (bytes + UNIT - 1) / UNIT);
+        Duration timeout = config.getAdmissionTimeout();
+        if (!available.tryAcquire(units, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.debug("No budget for {} bytes within {}ms ({} bytes free)", bytes, timeout.toMillis(), availableBytes());
+            return Optional.empty();
+        }
+        return Optional.of(new Reservation(units));
+    }
+
+    /**
+     * Refuse images whose dimensions are invalid or exceed the pixel limit.
+     *
+     * @param width width in pixels
+     * @param height height in pixels
+     * @throws ImageRejectedException if the image must not be decoded
+     */
+    public void checkDimensions(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new ImageRejectedException("Invalid image dimensions " + width + "x" + height);
+        }
+        if ((long) width * height > config.getMaxPixels()) {
+            throw new ImageRejectedException(String.format(
+                    "Image of %dx%d exceeds the limit of %d pixels", width, height, config.getMaxPixels()));
+        }
+    }
+
+    /**
+     * @return true while decodes are waiting for budget, so no further work should be taken on
+     */
+    public boolean isSaturated() {
+        return available.hasQueuedThreads();
+    }
+
+    /**
+     * @return bytes of budget not currently reserved
+     */
+    public long availableBytes() {
+        return available.availablePermits() * UNIT;
+    }
+
+    /**
+     * Budget held by one decode; released once.
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private final int units;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Reservation(int units) {
+            this.units = units;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                available.release(units);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.rapidphoto.uploader.infrastructure.processing;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size thread pool that runs CPU-bound steps of queued processing stages by priority.
+ * Lower priority values run first; tasks of equal priority run in submission order.
+ * Stages themselves are queued durably in processing_tasks; work handed over with
+ * {@link #invoke(int, Callable)} goes through a bounded queue: callers block, cheaply
+ * when they are virtual threads, while the queue is full.
+ */
+public class PriorityTaskExecutor {
+
+    private final ThreadPoolExecutor delegate;
+    private final Semaphore queueSlots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public PriorityTaskExecutor(String threadNamePrefix, int poolSize, int queueCapacity) {
+        this.delegate = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                60, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                new CustomizableThreadFactory(threadNamePrefix));
+        this.queueSlots = new Semaphore(queueCapacity);
+    }
+
+    /**
+     * Run a task on the pool and wait for its result. Waits for a queue slot first,
+     * so producers cannot queue more work than the pool is configured to hold.
+     *
+     * @param priority lower values run first
+     * @param task the task
+     * @return the task's result
+     * @throws IOException thrown by the task, or if the caller was interrupted
+     */
+    public <T> T invoke(int priority, Callable<T> task) throws IOException {
+        FutureTask<T> future = new FutureTask<>(task);
+        try {
+            queueSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a queue slot");
+        }
+        try {
+            delegate.execute(new PrioritizedTask(priority, sequence.getAndIncrement(), () -> {
+                queueSlots.release();
+                future.run();
+            }));
+        } catch (RejectedExecutionException e) {
+            queueSlots.release();
+            throw e;
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a pooled task");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    private record PrioritizedTask(int priority, long sequence, Runnable task)
+            implements Runnable, Comparable<PrioritizedTask> {
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = Integer.compare(priority, other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.rapidphoto.uploader.infrastructure.repository;
+
+import com.rapidphoto.uploader.domain.BackfillJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Spring Data JPA repository for BackfillJob entity.
+ */
+@Repository
+public interface BackfillJobRepository extends JpaRepository<BackfillJob, UUID> {
+
+    /**
+     * Lock the running jobs no other node is advancing. Must be called inside a
+     * transaction, which holds the locks until it commits.
+     * @return locked jobs, oldest first
+     */
+    @Query(value = """
+            SELECT * FROM backfill_jobs
+            WHERE status = 'RUNNING'
+            ORDER BY created_at
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<BackfillJob> lockRunning();
+
+    /**
+     * Find all jobs, newest first.
+     * @return list of jobs
+     */
+    List<BackfillJob> findAllByOrderByCreatedAtDesc();
+}
@@ -0,0 +1,55 @@
+package com.rapidphoto.uploader.infrastructure.repository;
+
+import com.rapidphoto.uploader.domain.ContentObject;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Spring Data JPA repository for ContentObject entity.
+ * Provides CRUD operations and custom queries.
+ */
+@Repository
+public interface ContentObjectRepository extends JpaRepository<ContentObject, UUID> {
+
+    /**
+     * Register a photo as the canonical copy of its content, unless the user already has one.
+     * @return number of rows inserted (0 if the content is already known)
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO content_objects (user_id, content_hash, storage_key, canonical_photo_id, ref_count, created_at, updated_at)
+            VALUES (:userId, :contentHash, :storageKey, :photoId, 1, :now, :now)
+            ON CONFLICT (user_id, content_hash) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("userId") UUID userId,
+                       @Param("contentHash") String contentHash,
+                       @Param("storageKey") String storageKey,
+                       @Param("photoId") UUID photoId,
+                       @Param("now") Instant now);
+
+    /**
+     * Find and lock a user's content object by hash.
+     * @param userId the user's ID
+     * @param contentHash base64 SHA-256
+     * @return optional content object
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<ContentObject> findByUserIdAndContentHash(UUID userId, String contentHash);
+
+    /**
+     * Find and lock the content object stored under a key.
+     * @param storageKey storage key of the original
+     * @return optional content object
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<ContentObject> findByStorageKey(String storageKey);
+}
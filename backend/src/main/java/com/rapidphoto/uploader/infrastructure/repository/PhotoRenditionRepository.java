@@ -0,0 +1,49 @@
+package com.rapidphoto.uploader.infrastructure.repository;
+
+import com.rapidphoto.uploader.domain.PhotoRendition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Spring Data JPA repository for PhotoRendition entity.
+ * Provides CRUD operations and custom queries.
+ */
+@Repository
+public interface PhotoRenditionRepository extends JpaRepository<PhotoRendition, UUID> {
+
+    /**
+     * Find all renditions of a photo.
+     * @param photoId the photo's ID
+     * @return list of renditions
+     */
+    List<PhotoRendition> findByPhotoId(UUID photoId);
+
+    /**
+     * Find all renditions of several photos in one query.
+     * Used to resolve thumbnails for a gallery page.
+     * @param photoIds the photo IDs
+     * @return list of renditions
+     */
+    List<PhotoRendition> findByPhotoIdIn(Collection<UUID> photoIds);
+
+    /**
+     * Find a named rendition of a photo.
+     * @param photoId the photo's ID
+     * @param name the rendition profile name
+     * @return optional rendition
+     */
+    Optional<PhotoRendition> findByPhotoIdAndName(UUID photoId, String name);
+
+    /**
+     * Find a generated rendition stored under a key.
+     * Photos sharing deduplicated content share rendition keys, so one photo's rendition can serve another.
+     * @param storageKey the rendition's storage key
+     * @return optional rendition
+     */
+    Optional<PhotoRendition> findFirstByStorageKeyAndProvisionalFalse(String storageKey);
+}
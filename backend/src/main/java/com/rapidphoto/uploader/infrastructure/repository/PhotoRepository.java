@@ -4,11 +4,16 @@ import com.rapidphoto.uploader.domain.Photo;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -58,5 +63,183 @@ public interface PhotoRepository extends JpaRepository<Photo, UUID> {
      * @return count of photos
      */
     long countByUserId(UUID userId);
-}
+    
+    /**
+     * Find another photo stored under the same key, e.g. a deduplicated copy.
+     * @param storageKey the storage key
+     * @param excludedId photo to exclude
+     * @return optional photo
+     */
+    Optional<Photo> findFirstByStorageKeyAndIdNot(String storageKey, UUID excludedId);
 
+    /**
+     * Claim a key uploaded with a batch POST policy for a photo. Only one photo can claim
+     * a key, deleted or not; a concurrent claim waits for the first to commit or roll back.
+     * @param storageKey the uploaded key
+     * @param batchId the batch the policy was issued for
+     * @param photoId the photo recorded for the key
+     * @param now claim time
+     * @return 1 if the key was claimed, 0 if another photo already holds it
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO policy_uploads (storage_key, batch_id, photo_id, created_at)
+            VALUES (:storageKey, :batchId, :photoId, :now)
+            ON CONFLICT (storage_key) DO NOTHING
+            """, nativeQuery = true)
+    int claimPolicyUpload(@Param("storageKey") String storageKey,
+                          @Param("batchId") UUID batchId,
+                          @Param("photoId") UUID photoId,
+                          @Param("now") Instant now);
+
+    /**
+     * Find a user's photos within a Hamming distance of a perceptual hash, nearest first.
+     * Candidates are probed through the per-band indexes (each band is matched against
+     * its accepted values); the full distance is then filtered and ordered on in SQL,
+     * so the limit applies to the nearest matches rather than to arbitrary candidates.
+     * @param userId the user's ID
+     * @param excludedId photo to exclude
+     * @param hash the perceptual hash to compare against
+     * @param maxDistance maximum number of differing bits
+     * @param band0 accepted values of bits 48-63
+     * @param band1 accepted values of bits 32-47
+     * @param band2 accepted values of bits 16-31
+     * @param band3 accepted values of bits 0-15
+     * @param limit maximum number of photos
+     * @return matching photos, nearest first
+     */
+    @Query(value = """
+            SELECT * FROM photos p
+            WHERE p.user_id = :userId AND p.id <> :excludedId AND p.perceptual_hash IS NOT NULL
+              AND p.deleted_at IS NULL
+              AND (((p.perceptual_hash >> 48) & 65535) IN (:band0)
+                OR ((p.perceptual_hash >> 32) & 65535) IN (:band1)
+                OR ((p.perceptual_hash >> 16) & 65535) IN (:band2)
+                OR (p.perceptual_hash & 65535) IN (:band3))
+              AND bit_count((p.perceptual_hash # :hash)::bit(64)) <= :maxDistance
+            ORDER BY bit_count((p.perceptual_hash # :hash)::bit(64)), p.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Photo> findSimilarByPerceptualHash(@Param("userId") UUID userId,
+                                           @Param("excludedId") UUID excludedId,
+                                           @Param("hash") long hash,
+                                           @Param("maxDistance") int maxDistance,
+                                           @Param("band0") Collection<Long> band0,
+                                           @Param("band1") Collection<Long> band1,
+                                           @Param("band2") Collection<Long> band2,
+                                           @Param("band3") Collection<Long> band3,
+                                           @Param("limit") int limit);
+    
+    /**
+     * Record the content hash of a photo's original.
+     * @param id the photo's ID
+     * @param contentHash base64 SHA-256
+     * @return number of rows updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Photo p SET p.contentHash = :contentHash WHERE p.id = :id")
+    int updateContentHash(@Param("id") UUID id, @Param("contentHash") String contentHash);
+    
+    /**
+     * Page through processed photos by ID, for reprocessing.
+     * @param afterId ID after which the page starts
+     * @param limit page size
+     * @return photo IDs in ascending order
+     */
+    @Query(value = """
+            SELECT id FROM photos
+            WHERE id > :afterId AND status IN ('THUMBNAIL_READY', 'COMPLETE') AND deleted_at IS NULL
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<UUID> findProcessedIdsAfter(@Param("afterId") UUID afterId, @Param("limit") int limit);
+    
+    /**
+     * Page through processed photos without extracted metadata by ID, for reprocessing.
+     * @param afterId ID after which the page starts
+     * @param limit page size
+     * @return photo IDs in ascending order
+     */
+    @Query(value = """
+            SELECT id FROM photos
+            WHERE id > :afterId AND status IN ('THUMBNAIL_READY', 'COMPLETE') AND metadata_extracted_at IS NULL
+              AND deleted_at IS NULL
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<UUID> findProcessedIdsWithoutMetadataAfter(@Param("afterId") UUID afterId, @Param("limit") int limit);
+    
+    /**
+     * Mark a user's photos deleted in one statement. Photos of other users and photos
+     * already deleted are left alone.
+     * @param userId the owner's ID
+     * @param ids the photo IDs
+     * @param now deletion time
+     * @return number of photos marked deleted
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE photos SET deleted_at = :now, updated_at = :now
+            WHERE user_id = :userId AND id IN (:ids) AND deleted_at IS NULL
+            """, nativeQuery = true)
+    int markDeleted(@Param("userId") UUID userId, @Param("ids") Collection<UUID> ids, @Param("now") Instant now);
+    
+    /**
+     * Lock photos deleted before a point in time, oldest first, for purging.
+     * Photos locked by another node, claimed by a purge since the claim cutoff, or with a
+     * processing stage still running (which may yet upload objects) are skipped. Must be
+     * called inside a transaction, which holds the locks until it commits.
+     * @param before deletion time before which photos are returned
+     * @param claimedBefore purge claims older than this have expired
+     * @param limit maximum number of photos
+     * @return deleted photos
+     */
+    @Query(value = """
+            SELECT * FROM photos
+            WHERE deleted_at IS NOT NULL AND deleted_at < :before
+              AND (purge_claimed_at IS NULL OR purge_claimed_at < :claimedBefore)
+              AND NOT EXISTS (SELECT 1 FROM processing_tasks t WHERE t.photo_id = photos.id AND t.status = 'RUNNING')
+            ORDER BY deleted_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Photo> lockDeletedBefore(@Param("before") Instant before,
+                                  @Param("claimedBefore") Instant claimedBefore,
+                                  @Param("limit") int limit);
+
+    /**
+     * Claim deleted photos for a purge, recording whether it deletes their objects.
+     * @param ids the photo IDs
+     * @param ownsObjects whether the photos' objects are deleted with them
+     * @param now claim time
+     * @return number of rows updated
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE photos SET purge_claimed_at = :now, purge_owns_objects = :ownsObjects
+            WHERE id IN (:ids) AND deleted_at IS NOT NULL
+            """, nativeQuery = true)
+    int claimForPurge(@Param("ids") Collection<UUID> ids,
+                      @Param("ownsObjects") boolean ownsObjects,
+                      @Param("now") Instant now);
+
+    /**
+     * Give up purge claims, so the next purge retries the photos at once.
+     * @param ids the photo IDs
+     * @return number of rows updated
+     */
+    @Modifying
+    @Query(value = "UPDATE photos SET purge_claimed_at = NULL WHERE id IN (:ids) AND deleted_at IS NOT NULL",
+            nativeQuery = true)
+    int releasePurgeClaims(@Param("ids") Collection<UUID> ids);
+    
+    /**
+     * Remove purged photos. Their renditions, tags, upload jobs and tasks go with them.
+     * @param ids the photo IDs
+     * @return number of rows deleted
+     */
+    @Modifying
+    @Query(value = "DELETE FROM photos WHERE id IN (:ids) AND deleted_at IS NOT NULL", nativeQuery = true)
+    int deletePurged(@Param("ids") Collection<UUID> ids);
+}
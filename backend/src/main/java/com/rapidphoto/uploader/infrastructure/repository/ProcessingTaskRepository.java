@@ -0,0 +1,132 @@
+package com.rapidphoto.uploader.infrastructure.repository;
+
+import com.rapidphoto.uploader.domain.ProcessingTask;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Spring Data JPA repository for ProcessingTask entity.
+ * Claiming relies on PostgreSQL row locks, so concurrent workers never receive the same task.
+ */
+@Repository
+public interface ProcessingTaskRepository extends JpaRepository<ProcessingTask, UUID> {
+
+    /**
+     * Lock the next claimable tasks: pending tasks that are due, and running tasks whose
+     * lease has expired. Rows locked by another transaction are skipped rather than waited
+     * on. Must be called inside a transaction, which holds the locks until it commits.
+     * @param now current time
+     * @param limit maximum number of tasks
+     * @return locked tasks in priority order
+     */
+    @Query(value = """
+            SELECT * FROM processing_tasks
+            WHERE (status = 'PENDING' AND available_at <= :now)
+               OR (status = 'RUNNING' AND lease_expires_at < :now)
+            ORDER BY priority, available_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<ProcessingTask> lockClaimable(@Param("now") Instant now, @Param("limit") int limit);
+
+    /**
+     * Load a task and lock its row, so a worker can check its lease and update the task
+     * before another worker can reclaim it. Must be called inside a transaction.
+     * @param id the task ID
+     * @return the locked task
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM ProcessingTask t WHERE t.id = :id")
+    Optional<ProcessingTask> findByIdForUpdate(@Param("id") UUID id);
+
+    /**
+     * Insert a pending task unless the photo already has a live task for the stage.
+     * @return number of rows inserted (0 or 1)
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO processing_tasks (photo_id, stage, priority, status, attempts, available_at, created_at, updated_at)
+            VALUES (:photoId, :stage, :priority, 'PENDING', 0, :availableAt, :now, :now)
+            ON CONFLICT (photo_id, stage) WHERE status IN ('PENDING', 'RUNNING') DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("photoId") UUID photoId,
+                       @Param("stage") String stage,
+                       @Param("priority") int priority,
+                       @Param("availableAt") Instant availableAt,
+                       @Param("now") Instant now);
+
+    /**
+     * Make a delayed pending task due immediately.
+     * @return number of rows updated
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE processing_tasks SET available_at = :now, updated_at = :now
+            WHERE photo_id = :photoId AND stage = :stage AND status = 'PENDING' AND available_at > :now
+            """, nativeQuery = true)
+    int makeAvailable(@Param("photoId") UUID photoId, @Param("stage") String stage, @Param("now") Instant now);
+
+    /**
+     * Extend the leases of running tasks still held by a worker.
+     * @return number of leases extended
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE processing_tasks SET lease_expires_at = :leaseExpiresAt
+            WHERE id IN (:ids) AND lease_owner = :owner AND status = 'RUNNING'
+            """, nativeQuery = true)
+    int extendLeases(@Param("ids") Collection<UUID> ids,
+                     @Param("owner") String owner,
+                     @Param("leaseExpiresAt") Instant leaseExpiresAt);
+
+    /**
+     * Remove a finished task, provided the worker still holds its lease.
+     * @return number of rows deleted (0 if the lease was lost)
+     */
+    @Modifying
+    @Query(value = "DELETE FROM processing_tasks WHERE id = :id AND lease_owner = :owner AND status = 'RUNNING'",
+            nativeQuery = true)
+    int deleteLeased(@Param("id") UUID id, @Param("owner") String owner);
+
+    /**
+     * Remove queued tasks of a photo that have not started.
+     * @return number of rows deleted
+     */
+    @Modifying
+    @Query(value = "DELETE FROM processing_tasks WHERE photo_id = :photoId AND status = 'PENDING'",
+            nativeQuery = true)
+    int deletePending(@Param("photoId") UUID photoId);
+
+    /**
+     * Remove queued tasks of a user's deleted photos that have not started.
+     * @return number of rows deleted
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM processing_tasks t USING photos p
+            WHERE t.photo_id = p.id AND t.status = 'PENDING'
+              AND p.id IN (:photoIds) AND p.user_id = :userId AND p.deleted_at IS NOT NULL
+            """, nativeQuery = true)
+    int deletePendingForDeleted(@Param("userId") UUID userId, @Param("photoIds") Collection<UUID> photoIds);
+
+    /**
+     * Count queued and running tasks whose priority value is at least the given one.
+     * @return number of live tasks
+     */
+    @Query(value = """
+            SELECT count(*) FROM processing_tasks
+            WHERE priority >= :priority AND status IN ('PENDING', 'RUNNING')
+            """, nativeQuery = true)
+    long countLiveFromPriority(@Param("priority") int priority);
+}
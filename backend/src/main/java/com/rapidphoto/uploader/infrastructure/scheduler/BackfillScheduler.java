@@ -0,0 +1,30 @@
+package com.rapidphoto.uploader.infrastructure.scheduler;
+
+import com.rapidphoto.uploader.application.service.BackfillService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled job advancing running backfill jobs.
+ * Every node runs it; row locks ensure each job is advanced by one node at a time.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "processing.backfill", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class BackfillScheduler {
+
+    private final BackfillService backfillService;
+
+    @Scheduled(fixedDelayString = "#{@backfillProperties.interval.toMillis()}")
+    public void advance() {
+        try {
+            backfillService.advance();
+        } catch (Exception e) {
+            log.error("Failed to advance backfill jobs", e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.rapidphoto.uploader.infrastructure.scheduler;
+
+import com.rapidphoto.uploader.application.service.PhotoPurgeService;
+import com.rapidphoto.uploader.infrastructure.config.PhotoPurgeProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled job purging deleted photos from storage.
+ * Purges batch after batch while full batches are found, so a large deletion drains
+ * in one run. Every node runs it; purge claims keep nodes off each other's batches.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "photo.purge", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PhotoPurgeScheduler {
+
+    private final PhotoPurgeService purgeService;
+    private final PhotoPurgeProperties properties;
+
+    @Scheduled(fixedDelayString = "#{@photoPurgeProperties.interval.toMillis()}")
+    public void purge() {
+        try {
+            while (purgeService.purge() >= properties.getBatchSize()) {
+                log.debug("Purged a full batch of deleted photos, continuing");
+            }
+        } catch (Exception e) {
+            log.error("Failed to purge deleted photos", e);
+        }
+    }
+}
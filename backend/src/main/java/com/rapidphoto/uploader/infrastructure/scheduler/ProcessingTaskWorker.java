@@ -0,0 +1,140 @@
+package com.rapidphoto.uploader.infrastructure.scheduler;
+
+import com.rapidphoto.uploader.application.service.ImageProcessingService;
+import com.rapidphoto.uploader.application.service.PhotoDeletedException;
+import com.rapidphoto.uploader.application.service.ProcessingDeferredException;
+import com.rapidphoto.uploader.application.service.ProcessingTaskService;
+import com.rapidphoto.uploader.domain.ProcessingTask;
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import com.rapidphoto.uploader.infrastructure.image.ImageRejectedException;
+import com.rapidphoto.uploader.infrastructure.processing.DecodeMemoryGovernor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Scheduled worker draining the durable processing queue.
+ * Claims as many tasks as it has free slots, runs each on a virtual thread,
+ * and extends their leases while they run. No tasks are claimed while running ones
+ * wait for decode memory, so the node takes on work at the rate its memory budget
+ * allows. Every backend node runs one worker; disable it on nodes that should only
+ * serve requests.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "processing.queue.worker", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ProcessingTaskWorker {
+
+    private final ProcessingTaskService taskService;
+    private final ImageProcessingService imageProcessingService;
+    private final ExecutorService executor;
+    private final DecodeMemoryGovernor memoryGovernor;
+    private final int capacity;
+    private final String workerId;
+    private final Set<UUID> running = ConcurrentHashMap.newKeySet();
+
+    public ProcessingTaskWorker(ProcessingTaskService taskService,
+                                ImageProcessingService imageProcessingService,
+                                @Qualifier("processingIoExecutor") ExecutorService executor,
+                                DecodeMemoryGovernor memoryGovernor,
+                                ImageProcessingProperties imageProcessingProperties) {
+        this.taskService = taskService;
+        this.imageProcessingService = imageProcessingService;
+        this.executor = executor;
+        this.memoryGovernor = memoryGovernor;
+        this.capacity = imageProcessingProperties.getExecutor().getIoConcurrency();
+        this.workerId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Claim due tasks up to the number of free slots, unless decodes are waiting for memory.
+     */
+    @Scheduled(fixedDelayString = "#{@processingQueueProperties.pollInterval.toMillis()}")
+    public void poll() {
+        int free = capacity - running.size();
+        if (free <= 0 || memoryGovernor.isSaturated()) {
+            return;
+        }
+
+        List<ProcessingTask> claimed;
+        try {
+            claimed = taskService.claim(workerId, free);
+        } catch (Exception e) {
+            log.error("Failed to claim processing tasks", e);
+            return;
+        }
+
+        for (ProcessingTask task : claimed) {
+            running.add(task.getId());
+            executor.execute(() -> run(task));
+        }
+        if (!claimed.isEmpty()) {
+            log.debug("Worker {} claimed {} processing task(s)", workerId, claimed.size());
+        }
+    }
+
+    /**
+     * Extend the leases of running tasks so other workers do not reclaim them.
+     */
+    @Scheduled(fixedDelayString = "#{@processingQueueProperties.heartbeatInterval.toMillis()}")
+    public void heartbeat() {
+        try {
+            taskService.heartbeat(workerId, Set.copyOf(running));
+        } catch (Exception e) {
+            log.error("Failed to extend processing task leases", e);
+        }
+    }
+
+    private void run(ProcessingTask task) {
+        try {
+            boolean continueStages = imageProcessingService.runStage(task.getPhotoId(), task.getStage());
+            taskService.complete(task, workerId, continueStages);
+        } catch (ProcessingDeferredException e) {
+            try {
+                taskService.defer(task, workerId, e.getRetryAfter(), e.getMessage());
+            } catch (Exception recordError) {
+                log.error("Failed to defer processing task: {}", task.getId(), recordError);
+            }
+        } catch (PhotoDeletedException e) {
+            log.info("Dropped {} stage for deleted photo: {}", task.getStage(), task.getPhotoId());
+            try {
+                taskService.complete(task, workerId, false);
+            } catch (Exception recordError) {
+                log.error("Failed to drop processing task: {}", task.getId(), recordError);
+            }
+        } catch (ImageRejectedException e) {
+            log.warn("Rejected photo: {} in {} stage: {}", task.getPhotoId(), task.getStage(), e.getMessage());
+            try {
+                taskService.reject(task, workerId, e.getMessage());
+            } catch (Exception recordError) {
+                log.error("Failed to record rejection of processing task: {}", task.getId(), recordError);
+            }
+        } catch (Exception e) {
+            log.error("Failed {} stage for photo: {}", task.getStage(), task.getPhotoId(), e);
+            try {
+                taskService.fail(task, workerId, e);
+            } catch (Exception recordError) {
+                log.error("Failed to record failure of processing task: {}", task.getId(), recordError);
+            }
+        } finally {
+            running.remove(task.getId());
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "worker";
+        }
+    }
+}
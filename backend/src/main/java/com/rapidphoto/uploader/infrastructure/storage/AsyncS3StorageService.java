@@ -0,0 +1,162 @@
+package com.rapidphoto.uploader.infrastructure.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * AWS S3 implementation of AsyncStorageService on {@link S3AsyncClient}.
+ * Requests run on the client's non-blocking transport; only reading an upload from an
+ * {@link InputStream} needs a thread, and that is a virtual thread per upload. Failures
+ * complete the future with the same exceptions {@link S3StorageService} throws.
+ */
+@Service
+@Slf4j
+public class AsyncS3StorageService implements AsyncStorageService {
+
+    private final S3AsyncClient s3AsyncClient;
+    private final S3StorageProperties properties;
+    private final ExecutorService streamReader =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("S3Upload-", 0).factory());
+
+    public AsyncS3StorageService(S3AsyncClient s3AsyncClient, S3StorageProperties properties) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.properties = properties;
+    }
+
+    @Override
+    public CompletableFuture<Void> uploadFile(String key, InputStream content, String contentType, long contentLength) {
+        return upload(key, AsyncRequestBody.fromInputStream(content, contentLength, streamReader),
+                contentType, contentLength);
+    }
+
+    @Override
+    public CompletableFuture<Void> uploadFile(String key, Publisher<ByteBuffer> content, String contentType,
+                                              long contentLength) {
+        return upload(key, AsyncRequestBody.fromPublisher(content), contentType, contentLength);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> downloadFile(String key) {
+        log.info("Downloading file asynchronously with key: {}", key);
+
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(properties.getBucketName())
+                .key(key)
+                .build();
+
+        return s3AsyncClient.getObject(getObjectRequest, AsyncResponseTransformer.toBlockingInputStream())
+                .handle((stream, error) -> {
+                    if (error == null) {
+                        return stream;
+                    }
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof NoSuchKeyException) {
+                        log.error("File not found: {}", key);
+                        throw new CompletionException(new RuntimeException("File not found in S3: " + key, cause));
+                    }
+                    log.error("Failed to download file: {}", key, cause);
+                    throw new CompletionException(new RuntimeException("Failed to download file from S3", cause));
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteFile(String key) {
+        log.info("Deleting file asynchronously with key: {}", key);
+
+        DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
+                .bucket(properties.getBucketName())
+                .key(key)
+                .build();
+
+        return s3AsyncClient.deleteObject(deleteObjectRequest)
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        log.error("Failed to delete file: {}", key, cause);
+                        throw new CompletionException(new RuntimeException("Failed to delete file from S3", cause));
+                    }
+                    log.info("Successfully deleted file: {}", key);
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Optional<StoredObject>> getObjectMetadata(String key) {
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                .bucket(properties.getBucketName())
+                .key(key)
+                .checksumMode(ChecksumMode.ENABLED)
+                .build();
+
+        return s3AsyncClient.headObject(headObjectRequest)
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return Optional.of(StoredObject.builder()
+                                .key(key)
+                                .contentLength(response.contentLength() != null ? response.contentLength() : 0L)
+                                .contentType(response.contentType())
+                                .eTag(response.eTag())
+                                .checksumSha256(response.checksumSHA256())
+                                .build());
+                    }
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof NoSuchKeyException
+                            || cause instanceof S3Exception s3Exception && s3Exception.statusCode() == 404) {
+                        return Optional.empty();
+                    }
+                    log.error("Error reading metadata for file: {}", key, cause);
+                    throw new CompletionException(new RuntimeException("Failed to read file metadata from S3", cause));
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamReader.shutdown();
+    }
+
+    private CompletableFuture<Void> upload(String key, AsyncRequestBody body, String contentType, long contentLength) {
+        log.info("Uploading file asynchronously with key: {}, size: {} bytes", key, contentLength);
+
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(properties.getBucketName())
+                .key(key)
+                .contentType(contentType)
+                .contentLength(contentLength)
+                .build();
+
+        return s3AsyncClient.putObject(putObjectRequest, body)
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        log.error("Failed to upload file: {}", key, cause);
+                        throw new CompletionException(new RuntimeException("Failed to upload file to S3", cause));
+                    }
+                    log.info("Successfully uploaded file: {}", key);
+                    return null;
+                });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
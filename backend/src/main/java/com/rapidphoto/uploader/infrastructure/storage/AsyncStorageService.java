@@ -0,0 +1,60 @@
+package com.rapidphoto.uploader.infrastructure.storage;
+
+import org.reactivestreams.Publisher;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link StorageService}.
+ * Operations return at once and complete their future when storage responds, so a
+ * caller can keep many transfers in flight without holding a thread for each.
+ * Content is streamed in both directions and never buffered whole.
+ */
+public interface AsyncStorageService {
+
+    /**
+     * Upload a file from a stream. The stream is read on a storage thread as the
+     * transport asks for data and must stay open until the future completes.
+     * @param key the object key (file path) in storage
+     * @param content the file content
+     * @param contentType the content type
+     * @param contentLength the content length in bytes
+     * @return future completing once the file is stored
+     */
+    CompletableFuture<Void> uploadFile(String key, InputStream content, String contentType, long contentLength);
+
+    /**
+     * Upload a file from a publisher of its content, without any blocking read.
+     * @param key the object key (file path) in storage
+     * @param content publisher of exactly {@code contentLength} bytes
+     * @param contentType the content type
+     * @param contentLength the content length in bytes
+     * @return future completing once the file is stored
+     */
+    CompletableFuture<Void> uploadFile(String key, Publisher<ByteBuffer> content, String contentType, long contentLength);
+
+    /**
+     * Download a file from storage.
+     * @param key the object key (file path) in storage
+     * @return future of the file content, completing once the response starts;
+     *         the body streams in as the returned stream is read
+     */
+    CompletableFuture<InputStream> downloadFile(String key);
+
+    /**
+     * Delete a file from storage.
+     * @param key the object key (file path) in storage
+     * @return future completing once the file is deleted
+     */
+    CompletableFuture<Void> deleteFile(String key);
+
+    /**
+     * Read the metadata of a file without downloading it.
+     * @param key the object key (file path) in storage
+     * @return future of the metadata, empty if the file does not exist
+     */
+    CompletableFuture<Optional<StoredObject>> getObjectMetadata(String key);
+}
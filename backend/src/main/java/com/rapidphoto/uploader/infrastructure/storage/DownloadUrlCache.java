@@ -0,0 +1,108 @@
+package com.rapidphoto.uploader.infrastructure.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pre-signed download URLs that stay the same for a whole time window.
+ * Time is cut into fixed windows aligned to the epoch, and every URL of a window is
+ * signed as of the window's start. A key therefore has one URL per window, identical on
+ * every node, and clients see the same URL on every gallery load within a window so
+ * their HTTP caches hit. URLs are also kept in memory for the rest of their window, so
+ * a key is signed once per window rather than per request.
+ * <p>
+ * Every URL is signed to stay valid for the configured expiration after its window
+ * ends, so a URL handed out at the last moment of a window lives as long as a fresh one.
+ */
+@Component
+public class DownloadUrlCache {
+
+    private final StorageService storageService;
+    private final Clock clock;
+    private final Duration window;
+    private final Duration validity;
+    private final Map<String, WindowedUrl> urls;
+
+    @Autowired
+    public DownloadUrlCache(StorageService storageService, S3StorageProperties properties) {
+        this(storageService, properties, Clock.systemUTC());
+    }
+
+    DownloadUrlCache(StorageService storageService, S3StorageProperties properties, Clock clock) {
+        if (properties.getDownloadUrlWindowSeconds() < 1) {
+            // Windows are counted by dividing the epoch second by their length
+            throw new IllegalArgumentException("Download URL window must be at least 1 second");
+        }
+        this.storageService = storageService;
+        this.clock = clock;
+        this.window = Duration.ofSeconds(properties.getDownloadUrlWindowSeconds());
+        this.validity = Duration.ofSeconds(properties.getPresignedUrlExpirationSeconds());
+        int maxEntries = properties.getDownloadUrlCacheSize();
+        this.urls = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, WindowedUrl> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Get the download URL of a key for the current window.
+     *
+     * @param key the object key (file path) in storage
+     * @return pre-signed URL valid for at least the configured expiration
+     */
+    public URL getDownloadUrl(String key) {
+        return getDownloadUrls(List.of(key)).get(key);
+    }
+
+    /**
+     * Get the download URLs of several keys for the current window, signing the ones
+     * not cached yet in a single batch.
+     *
+     * @param keys the object keys (file paths) in storage
+     * @return pre-signed URLs by key, each valid for at least the configured expiration
+     */
+    public Map<String, URL> getDownloadUrls(Collection<String> keys) {
+        long windowIndex = clock.instant().getEpochSecond() / window.getSeconds();
+
+        Map<String, URL> result = new HashMap<>();
+        Set<String> uncached = new LinkedHashSet<>();
+        for (String key : keys) {
+            WindowedUrl cached = urls.get(key);
+            if (cached != null && cached.windowIndex() == windowIndex) {
+                result.put(key, cached.url());
+            } else {
+                uncached.add(key);
+            }
+        }
+        if (uncached.isEmpty()) {
+            return result;
+        }
+        List<String> missing = List.copyOf(uncached);
+
+        Instant windowStart = Instant.ofEpochSecond(windowIndex * window.getSeconds());
+        List<URL> signed = storageService.generatePresignedDownloadUrls(missing, windowStart, window.plus(validity));
+        for (int i = 0; i < missing.size(); i++) {
+            urls.put(missing.get(i), new WindowedUrl(windowIndex, signed.get(i)));
+            result.put(missing.get(i), signed.get(i));
+        }
+        return result;
+    }
+
+    private record WindowedUrl(long windowIndex, URL url) {
+    }
+}
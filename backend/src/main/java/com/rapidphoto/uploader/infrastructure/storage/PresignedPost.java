@@ -0,0 +1,39 @@
+package com.rapidphoto.uploader.infrastructure.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A signed browser POST upload policy.
+ * Clients upload by posting a multipart form to the URL with all fields, then the
+ * file's own key, Content-Type, optionally its base64 x-amz-checksum-sha256, and
+ * content, in that order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedPost {
+
+    /**
+     * URL to post the form to.
+     */
+    private String url;
+
+    /**
+     * Form fields to send unchanged with every upload.
+     */
+    private Map<String, String> fields;
+
+    /**
+     * Prefix every uploaded key must start with.
+     */
+    private String keyPrefix;
+
+    private Instant expiresAt;
+}
@@ -0,0 +1,371 @@
+package com.rapidphoto.uploader.infrastructure.storage;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pre-signs S3 GET and PUT URLs in batches with {@link SigV4QuerySigner}, and browser
+ * POST policies that cover a whole batch of uploads.
+ * The signer does not guess the SDK's URL format: for each request shape, it presigns a
+ * probe with {@link S3Presigner}, takes the endpoint, path style, query parameter order
+ * and signed headers from that URL, signs the probe again itself at the same time and
+ * expiration, and is only used for the shape if both URLs are byte-for-byte identical.
+ * Shapes that do not verify, e.g. after an SDK upgrade changes the format, keep going
+ * through {@link S3Presigner} one URL at a time.
+ */
+@Component
+@Slf4j
+public class S3BatchPresigner {
+
+    /**
+     * Probe key with characters that need encoding, so key encoding is verified too.
+     */
+    private static final String PROBE_KEY = "presign-probe/a b+c~d=ü.jpg";
+    private static final String PROBE_CONTENT_TYPE = "image/jpeg";
+    private static final String PROBE_CHECKSUM = "47DEQpj8HBSa+/TImW+5JCeuQeRkm5NMpJWZG3hi1FE=";
+    private static final Duration PROBE_EXPIRATION = Duration.ofMinutes(5);
+    private static final Duration MAX_EXPIRATION = Duration.ofDays(7);
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final String POST_SERVICE = "s3";
+
+    private final S3Presigner s3Presigner;
+    private final S3StorageProperties properties;
+    private final ObjectMapper objectMapper;
+    private final AwsCredentialsProvider credentialsProvider;
+    private final SigV4QuerySigner signer = new SigV4QuerySigner();
+    private final ConcurrentMap<Shape, Optional<SigV4QuerySigner.Layout>> layouts = new ConcurrentHashMap<>();
+    private volatile String bucketUrl;
+
+    /**
+     * @param credentialsProvider the credentials {@code s3Presigner} signs with, so that
+     *                            probes verify against the same keys
+     */
+    public S3BatchPresigner(S3Presigner s3Presigner, AwsCredentialsProvider credentialsProvider,
+                            S3StorageProperties properties, ObjectMapper objectMapper) {
+        this.s3Presigner = s3Presigner;
+        this.credentialsProvider = credentialsProvider;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * A URL to presign.
+     *
+     * @param method GET or PUT
+     * @param key object key
+     * @param contentType content type the upload must declare, PUT only, may be null
+     * @param checksumSha256 base64 SHA-256 the upload must match, PUT only, may be null
+     */
+    public record Request(String method, String key, String contentType, String checksumSha256) {
+
+        public static Request get(String key) {
+            return new Request("GET", key, null, null);
+        }
+
+        public static Request put(String key, String contentType, String checksumSha256) {
+            return new Request("PUT", key, contentType, checksumSha256);
+        }
+    }
+
+    /**
+     * Presign URLs that all share a signing time and expiration.
+     *
+     * @param requests URLs to presign
+     * @param signingTime signing time, at most a few minutes from now; URLs for the
+     *                    same request, time and expiration are identical
+     * @param expiration validity from the signing time
+     * @return URLs in the order of the requests
+     */
+    public List<URL> presign(List<Request> requests, Instant signingTime, Duration expiration) {
+        if (expiration.isNegative() || expiration.isZero() || expiration.compareTo(MAX_EXPIRATION) > 0) {
+            throw new IllegalArgumentException("Pre-signed URL expiration must be between 1 second and 7 days");
+        }
+        AwsCredentials awsCredentials = credentialsProvider.resolveCredentials();
+        SigV4QuerySigner.Credentials credentials = credentials(awsCredentials);
+
+        // Group requests by shape, keeping each one's position
+        Map<Shape, List<Integer>> byShape = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            byShape.computeIfAbsent(Shape.of(requests.get(i), credentials.sessionToken() != null),
+                    ignored -> new ArrayList<>()).add(i);
+        }
+
+        URL[] urls = new URL[requests.size()];
+        byShape.forEach((shape, indexes) -> {
+            Optional<SigV4QuerySigner.Layout> layout = layouts.computeIfAbsent(shape, this::learn);
+            if (layout == null || layout.isEmpty()) {
+                for (int i : indexes) {
+                    urls[i] = presignWithSdk(requests.get(i), signingTime, expiration);
+                }
+                return;
+            }
+            List<SigV4QuerySigner.Target> targets = new ArrayList<>(indexes.size());
+            for (int i : indexes) {
+                Request request = requests.get(i);
+                targets.add(new SigV4QuerySigner.Target(request.key(), request.contentType(), request.checksumSha256()));
+            }
+            List<String> signed = signer.sign(layout.get(), credentials, signingTime, expiration.getSeconds(), targets);
+            for (int j = 0; j < indexes.size(); j++) {
+                urls[indexes.get(j)] = toUrl(signed.get(j));
+            }
+        });
+        return List.of(urls);
+    }
+
+    /**
+     * Sign one browser POST policy for uploads under a key prefix. The policy is signed
+     * once, however many files are uploaded with it.
+     * S3 is told to compute a SHA-256 of every file, so uploads can be verified against
+     * the checksum the client declares; a client may also post each file's own
+     * {@code x-amz-checksum-sha256}, which S3 then enforces on upload.
+     *
+     * @param keyPrefix prefix every uploaded key must start with
+     * @param contentTypePrefix prefix every uploaded content type must start with
+     * @param maxContentLength largest accepted file in bytes
+     * @param expiration validity from now
+     * @return signed policy and its form fields
+     */
+    public PresignedPost presignPost(String keyPrefix, String contentTypePrefix, long maxContentLength,
+                                     Duration expiration) {
+        if (expiration.isNegative() || expiration.isZero() || expiration.compareTo(MAX_EXPIRATION) > 0) {
+            throw new IllegalArgumentException("POST policy expiration must be between 1 second and 7 days");
+        }
+        SigV4QuerySigner.Credentials credentials = credentials(credentialsProvider.resolveCredentials());
+        Instant signingTime = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Instant expiresAt = signingTime.plus(expiration);
+        String amzDate = SigV4QuerySigner.amzDate(signingTime);
+
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("x-amz-algorithm", SigV4QuerySigner.ALGORITHM);
+        fields.put("x-amz-credential", credentials.accessKeyId() + "/" + amzDate.substring(0, 8) + "/"
+                + properties.getRegion() + "/" + POST_SERVICE + "/aws4_request");
+        fields.put("x-amz-date", amzDate);
+        if (credentials.sessionToken() != null) {
+            fields.put("x-amz-security-token", credentials.sessionToken());
+        }
+        fields.put("x-amz-checksum-algorithm", "SHA256");
+
+        List<Object> conditions = new ArrayList<>();
+        conditions.add(Map.of("bucket", properties.getBucketName()));
+        conditions.add(List.of("starts-with", "$key", keyPrefix));
+        conditions.add(List.of("starts-with", "$Content-Type", contentTypePrefix));
+        conditions.add(List.of("content-length-range", 1, maxContentLength));
+        conditions.add(List.of("starts-with", "$x-amz-checksum-sha256", ""));
+        fields.forEach((name, value) -> conditions.add(Map.of(name, value)));
+        Map<String, Object> policy = new LinkedHashMap<>();
+        policy.put("expiration", DateTimeFormatter.ISO_INSTANT.format(expiresAt));
+        policy.put("conditions", conditions);
+
+        String base64Policy;
+        try {
+            base64Policy = Base64.getEncoder().encodeToString(objectMapper.writeValueAsBytes(policy));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to write POST policy", e);
+        }
+        fields.put("policy", base64Policy);
+        fields.put("x-amz-signature",
+                signer.signPolicy(credentials, signingTime, properties.getRegion(), POST_SERVICE, base64Policy));
+
+        return PresignedPost.builder()
+                .url(bucketUrl())
+                .fields(fields)
+                .keyPrefix(keyPrefix)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    /**
+     * URL of the bucket itself, as the SDK addresses it, for form uploads.
+     */
+    private String bucketUrl() {
+        String url = bucketUrl;
+        if (url == null) {
+            String probe = presignWithSdk(Request.get(PROBE_KEY), null, PROBE_EXPIRATION).toString();
+            int keyStart = probe.indexOf("/" + SigV4QuerySigner.encodePath(PROBE_KEY) + "?");
+            if (keyStart < 0) {
+                throw new IllegalStateException("Unrecognised S3 URL format: " + redact(probe));
+            }
+            url = probe.substring(0, keyStart) + "/";
+            bucketUrl = url;
+        }
+        return url;
+    }
+
+    /**
+     * Learn and verify the URL layout of a shape from a probe signed by the SDK.
+     *
+     * @return the layout, empty if it does not verify, null if it should be learned again
+     */
+    private Optional<SigV4QuerySigner.Layout> learn(Shape shape) {
+        Request probe = new Request(shape.method(), PROBE_KEY,
+                shape.contentType() ? PROBE_CONTENT_TYPE : null, shape.checksum() ? PROBE_CHECKSUM : null);
+        AwsCredentials awsCredentials = credentialsProvider.resolveCredentials();
+        String expected = presignWithSdk(probe, null, PROBE_EXPIRATION).toString();
+
+        Optional<Parsed> parsed = parse(shape, expected);
+        if (parsed.isPresent()) {
+            Parsed layout = parsed.get();
+            if (!layout.accessKeyId().equals(awsCredentials.accessKeyId())) {
+                // Credentials rotated while probing; learn again with the next request
+                return null;
+            }
+            String actual = signer.sign(layout.layout(), credentials(awsCredentials), layout.signingTime(),
+                    layout.expiresSeconds(), List.of(new SigV4QuerySigner.Target(
+                            probe.key(), probe.contentType(), probe.checksumSha256()))).get(0);
+            if (actual.equals(expected)) {
+                log.info("Batch presigning enabled for {}", shape);
+                return Optional.of(layout.layout());
+            }
+            log.warn("Batch presigning disabled for {}: URL differs from the SDK's. Expected {} but got {}",
+                    shape, redact(expected), redact(actual));
+        } else {
+            log.warn("Batch presigning disabled for {}: unrecognised SDK URL format {}", shape, redact(expected));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Extract the layout, signing time and expiration from a URL presigned for a probe.
+     */
+    private Optional<Parsed> parse(Shape shape, String url) {
+        int keyStart = url.indexOf("/" + SigV4QuerySigner.encodePath(PROBE_KEY) + "?");
+        int pathStart = url.indexOf('/', url.indexOf("://") + 3);
+        if (keyStart < 0 || pathStart < 0 || pathStart > keyStart) {
+            return Optional.empty();
+        }
+        URI uri = URI.create(url);
+        String origin = url.substring(0, pathStart);
+        String host = uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+        String pathPrefix = url.substring(pathStart, keyStart);
+
+        List<String> order = new ArrayList<>();
+        Map<String, String> values = new HashMap<>();
+        for (String param : url.substring(url.indexOf('?', keyStart) + 1).split("&")) {
+            int equals = param.indexOf('=');
+            if (equals < 0) {
+                return Optional.empty();
+            }
+            order.add(param.substring(0, equals));
+            values.put(param.substring(0, equals), param.substring(equals + 1));
+        }
+
+        String credential = decode(values.get(SigV4QuerySigner.PARAM_CREDENTIAL));
+        String[] scope = credential == null ? new String[0] : credential.split("/");
+        String expectedHeaders = SigV4QuerySigner.signedHeaders(shape.contentType(), shape.checksum());
+        if (!SigV4QuerySigner.ALGORITHM.equals(values.get(SigV4QuerySigner.PARAM_ALGORITHM))
+                || !expectedHeaders.equals(decode(values.get(SigV4QuerySigner.PARAM_SIGNED_HEADERS)))
+                || !values.containsKey(SigV4QuerySigner.PARAM_DATE)
+                || !values.containsKey(SigV4QuerySigner.PARAM_EXPIRES)
+                || !values.containsKey(SigV4QuerySigner.PARAM_SIGNATURE)
+                || values.containsKey(SigV4QuerySigner.PARAM_SECURITY_TOKEN) != shape.sessionToken()
+                || scope.length != 5) {
+            return Optional.empty();
+        }
+
+        Map<String, String> extras = new HashMap<>(values);
+        extras.keySet().removeIf(name -> name.startsWith("X-Amz-"));
+        SigV4QuerySigner.Layout layout = new SigV4QuerySigner.Layout(shape.method(), origin, host, pathPrefix,
+                scope[2], scope[3], List.copyOf(order), Map.copyOf(extras), shape.contentType(), shape.checksum());
+        Instant signingTime = LocalDateTime.parse(values.get(SigV4QuerySigner.PARAM_DATE), AMZ_DATE)
+                .toInstant(ZoneOffset.UTC);
+        return Optional.of(new Parsed(layout, scope[0], signingTime,
+                Long.parseLong(values.get(SigV4QuerySigner.PARAM_EXPIRES))));
+    }
+
+    /**
+     * Presign one URL with the SDK. The SDK always signs at the current time, so the
+     * expiration is shortened or lengthened to end when a URL signed at the requested
+     * time would.
+     */
+    private URL presignWithSdk(Request request, Instant signingTime, Duration expiration) {
+        Duration duration = signingTime == null ? expiration
+                : Duration.between(Instant.now(), signingTime.plus(expiration));
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Pre-signed URL would already have expired: " + request.key());
+        }
+        if ("PUT".equals(request.method())) {
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                    .bucket(properties.getBucketName())
+                    .key(request.key())
+                    .contentType(request.contentType())
+                    .checksumSHA256(request.checksumSha256())
+                    .build();
+            return s3Presigner.presignPutObject(builder -> builder.putObjectRequest(putObjectRequest)
+                    .signatureDuration(duration)).url();
+        }
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(properties.getBucketName())
+                .key(request.key())
+                .build();
+        return s3Presigner.presignGetObject(builder -> builder.getObjectRequest(getObjectRequest)
+                .signatureDuration(duration)).url();
+    }
+
+    private static SigV4QuerySigner.Credentials credentials(AwsCredentials credentials) {
+        return new SigV4QuerySigner.Credentials(credentials.accessKeyId(), credentials.secretAccessKey(),
+                credentials instanceof AwsSessionCredentials session ? session.sessionToken() : null);
+    }
+
+    private static URL toUrl(String url) {
+        try {
+            return URI.create(url).toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Signed an invalid URL: " + url, e);
+        }
+    }
+
+    private static String decode(String value) {
+        return value == null ? null : URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Strip credentials and signature from a URL before logging it.
+     */
+    private static String redact(String url) {
+        return url.replaceAll("(X-Amz-(Credential|Security-Token|Signature)=)[^&]*", "$1***");
+    }
+
+    /**
+     * What a URL's layout depends on besides bucket and region.
+     */
+    private record Shape(String method, boolean contentType, boolean checksum, boolean sessionToken) {
+
+        static Shape of(Request request, boolean sessionToken) {
+            return new Shape(request.method(), request.contentType() != null, request.checksumSha256() != null,
+                    sessionToken);
+        }
+    }
+
+    private record Parsed(SigV4QuerySigner.Layout layout, String accessKeyId, Instant signingTime,
+                          long expiresSeconds) {
+    }
+}
@@ -3,14 +3,17 @@ package com.rapidphoto.uploader.infrastructure.storage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 /**
  * Configuration for AWS S3 clients.
- * Creates S3Client and S3Presigner beans using credentials from environment or AWS credentials chain.
+ * Creates S3Client, S3AsyncClient and S3Presigner beans using credentials from environment or AWS credentials chain.
  */
 @Configuration
 @RequiredArgsConstructor
@@ -19,7 +22,7 @@ public class S3Config {
     private final S3StorageProperties properties;
 
     /**
-     * Creates an S3Client for direct S3 operations.
+     * Credentials shared by every client and by {@link S3BatchPresigner}.
      * Uses DefaultCredentialsProvider which checks:
      * 1. Environment variables (AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY)
      * 2. System properties
@@ -27,10 +30,34 @@ public class S3Config {
      * 4. IAM role (if running on EC2/ECS)
      */
     @Bean
-    public S3Client s3Client() {
+    public AwsCredentialsProvider awsCredentialsProvider() {
+        return DefaultCredentialsProvider.create();
+    }
+
+    /**
+     * Creates an S3Client for direct S3 operations.
+     */
+    @Bean
+    public S3Client s3Client(AwsCredentialsProvider credentialsProvider) {
         return S3Client.builder()
                 .region(Region.of(properties.getRegion()))
-                .credentialsProvider(DefaultCredentialsProvider.create())
+                .credentialsProvider(credentialsProvider)
+                .build();
+    }
+
+    /**
+     * Creates an S3AsyncClient for non-blocking S3 operations.
+     * Runs on the Netty transport, whose connection pool is sized separately from the
+     * blocking client's so many transfers can be in flight at once.
+     */
+    @Bean
+    public S3AsyncClient s3AsyncClient(AwsCredentialsProvider credentialsProvider) {
+        return S3AsyncClient.builder()
+                .region(Region.of(properties.getRegion()))
+                .credentialsProvider(credentialsProvider)
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(properties.getAsyncMaxConcurrency())
+                        .maxPendingConnectionAcquires(properties.getAsyncMaxPendingConnectionAcquires()))
                 .build();
     }
 
@@ -38,10 +65,10 @@ public class S3Config {
      * Creates an S3Presigner for generating pre-signed URLs.
      */
     @Bean
-    public S3Presigner s3Presigner() {
+    public S3Presigner s3Presigner(AwsCredentialsProvider credentialsProvider) {
         return S3Presigner.builder()
                 .region(Region.of(properties.getRegion()))
-                .credentialsProvider(DefaultCredentialsProvider.create())
+                .credentialsProvider(credentialsProvider)
                 .build();
     }
 }
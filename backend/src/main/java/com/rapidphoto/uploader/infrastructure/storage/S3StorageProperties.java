@@ -27,5 +27,34 @@ public class S3StorageProperties {
      * Pre-signed URL expiration time in seconds.
      */
     private Integer presignedUrlExpirationSeconds = 3600; // 1 hour default
+    
+    /**
+     * Length in seconds of the window during which a key's download URL stays the same.
+     */
+    private Integer downloadUrlWindowSeconds = 900;
+    
+    /**
+     * Maximum number of download URLs kept for reuse within their window.
+     */
+    private Integer downloadUrlCacheSize = 100000;
+    
+    /**
+     * Maximum number of concurrent requests of the asynchronous client.
+     */
+    private Integer asyncMaxConcurrency = 1000;
+    
+    /**
+     * Maximum number of asynchronous requests waiting for a connection before new ones fail.
+     */
+    private Integer asyncMaxPendingConnectionAcquires = 10000;
+    
+    /**
+     * Attempts at deleting each object of a batch deletion before giving up.
+     */
+    private Integer deleteMaxAttempts = 3;
+    
+    /**
+     * Delay in milliseconds before retrying the objects a batch deletion missed; doubled on each attempt.
+     */
+    private Integer deleteRetryDelayMillis = 200;
 }
-
@@ -3,66 +3,90 @@ package com.rapidphoto.uploader.infrastructure.storage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
-import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
-import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedUploadPartRequest;
 
 import java.io.InputStream;
 import java.net.URL;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.IntStream;
 
 /**
  * AWS S3 implementation of StorageService.
  * Handles file uploads, downloads, and pre-signed URL generation.
+ * GET and PUT URLs are signed by {@link S3BatchPresigner}, one batch per call.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class S3StorageService implements StorageService {
 
+    /**
+     * Most keys S3 accepts in one DeleteObjects request.
+     */
+    private static final int DELETE_BATCH_SIZE = 1000;
+
     private final S3Client s3Client;
     private final S3Presigner s3Presigner;
+    private final S3BatchPresigner batchPresigner;
     private final S3StorageProperties properties;
 
     @Override
     public URL generatePresignedUploadUrl(String key, String contentType, Duration expiration) {
+        return generatePresignedUploadUrl(key, contentType, null, expiration);
+    }
+
+    @Override
+    public URL generatePresignedUploadUrl(String key, String contentType, String checksumSha256, Duration expiration) {
         log.info("Generating pre-signed upload URL for key: {}", key);
         
-        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                .bucket(properties.getBucketName())
-                .key(key)
-                .contentType(contentType)
-                .build();
-
-        PresignedPutObjectRequest presignedRequest = s3Presigner.presignPutObject(builder ->
-                builder.putObjectRequest(putObjectRequest)
-                        .signatureDuration(expiration)
-        );
-
-        return presignedRequest.url();
+        // A declared checksum becomes a signed header, so S3 rejects mismatching content
+        return batchPresigner.presign(List.of(S3BatchPresigner.Request.put(key, contentType, checksumSha256)),
+                Instant.now(), expiration).get(0);
     }
 
     @Override
     public URL generatePresignedDownloadUrl(String key, Duration expiration) {
         log.info("Generating pre-signed download URL for key: {}", key);
         
-        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                .bucket(properties.getBucketName())
-                .key(key)
-                .build();
+        return batchPresigner.presign(List.of(S3BatchPresigner.Request.get(key)), Instant.now(), expiration).get(0);
+    }
 
-        PresignedGetObjectRequest presignedRequest = s3Presigner.presignGetObject(builder ->
-                builder.getObjectRequest(getObjectRequest)
-                        .signatureDuration(expiration)
-        );
+    @Override
+    public List<URL> generatePresignedDownloadUrls(List<String> keys, Instant signingTime, Duration expiration) {
+        log.debug("Generating {} pre-signed download URLs", keys.size());
+        
+        return batchPresigner.presign(keys.stream().map(S3BatchPresigner.Request::get).toList(),
+                signingTime, expiration);
+    }
 
-        return presignedRequest.url();
+    @Override
+    public List<URL> generatePresignedUploadUrls(List<UploadTarget> uploads, Duration expiration) {
+        log.info("Generating {} pre-signed upload URLs", uploads.size());
+        
+        return batchPresigner.presign(uploads.stream()
+                        .map(upload -> S3BatchPresigner.Request.put(
+                                upload.getKey(), upload.getContentType(), upload.getChecksumSha256()))
+                        .toList(),
+                Instant.now(), expiration);
+    }
+
+    @Override
+    public PresignedPost generatePresignedPost(String keyPrefix, String contentTypePrefix, long maxContentLength,
+                                               Duration expiration) {
+        log.info("Generating POST policy for key prefix: {}", keyPrefix);
+        
+        return batchPresigner.presignPost(keyPrefix, contentTypePrefix, maxContentLength, expiration);
     }
 
     @Override
@@ -105,6 +129,31 @@ public class S3StorageService implements StorageService {
         }
     }
 
+    @Override
+    public InputStream downloadRange(String key, long offset, long length) {
+        log.debug("Downloading range of file with key: {}, offset: {}, length: {}", key, offset, length);
+        
+        try {
+            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                    .bucket(properties.getBucketName())
+                    .key(key)
+                    .range("bytes=" + offset + "-" + (offset + length - 1))
+                    .build();
+
+            return s3Client.getObject(getObjectRequest);
+        } catch (NoSuchKeyException e) {
+            log.error("File not found: {}", key);
+            throw new RuntimeException("File not found in S3: " + key, e);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 416) {
+                // Range starts past the end of the object
+                return InputStream.nullInputStream();
+            }
+            log.error("Failed to download range of file: {}", key, e);
+            throw new RuntimeException("Failed to download file range from S3", e);
+        }
+    }
+
     @Override
     public void deleteFile(String key) {
         log.info("Deleting file with key: {}", key);
@@ -123,6 +172,61 @@ public class S3StorageService implements StorageService {
         }
     }
 
+    @Override
+    public List<String> deleteFiles(Collection<String> keys) {
+        List<String> pending = List.copyOf(new LinkedHashSet<>(keys));
+        int total = pending.size();
+        log.info("Deleting {} files", total);
+        
+        for (int attempt = 1; ; attempt++) {
+            List<String> failed = new ArrayList<>();
+            for (int from = 0; from < pending.size(); from += DELETE_BATCH_SIZE) {
+                failed.addAll(deleteBatch(pending.subList(from, Math.min(from + DELETE_BATCH_SIZE, pending.size()))));
+            }
+            if (failed.isEmpty() || attempt >= properties.getDeleteMaxAttempts()) {
+                if (!failed.isEmpty()) {
+                    log.error("Failed to delete {} of {} files after {} attempts", failed.size(), total, attempt);
+                }
+                return failed;
+            }
+            
+            log.warn("Retrying deletion of {} files (attempt {})", failed.size(), attempt + 1);
+            try {
+                Thread.sleep((long) properties.getDeleteRetryDelayMillis() << (attempt - 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return failed;
+            }
+            pending = failed;
+        }
+    }
+
+    /**
+     * Delete up to 1000 files with a single DeleteObjects request.
+     * @return keys that were not deleted
+     */
+    private List<String> deleteBatch(List<String> keys) {
+        try {
+            DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
+                    .bucket(properties.getBucketName())
+                    .delete(Delete.builder()
+                            .objects(keys.stream().map(key -> ObjectIdentifier.builder().key(key).build()).toList())
+                            .quiet(true)
+                            .build())
+                    .build();
+            
+            // Quiet mode only reports the objects that failed
+            List<S3Error> errors = s3Client.deleteObjects(deleteObjectsRequest).errors();
+            for (S3Error error : errors) {
+                log.debug("Failed to delete file: {} ({})", error.key(), error.code());
+            }
+            return errors.stream().map(S3Error::key).toList();
+        } catch (SdkException e) {
+            log.warn("Failed to delete batch of {} files", keys.size(), e);
+            return keys;
+        }
+    }
+
     @Override
     public boolean fileExists(String key) {
         try {
@@ -141,6 +245,34 @@ public class S3StorageService implements StorageService {
         }
     }
 
+    @Override
+    public Optional<StoredObject> getObjectMetadata(String key) {
+        try {
+            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                    .bucket(properties.getBucketName())
+                    .key(key)
+                    .checksumMode(ChecksumMode.ENABLED)
+                    .build();
+
+            HeadObjectResponse response = s3Client.headObject(headObjectRequest);
+            return Optional.of(StoredObject.builder()
+                    .key(key)
+                    .contentLength(response.contentLength() != null ? response.contentLength() : 0L)
+                    .contentType(response.contentType())
+                    .eTag(response.eTag())
+                    .checksumSha256(response.checksumSHA256())
+                    .build());
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            log.error("Error reading metadata for file: {}", key, e);
+            throw new RuntimeException("Failed to read file metadata from S3", e);
+        }
+    }
+
     @Override
     public String initiateMultipartUpload(String key, String contentType) {
         log.info("Initiating multipart upload for key: {}", key);
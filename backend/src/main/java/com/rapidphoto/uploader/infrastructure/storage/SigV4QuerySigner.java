@@ -0,0 +1,490 @@
+package com.rapidphoto.uploader.infrastructure.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SigV4 query-string signer for batches of S3 URLs that share a layout.
+ * Everything but the object key and its header values is the same for every URL of a
+ * batch: the signing key, credential scope, query string and string-to-sign prefix are
+ * built once, and each URL only encodes its key, hashes its canonical request and signs
+ * it. Canonical requests are written as bytes into a per-thread buffer, so signing a
+ * URL allocates little beyond the URL string itself.
+ */
+final class SigV4QuerySigner {
+
+    static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    static final String PARAM_ALGORITHM = "X-Amz-Algorithm";
+    static final String PARAM_CREDENTIAL = "X-Amz-Credential";
+    static final String PARAM_DATE = "X-Amz-Date";
+    static final String PARAM_EXPIRES = "X-Amz-Expires";
+    static final String PARAM_SECURITY_TOKEN = "X-Amz-Security-Token";
+    static final String PARAM_SIGNED_HEADERS = "X-Amz-SignedHeaders";
+    static final String PARAM_SIGNATURE = "X-Amz-Signature";
+
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX_UPPER = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private volatile SigningKey signingKey;
+
+    /**
+     * Layout of the URLs of one request shape.
+     *
+     * @param method HTTP method
+     * @param origin scheme and host the URLs start with
+     * @param host value of the signed host header
+     * @param pathPrefix encoded path before the key, e.g. {@code /bucket} for path-style URLs and
+     *                   empty for virtual-hosted ones
+     * @param region signing region
+     * @param service signing service
+     * @param queryOrder query parameter names in URL order, including the signature
+     * @param extraParams encoded values of parameters other than the SigV4 ones
+     * @param contentType whether the content type is a signed header
+     * @param checksum whether the SHA-256 checksum is a signed header
+     */
+    record Layout(String method, String origin, String host, String pathPrefix, String region, String service,
+                  List<String> queryOrder, Map<String, String> extraParams, boolean contentType, boolean checksum) {
+
+        String signedHeaders() {
+            return SigV4QuerySigner.signedHeaders(contentType, checksum);
+        }
+    }
+
+    /**
+     * One URL to sign.
+     *
+     * @param key object key
+     * @param contentType signed content type, if the layout signs it
+     * @param checksumSha256 signed base64 SHA-256, if the layout signs it
+     */
+    record Target(String key, String contentType, String checksumSha256) {
+    }
+
+    /**
+     * Credentials to sign with.
+     *
+     * @param accessKeyId access key ID
+     * @param secretAccessKey secret access key
+     * @param sessionToken session token, null for long-term credentials
+     */
+    record Credentials(String accessKeyId, String secretAccessKey, String sessionToken) {
+    }
+
+    /**
+     * Sign a batch of URLs sharing a layout, signing time and expiration.
+     *
+     * @param layout layout of the URLs
+     * @param credentials credentials to sign with
+     * @param signingTime signing time; URLs with equal inputs are identical
+     * @param expiresSeconds validity from the signing time in seconds
+     * @param targets URLs to sign
+     * @return signed URLs in the order of the targets
+     */
+    List<String> sign(Layout layout, Credentials credentials, Instant signingTime, long expiresSeconds,
+                      List<Target> targets) {
+        String amzDate = amzDate(signingTime);
+        String dateStamp = amzDate.substring(0, 8);
+        String scope = dateStamp + "/" + layout.region() + "/" + layout.service() + "/aws4_request";
+        String signedHeaders = layout.signedHeaders();
+
+        // Canonical query string: every parameter but the signature, sorted by name
+        List<String> names = new ArrayList<>(layout.queryOrder());
+        names.remove(PARAM_SIGNATURE);
+        String[] sorted = names.toArray(String[]::new);
+        Arrays.sort(sorted);
+        StringBuilder canonicalQuery = new StringBuilder(256);
+        for (String name : sorted) {
+            appendParam(canonicalQuery, name, layout, credentials, amzDate, scope, signedHeaders, expiresSeconds);
+        }
+
+        // URL query string in the layout's order, split around the signature
+        StringBuilder beforeSignature = new StringBuilder(256);
+        StringBuilder afterSignature = new StringBuilder();
+        StringBuilder current = beforeSignature;
+        for (String name : layout.queryOrder()) {
+            if (name.equals(PARAM_SIGNATURE)) {
+                current = afterSignature;
+                continue;
+            }
+            appendParam(current, name, layout, credentials, amzDate, scope, signedHeaders, expiresSeconds);
+        }
+
+        byte[] canonicalQueryBytes = canonicalQuery.toString().getBytes(StandardCharsets.US_ASCII);
+        byte[] stringToSignPrefix = (ALGORITHM + "\n" + amzDate + "\n" + scope + "\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        byte[] key = signingKey(credentials.secretAccessKey(), dateStamp, layout.region(), layout.service());
+
+        Workspace workspace = WORKSPACE.get();
+        workspace.useKey(key);
+        List<String> urls = new ArrayList<>(targets.size());
+        for (Target target : targets) {
+            urls.add(signOne(workspace, layout, target, canonicalQueryBytes, signedHeaders, stringToSignPrefix,
+                    beforeSignature, afterSignature));
+        }
+        return urls;
+    }
+
+    private String signOne(Workspace workspace, Layout layout, Target target, byte[] canonicalQuery,
+                           String signedHeaders, byte[] stringToSignPrefix,
+                           CharSequence beforeSignature, CharSequence afterSignature) {
+        ByteBuilder canonical = workspace.canonical;
+        canonical.reset();
+        canonical.appendAscii(layout.method()).append('\n');
+        int pathStart = canonical.length();
+        canonical.appendAscii(layout.pathPrefix()).append('/');
+        canonical.appendEncoded(target.key(), true);
+        int pathEnd = canonical.length();
+        canonical.append('\n').append(canonicalQuery).append('\n');
+        if (layout.contentType()) {
+            canonical.appendAscii("content-type:").appendHeaderValue(target.contentType()).append('\n');
+        }
+        canonical.appendAscii("host:").appendAscii(layout.host()).append('\n');
+        if (layout.checksum()) {
+            canonical.appendAscii("x-amz-checksum-sha256:").appendHeaderValue(target.checksumSha256()).append('\n');
+        }
+        canonical.append('\n').appendAscii(signedHeaders).append('\n').appendAscii(UNSIGNED_PAYLOAD);
+
+        try {
+            MessageDigest sha256 = workspace.sha256;
+            sha256.update(canonical.bytes(), 0, canonical.length());
+            sha256.digest(workspace.hash, 0, workspace.hash.length);
+            hex(workspace.hash, workspace.hashHex);
+
+            Mac hmac = workspace.hmac;
+            hmac.update(stringToSignPrefix);
+            hmac.update(workspace.hashHex);
+            hmac.doFinal(workspace.hash, 0);
+            hex(workspace.hash, workspace.hashHex);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign URL for key: " + target.key(), e);
+        }
+
+        StringBuilder url = workspace.url;
+        url.setLength(0);
+        url.append(layout.origin());
+        canonical.appendTo(url, pathStart, pathEnd);
+        url.append('?').append(beforeSignature);
+        if (!beforeSignature.isEmpty()) {
+            url.append('&');
+        }
+        url.append(PARAM_SIGNATURE).append('=');
+        for (byte b : workspace.hashHex) {
+            url.append((char) b);
+        }
+        if (!afterSignature.isEmpty()) {
+            url.append('&').append(afterSignature);
+        }
+        return url.toString();
+    }
+
+    /**
+     * Sign a browser POST policy, as S3 expects it for form uploads.
+     *
+     * @param credentials credentials to sign with; the policy must name their access key
+     * @param signingTime signing time the policy names in its credential and date
+     * @param region signing region
+     * @param service signing service
+     * @param base64Policy base64-encoded policy document
+     * @return hex signature
+     */
+    String signPolicy(Credentials credentials, Instant signingTime, String region, String service,
+                      String base64Policy) {
+        String dateStamp = amzDate(signingTime).substring(0, 8);
+        byte[] key = signingKey(credentials.secretAccessKey(), dateStamp, region, service);
+        try {
+            byte[] signature = hmac(key, base64Policy);
+            byte[] hex = new byte[signature.length * 2];
+            hex(signature, hex);
+            return new String(hex, StandardCharsets.US_ASCII);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign POST policy", e);
+        }
+    }
+
+    /**
+     * @return the SigV4 timestamp of an instant, e.g. {@code 20130524T000000Z}
+     */
+    static String amzDate(Instant instant) {
+        return AMZ_DATE.format(instant);
+    }
+
+    private static void appendParam(StringBuilder query, String name, Layout layout, Credentials credentials,
+                                    String amzDate, String scope, String signedHeaders, long expiresSeconds) {
+        if (!query.isEmpty()) {
+            query.append('&');
+        }
+        query.append(name).append('=');
+        switch (name) {
+            case PARAM_ALGORITHM -> query.append(ALGORITHM);
+            case PARAM_CREDENTIAL -> query.append(encode(credentials.accessKeyId() + "/" + scope));
+            case PARAM_DATE -> query.append(amzDate);
+            case PARAM_EXPIRES -> query.append(expiresSeconds);
+            case PARAM_SECURITY_TOKEN -> query.append(encode(credentials.sessionToken()));
+            case PARAM_SIGNED_HEADERS -> query.append(encode(signedHeaders));
+            default -> query.append(layout.extraParams().get(name));
+        }
+    }
+
+    /**
+     * Derive the signing key, reusing the last one while the date, scope and secret are unchanged.
+     */
+    private byte[] signingKey(String secretAccessKey, String dateStamp, String region, String service) {
+        SigningKey cached = signingKey;
+        if (cached != null && cached.matches(secretAccessKey, dateStamp, region, service)) {
+            return cached.key();
+        }
+        try {
+            byte[] key = hmac(("AWS4" + secretAccessKey).getBytes(StandardCharsets.UTF_8), dateStamp);
+            key = hmac(key, region);
+            key = hmac(key, service);
+            key = hmac(key, "aws4_request");
+            signingKey = new SigningKey(secretAccessKey, dateStamp, region, service, key);
+            return key;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to derive SigV4 signing key", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void hex(byte[] bytes, byte[] target) {
+        for (int i = 0; i < bytes.length; i++) {
+            target[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            target[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+    }
+
+    /**
+     * @return the signed header list of a layout signing the given headers besides host
+     */
+    static String signedHeaders(boolean contentType, boolean checksum) {
+        return (contentType ? "content-type;" : "") + "host" + (checksum ? ";x-amz-checksum-sha256" : "");
+    }
+
+    /**
+     * URI-encode a value the way SigV4 and the SDK do: everything but unreserved characters.
+     */
+    static String encode(String value) {
+        ByteBuilder builder = new ByteBuilder(value.length() * 3);
+        builder.appendEncoded(value, false);
+        StringBuilder encoded = new StringBuilder(builder.length());
+        builder.appendTo(encoded, 0, builder.length());
+        return encoded.toString();
+    }
+
+    /**
+     * URI-encode an object key as a URL path, keeping its slashes.
+     */
+    static String encodePath(String key) {
+        ByteBuilder builder = new ByteBuilder(key.length() * 3);
+        builder.appendEncoded(key, true);
+        StringBuilder encoded = new StringBuilder(builder.length());
+        builder.appendTo(encoded, 0, builder.length());
+        return encoded.toString();
+    }
+
+    private record SigningKey(String secretAccessKey, String dateStamp, String region, String service, byte[] key) {
+
+        boolean matches(String secretAccessKey, String dateStamp, String region, String service) {
+            return this.dateStamp.equals(dateStamp) && this.region.equals(region)
+                    && this.service.equals(service) && this.secretAccessKey.equals(secretAccessKey);
+        }
+    }
+
+    /**
+     * Per-thread digest, MAC and buffers reused across URLs.
+     */
+    private static final class Workspace {
+
+        private final MessageDigest sha256;
+        private final Mac hmac;
+        private final ByteBuilder canonical = new ByteBuilder(512);
+        private final StringBuilder url = new StringBuilder(512);
+        private final byte[] hash = new byte[32];
+        private final byte[] hashHex = new byte[64];
+        private byte[] hmacKey;
+
+        Workspace() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+                hmac = Mac.getInstance("HmacSHA256");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        void useKey(byte[] key) {
+            if (key == hmacKey) {
+                return;
+            }
+            try {
+                hmac.init(new SecretKeySpec(key, "HmacSHA256"));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Invalid signing key", e);
+            }
+            hmacKey = key;
+        }
+    }
+
+    /**
+     * Growable byte buffer for ASCII canonical requests.
+     */
+    private static final class ByteBuilder {
+
+        private byte[] bytes;
+        private int length;
+
+        ByteBuilder(int capacity) {
+            this.bytes = new byte[Math.max(16, capacity)];
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int length() {
+            return length;
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        ByteBuilder append(char c) {
+            ensure(1);
+            bytes[length++] = (byte) c;
+            return this;
+        }
+
+        ByteBuilder append(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, length, b.length);
+            length += b.length;
+            return this;
+        }
+
+        ByteBuilder appendAscii(String s) {
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                bytes[length++] = (byte) s.charAt(i);
+            }
+            return this;
+        }
+
+        /**
+         * Append a header value trimmed and with inner runs of spaces collapsed, as UTF-8.
+         */
+        ByteBuilder appendHeaderValue(String value) {
+            String trimmed = value == null ? "" : value.trim();
+            boolean space = false;
+            for (int i = 0; i < trimmed.length(); i++) {
+                char c = trimmed.charAt(i);
+                if (c == ' ') {
+                    if (!space) {
+                        append(c);
+                    }
+                    space = true;
+                    continue;
+                }
+                space = false;
+                if (c < 0x80) {
+                    append(c);
+                } else {
+                    int codePoint = trimmed.codePointAt(i);
+                    i += Character.charCount(codePoint) - 1;
+                    appendUtf8(codePoint, false);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Append a string URI-encoded: unreserved characters as they are, everything else
+         * as percent-encoded UTF-8, and slashes kept if requested.
+         */
+        ByteBuilder appendEncoded(String s, boolean keepSlash) {
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (isUnreserved(c) || (keepSlash && c == '/')) {
+                    append(c);
+                } else if (c < 0x80) {
+                    appendPercent(c);
+                } else {
+                    int codePoint = s.codePointAt(i);
+                    i += Character.charCount(codePoint) - 1;
+                    appendUtf8(codePoint, true);
+                }
+            }
+            return this;
+        }
+
+        void appendTo(StringBuilder target, int from, int to) {
+            for (int i = from; i < to; i++) {
+                target.append((char) bytes[i]);
+            }
+        }
+
+        private void appendUtf8(int codePoint, boolean percent) {
+            if (codePoint < 0x800) {
+                appendByte(0xC0 | (codePoint >> 6), percent);
+                appendByte(0x80 | (codePoint & 0x3F), percent);
+            } else if (codePoint < 0x10000) {
+                appendByte(0xE0 | (codePoint >> 12), percent);
+                appendByte(0x80 | ((codePoint >> 6) & 0x3F), percent);
+                appendByte(0x80 | (codePoint & 0x3F), percent);
+            } else {
+                appendByte(0xF0 | (codePoint >> 18), percent);
+                appendByte(0x80 | ((codePoint >> 12) & 0x3F), percent);
+                appendByte(0x80 | ((codePoint >> 6) & 0x3F), percent);
+                appendByte(0x80 | (codePoint & 0x3F), percent);
+            }
+        }
+
+        private void appendByte(int b, boolean percent) {
+            if (percent) {
+                appendPercent(b);
+            } else {
+                ensure(1);
+                bytes[length++] = (byte) b;
+            }
+        }
+
+        private void appendPercent(int b) {
+            ensure(3);
+            bytes[length++] = '%';
+            bytes[length++] = HEX_UPPER[(b >> 4) & 0xF];
+            bytes[length++] = HEX_UPPER[b & 0xF];
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        private static boolean isUnreserved(char c) {
+            return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~';
+        }
+    }
+}
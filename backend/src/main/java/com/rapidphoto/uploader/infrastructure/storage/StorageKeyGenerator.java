@@ -9,6 +9,7 @@ import java.util.UUID;
 /**
  * Utility for generating organized storage keys for uploaded files.
  * Pattern: {userId}/{year}/{month}/{day}/{uuid}-{filename}
+ * Renditions: {userId}/{year}/{month}/{day}/{uuid}-{basename}_{rendition}.{ext}
  */
 @Component
 public class StorageKeyGenerator {
@@ -37,6 +38,35 @@ public class StorageKeyGenerator {
                 userId, year, month, day, uniqueId, sanitizedFilename);
     }
 
+    /**
+     * Generate the key prefix shared by all files of a batch uploaded with one POST policy.
+     * Pattern: {userId}/{year}/{month}/{day}/{batchId}/
+     * @param userId the user's ID
+     * @param batchId the batch ID
+     * @return storage key prefix, ending with a slash
+     */
+    public String generateBatchPrefix(UUID userId, UUID batchId) {
+        LocalDate now = LocalDate.now();
+        return String.format("%s/%s/%s/%s/%s/",
+                userId, now.format(YEAR_FORMATTER), now.format(MONTH_FORMATTER), now.format(DAY_FORMATTER), batchId);
+    }
+
+    /**
+     * Generate the storage key of a rendition from its original's key.
+     * The "thumb" rendition keeps the historical "_thumb" suffix.
+     * @param originalKey the original's storage key
+     * @param renditionName the rendition profile name
+     * @return rendition storage key
+     */
+    public String generateRenditionKey(String originalKey, String renditionName) {
+        int lastDotIndex = originalKey.lastIndexOf('.');
+        int lastSlashIndex = originalKey.lastIndexOf('/');
+        if (lastDotIndex > lastSlashIndex + 1) {
+            return originalKey.substring(0, lastDotIndex) + "_" + renditionName + originalKey.substring(lastDotIndex);
+        }
+        return originalKey + "_" + renditionName;
+    }
+
     /**
      * Sanitize filename to remove potentially problematic characters.
      * @param filename the original filename
@@ -3,6 +3,10 @@ package com.rapidphoto.uploader.infrastructure.storage;
 import java.io.InputStream;
 import java.net.URL;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Interface for cloud storage operations.
@@ -19,6 +23,17 @@ public interface StorageService {
      */
     URL generatePresignedUploadUrl(String key, String contentType, Duration expiration);
     
+    /**
+     * Generate a pre-signed URL for uploading a file with a declared checksum.
+     * Storage rejects the upload if the content does not match the checksum.
+     * @param key the object key (file path) in storage
+     * @param contentType the content type of the file
+     * @param checksumSha256 base64-encoded SHA-256 of the content, or null for none
+     * @param expiration URL expiration duration
+     * @return pre-signed URL for upload
+     */
+    URL generatePresignedUploadUrl(String key, String contentType, String checksumSha256, Duration expiration);
+    
     /**
      * Generate a pre-signed URL for downloading a file.
      * @param key the object key (file path) in storage
@@ -27,6 +42,36 @@ public interface StorageService {
      */
     URL generatePresignedDownloadUrl(String key, Duration expiration);
     
+    /**
+     * Generate pre-signed URLs for downloading several files in one batch.
+     * URLs for the same key, signing time and expiration are identical, so callers that
+     * align the signing time get stable, cacheable URLs.
+     * @param keys the object keys (file paths) in storage
+     * @param signingTime time the URLs are signed at, not after now
+     * @param expiration URL expiration duration from the signing time
+     * @return pre-signed URLs in the order of the keys
+     */
+    List<URL> generatePresignedDownloadUrls(List<String> keys, Instant signingTime, Duration expiration);
+    
+    /**
+     * Generate pre-signed URLs for uploading several files in one batch.
+     * @param uploads the files to upload
+     * @param expiration URL expiration duration
+     * @return pre-signed URLs in the order of the uploads
+     */
+    List<URL> generatePresignedUploadUrls(List<UploadTarget> uploads, Duration expiration);
+    
+    /**
+     * Generate a single browser POST policy that any number of files can be uploaded with.
+     * @param keyPrefix prefix every uploaded key must start with
+     * @param contentTypePrefix prefix every uploaded content type must start with
+     * @param maxContentLength largest accepted file in bytes
+     * @param expiration policy expiration duration
+     * @return signed policy and the form fields to upload with
+     */
+    PresignedPost generatePresignedPost(String keyPrefix, String contentTypePrefix, long maxContentLength,
+                                        Duration expiration);
+    
     /**
      * Upload a file directly to storage.
      * @param key the object key (file path) in storage
@@ -43,12 +88,29 @@ public interface StorageService {
      */
     InputStream downloadFile(String key);
     
+    /**
+     * Download a byte range of a file, e.g. to read its header without the whole object.
+     * @param key the object key (file path) in storage
+     * @param offset first byte to read
+     * @param length maximum number of bytes; fewer are returned past the end of the file
+     * @return input stream of the range content
+     */
+    InputStream downloadRange(String key, long offset, long length);
+    
     /**
      * Delete a file from storage.
      * @param key the object key (file path) in storage
      */
     void deleteFile(String key);
     
+    /**
+     * Delete many files from storage in as few requests as possible, retrying the
+     * files that could not be deleted.
+     * @param keys the object keys (file paths) in storage
+     * @return keys that still could not be deleted
+     */
+    List<String> deleteFiles(Collection<String> keys);
+    
     /**
      * Check if a file exists in storage.
      * @param key the object key (file path) in storage
@@ -56,6 +118,13 @@ public interface StorageService {
      */
     boolean fileExists(String key);
     
+    /**
+     * Read the metadata of a file without downloading it.
+     * @param key the object key (file path) in storage
+     * @return metadata, or empty if the file does not exist
+     */
+    Optional<StoredObject> getObjectMetadata(String key);
+    
     /**
      * Initiate a multipart upload for large files.
      * @param key the object key (file path) in storage
@@ -80,7 +149,7 @@ public interface StorageService {
      * @param uploadId the multipart upload ID
      * @param eTags list of ETags from uploaded parts
      */
-    void completeMultipartUpload(String key, String uploadId, java.util.List<String> eTags);
+    void completeMultipartUpload(String key, String uploadId, List<String> eTags);
     
     /**
      * Abort a multipart upload.
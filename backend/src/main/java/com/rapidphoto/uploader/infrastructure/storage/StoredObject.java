@@ -0,0 +1,30 @@
+package com.rapidphoto.uploader.infrastructure.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Metadata of an object in storage, as returned by a HEAD request.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredObject {
+
+    private String key;
+
+    private long contentLength;
+
+    private String contentType;
+
+    private String eTag;
+
+    /**
+     * Base64-encoded SHA-256 checksum stored with the object, if it was uploaded with one.
+     * Multipart uploads report a composite checksum suffixed with "-{partCount}".
+     */
+    private String checksumSha256;
+}
@@ -0,0 +1,25 @@
+package com.rapidphoto.uploader.infrastructure.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A file to generate a pre-signed upload URL for.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadTarget {
+
+    private String key;
+
+    private String contentType;
+
+    /**
+     * Base64-encoded SHA-256 the uploaded content must match, or null for none.
+     */
+    private String checksumSha256;
+}
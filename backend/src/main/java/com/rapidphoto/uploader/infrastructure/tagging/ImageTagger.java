@@ -0,0 +1,21 @@
+package com.rapidphoto.uploader.infrastructure.tagging;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Model or service producing tags for images.
+ * Called with whole batches, since models and remote services are far more
+ * efficient per image when fed several at once.
+ */
+public interface ImageTagger {
+
+    /**
+     * Tag a batch of images.
+     *
+     * @param images images scaled to the configured input size, upright
+     * @return tags of each image, in the order of {@code images}
+     */
+    List<Set<String>> tag(List<BufferedImage> images);
+}
@@ -0,0 +1,95 @@
+package com.rapidphoto.uploader.infrastructure.tagging;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deterministic stand-in tagger computed from the pixels alone.
+ * Tags shape, brightness, colourfulness and dominant hue, so batching and caching
+ * can be exercised without a model or network access; the same image always
+ * gets the same tags.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "image.tagging", name = "tagger", havingValue = "local", matchIfMissing = true)
+public class LocalImageTagger implements ImageTagger {
+
+    private static final String[] HUES = {"red", "orange", "yellow", "green", "cyan", "blue", "purple", "pink"};
+    private static final float[] HUE_BOUNDS = {0.04f, 0.11f, 0.19f, 0.45f, 0.55f, 0.72f, 0.83f, 0.96f};
+
+    @Override
+    public List<Set<String>> tag(List<BufferedImage> images) {
+        log.debug("Tagging batch of {} image(s) locally", images.size());
+        return images.stream().map(this::tag).toList();
+    }
+
+    private Set<String> tag(BufferedImage image) {
+        Set<String> tags = new LinkedHashSet<>();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double aspect = (double) width / height;
+        if (aspect >= 2 || aspect <= 0.5) {
+            tags.add("panorama");
+        }
+        tags.add(aspect > 1.1 ? "landscape" : aspect < 0.9 ? "portrait" : "square");
+
+        int[] hueCounts = new int[HUES.length];
+        double brightness = 0;
+        double saturation = 0;
+        float[] hsb = new float[3];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int rgb : row) {
+                Color.RGBtoHSB((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF, hsb);
+                brightness += hsb[2];
+                saturation += hsb[1];
+                if (hsb[1] > 0.25f && hsb[2] > 0.2f) {
+                    hueCounts[hueIndex(hsb[0])]++;
+                }
+            }
+        }
+
+        int pixels = width * height;
+        brightness /= pixels;
+        saturation /= pixels;
+        if (brightness > 0.65) {
+            tags.add("bright");
+        } else if (brightness < 0.3) {
+            tags.add("dark");
+        }
+        if (saturation < 0.1) {
+            tags.add("monochrome");
+        } else if (saturation > 0.45) {
+            tags.add("colorful");
+        }
+
+        int dominant = 0;
+        for (int i = 1; i < hueCounts.length; i++) {
+            if (hueCounts[i] > hueCounts[dominant]) {
+                dominant = i;
+            }
+        }
+        if (hueCounts[dominant] > pixels / 5) {
+            tags.add(HUES[dominant]);
+        }
+        return tags;
+    }
+
+    private static int hueIndex(float hue) {
+        for (int i = 0; i < HUE_BOUNDS.length; i++) {
+            if (hue < HUE_BOUNDS[i]) {
+                return i;
+            }
+        }
+        // Hues wrap around: the top of the range is red again
+        return 0;
+    }
+}
@@ -0,0 +1,4 @@
+-- Mark renditions that stand in until the generated rendition replaces them
+ALTER TABLE photo_renditions ADD COLUMN provisional BOOLEAN NOT NULL DEFAULT FALSE;
+
+COMMENT ON COLUMN photo_renditions.provisional IS 'TRUE for stand-ins (e.g. the embedded EXIF preview) replaced once the rendition is generated';
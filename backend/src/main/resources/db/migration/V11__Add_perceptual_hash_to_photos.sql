@@ -0,0 +1,10 @@
+-- Record a 64-bit perceptual hash (dHash) of each photo
+ALTER TABLE photos ADD COLUMN perceptual_hash BIGINT;
+
+-- Multi-index hashing: one index per 16-bit band, probed with each band's near neighbours
+CREATE INDEX idx_photos_phash_band0 ON photos(user_id, ((perceptual_hash >> 48) & 65535));
+CREATE INDEX idx_photos_phash_band1 ON photos(user_id, ((perceptual_hash >> 32) & 65535));
+CREATE INDEX idx_photos_phash_band2 ON photos(user_id, ((perceptual_hash >> 16) & 65535));
+CREATE INDEX idx_photos_phash_band3 ON photos(user_id, (perceptual_hash & 65535));
+
+COMMENT ON COLUMN photos.perceptual_hash IS '64-bit dHash; similar photos differ in few bits';
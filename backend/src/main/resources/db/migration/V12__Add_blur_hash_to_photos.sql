@@ -0,0 +1,4 @@
+-- Record a BlurHash placeholder for each photo
+ALTER TABLE photos ADD COLUMN blur_hash VARCHAR(64);
+
+COMMENT ON COLUMN photos.blur_hash IS 'BlurHash string clients render as a placeholder until the thumbnail loads';
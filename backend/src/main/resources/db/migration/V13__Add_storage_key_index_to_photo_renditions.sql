@@ -0,0 +1,2 @@
+-- Look up renditions by storage key: renditions generated on demand are shared by photos with the same content
+CREATE INDEX idx_photo_renditions_storage_key ON photo_renditions(storage_key);
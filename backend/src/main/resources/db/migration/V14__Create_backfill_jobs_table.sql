@@ -0,0 +1,25 @@
+-- Create backfill_jobs table (checkpointed reprocessing of existing photos)
+CREATE TABLE backfill_jobs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    stage VARCHAR(50) NOT NULL,
+    missing_metadata_only BOOLEAN NOT NULL DEFAULT FALSE,
+    status VARCHAR(50) NOT NULL,
+    cursor_photo_id UUID,
+    queued_count BIGINT NOT NULL DEFAULT 0,
+    rate_per_second DOUBLE PRECISION NOT NULL,
+    max_in_flight INTEGER NOT NULL,
+    last_queued_at TIMESTAMP,
+    created_by UUID,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+CREATE INDEX idx_backfill_jobs_running ON backfill_jobs(created_at) WHERE status = 'RUNNING';
+
+-- Counting queued reprocessing work, which runs at offset priorities
+CREATE INDEX idx_processing_tasks_priority_live ON processing_tasks(priority)
+    WHERE status IN ('PENDING', 'RUNNING');
+
+-- Add comment
+COMMENT ON TABLE backfill_jobs IS 'Jobs queueing a processing stage for existing photos in ID order; cursor_photo_id is the checkpoint';
@@ -0,0 +1,7 @@
+-- Soft deletion: photos are marked deleted in bulk, then purged from storage in the background
+ALTER TABLE photos ADD COLUMN deleted_at TIMESTAMP;
+
+CREATE INDEX idx_photos_pending_purge ON photos(deleted_at) WHERE deleted_at IS NOT NULL;
+
+-- Add comment
+COMMENT ON COLUMN photos.deleted_at IS 'When the photo was deleted; the row is removed once its objects are purged from storage';
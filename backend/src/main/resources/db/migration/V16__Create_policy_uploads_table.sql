@@ -0,0 +1,15 @@
+-- Create policy_uploads table (keys reported for batch POST policy uploads)
+-- Policy keys are chosen by the client, so each may only be recorded once; the primary
+-- key makes concurrent completions of the same key record a single photo
+CREATE TABLE policy_uploads (
+    storage_key VARCHAR(500) PRIMARY KEY,
+    batch_id UUID NOT NULL,
+    photo_id UUID NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_policy_uploads_photo FOREIGN KEY (photo_id) REFERENCES photos(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_policy_uploads_photo_id ON policy_uploads(photo_id);
+
+-- Add comment
+COMMENT ON TABLE policy_uploads IS 'Storage keys recorded from batch POST policy uploads; a key stays claimed while its photo exists, deleted or not';
@@ -0,0 +1,7 @@
+-- Purging runs in two short transactions with the storage deletes in between
+ALTER TABLE photos ADD COLUMN purge_claimed_at TIMESTAMP;
+ALTER TABLE photos ADD COLUMN purge_owns_objects BOOLEAN;
+
+-- Add comments
+COMMENT ON COLUMN photos.purge_claimed_at IS 'When a purge last claimed the deleted photo; other purges skip it until the claim expires';
+COMMENT ON COLUMN photos.purge_owns_objects IS 'Whether purging deletes the photo''s objects; null until its reference to shared content is released';
@@ -0,0 +1,17 @@
+-- Record the thumbnails of photos processed before the rendition manifest existed.
+-- Those were written next to the original with a "_thumb" suffix, fitted within 300x300
+-- and in the original's content type; their byte size was never recorded.
+INSERT INTO photo_renditions (photo_id, name, storage_key, width, height, file_size, content_type)
+SELECT p.id,
+       'thumb',
+       CASE WHEN p.storage_key ~ '\.[^./]*$'
+            THEN regexp_replace(p.storage_key, '(\.[^./]*)$', '_thumb\1')
+            ELSE p.storage_key || '_thumb'
+       END,
+       300,
+       300,
+       0,
+       p.content_type
+FROM photos p
+WHERE p.status IN ('THUMBNAIL_READY', 'COMPLETE')
+  AND NOT EXISTS (SELECT 1 FROM photo_renditions r WHERE r.photo_id = p.id);
@@ -0,0 +1,18 @@
+-- Create photo_renditions table (rendition manifest)
+CREATE TABLE photo_renditions (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    photo_id UUID NOT NULL,
+    name VARCHAR(50) NOT NULL,
+    storage_key VARCHAR(500) NOT NULL,
+    width INTEGER NOT NULL,
+    height INTEGER NOT NULL,
+    file_size BIGINT NOT NULL,
+    content_type VARCHAR(100),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_photo_renditions_photo FOREIGN KEY (photo_id) REFERENCES photos(id) ON DELETE CASCADE,
+    CONSTRAINT uq_photo_renditions_photo_name UNIQUE (photo_id, name)
+);
+
+-- Add comment
+COMMENT ON TABLE photo_renditions IS 'Records the renditions (resized copies) that exist in storage for each photo';
@@ -0,0 +1,4 @@
+-- Checksum declared by the client when initiating an upload (base64 SHA-256)
+ALTER TABLE photos ADD COLUMN declared_checksum VARCHAR(64);
+
+COMMENT ON COLUMN photos.declared_checksum IS 'Base64 SHA-256 declared at upload initiation; verified against storage on completion';
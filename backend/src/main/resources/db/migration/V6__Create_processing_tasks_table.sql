@@ -0,0 +1,29 @@
+-- Create processing_tasks table (durable image processing queue)
+CREATE TABLE processing_tasks (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    photo_id UUID NOT NULL,
+    stage VARCHAR(50) NOT NULL,
+    priority INTEGER NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    available_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    lease_owner VARCHAR(255),
+    lease_expires_at TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_processing_tasks_photo FOREIGN KEY (photo_id) REFERENCES photos(id) ON DELETE CASCADE
+);
+
+-- At most one live task per photo and stage, so enqueueing is idempotent
+CREATE UNIQUE INDEX uq_processing_tasks_live ON processing_tasks(photo_id, stage)
+    WHERE status IN ('PENDING', 'RUNNING');
+
+-- Indexes backing the claim query: pending tasks by priority, and running tasks by lease expiry
+CREATE INDEX idx_processing_tasks_pending ON processing_tasks(priority, available_at)
+    WHERE status = 'PENDING';
+CREATE INDEX idx_processing_tasks_lease ON processing_tasks(lease_expires_at)
+    WHERE status = 'RUNNING';
+
+-- Add comment
+COMMENT ON TABLE processing_tasks IS 'Image processing work claimed by workers with FOR UPDATE SKIP LOCKED and held under a lease';
@@ -0,0 +1,24 @@
+-- Record the SHA-256 of each photo's original content (base64, as reported by S3)
+ALTER TABLE photos ADD COLUMN content_hash VARCHAR(64);
+
+CREATE INDEX idx_photos_user_content_hash ON photos(user_id, content_hash);
+
+-- Create content_objects table (per-user dedup index of stored originals)
+CREATE TABLE content_objects (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    user_id UUID NOT NULL,
+    content_hash VARCHAR(64) NOT NULL,
+    storage_key VARCHAR(500) NOT NULL,
+    canonical_photo_id UUID,
+    ref_count INTEGER NOT NULL DEFAULT 1,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_content_objects_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_content_objects_photo FOREIGN KEY (canonical_photo_id) REFERENCES photos(id) ON DELETE SET NULL,
+    CONSTRAINT uq_content_objects_user_hash UNIQUE (user_id, content_hash)
+);
+
+CREATE INDEX idx_content_objects_storage_key ON content_objects(storage_key);
+
+-- Add comment
+COMMENT ON TABLE content_objects IS 'Stored originals shared by byte-identical photos of a user, with the number of photos referencing them';
@@ -0,0 +1,8 @@
+-- Record how each original was recompressed
+ALTER TABLE photos ADD COLUMN original_size BIGINT;
+ALTER TABLE photos ADD COLUMN compression_quality DOUBLE PRECISION;
+ALTER TABLE photos ADD COLUMN bytes_saved BIGINT;
+
+COMMENT ON COLUMN photos.original_size IS 'Size in bytes of the original as uploaded';
+COMMENT ON COLUMN photos.compression_quality IS 'Quality the stored original was recompressed at; NULL if the upload was kept as is';
+COMMENT ON COLUMN photos.bytes_saved IS 'Bytes saved by recompression (0 if the upload was kept)';
@@ -0,0 +1,21 @@
+-- Record dimensions and EXIF metadata of each original
+ALTER TABLE photos ADD COLUMN width INTEGER;
+ALTER TABLE photos ADD COLUMN height INTEGER;
+ALTER TABLE photos ADD COLUMN orientation INTEGER;
+ALTER TABLE photos ADD COLUMN captured_at TIMESTAMP;
+ALTER TABLE photos ADD COLUMN camera_make VARCHAR(255);
+ALTER TABLE photos ADD COLUMN camera_model VARCHAR(255);
+ALTER TABLE photos ADD COLUMN latitude DOUBLE PRECISION;
+ALTER TABLE photos ADD COLUMN longitude DOUBLE PRECISION;
+ALTER TABLE photos ADD COLUMN exif JSONB;
+ALTER TABLE photos ADD COLUMN metadata_extracted_at TIMESTAMP;
+
+CREATE INDEX idx_photos_user_captured_at ON photos(user_id, captured_at);
+CREATE INDEX idx_photos_exif ON photos USING GIN (exif jsonb_path_ops);
+CREATE INDEX idx_photos_metadata_pending ON photos(created_at) WHERE metadata_extracted_at IS NULL;
+
+COMMENT ON COLUMN photos.width IS 'Displayed width in pixels, after EXIF orientation';
+COMMENT ON COLUMN photos.height IS 'Displayed height in pixels, after EXIF orientation';
+COMMENT ON COLUMN photos.orientation IS 'EXIF orientation (1-8) of the original';
+COMMENT ON COLUMN photos.exif IS 'All metadata tags of the original: {directory: {tag: description}}';
+COMMENT ON COLUMN photos.metadata_extracted_at IS 'When metadata was extracted; NULL for photos still to be backfilled';
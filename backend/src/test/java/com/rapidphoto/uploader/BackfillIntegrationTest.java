@@ -0,0 +1,183 @@
+package com.rapidphoto.uploader;
+
+import com.rapidphoto.uploader.api.dto.BackfillJobDto;
+import com.rapidphoto.uploader.api.slices.auth.LoginResponse;
+import com.rapidphoto.uploader.api.slices.auth.RegisterRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for managing backfill jobs.
+ * The scheduler is disabled so jobs stay in the state the tests put them in.
+ */
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@TestPropertySource(properties = {
+        "processing.backfill.admin-emails=" + BackfillIntegrationTest.ADMIN_EMAIL,
+        "processing.backfill.enabled=false"
+})
+public class BackfillIntegrationTest extends IntegrationTestBase {
+
+    static final String ADMIN_EMAIL = "backfill-admin@example.com";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private LoginResponse admin;
+
+    @BeforeEach
+    void setUp() {
+        admin = register(ADMIN_EMAIL);
+    }
+
+    @Test
+    void shouldStartBackfillAsAdmin() {
+        ResponseEntity<BackfillJobDto> response = startBackfill(admin,
+                Map.of("stage", "METADATA", "missingMetadataOnly", true, "ratePerSecond", 5.0, "maxInFlight", 10));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        BackfillJobDto job = response.getBody();
+        assertThat(job.getId()).isNotNull();
+        assertThat(job.getStage()).isEqualTo("METADATA");
+        assertThat(job.isMissingMetadataOnly()).isTrue();
+        assertThat(job.getStatus()).isEqualTo("RUNNING");
+        assertThat(job.getRatePerSecond()).isEqualTo(5.0);
+        assertThat(job.getMaxInFlight()).isEqualTo(10);
+        assertThat(job.getQueuedCount()).isEqualTo(0L);
+    }
+
+    @Test
+    void shouldApplyDefaultThrottlingWhenNotGiven() {
+        BackfillJobDto job = startBackfill(admin, Map.of("stage", "RENDITIONS")).getBody();
+
+        assertThat(job.getRatePerSecond()).isEqualTo(20.0);
+        assertThat(job.getMaxInFlight()).isEqualTo(200);
+        assertThat(job.isMissingMetadataOnly()).isFalse();
+    }
+
+    @Test
+    void shouldPauseResumeAndCancelBackfill() {
+        UUID jobId = startBackfill(admin, Map.of("stage", "RENDITIONS")).getBody().getId();
+
+        assertThat(jobAction(admin, jobId, "pause").getBody().getStatus()).isEqualTo("PAUSED");
+        assertThat(jobAction(admin, jobId, "resume").getBody().getStatus()).isEqualTo("RUNNING");
+
+        BackfillJobDto cancelled = jobAction(admin, jobId, "cancel").getBody();
+        assertThat(cancelled.getStatus()).isEqualTo("CANCELLED");
+        assertThat(cancelled.getCompletedAt()).isNotNull();
+
+        // Cancelled jobs cannot be resumed
+        assertThat(jobAction(admin, jobId, "resume").getBody().getStatus()).isEqualTo("CANCELLED");
+    }
+
+    @Test
+    void shouldListAndGetBackfills() {
+        UUID first = startBackfill(admin, Map.of("stage", "METADATA")).getBody().getId();
+        UUID second = startBackfill(admin, Map.of("stage", "FINALIZE")).getBody().getId();
+
+        ResponseEntity<BackfillJobDto[]> listResponse = restTemplate.exchange(
+                baseUrl() + "/api/v1/admin/backfills",
+                HttpMethod.GET,
+                new HttpEntity<>(createAuthHeaders(admin)),
+                BackfillJobDto[].class
+        );
+
+        assertThat(listResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(listResponse.getBody()).hasSize(2);
+        assertThat(listResponse.getBody()[0].getId()).isEqualTo(second);
+        assertThat(listResponse.getBody()[1].getId()).isEqualTo(first);
+
+        ResponseEntity<BackfillJobDto> getResponse = restTemplate.exchange(
+                baseUrl() + "/api/v1/admin/backfills/" + first,
+                HttpMethod.GET,
+                new HttpEntity<>(createAuthHeaders(admin)),
+                BackfillJobDto.class
+        );
+
+        assertThat(getResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(getResponse.getBody().getStage()).isEqualTo("METADATA");
+    }
+
+    @Test
+    void shouldForbidBackfillsForNonAdmins() {
+        LoginResponse user = register("test-" + UUID.randomUUID() + "@example.com");
+        UUID jobId = startBackfill(admin, Map.of("stage", "METADATA")).getBody().getId();
+
+        assertThat(startBackfill(user, Map.of("stage", "METADATA")).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(jobAction(user, jobId, "cancel").getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        ResponseEntity<String> listResponse = restTemplate.exchange(
+                baseUrl() + "/api/v1/admin/backfills",
+                HttpMethod.GET,
+                new HttpEntity<>(createAuthHeaders(user)),
+                String.class
+        );
+        assertThat(listResponse.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        // The job is untouched
+        assertThat(jobAction(admin, jobId, "pause").getBody().getStatus()).isEqualTo("PAUSED");
+    }
+
+    @Test
+    void shouldRejectBackfillWithoutStage() {
+        ResponseEntity<BackfillJobDto> response = startBackfill(admin, Map.of("missingMetadataOnly", true));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownBackfill() {
+        ResponseEntity<BackfillJobDto> response = jobAction(admin, UUID.randomUUID(), "pause");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    // Helper methods
+
+    private LoginResponse register(String email) {
+        RegisterRequest registerRequest = new RegisterRequest(email, "TestPassword123!", "Test User");
+
+        ResponseEntity<LoginResponse> registerResponse = restTemplate.postForEntity(
+                baseUrl() + "/api/v1/auth/register",
+                registerRequest,
+                LoginResponse.class
+        );
+
+        assertThat(registerResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return registerResponse.getBody();
+    }
+
+    private HttpHeaders createAuthHeaders(LoginResponse login) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(login.getToken());
+        return headers;
+    }
+
+    private ResponseEntity<BackfillJobDto> startBackfill(LoginResponse login, Map<String, Object> request) {
+        return restTemplate.exchange(
+                baseUrl() + "/api/v1/admin/backfills",
+                HttpMethod.POST,
+                new HttpEntity<>(request, createAuthHeaders(login)),
+                BackfillJobDto.class
+        );
+    }
+
+    private ResponseEntity<BackfillJobDto> jobAction(LoginResponse login, UUID jobId, String action) {
+        return restTemplate.exchange(
+                baseUrl() + "/api/v1/admin/backfills/" + jobId + "/" + action,
+                HttpMethod.POST,
+                new HttpEntity<>(createAuthHeaders(login)),
+                BackfillJobDto.class
+        );
+    }
+}
@@ -0,0 +1,213 @@
+package com.rapidphoto.uploader;
+
+import com.rapidphoto.uploader.api.slices.auth.LoginResponse;
+import com.rapidphoto.uploader.api.slices.auth.RegisterRequest;
+import com.rapidphoto.uploader.api.slices.uploadphoto.BatchUploadPolicyResponse;
+import com.rapidphoto.uploader.api.slices.uploadphoto.BatchUploadRequest;
+import com.rapidphoto.uploader.api.slices.uploadphoto.BatchUploadResponse;
+import com.rapidphoto.uploader.api.slices.uploadphoto.CompleteBatchUploadRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for batch uploads through a single browser POST policy.
+ * Tests: Policy issue -> (simulated) form uploads -> Completion
+ */
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class BatchPolicyUploadIntegrationTest extends IntegrationTestBase {
+
+    private static final String CHECKSUM = "47DEQpj8HBSa+/TImW+5JCeuQeRkm5NMpJWZG3hSuFU=";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private LoginResponse user;
+
+    @BeforeEach
+    void setUp() {
+        user = registerAndLogin();
+    }
+
+    @Test
+    void shouldIssueOnePolicyForWholeBatch() {
+        ResponseEntity<BatchUploadPolicyResponse> response = issuePolicy(user, 25);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        BatchUploadPolicyResponse policy = response.getBody();
+        assertThat(policy.getBatchId()).isNotNull();
+        assertThat(policy.getUrl()).startsWith("https://");
+        assertThat(policy.getKeyPrefix())
+                .startsWith(user.getUserId() + "/")
+                .endsWith("/" + policy.getBatchId() + "/");
+        assertThat(policy.getFields())
+                .containsKeys("policy", "x-amz-algorithm", "x-amz-credential", "x-amz-date", "x-amz-signature")
+                .containsEntry("x-amz-checksum-algorithm", "SHA256");
+        assertThat(policy.getExpiresInSeconds()).isPositive();
+    }
+
+    @Test
+    void shouldRejectPolicyForUnsupportedContentType() {
+        BatchUploadRequest request = new BatchUploadRequest(null, List.of(
+                new BatchUploadRequest.PhotoMetadata("notes.pdf", 1024L, "application/pdf", null)));
+
+        ResponseEntity<Map> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/upload/batch/policy",
+                HttpMethod.POST,
+                new HttpEntity<>(request, createAuthHeaders(user)),
+                Map.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).containsKey("error");
+    }
+
+    @Test
+    void shouldRejectEmptyPolicyRequest() {
+        ResponseEntity<Map> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/upload/batch/policy",
+                HttpMethod.POST,
+                new HttpEntity<>(new BatchUploadRequest(null, List.of()), createAuthHeaders(user)),
+                Map.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldRecordUploadedFiles() {
+        BatchUploadPolicyResponse policy = issuePolicy(user, 2).getBody();
+
+        ResponseEntity<BatchUploadResponse> response = completeBatch(user, policy.getBatchId(), List.of(
+                uploadedFile(policy.getKeyPrefix() + "first.jpg", CHECKSUM),
+                uploadedFile(policy.getKeyPrefix() + "second.jpg", null)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        BatchUploadResponse body = response.getBody();
+        assertThat(body.getTotalFiles()).isEqualTo(2);
+        assertThat(body.getSuccessfullyInitiated()).isEqualTo(2);
+        for (BatchUploadResponse.UploadResult upload : body.getUploads()) {
+            assertThat(upload.getSuccess()).isTrue();
+            assertThat(upload.getPhotoId()).isNotNull();
+            assertThat(upload.getUploadJobId()).isNotNull();
+        }
+        assertThat(body.getUploads().stream().map(BatchUploadResponse.UploadResult::getFilename).toList())
+                .containsExactly("first.jpg", "second.jpg");
+    }
+
+    @Test
+    void shouldRecordEachKeyOnlyOnce() {
+        BatchUploadPolicyResponse policy = issuePolicy(user, 1).getBody();
+        String key = policy.getKeyPrefix() + "photo.jpg";
+
+        BatchUploadResponse first = completeBatch(user, policy.getBatchId(),
+                List.of(uploadedFile(key, null), uploadedFile(key, null))).getBody();
+        BatchUploadResponse again = completeBatch(user, policy.getBatchId(),
+                List.of(uploadedFile(key, null))).getBody();
+
+        assertThat(first.getSuccessfullyInitiated()).isEqualTo(1);
+        assertThat(first.getUploads().get(1).getErrorMessage()).isEqualTo("Upload already recorded");
+        assertThat(again.getSuccessfullyInitiated()).isEqualTo(0);
+        assertThat(again.getUploads().get(0).getErrorMessage()).isEqualTo("Upload already recorded");
+    }
+
+    @Test
+    void shouldRejectKeysOfAnotherUsersBatch() {
+        LoginResponse otherUser = registerAndLogin();
+        BatchUploadPolicyResponse otherPolicy = issuePolicy(otherUser, 1).getBody();
+
+        // Reporting someone else's key, whether under their batch or under a batch ID of our own
+        BatchUploadResponse underTheirBatch = completeBatch(user, otherPolicy.getBatchId(),
+                List.of(uploadedFile(otherPolicy.getKeyPrefix() + "photo.jpg", null))).getBody();
+        BatchUploadResponse underOurBatch = completeBatch(user, UUID.randomUUID(),
+                List.of(uploadedFile(otherPolicy.getKeyPrefix() + "photo.jpg", null))).getBody();
+
+        assertThat(underTheirBatch.getSuccessfullyInitiated()).isEqualTo(0);
+        assertThat(underTheirBatch.getUploads().get(0).getErrorMessage()).isEqualTo("Key is not part of this batch");
+        assertThat(underOurBatch.getSuccessfullyInitiated()).isEqualTo(0);
+        assertThat(underOurBatch.getUploads().get(0).getErrorMessage()).isEqualTo("Key is not part of this batch");
+    }
+
+    @Test
+    void shouldRejectCompletionWithInvalidChecksum() {
+        BatchUploadPolicyResponse policy = issuePolicy(user, 1).getBody();
+
+        ResponseEntity<Map> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/upload/batch/" + policy.getBatchId() + "/complete",
+                HttpMethod.POST,
+                new HttpEntity<>(new CompleteBatchUploadRequest(List.of(
+                        uploadedFile(policy.getKeyPrefix() + "photo.jpg", "not-a-checksum"))), createAuthHeaders(user)),
+                Map.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    // Helper methods
+
+    private LoginResponse registerAndLogin() {
+        RegisterRequest registerRequest = new RegisterRequest(
+                "test-" + UUID.randomUUID() + "@example.com", "TestPassword123!", "Test User");
+
+        ResponseEntity<LoginResponse> registerResponse = restTemplate.postForEntity(
+                baseUrl() + "/api/v1/auth/register",
+                registerRequest,
+                LoginResponse.class
+        );
+
+        assertThat(registerResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return registerResponse.getBody();
+    }
+
+    private HttpHeaders createAuthHeaders(LoginResponse login) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(login.getToken());
+        return headers;
+    }
+
+    private ResponseEntity<BatchUploadPolicyResponse> issuePolicy(LoginResponse login, int files) {
+        List<BatchUploadRequest.PhotoMetadata> metadata = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            metadata.add(new BatchUploadRequest.PhotoMetadata("photo-" + i + ".jpg", 1024000L, "image/jpeg", null));
+        }
+
+        ResponseEntity<BatchUploadPolicyResponse> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/upload/batch/policy",
+                HttpMethod.POST,
+                new HttpEntity<>(new BatchUploadRequest(null, metadata), createAuthHeaders(login)),
+                BatchUploadPolicyResponse.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response;
+    }
+
+    private ResponseEntity<BatchUploadResponse> completeBatch(LoginResponse login, UUID batchId,
+                                                             List<CompleteBatchUploadRequest.UploadedFile> files) {
+        ResponseEntity<BatchUploadResponse> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/upload/batch/" + batchId + "/complete",
+                HttpMethod.POST,
+                new HttpEntity<>(new CompleteBatchUploadRequest(files), createAuthHeaders(login)),
+                BatchUploadResponse.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response;
+    }
+
+    private static CompleteBatchUploadRequest.UploadedFile uploadedFile(String key, String checksum) {
+        return new CompleteBatchUploadRequest.UploadedFile(
+                key, key.substring(key.lastIndexOf('/') + 1), 1024000L, "image/jpeg", checksum);
+    }
+}
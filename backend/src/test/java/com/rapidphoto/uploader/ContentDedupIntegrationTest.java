@@ -0,0 +1,232 @@
+package com.rapidphoto.uploader;
+
+import com.rapidphoto.uploader.api.slices.auth.LoginResponse;
+import com.rapidphoto.uploader.api.slices.auth.RegisterRequest;
+import com.rapidphoto.uploader.api.slices.uploadphoto.InitiateUploadRequest;
+import com.rapidphoto.uploader.api.slices.uploadphoto.InitiateUploadResult;
+import com.rapidphoto.uploader.application.service.ContentDedupService;
+import com.rapidphoto.uploader.application.service.ProcessingDeferredException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration tests for deduplicating identical uploads that are processed concurrently.
+ * Runs against PostgreSQL, so the conflict handling of the content index insert and the
+ * row lock taken when looking content up are the real ones.
+ */
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class ContentDedupIntegrationTest extends IntegrationTestBase {
+
+    private static final String HASH = "47DEQpj8HBSa+/TImW+5JCeuQeRkm5NMpJWZG3hSuFU=";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ContentDedupService dedupService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private LoginResponse user;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        user = registerAndLogin();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldRegisterOneCanonicalForConcurrentIdenticalUploads() throws Exception {
+        UUID first = uploadPhotoWithHash("PROCESSING");
+        UUID second = uploadPhotoWithHash("PROCESSING");
+
+        CompletableFuture<Boolean> secondResult = transactionTemplate.execute(status -> {
+            // Register the first photo but keep its insert uncommitted while the second one runs
+            assertThat(dedupService.deduplicate(first)).isFalse();
+            CompletableFuture<Boolean> pending = CompletableFuture.supplyAsync(
+                    () -> dedupService.deduplicate(second), executor);
+            assertBlocked(pending);
+            return pending;
+        });
+
+        // The second insert waited for the first to commit, then found its content still processing
+        assertThatThrownBy(() -> secondResult.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ProcessingDeferredException.class);
+        assertContent(first, storageKey(first), 1);
+        assertThat(storageKey(second)).isNotEqualTo(storageKey(first));
+
+        // Once the canonical photo is processed the deferred duplicate reuses it
+        jdbcTemplate.update("UPDATE photos SET status = 'COMPLETE' WHERE id = ?", first);
+        assertThat(dedupService.deduplicate(second)).isTrue();
+        assertContent(first, storageKey(first), 2);
+        assertThat(storageKey(second)).isEqualTo(storageKey(first));
+        assertThat(photoStatus(second)).isEqualTo("COMPLETE");
+    }
+
+    @Test
+    void shouldRegisterOneCanonicalWhenIdenticalUploadsRace() throws Exception {
+        UUID first = uploadPhotoWithHash("PROCESSING");
+        UUID second = uploadPhotoWithHash("PROCESSING");
+        CyclicBarrier start = new CyclicBarrier(2);
+
+        Future<Boolean> firstResult = executor.submit(() -> {
+            start.await();
+            return dedupService.deduplicate(first);
+        });
+        Future<Boolean> secondResult = executor.submit(() -> {
+            start.await();
+            return dedupService.deduplicate(second);
+        });
+
+        // Whichever insert wins becomes canonical; the other waits for its content to be processed
+        List<UUID> canonical = new ArrayList<>();
+        int deferred = 0;
+        for (Map.Entry<UUID, Future<Boolean>> result : Map.of(first, firstResult, second, secondResult).entrySet()) {
+            try {
+                assertThat(result.getValue().get(10, TimeUnit.SECONDS)).isFalse();
+                canonical.add(result.getKey());
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(ProcessingDeferredException.class);
+                deferred++;
+            }
+        }
+        assertThat(canonical).hasSize(1);
+        assertThat(deferred).isEqualTo(1);
+        assertContent(canonical.get(0), storageKey(canonical.get(0)), 1);
+    }
+
+    @Test
+    void shouldCountEveryDuplicateOfProcessedContent() throws Exception {
+        UUID canonical = uploadPhotoWithHash("PROCESSING");
+        assertThat(dedupService.deduplicate(canonical)).isFalse();
+        jdbcTemplate.update("UPDATE photos SET status = 'COMPLETE' WHERE id = ?", canonical);
+        UUID held = uploadPhotoWithHash("PROCESSING");
+        UUID waiting = uploadPhotoWithHash("PROCESSING");
+
+        CompletableFuture<Boolean> waitingResult = transactionTemplate.execute(status -> {
+            // Hold the lock the first duplicate took on the content row
+            assertThat(dedupService.deduplicate(held)).isTrue();
+            CompletableFuture<Boolean> pending = CompletableFuture.supplyAsync(
+                    () -> dedupService.deduplicate(waiting), executor);
+            assertBlocked(pending);
+            return pending;
+        });
+
+        // The second duplicate read the count only after the first committed, so neither was lost
+        assertThat(waitingResult.get(10, TimeUnit.SECONDS)).isTrue();
+        assertContent(canonical, storageKey(canonical), 3);
+
+        // Racing duplicates are serialized the same way
+        List<UUID> racing = List.of(uploadPhotoWithHash("PROCESSING"), uploadPhotoWithHash("PROCESSING"),
+                uploadPhotoWithHash("PROCESSING"));
+        CyclicBarrier start = new CyclicBarrier(racing.size());
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (UUID photoId : racing) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return dedupService.deduplicate(photoId);
+            }));
+        }
+        for (Future<Boolean> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isTrue();
+        }
+        assertContent(canonical, storageKey(canonical), 3 + racing.size());
+    }
+
+    private static void assertBlocked(CompletableFuture<Boolean> pending) {
+        assertThatThrownBy(() -> pending.get(500, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+    }
+
+    private void assertContent(UUID canonicalPhotoId, String storageKey, int refCount) {
+        Map<String, Object> content = jdbcTemplate.queryForMap(
+                "SELECT canonical_photo_id, storage_key, ref_count FROM content_objects WHERE content_hash = ?", HASH);
+        assertThat(content.get("canonical_photo_id")).isEqualTo(canonicalPhotoId);
+        assertThat(content.get("storage_key")).isEqualTo(storageKey);
+        assertThat(((Number) content.get("ref_count")).intValue()).isEqualTo(refCount);
+    }
+
+    private String storageKey(UUID photoId) {
+        return jdbcTemplate.queryForObject("SELECT storage_key FROM photos WHERE id = ?", String.class, photoId);
+    }
+
+    private String photoStatus(UUID photoId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM photos WHERE id = ?", String.class, photoId);
+    }
+
+    private LoginResponse registerAndLogin() {
+        RegisterRequest registerRequest = new RegisterRequest(
+                "test-" + UUID.randomUUID() + "@example.com", "TestPassword123!", "Test User");
+
+        ResponseEntity<LoginResponse> registerResponse = restTemplate.postForEntity(
+                baseUrl() + "/api/v1/auth/register",
+                registerRequest,
+                LoginResponse.class
+        );
+
+        assertThat(registerResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return registerResponse.getBody();
+    }
+
+    private HttpHeaders createAuthHeaders(LoginResponse login) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(login.getToken());
+        return headers;
+    }
+
+    /**
+     * Initiate an upload and give it the shared content hash, as verification would.
+     */
+    private UUID uploadPhotoWithHash(String status) {
+        InitiateUploadRequest request = new InitiateUploadRequest();
+        request.setFilename("photo-" + UUID.randomUUID() + ".jpg");
+        request.setFileSize(1024000L);
+        request.setContentType("image/jpeg");
+
+        ResponseEntity<InitiateUploadResult> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/upload/initiate",
+                HttpMethod.POST,
+                new HttpEntity<>(request, createAuthHeaders(user)),
+                InitiateUploadResult.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        UUID photoId = response.getBody().getPhotoId();
+        jdbcTemplate.update("UPDATE photos SET status = ?, content_hash = ? WHERE id = ?", status, HASH, photoId);
+        return photoId;
+    }
+}
@@ -0,0 +1,164 @@
+package com.rapidphoto.uploader;
+
+import com.rapidphoto.uploader.api.slices.auth.LoginResponse;
+import com.rapidphoto.uploader.api.slices.auth.RegisterRequest;
+import com.rapidphoto.uploader.api.slices.deletephotos.DeletePhotosRequest;
+import com.rapidphoto.uploader.api.slices.deletephotos.DeletePhotosResult;
+import com.rapidphoto.uploader.api.slices.uploadphoto.InitiateUploadRequest;
+import com.rapidphoto.uploader.api.slices.uploadphoto.InitiateUploadResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for deleting photos in bulk.
+ */
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class DeletePhotosIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private LoginResponse user;
+
+    @BeforeEach
+    void setUp() {
+        user = registerAndLogin();
+    }
+
+    @Test
+    void shouldDeleteOwnPhotos() {
+        UUID first = uploadPhoto(user, "first.jpg");
+        UUID second = uploadPhoto(user, "second.jpg");
+        UUID kept = uploadPhoto(user, "kept.jpg");
+
+        ResponseEntity<DeletePhotosResult> response = deletePhotos(user, List.of(first, second));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getRequested()).isEqualTo(2);
+        assertThat(response.getBody().getDeleted()).isEqualTo(2);
+        assertThat(listPhotoIds(user)).containsExactly(kept.toString());
+    }
+
+    @Test
+    void shouldNotCountPhotosAlreadyDeleted() {
+        UUID photoId = uploadPhoto(user, "twice.jpg");
+        deletePhotos(user, List.of(photoId));
+
+        ResponseEntity<DeletePhotosResult> response = deletePhotos(user, List.of(photoId, photoId));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getRequested()).isEqualTo(1);
+        assertThat(response.getBody().getDeleted()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldNotDeleteAnotherUsersPhotos() {
+        LoginResponse otherUser = registerAndLogin();
+        UUID otherPhoto = uploadPhoto(otherUser, "not-mine.jpg");
+
+        ResponseEntity<DeletePhotosResult> response = deletePhotos(user, List.of(otherPhoto));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getDeleted()).isEqualTo(0);
+        assertThat(listPhotoIds(otherUser)).containsExactly(otherPhoto.toString());
+    }
+
+    @Test
+    void shouldRejectEmptyDeleteRequest() {
+        ResponseEntity<Map> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/delete",
+                HttpMethod.POST,
+                new HttpEntity<>(new DeletePhotosRequest(List.of()), createAuthHeaders(user)),
+                Map.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void shouldRequireAuthenticationToDelete() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        ResponseEntity<Map> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/delete",
+                HttpMethod.POST,
+                new HttpEntity<>(new DeletePhotosRequest(List.of(UUID.randomUUID())), headers),
+                Map.class
+        );
+
+        assertThat(response.getStatusCode()).isIn(HttpStatus.UNAUTHORIZED, HttpStatus.FORBIDDEN);
+    }
+
+    // Helper methods
+
+    private LoginResponse registerAndLogin() {
+        RegisterRequest registerRequest = new RegisterRequest(
+                "test-" + UUID.randomUUID() + "@example.com", "TestPassword123!", "Test User");
+
+        ResponseEntity<LoginResponse> registerResponse = restTemplate.postForEntity(
+                baseUrl() + "/api/v1/auth/register",
+                registerRequest,
+                LoginResponse.class
+        );
+
+        assertThat(registerResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return registerResponse.getBody();
+    }
+
+    private HttpHeaders createAuthHeaders(LoginResponse login) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(login.getToken());
+        return headers;
+    }
+
+    private UUID uploadPhoto(LoginResponse login, String filename) {
+        InitiateUploadRequest request = new InitiateUploadRequest();
+        request.setFilename(filename);
+        request.setFileSize(1024000L);
+        request.setContentType("image/jpeg");
+
+        ResponseEntity<InitiateUploadResult> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/upload/initiate",
+                HttpMethod.POST,
+                new HttpEntity<>(request, createAuthHeaders(login)),
+                InitiateUploadResult.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody().getPhotoId();
+    }
+
+    private ResponseEntity<DeletePhotosResult> deletePhotos(LoginResponse login, List<UUID> photoIds) {
+        return restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/delete",
+                HttpMethod.POST,
+                new HttpEntity<>(new DeletePhotosRequest(photoIds), createAuthHeaders(login)),
+                DeletePhotosResult.class
+        );
+    }
+
+    private List<?> listPhotoIds(LoginResponse login) {
+        ResponseEntity<Map> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos?userId=" + login.getUserId(),
+                HttpMethod.GET,
+                new HttpEntity<>(createAuthHeaders(login)),
+                Map.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<?> content = (List<?>) response.getBody().get("content");
+        return content.stream().map(photo -> ((Map<?, ?>) photo).get("id")).toList();
+    }
+}
@@ -40,6 +40,9 @@ public abstract class IntegrationTestBase {
         
         // Disable image processing in tests
         registry.add("image.processing.enabled", () -> "false");
+
+        // Tests drive the processing queue themselves; a worker in any cached context would race them
+        registry.add("processing.queue.worker.enabled", () -> "false");
     }
 
     @BeforeAll
@@ -0,0 +1,161 @@
+package com.rapidphoto.uploader;
+
+import com.rapidphoto.uploader.api.dto.RenditionDto;
+import com.rapidphoto.uploader.api.slices.auth.LoginResponse;
+import com.rapidphoto.uploader.api.slices.auth.RegisterRequest;
+import com.rapidphoto.uploader.api.slices.uploadphoto.InitiateUploadRequest;
+import com.rapidphoto.uploader.api.slices.uploadphoto.InitiateUploadResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for fetching a named rendition of a photo.
+ * Image processing is disabled in tests, so processed photos and their renditions are
+ * recorded directly in the database.
+ */
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class PhotoRenditionIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LoginResponse user;
+
+    @BeforeEach
+    void setUp() {
+        user = registerAndLogin();
+    }
+
+    @Test
+    void shouldReturnRecordedRendition() {
+        UUID photoId = uploadPhoto(user, "processed.jpg");
+        markProcessed(photoId);
+        recordRendition(photoId, "thumb", 300, 225);
+
+        ResponseEntity<RenditionDto> response = getRendition(user, photoId, "thumb");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getName()).isEqualTo("thumb");
+        assertThat(response.getBody().getWidth()).isEqualTo(300);
+        assertThat(response.getBody().getHeight()).isEqualTo(225);
+        assertThat(response.getBody().getUrl()).startsWith("https://");
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownProfile() {
+        UUID photoId = uploadPhoto(user, "processed.jpg");
+        markProcessed(photoId);
+
+        ResponseEntity<RenditionDto> response = getRendition(user, photoId, "poster");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldReturnConflictBeforeProcessing() {
+        UUID photoId = uploadPhoto(user, "uploading.jpg");
+
+        ResponseEntity<RenditionDto> response = getRendition(user, photoId, "thumb");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void shouldForbidRenditionOfAnotherUsersPhoto() {
+        LoginResponse otherUser = registerAndLogin();
+        UUID photoId = uploadPhoto(otherUser, "not-mine.jpg");
+        markProcessed(photoId);
+        recordRendition(photoId, "thumb", 300, 225);
+
+        ResponseEntity<RenditionDto> response = getRendition(user, photoId, "thumb");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void shouldReturnNotFoundForDeletedPhoto() {
+        UUID photoId = uploadPhoto(user, "deleted.jpg");
+        markProcessed(photoId);
+        recordRendition(photoId, "thumb", 300, 225);
+        jdbcTemplate.update("UPDATE photos SET deleted_at = CURRENT_TIMESTAMP WHERE id = ?", photoId);
+
+        ResponseEntity<RenditionDto> response = getRendition(user, photoId, "thumb");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    // Helper methods
+
+    private LoginResponse registerAndLogin() {
+        RegisterRequest registerRequest = new RegisterRequest(
+                "test-" + UUID.randomUUID() + "@example.com", "TestPassword123!", "Test User");
+
+        ResponseEntity<LoginResponse> registerResponse = restTemplate.postForEntity(
+                baseUrl() + "/api/v1/auth/register",
+                registerRequest,
+                LoginResponse.class
+        );
+
+        assertThat(registerResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return registerResponse.getBody();
+    }
+
+    private HttpHeaders createAuthHeaders(LoginResponse login) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(login.getToken());
+        return headers;
+    }
+
+    private UUID uploadPhoto(LoginResponse login, String filename) {
+        InitiateUploadRequest request = new InitiateUploadRequest();
+        request.setFilename(filename);
+        request.setFileSize(1024000L);
+        request.setContentType("image/jpeg");
+
+        ResponseEntity<InitiateUploadResult> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/upload/initiate",
+                HttpMethod.POST,
+                new HttpEntity<>(request, createAuthHeaders(login)),
+                InitiateUploadResult.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody().getPhotoId();
+    }
+
+    private void markProcessed(UUID photoId) {
+        jdbcTemplate.update("UPDATE photos SET status = 'COMPLETE', width = 4000, height = 3000 WHERE id = ?",
+                photoId);
+    }
+
+    private void recordRendition(UUID photoId, String name, int width, int height) {
+        String storageKey = jdbcTemplate.queryForObject("SELECT storage_key FROM photos WHERE id = ?",
+                String.class, photoId);
+        jdbcTemplate.update("""
+                INSERT INTO photo_renditions (photo_id, name, storage_key, width, height, file_size, content_type)
+                VALUES (?, ?, ?, ?, ?, ?, 'image/jpeg')
+                """, photoId, name, storageKey + "_" + name, width, height, 20000L);
+    }
+
+    private ResponseEntity<RenditionDto> getRendition(LoginResponse login, UUID photoId, String name) {
+        return restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/" + photoId + "/renditions/" + name,
+                HttpMethod.GET,
+                new HttpEntity<>(createAuthHeaders(login)),
+                RenditionDto.class
+        );
+    }
+}
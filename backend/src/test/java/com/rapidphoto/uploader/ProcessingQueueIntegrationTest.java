@@ -0,0 +1,441 @@
+package com.rapidphoto.uploader;
+
+import com.rapidphoto.uploader.api.slices.auth.LoginResponse;
+import com.rapidphoto.uploader.api.slices.auth.RegisterRequest;
+import com.rapidphoto.uploader.api.slices.uploadphoto.InitiateUploadRequest;
+import com.rapidphoto.uploader.api.slices.uploadphoto.InitiateUploadResult;
+import com.rapidphoto.uploader.application.service.ProcessingTaskService;
+import com.rapidphoto.uploader.domain.ProcessingStage;
+import com.rapidphoto.uploader.domain.ProcessingTask;
+import com.rapidphoto.uploader.infrastructure.repository.ProcessingTaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the durable processing queue.
+ * The worker is disabled, so tests claim and settle tasks through the service themselves,
+ * and move delays and leases into the past rather than waiting for them.
+ */
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@TestPropertySource(properties = {
+        "processing.queue.max-attempts=" + ProcessingQueueIntegrationTest.MAX_ATTEMPTS,
+        "processing.queue.retry-base-delay=10s",
+        "processing.queue.retry-max-delay=15s"
+})
+public class ProcessingQueueIntegrationTest extends IntegrationTestBase {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private static final String WORKER = "test-worker";
+    private static final String OTHER_WORKER = "other-worker";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProcessingTaskService taskService;
+
+    @Autowired
+    private ProcessingTaskRepository taskRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private LoginResponse user;
+
+    @BeforeEach
+    void setUp() {
+        user = registerAndLogin();
+    }
+
+    @Test
+    void shouldQueueStageOnlyOnceWhileLive() {
+        UUID photoId = uploadPhotoWithStatus("PROCESSING");
+
+        taskService.enqueue(photoId, ProcessingStage.METADATA, Duration.ZERO);
+        taskService.enqueue(photoId, ProcessingStage.METADATA, Duration.ZERO);
+        assertThat(countTasks(photoId, ProcessingStage.METADATA)).isEqualTo(1);
+
+        // Still live while running
+        claimOne();
+        taskService.enqueue(photoId, ProcessingStage.METADATA, Duration.ZERO);
+        assertThat(countTasks(photoId, ProcessingStage.METADATA)).isEqualTo(1);
+        assertThat(taskService.enqueueReprocessing(photoId, ProcessingStage.METADATA)).isFalse();
+    }
+
+    @Test
+    void shouldQueueStageAgainAfterItFailed() {
+        UUID photoId = uploadPhotoWithStatus("PROCESSING");
+        taskService.enqueue(photoId, ProcessingStage.METADATA, Duration.ZERO);
+        taskService.reject(claimOne(), WORKER, "Unreadable header");
+
+        assertThat(taskService.enqueueReprocessing(photoId, ProcessingStage.METADATA)).isTrue();
+        assertThat(countTasks(photoId, ProcessingStage.METADATA)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldClaimDueTasksInPriorityOrder() {
+        UUID reprocessed = uploadPhotoWithStatus("COMPLETE");
+        UUID finalizing = uploadPhotoWithStatus("THUMBNAIL_READY");
+        UUID uploaded = uploadPhotoWithStatus("PROCESSING");
+        UUID unverified = uploadPhotoWithStatus("PROCESSING");
+        taskService.enqueueReprocessing(reprocessed, ProcessingStage.METADATA);
+        taskService.enqueue(finalizing, ProcessingStage.FINALIZE, Duration.ZERO);
+        taskService.enqueue(uploaded, ProcessingStage.RENDITIONS, Duration.ZERO);
+        taskService.enqueue(unverified, ProcessingStage.METADATA, Duration.ofMinutes(5));
+
+        List<ProcessingTask> claimed = taskService.claim(WORKER, 10);
+
+        // New uploads' renditions, then their recompression, then reprocessing; delayed tasks wait
+        assertThat(claimed.stream().map(ProcessingTask::getPhotoId).toList())
+                .containsExactly(uploaded, finalizing, reprocessed);
+        assertThat(claimed.get(0).getStatus()).isEqualTo(ProcessingTask.TaskStatus.RUNNING);
+        assertThat(claimed.get(0).getAttempts()).isEqualTo(1);
+        assertThat(claimed.get(0).getLeaseOwner()).isEqualTo(WORKER);
+        assertThat(taskService.countReprocessing()).isEqualTo(1L);
+
+        // Running tasks are not handed out again, and verification releases the delayed one
+        assertThat(taskService.claim(OTHER_WORKER, 10)).isEmpty();
+        taskService.release(unverified, ProcessingStage.METADATA);
+        assertThat(taskService.claim(OTHER_WORKER, 10).stream().map(ProcessingTask::getPhotoId).toList())
+                .containsExactly(unverified);
+    }
+
+    @Test
+    void shouldSkipTasksLockedByAnotherClaim() throws Exception {
+        UUID first = uploadPhotoWithStatus("PROCESSING");
+        UUID second = uploadPhotoWithStatus("PROCESSING");
+        taskService.enqueue(first, ProcessingStage.METADATA, Duration.ZERO);
+        taskService.enqueue(second, ProcessingStage.METADATA, Duration.ZERO);
+        // Make the first task the first in claim order
+        jdbcTemplate.update("UPDATE processing_tasks SET available_at = available_at - interval '1 minute' WHERE photo_id = ?",
+                first);
+
+        List<UUID> otherClaim = transactionTemplate.execute(status -> {
+            // Hold the lock on the first task while another worker claims
+            assertThat(taskRepository.lockClaimable(Instant.now(), 1)).hasSize(1);
+            try {
+                return CompletableFuture.supplyAsync(() -> taskService.claim(OTHER_WORKER, 10))
+                        .get(10, TimeUnit.SECONDS).stream().map(ProcessingTask::getPhotoId).toList();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // The other claim neither waited for the lock nor received the locked task
+        assertThat(otherClaim).containsExactly(second);
+    }
+
+    @Test
+    void shouldCompleteTaskAndQueueNextStage() {
+        UUID photoId = uploadPhotoWithStatus("PROCESSING");
+        taskService.enqueue(photoId, ProcessingStage.METADATA, Duration.ZERO);
+
+        taskService.complete(claimOne(), WORKER, true);
+
+        assertThat(countTasks(photoId, ProcessingStage.METADATA)).isEqualTo(0);
+        assertThat(taskStatus(photoId, ProcessingStage.RENDITIONS)).isEqualTo("PENDING");
+
+        // A duplicate's remaining stages are not queued
+        taskService.complete(claimOne(), WORKER, false);
+        assertThat(countTasks(photoId, ProcessingStage.RENDITIONS)).isEqualTo(0);
+        assertThat(countTasks(photoId, ProcessingStage.FINALIZE)).isEqualTo(0);
+    }
+
+    @Test
+    void shouldRunOnlyTheReprocessedStage() {
+        UUID photoId = uploadPhotoWithStatus("COMPLETE");
+        taskService.enqueueReprocessing(photoId, ProcessingStage.RENDITIONS);
+
+        taskService.complete(claimOne(), WORKER, true);
+
+        assertThat(countTasks(photoId, ProcessingStage.RENDITIONS)).isEqualTo(0);
+        assertThat(countTasks(photoId, ProcessingStage.FINALIZE)).isEqualTo(0);
+        assertThat(taskService.countReprocessing()).isEqualTo(0L);
+    }
+
+    @Test
+    void shouldReclaimTaskWhoseLeaseExpired() {
+        UUID photoId = uploadPhotoWithStatus("PROCESSING");
+        taskService.enqueue(photoId, ProcessingStage.METADATA, Duration.ZERO);
+        ProcessingTask stalled = claimOne();
+
+        expireLeases();
+        List<ProcessingTask> reclaimed = taskService.claim(OTHER_WORKER, 10);
+        assertThat(reclaimed).hasSize(1);
+        assertThat(reclaimed.get(0).getId()).isEqualTo(stalled.getId());
+        assertThat(reclaimed.get(0).getAttempts()).isEqualTo(2);
+
+        // The stalled worker can no longer settle the task
+        taskService.complete(stalled, WORKER, true);
+        taskService.fail(stalled, WORKER, new IllegalStateException("Too late"));
+        taskService.defer(stalled, WORKER, Duration.ofMinutes(1), "Too late");
+        assertThat(taskStatus(photoId, ProcessingStage.METADATA)).isEqualTo("RUNNING");
+        assertThat(leaseOwner(photoId, ProcessingStage.METADATA)).isEqualTo(OTHER_WORKER);
+        assertThat(countTasks(photoId, ProcessingStage.RENDITIONS)).isEqualTo(0);
+
+        taskService.complete(reclaimed.get(0), OTHER_WORKER, true);
+        assertThat(taskStatus(photoId, ProcessingStage.RENDITIONS)).isEqualTo("PENDING");
+    }
+
+    @Test
+    void shouldKeepLeaseWhileHeartbeating() {
+        UUID photoId = uploadPhotoWithStatus("PROCESSING");
+        taskService.enqueue(photoId, ProcessingStage.METADATA, Duration.ZERO);
+        ProcessingTask task = claimOne();
+
+        expireLeases();
+        taskService.heartbeat(WORKER, List.of(task.getId()));
+
+        assertThat(taskService.claim(OTHER_WORKER, 10)).isEmpty();
+        assertThat(leaseOwner(photoId, ProcessingStage.METADATA)).isEqualTo(WORKER);
+    }
+
+    @Test
+    void shouldFailPhotoWhoseLeaseExpiresOnFinalAttempt() {
+        UUID photoId = uploadPhotoWithStatus("PROCESSING");
+        taskService.enqueue(photoId, ProcessingStage.METADATA, Duration.ZERO);
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            claimOne();
+            expireLeases();
+        }
+
+        assertThat(taskService.claim(WORKER, 10)).isEmpty();
+        assertThat(taskStatus(photoId, ProcessingStage.METADATA)).isEqualTo("FAILED");
+        assertThat(photoStatus(photoId)).isEqualTo("FAILED");
+    }
+
+    @Test
+    void shouldRetryFailedAttemptsWithCappedBackoff() {
+        UUID photoId = uploadPhotoWithStatus("PROCESSING");
+        taskService.enqueue(photoId, ProcessingStage.METADATA, Duration.ZERO);
+
+        taskService.fail(claimOne(), WORKER, new IllegalStateException("Storage unavailable"));
+        assertThat(taskStatus(photoId, ProcessingStage.METADATA)).isEqualTo("PENDING");
+        assertThat(retryDelaySeconds(photoId)).isBetween(9.0, 11.0);
+        assertThat(taskService.claim(WORKER, 10)).isEmpty();
+
+        makeDue();
+        taskService.fail(claimOne(), WORKER, new IllegalStateException("Storage unavailable"));
+        // 20 seconds, capped at the 15 second maximum
+        assertThat(retryDelaySeconds(photoId)).isBetween(14.0, 16.0);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM processing_tasks WHERE photo_id = ?",
+                String.class, photoId)).isEqualTo("Storage unavailable");
+        assertThat(photoStatus(photoId)).isEqualTo("PROCESSING");
+    }
+
+    @Test
+    void shouldDeferWithoutCountingTheAttempt() {
+        UUID photoId = uploadPhotoWithStatus("PROCESSING");
+        taskService.enqueue(photoId, ProcessingStage.RENDITIONS, Duration.ZERO);
+
+        taskService.defer(claimOne(), WORKER, Duration.ofMinutes(1), "Decode memory exhausted");
+
+        assertThat(taskStatus(photoId, ProcessingStage.RENDITIONS)).isEqualTo("PENDING");
+        assertThat(taskService.claim(WORKER, 10)).isEmpty();
+        makeDue();
+        assertThat(claimOne().getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCancelOnlyTasksThatHaveNotStarted() {
+        UUID running = uploadPhotoWithStatus("PROCESSING");
+        UUID pending = uploadPhotoWithStatus("PROCESSING");
+        taskService.enqueue(running, ProcessingStage.METADATA, Duration.ZERO);
+        claimOne();
+        taskService.enqueue(pending, ProcessingStage.METADATA, Duration.ofMinutes(5));
+
+        taskService.cancel(running);
+        taskService.cancel(pending);
+
+        assertThat(taskStatus(running, ProcessingStage.METADATA)).isEqualTo("RUNNING");
+        assertThat(countTasks(pending, ProcessingStage.METADATA)).isEqualTo(0);
+    }
+
+    @Test
+    void shouldFailPhotoWhenMetadataRunsOutOfAttempts() {
+        UUID photoId = uploadPhotoWithStatus("PROCESSING");
+        taskService.enqueue(photoId, ProcessingStage.METADATA, Duration.ZERO);
+
+        failUntilExhausted();
+
+        assertThat(photoStatus(photoId)).isEqualTo("FAILED");
+        assertThat(taskStatus(photoId, ProcessingStage.METADATA)).isEqualTo("FAILED");
+    }
+
+    @Test
+    void shouldFailPhotoWhenRenditionsRunOutOfAttemptsAfterPreview() {
+        // The EXIF preview already published the photo as THUMBNAIL_READY
+        UUID photoId = uploadPhotoWithStatus("THUMBNAIL_READY");
+        taskService.enqueue(photoId, ProcessingStage.RENDITIONS, Duration.ZERO);
+
+        failUntilExhausted();
+
+        assertThat(photoStatus(photoId)).isEqualTo("FAILED");
+        assertThat(countTasks(photoId, ProcessingStage.FINALIZE)).isEqualTo(0);
+    }
+
+    @Test
+    void shouldFailPhotoWhenRenditionsAreRejected() {
+        UUID photoId = uploadPhotoWithStatus("THUMBNAIL_READY");
+        taskService.enqueue(photoId, ProcessingStage.RENDITIONS, Duration.ZERO);
+
+        ProcessingTask task = claimOne();
+        taskService.reject(task, WORKER, "Image too large to decode");
+
+        assertThat(photoStatus(photoId)).isEqualTo("FAILED");
+        assertThat(taskStatus(photoId, ProcessingStage.RENDITIONS)).isEqualTo("FAILED");
+    }
+
+    @Test
+    void shouldFailPhotoWhenFinalizeRunsOutOfAttemptsBeforeCompleting() {
+        UUID photoId = uploadPhotoWithStatus("THUMBNAIL_READY");
+        taskService.enqueue(photoId, ProcessingStage.FINALIZE, Duration.ZERO);
+
+        failUntilExhausted();
+
+        assertThat(photoStatus(photoId)).isEqualTo("FAILED");
+    }
+
+    @Test
+    void shouldKeepCompletedPhotoWhenTaggingRetriesRunOut() {
+        // FINALIZE recorded its results and completed the photo before tagging failed
+        UUID photoId = uploadPhotoWithStatus("COMPLETE");
+        taskService.enqueue(photoId, ProcessingStage.FINALIZE, Duration.ZERO);
+
+        failUntilExhausted();
+
+        assertThat(photoStatus(photoId)).isEqualTo("COMPLETE");
+        assertThat(taskStatus(photoId, ProcessingStage.FINALIZE)).isEqualTo("FAILED");
+    }
+
+    @Test
+    void shouldKeepPhotoWhenReprocessingFails() {
+        UUID photoId = uploadPhotoWithStatus("COMPLETE");
+        assertThat(taskService.enqueueReprocessing(photoId, ProcessingStage.RENDITIONS)).isTrue();
+
+        ProcessingTask task = claimOne();
+        taskService.reject(task, WORKER, "Image too large to decode");
+
+        assertThat(photoStatus(photoId)).isEqualTo("COMPLETE");
+    }
+
+    // Helper methods
+
+    private ProcessingTask claimOne() {
+        List<ProcessingTask> claimed = taskService.claim(WORKER, 1);
+        assertThat(claimed).hasSize(1);
+        return claimed.get(0);
+    }
+
+    private void failUntilExhausted() {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            makeDue();
+            taskService.fail(claimOne(), WORKER, new IllegalStateException("Attempt " + attempt + " failed"));
+        }
+        makeDue();
+        assertThat(taskService.claim(WORKER, 1)).isEmpty();
+    }
+
+    /**
+     * Make pending tasks due, as if their delay or backoff had passed.
+     */
+    private void makeDue() {
+        jdbcTemplate.update("UPDATE processing_tasks SET available_at = available_at - interval '1 day' WHERE status = 'PENDING'");
+    }
+
+    /**
+     * Expire the leases of running tasks, as if their worker had stalled.
+     */
+    private void expireLeases() {
+        jdbcTemplate.update("UPDATE processing_tasks SET lease_expires_at = lease_expires_at - interval '1 day' WHERE status = 'RUNNING'");
+    }
+
+    private double retryDelaySeconds(UUID photoId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT EXTRACT(EPOCH FROM available_at - updated_at) FROM processing_tasks WHERE photo_id = ?",
+                Double.class, photoId);
+    }
+
+    private String leaseOwner(UUID photoId, ProcessingStage stage) {
+        return jdbcTemplate.queryForObject(
+                "SELECT lease_owner FROM processing_tasks WHERE photo_id = ? AND stage = ?",
+                String.class, photoId, stage.name());
+    }
+
+    private String photoStatus(UUID photoId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM photos WHERE id = ?", String.class, photoId);
+    }
+
+    private String taskStatus(UUID photoId, ProcessingStage stage) {
+        return jdbcTemplate.queryForObject(
+                "SELECT status FROM processing_tasks WHERE photo_id = ? AND stage = ?",
+                String.class, photoId, stage.name());
+    }
+
+    private int countTasks(UUID photoId, ProcessingStage stage) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM processing_tasks WHERE photo_id = ? AND stage = ?",
+                Integer.class, photoId, stage.name());
+    }
+
+    private LoginResponse registerAndLogin() {
+        RegisterRequest registerRequest = new RegisterRequest(
+                "test-" + UUID.randomUUID() + "@example.com", "TestPassword123!", "Test User");
+
+        ResponseEntity<LoginResponse> registerResponse = restTemplate.postForEntity(
+                baseUrl() + "/api/v1/auth/register",
+                registerRequest,
+                LoginResponse.class
+        );
+
+        assertThat(registerResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return registerResponse.getBody();
+    }
+
+    private HttpHeaders createAuthHeaders(LoginResponse login) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(login.getToken());
+        return headers;
+    }
+
+    private UUID uploadPhotoWithStatus(String status) {
+        InitiateUploadRequest request = new InitiateUploadRequest();
+        request.setFilename("photo-" + UUID.randomUUID() + ".jpg");
+        request.setFileSize(1024000L);
+        request.setContentType("image/jpeg");
+
+        ResponseEntity<InitiateUploadResult> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/upload/initiate",
+                HttpMethod.POST,
+                new HttpEntity<>(request, createAuthHeaders(user)),
+                InitiateUploadResult.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        UUID photoId = response.getBody().getPhotoId();
+        jdbcTemplate.update("UPDATE photos SET status = ? WHERE id = ?", status, photoId);
+        return photoId;
+    }
+}
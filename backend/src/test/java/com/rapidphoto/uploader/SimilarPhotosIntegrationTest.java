@@ -0,0 +1,170 @@
+package com.rapidphoto.uploader;
+
+import com.rapidphoto.uploader.api.dto.SimilarPhotoDto;
+import com.rapidphoto.uploader.api.slices.auth.LoginResponse;
+import com.rapidphoto.uploader.api.slices.auth.RegisterRequest;
+import com.rapidphoto.uploader.api.slices.uploadphoto.InitiateUploadRequest;
+import com.rapidphoto.uploader.api.slices.uploadphoto.InitiateUploadResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for finding similar photos by perceptual hash.
+ * Image processing is disabled in tests, so hashes are recorded directly in the database.
+ */
+@Sql(scripts = "/cleanup.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class SimilarPhotosIntegrationTest extends IntegrationTestBase {
+
+    private static final long HASH = 0x0123456789ABCDEFL;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private LoginResponse user;
+
+    @BeforeEach
+    void setUp() {
+        user = registerAndLogin();
+    }
+
+    @Test
+    void shouldReturnSimilarPhotosNearestFirst() {
+        UUID photoId = uploadPhotoWithHash(user, "original.jpg", HASH);
+        UUID threeBitsOff = uploadPhotoWithHash(user, "three-bits-off.jpg", HASH ^ 0x0000010000010001L);
+        UUID oneBitOff = uploadPhotoWithHash(user, "one-bit-off.jpg", HASH ^ 0x8000000000000000L);
+        uploadPhotoWithHash(user, "unrelated.jpg", ~HASH);
+        uploadPhoto(user, "not-hashed.jpg");
+
+        ResponseEntity<SimilarPhotoDto[]> response = findSimilar(user, photoId, "");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        SimilarPhotoDto[] similar = response.getBody();
+        assertThat(ids(similar)).containsExactly(oneBitOff, threeBitsOff);
+        assertThat(similar[0].getDistance()).isEqualTo(1);
+        assertThat(similar[1].getDistance()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldApplyMaxDistanceAndLimit() {
+        UUID photoId = uploadPhotoWithHash(user, "original.jpg", HASH);
+        UUID oneBitOff = uploadPhotoWithHash(user, "one-bit-off.jpg", HASH ^ 0x1L);
+        uploadPhotoWithHash(user, "two-bits-off.jpg", HASH ^ 0x3L);
+        uploadPhotoWithHash(user, "three-bits-off.jpg", HASH ^ 0x7L);
+
+        assertThat(ids(findSimilar(user, photoId, "?maxDistance=2").getBody())).hasSize(2);
+        assertThat(ids(findSimilar(user, photoId, "?limit=1").getBody())).containsExactly(oneBitOff);
+    }
+
+    @Test
+    void shouldNotReturnOtherUsersOrDeletedPhotos() {
+        UUID photoId = uploadPhotoWithHash(user, "original.jpg", HASH);
+        UUID deleted = uploadPhotoWithHash(user, "deleted.jpg", HASH);
+        jdbcTemplate.update("UPDATE photos SET deleted_at = CURRENT_TIMESTAMP WHERE id = ?", deleted);
+        uploadPhotoWithHash(registerAndLogin(), "someone-elses.jpg", HASH);
+
+        ResponseEntity<SimilarPhotoDto[]> response = findSimilar(user, photoId, "");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEmpty();
+    }
+
+    @Test
+    void shouldReturnNothingForPhotoWithoutHash() {
+        UUID photoId = uploadPhoto(user, "not-hashed.jpg");
+        uploadPhotoWithHash(user, "hashed.jpg", HASH);
+
+        ResponseEntity<SimilarPhotoDto[]> response = findSimilar(user, photoId, "");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEmpty();
+    }
+
+    @Test
+    void shouldForbidSimilarPhotosOfAnotherUsersPhoto() {
+        UUID photoId = uploadPhotoWithHash(registerAndLogin(), "not-mine.jpg", HASH);
+
+        ResponseEntity<SimilarPhotoDto[]> response = findSimilar(user, photoId, "");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownPhoto() {
+        ResponseEntity<SimilarPhotoDto[]> response = findSimilar(user, UUID.randomUUID(), "");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    // Helper methods
+
+    private LoginResponse registerAndLogin() {
+        RegisterRequest registerRequest = new RegisterRequest(
+                "test-" + UUID.randomUUID() + "@example.com", "TestPassword123!", "Test User");
+
+        ResponseEntity<LoginResponse> registerResponse = restTemplate.postForEntity(
+                baseUrl() + "/api/v1/auth/register",
+                registerRequest,
+                LoginResponse.class
+        );
+
+        assertThat(registerResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return registerResponse.getBody();
+    }
+
+    private HttpHeaders createAuthHeaders(LoginResponse login) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(login.getToken());
+        return headers;
+    }
+
+    private UUID uploadPhoto(LoginResponse login, String filename) {
+        InitiateUploadRequest request = new InitiateUploadRequest();
+        request.setFilename(filename);
+        request.setFileSize(1024000L);
+        request.setContentType("image/jpeg");
+
+        ResponseEntity<InitiateUploadResult> response = restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/upload/initiate",
+                HttpMethod.POST,
+                new HttpEntity<>(request, createAuthHeaders(login)),
+                InitiateUploadResult.class
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody().getPhotoId();
+    }
+
+    private UUID uploadPhotoWithHash(LoginResponse login, String filename, long perceptualHash) {
+        UUID photoId = uploadPhoto(login, filename);
+        jdbcTemplate.update("UPDATE photos SET perceptual_hash = ? WHERE id = ?", perceptualHash, photoId);
+        return photoId;
+    }
+
+    private ResponseEntity<SimilarPhotoDto[]> findSimilar(LoginResponse login, UUID photoId, String query) {
+        return restTemplate.exchange(
+                baseUrl() + "/api/v1/photos/" + photoId + "/similar" + query,
+                HttpMethod.GET,
+                new HttpEntity<>(createAuthHeaders(login)),
+                SimilarPhotoDto[].class
+        );
+    }
+
+    private static List<UUID> ids(SimilarPhotoDto[] similar) {
+        return Arrays.stream(similar).map(match -> match.getPhoto().getId()).toList();
+    }
+}
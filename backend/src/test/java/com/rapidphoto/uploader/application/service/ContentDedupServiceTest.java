@@ -0,0 +1,337 @@
+package com.rapidphoto.uploader.application.service;
+
+import com.rapidphoto.uploader.domain.ContentObject;
+import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.PhotoRendition;
+import com.rapidphoto.uploader.infrastructure.repository.ContentObjectRepository;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRenditionRepository;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import com.rapidphoto.uploader.infrastructure.storage.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for content deduplication and its reference counts.
+ * Repository mocks answer from in-memory stores holding entities the way a persistence
+ * context would, so changes the service makes to loaded entities are what gets "stored".
+ * Tests: new content -> duplicates of processed, processing and failed content -> release
+ */
+class ContentDedupServiceTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final String HASH = "47DEQpj8HBSa+/TImW+5JCeuQeRkm5NMpJWZG3hSuFU=";
+
+    private InMemoryPhotos photos;
+    private InMemoryContent content;
+    private InMemoryRenditions renditions;
+    private StorageService storageService;
+    private ContentDedupService service;
+
+    @BeforeEach
+    void setUp() {
+        photos = new InMemoryPhotos();
+        content = new InMemoryContent();
+        renditions = new InMemoryRenditions();
+
+        PhotoRepository photoRepository = mock(PhotoRepository.class);
+        when(photoRepository.findById(any())).thenAnswer(call -> photos.findById(call.getArgument(0)));
+        when(photoRepository.save(any(Photo.class))).thenAnswer(call -> photos.save(call.getArgument(0)));
+        when(photoRepository.findFirstByStorageKeyAndIdNot(any(), any()))
+                .thenAnswer(call -> photos.findFirstByStorageKeyAndIdNot(call.getArgument(0), call.getArgument(1)));
+
+        ContentObjectRepository contentObjectRepository = mock(ContentObjectRepository.class);
+        when(contentObjectRepository.insertIfAbsent(any(), any(), any(), any(), any()))
+                .thenAnswer(call -> content.insertIfAbsent(call.getArgument(0), call.getArgument(1),
+                        call.getArgument(2), call.getArgument(3), call.getArgument(4)));
+        when(contentObjectRepository.findByUserIdAndContentHash(any(), any()))
+                .thenAnswer(call -> content.findByUserIdAndContentHash(call.getArgument(0), call.getArgument(1)));
+        when(contentObjectRepository.findByStorageKey(any()))
+                .thenAnswer(call -> content.findByStorageKey(call.getArgument(0)));
+        doAnswer(call -> content.objects.remove(call.<ContentObject>getArgument(0)))
+                .when(contentObjectRepository).delete(any(ContentObject.class));
+
+        PhotoRenditionRepository renditionRepository = mock(PhotoRenditionRepository.class);
+        when(renditionRepository.findByPhotoId(any()))
+                .thenAnswer(call -> renditions.findByPhotoId(call.getArgument(0)));
+        when(renditionRepository.findByPhotoIdAndName(any(), any()))
+                .thenAnswer(call -> renditions.findByPhotoIdAndName(call.getArgument(0), call.getArgument(1)));
+        when(renditionRepository.save(any(PhotoRendition.class)))
+                .thenAnswer(call -> renditions.save(call.getArgument(0)));
+
+        storageService = mock(StorageService.class);
+        service = new ContentDedupService(contentObjectRepository, photoRepository, renditionRepository, storageService);
+    }
+
+    @Test
+    void shouldRegisterNewContentAsCanonical() {
+        Photo photo = photos.add("a.jpg", HASH, Photo.PhotoStatus.PROCESSING);
+
+        assertThat(service.deduplicate(photo.getId())).isFalse();
+
+        ContentObject object = content.only();
+        assertThat(object.getCanonicalPhotoId()).isEqualTo(photo.getId());
+        assertThat(object.getStorageKey()).isEqualTo("a.jpg");
+        assertThat(object.getRefCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldSkipPhotosWithoutContentHash() {
+        Photo photo = photos.add("a.jpg", null, Photo.PhotoStatus.PROCESSING);
+
+        assertThat(service.deduplicate(photo.getId())).isFalse();
+        assertThat(content.objects).isEmpty();
+    }
+
+    @Test
+    void shouldReuseProcessedCanonicalForDuplicate() {
+        Photo canonical = processedCanonical("a.jpg");
+        renditions.add(canonical.getId(), "thumb", "a_thumb.jpg");
+        renditions.add(canonical.getId(), "large", "a_large.jpg");
+        Photo duplicate = photos.add("b.jpg", HASH, Photo.PhotoStatus.PROCESSING);
+        renditions.add(duplicate.getId(), "thumb", "b_preview.jpg").setProvisional(true);
+
+        assertThat(service.deduplicate(duplicate.getId())).isTrue();
+
+        assertThat(content.only().getRefCount()).isEqualTo(2);
+        assertThat(content.only().getCanonicalPhotoId()).isEqualTo(canonical.getId());
+        assertThat(duplicate.getStorageKey()).isEqualTo("a.jpg");
+        assertThat(duplicate.getStatus()).isEqualTo(Photo.PhotoStatus.COMPLETE);
+        assertThat(renditions.keysOf(duplicate.getId())).containsExactlyInAnyOrder("a_thumb.jpg", "a_large.jpg");
+        verify(storageService).deleteFile("b.jpg");
+        verify(storageService).deleteFile("b_preview.jpg");
+        verifyNoMoreInteractions(storageService);
+    }
+
+    @Test
+    void shouldNotCountDuplicateTwiceWhenReprocessed() {
+        processedCanonical("a.jpg");
+        Photo duplicate = photos.add("b.jpg", HASH, Photo.PhotoStatus.PROCESSING);
+        service.deduplicate(duplicate.getId());
+
+        assertThat(service.deduplicate(duplicate.getId())).isTrue();
+
+        assertThat(content.only().getRefCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCountCanonicalTwiceWhenReprocessed() {
+        Photo canonical = processedCanonical("a.jpg");
+
+        assertThat(service.deduplicate(canonical.getId())).isFalse();
+
+        assertThat(content.only().getRefCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDeferDuplicateWhileCanonicalIsProcessing() {
+        Photo canonical = photos.add("a.jpg", HASH, Photo.PhotoStatus.PROCESSING);
+        service.deduplicate(canonical.getId());
+        Photo duplicate = photos.add("b.jpg", HASH, Photo.PhotoStatus.PROCESSING);
+
+        assertThatThrownBy(() -> service.deduplicate(duplicate.getId()))
+                .isInstanceOf(ProcessingDeferredException.class);
+
+        assertThat(content.only().getRefCount()).isEqualTo(1);
+        assertThat(duplicate.getStorageKey()).isEqualTo("b.jpg");
+        verifyNoInteractions(storageService);
+    }
+
+    @Test
+    void shouldReplaceFailedCanonicalNobodyShares() {
+        Photo canonical = photos.add("a.jpg", HASH, Photo.PhotoStatus.PROCESSING);
+        service.deduplicate(canonical.getId());
+        canonical.setStatus(Photo.PhotoStatus.FAILED);
+        Photo duplicate = photos.add("b.jpg", HASH, Photo.PhotoStatus.PROCESSING);
+
+        assertThat(service.deduplicate(duplicate.getId())).isFalse();
+
+        ContentObject object = content.only();
+        assertThat(object.getCanonicalPhotoId()).isEqualTo(duplicate.getId());
+        assertThat(object.getStorageKey()).isEqualTo("b.jpg");
+        assertThat(object.getRefCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldProcessCopyOnItsOwnWhenFailedCanonicalIsShared() {
+        Photo canonical = processedCanonical("a.jpg");
+        service.deduplicate(photos.add("b.jpg", HASH, Photo.PhotoStatus.PROCESSING).getId());
+        canonical.setStatus(Photo.PhotoStatus.FAILED);
+        Photo third = photos.add("c.jpg", HASH, Photo.PhotoStatus.PROCESSING);
+
+        assertThat(service.deduplicate(third.getId())).isFalse();
+
+        ContentObject object = content.only();
+        assertThat(object.getCanonicalPhotoId()).isEqualTo(canonical.getId());
+        assertThat(object.getRefCount()).isEqualTo(2);
+        assertThat(third.getStorageKey()).isEqualTo("c.jpg");
+    }
+
+    @Test
+    void shouldKeepSharedContentUntilLastReferenceIsReleased() {
+        Photo canonical = processedCanonical("a.jpg");
+        Photo duplicate = photos.add("b.jpg", HASH, Photo.PhotoStatus.PROCESSING);
+        service.deduplicate(duplicate.getId());
+
+        assertThat(service.release(duplicate)).isFalse();
+        assertThat(content.only().getRefCount()).isEqualTo(1);
+        assertThat(content.only().getCanonicalPhotoId()).isEqualTo(canonical.getId());
+
+        assertThat(service.release(canonical)).isTrue();
+        assertThat(content.objects).isEmpty();
+    }
+
+    @Test
+    void shouldHandCanonicalRoleOverWhenCanonicalIsReleased() {
+        Photo canonical = processedCanonical("a.jpg");
+        Photo duplicate = photos.add("b.jpg", HASH, Photo.PhotoStatus.PROCESSING);
+        service.deduplicate(duplicate.getId());
+        photos.remove(canonical);
+
+        assertThat(service.release(canonical)).isFalse();
+
+        assertThat(content.only().getRefCount()).isEqualTo(1);
+        assertThat(content.only().getCanonicalPhotoId()).isEqualTo(duplicate.getId());
+    }
+
+    @Test
+    void shouldReleaseObjectsOfPhotosWithoutContentEntry() {
+        Photo photo = photos.add("a.jpg", null, Photo.PhotoStatus.COMPLETE);
+
+        assertThat(service.release(photo)).isTrue();
+    }
+
+    private Photo processedCanonical(String storageKey) {
+        Photo canonical = photos.add(storageKey, HASH, Photo.PhotoStatus.PROCESSING);
+        service.deduplicate(canonical.getId());
+        canonical.setStatus(Photo.PhotoStatus.COMPLETE);
+        return canonical;
+    }
+
+    private static class InMemoryPhotos {
+        final Map<UUID, Photo> photos = new LinkedHashMap<>();
+
+        Photo add(String storageKey, String contentHash, Photo.PhotoStatus status) {
+            Photo photo = Photo.builder()
+                    .id(UUID.randomUUID())
+                    .userId(USER_ID)
+                    .filename(storageKey)
+                    .storageKey(storageKey)
+                    .fileSize(1024L)
+                    .contentHash(contentHash)
+                    .status(status)
+                    .build();
+            photos.put(photo.getId(), photo);
+            return photo;
+        }
+
+        void remove(Photo photo) {
+            photos.remove(photo.getId());
+        }
+
+        Optional<Photo> findById(UUID id) {
+            return Optional.ofNullable(photos.get(id));
+        }
+
+        Photo save(Photo photo) {
+            photos.put(photo.getId(), photo);
+            return photo;
+        }
+
+        Optional<Photo> findFirstByStorageKeyAndIdNot(String storageKey, UUID excludedId) {
+            return photos.values().stream()
+                    .filter(photo -> photo.getStorageKey().equals(storageKey) && !photo.getId().equals(excludedId))
+                    .findFirst();
+        }
+    }
+
+    private static class InMemoryContent {
+        final List<ContentObject> objects = new ArrayList<>();
+
+        ContentObject only() {
+            assertThat(objects).hasSize(1);
+            return objects.get(0);
+        }
+
+        int insertIfAbsent(UUID userId, String contentHash, String storageKey, UUID photoId, Instant now) {
+            if (findByUserIdAndContentHash(userId, contentHash).isPresent()) {
+                return 0;
+            }
+            objects.add(ContentObject.builder()
+                    .id(UUID.randomUUID())
+                    .userId(userId)
+                    .contentHash(contentHash)
+                    .storageKey(storageKey)
+                    .canonicalPhotoId(photoId)
+                    .refCount(1)
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+            return 1;
+        }
+
+        Optional<ContentObject> findByUserIdAndContentHash(UUID userId, String contentHash) {
+            return objects.stream()
+                    .filter(object -> object.getUserId().equals(userId) && object.getContentHash().equals(contentHash))
+                    .findFirst();
+        }
+
+        Optional<ContentObject> findByStorageKey(String storageKey) {
+            return objects.stream().filter(object -> object.getStorageKey().equals(storageKey)).findFirst();
+        }
+    }
+
+    private static class InMemoryRenditions {
+        final List<PhotoRendition> renditions = new ArrayList<>();
+
+        PhotoRendition add(UUID photoId, String name, String storageKey) {
+            return save(PhotoRendition.builder()
+                    .photoId(photoId)
+                    .name(name)
+                    .storageKey(storageKey)
+                    .width(300)
+                    .height(200)
+                    .fileSize(2048L)
+                    .contentType("image/jpeg")
+                    .build());
+        }
+
+        List<String> keysOf(UUID photoId) {
+            return findByPhotoId(photoId).stream().map(PhotoRendition::getStorageKey).toList();
+        }
+
+        List<PhotoRendition> findByPhotoId(UUID photoId) {
+            return renditions.stream().filter(rendition -> rendition.getPhotoId().equals(photoId)).toList();
+        }
+
+        Optional<PhotoRendition> findByPhotoIdAndName(UUID photoId, String name) {
+            return renditions.stream()
+                    .filter(rendition -> rendition.getPhotoId().equals(photoId) && rendition.getName().equals(name))
+                    .findFirst();
+        }
+
+        PhotoRendition save(PhotoRendition rendition) {
+            if (renditions.stream().noneMatch(existing -> existing == rendition)) {
+                renditions.add(rendition);
+            }
+            return rendition;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.rapidphoto.uploader.application.service;
+
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import com.rapidphoto.uploader.infrastructure.config.ImageTaggingProperties;
+import com.rapidphoto.uploader.infrastructure.image.ParallelResizer;
+import com.rapidphoto.uploader.infrastructure.processing.PriorityTaskExecutor;
+import com.rapidphoto.uploader.infrastructure.tagging.ImageTagger;
+import com.rapidphoto.uploader.infrastructure.tagging.LocalImageTagger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for batched, cached tagging with the local stand-in tagger.
+ * Tests: scaling -> size and deadline dispatch -> cache and shared in-flight calls -> rejection, timeout, failure
+ */
+class ImageTaggingServiceTest {
+
+    private static final Set<String> RED_SQUARE_TAGS = Set.of("square", "bright", "colorful", "red");
+
+    private ImageTaggingProperties properties;
+    private RecordingTagger tagger;
+    private ExecutorService ioExecutor;
+    private PriorityTaskExecutor cpuExecutor;
+    private ParallelResizer resizer;
+    private ImageTaggingService service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ImageTaggingProperties();
+        properties.setEnabled(true);
+        properties.setBatchSize(4);
+        properties.setMaxBatchDelay(Duration.ofSeconds(10));
+        properties.setMaxConcurrentBatches(1);
+        properties.setTimeout(Duration.ofSeconds(10));
+        tagger = new RecordingTagger();
+        ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        cpuExecutor = new PriorityTaskExecutor("tagging-test-", 2, 100);
+        resizer = new ParallelResizer(new ImageProcessingProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        tagger.release();
+        if (service != null) {
+            service.stop();
+        }
+        ioExecutor.shutdownNow();
+        cpuExecutor.shutdown();
+        resizer.shutdown();
+    }
+
+    @Test
+    void shouldTagImagesScaledToInputSize() throws Exception {
+        properties.setBatchSize(1);
+        service = newService();
+
+        Set<String> tags = service.generateTags("red", solid(1000, 1000, Color.RED)).get(5, TimeUnit.SECONDS);
+
+        assertThat(tags).isEqualTo(RED_SQUARE_TAGS);
+        BufferedImage input = tagger.batches.get(0).get(0);
+        assertThat(input.getWidth()).isEqualTo(properties.getInputSize());
+        assertThat(input.getHeight()).isEqualTo(properties.getInputSize());
+    }
+
+    @Test
+    void shouldSendBatchOnceItIsFull() throws Exception {
+        service = newService();
+
+        // The batch delay is far longer than the test waits, so only a full batch is sent
+        List<CompletableFuture<Set<String>>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(service.generateTags("hash-" + i, solid(40, 20, Color.BLUE)));
+        }
+        for (CompletableFuture<Set<String>> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).contains("landscape", "blue");
+        }
+
+        assertThat(tagger.batchSizes()).containsExactly(4);
+    }
+
+    @Test
+    void shouldSendPartialBatchAfterDelay() throws Exception {
+        properties.setBatchSize(16);
+        properties.setMaxBatchDelay(Duration.ofMillis(200));
+        service = newService();
+
+        CompletableFuture<Set<String>> first = service.generateTags("first", solid(20, 40, Color.GREEN));
+        CompletableFuture<Set<String>> second = service.generateTags("second", solid(20, 40, Color.GREEN));
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).contains("portrait", "green");
+        assertThat(second.get(5, TimeUnit.SECONDS)).contains("portrait", "green");
+        assertThat(tagger.batchSizes()).containsExactly(2);
+    }
+
+    @Test
+    void shouldServeRepeatedContentFromCache() throws Exception {
+        properties.setBatchSize(1);
+        service = newService();
+        Set<String> tags = service.generateTags("same", solid(30, 30, Color.RED)).get(5, TimeUnit.SECONDS);
+
+        // Same content hash: the cached tags are returned without tagging the image again
+        CompletableFuture<Set<String>> repeated = service.generateTags("same", solid(30, 30, Color.BLACK));
+
+        assertThat(repeated.isDone()).isTrue();
+        assertThat(repeated.get()).isEqualTo(tags);
+        assertThat(tagger.batchSizes()).containsExactly(1);
+    }
+
+    @Test
+    void shouldShareInFlightTaggingOfSameContent() throws Exception {
+        properties.setBatchSize(1);
+        properties.setMaxConcurrentBatches(2);
+        service = newService();
+        tagger.block();
+
+        CompletableFuture<Set<String>> first = service.generateTags("same", solid(30, 30, Color.RED));
+        tagger.awaitEntered();
+        CompletableFuture<Set<String>> second = service.generateTags("same", solid(30, 30, Color.RED));
+        tagger.release();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(RED_SQUARE_TAGS);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(RED_SQUARE_TAGS);
+        assertThat(tagger.batchSizes()).containsExactly(1);
+    }
+
+    @Test
+    void shouldRejectImagesWhileQueueIsFull() throws Exception {
+        properties.setBatchSize(1);
+        service = newService();
+        tagger.block();
+        CompletableFuture<Set<String>> running = service.generateTags("running", solid(10, 10, Color.RED));
+        tagger.awaitEntered();
+
+        // One batch runs and the dispatcher may hold one more, so at most 4 more fit the queue
+        List<CompletableFuture<Set<String>>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(service.generateTags("queued-" + i, solid(10, 10, Color.RED)));
+        }
+        List<CompletableFuture<Set<String>>> rejected = results.stream()
+                .filter(CompletableFuture::isCompletedExceptionally)
+                .toList();
+        assertThat(rejected.size()).isBetween(5, 6);
+        assertThatThrownBy(() -> rejected.get(0).get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+
+        tagger.release();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo(RED_SQUARE_TAGS);
+        for (CompletableFuture<Set<String>> result : results) {
+            if (!rejected.contains(result)) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(RED_SQUARE_TAGS);
+            }
+        }
+    }
+
+    @Test
+    void shouldTimeOutWithoutAbandoningTheTaggingCall() throws Exception {
+        properties.setBatchSize(1);
+        properties.setTimeout(Duration.ofMillis(200));
+        service = newService();
+        tagger.block();
+
+        CompletableFuture<Set<String>> late = service.generateTags("slow", solid(10, 10, Color.RED));
+
+        assertThatThrownBy(() -> late.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+
+        // The call itself still finishes and its result is cached for the next request
+        tagger.release();
+        CompletableFuture<Set<String>> retried = service.generateTags("slow", solid(10, 10, Color.RED));
+        assertThat(retried.get(5, TimeUnit.SECONDS)).isEqualTo(RED_SQUARE_TAGS);
+        assertThat(tagger.batchSizes()).containsExactly(1);
+    }
+
+    @Test
+    void shouldNotCacheFailedBatches() throws Exception {
+        properties.setBatchSize(1);
+        service = newService();
+        tagger.failNext = true;
+
+        CompletableFuture<Set<String>> failed = service.generateTags("flaky", solid(10, 10, Color.RED));
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+
+        CompletableFuture<Set<String>> retried = service.generateTags("flaky", solid(10, 10, Color.RED));
+        assertThat(retried.get(5, TimeUnit.SECONDS)).isEqualTo(RED_SQUARE_TAGS);
+        assertThat(tagger.batchSizes()).containsExactly(1, 1);
+    }
+
+    private ImageTaggingService newService() {
+        return new ImageTaggingService(tagger, properties, ioExecutor, cpuExecutor, resizer);
+    }
+
+    private static BufferedImage solid(int width, int height, Color color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Local tagger that records its batches and can be held inside a call or made to fail.
+     */
+    private static class RecordingTagger implements ImageTagger {
+
+        private final LocalImageTagger delegate = new LocalImageTagger();
+        private final List<List<BufferedImage>> batches = new CopyOnWriteArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile boolean failNext;
+
+        @Override
+        public List<Set<String>> tag(List<BufferedImage> images) {
+            batches.add(List.copyOf(images));
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("Tagging service unavailable");
+            }
+            return delegate.tag(images);
+        }
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        void awaitEntered() throws InterruptedException {
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        List<Integer> batchSizes() {
+            return batches.stream().map(List::size).toList();
+        }
+    }
+}
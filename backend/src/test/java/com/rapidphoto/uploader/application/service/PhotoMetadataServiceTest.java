@@ -0,0 +1,224 @@
+package com.rapidphoto.uploader.application.service;
+
+import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.PhotoRendition;
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import com.rapidphoto.uploader.infrastructure.image.ExifMetadataReader;
+import com.rapidphoto.uploader.infrastructure.image.ImageCodec;
+import com.rapidphoto.uploader.infrastructure.processing.DecodeMemoryGovernor;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import com.rapidphoto.uploader.infrastructure.storage.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for extracting metadata from ranged reads of the original.
+ * The fixture is a 64x48 JPEG from a "Canon EOS R5" taken 2024-07-14 09:30:15; comment
+ * segments inserted after its EXIF push the frame header past the first reads.
+ * Tests: single read -> growing reads -> read limit -> stored values -> values kept -> preview -> deleted photo
+ */
+class PhotoMetadataServiceTest {
+
+    private static final String KEY = "user/2026/10/16/photo.jpg";
+    private static final long KB = 1024;
+
+    private StorageService storageService;
+    private PhotoRepository photoRepository;
+    private RenditionService renditionService;
+    private PhotoMetadataService service;
+
+    private Photo photo;
+    private byte[] original;
+    private List<Long> readSizes;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storageService = mock(StorageService.class);
+        photoRepository = mock(PhotoRepository.class);
+        renditionService = mock(RenditionService.class);
+        ExifMetadataReader metadataReader = new ExifMetadataReader(
+                new ImageCodec(mock(DecodeMemoryGovernor.class), null));
+        service = new PhotoMetadataService(storageService, photoRepository, metadataReader, renditionService,
+                new ImageProcessingProperties(), new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+        photo = Photo.builder()
+                .id(UUID.randomUUID())
+                .storageKey(KEY)
+                .status(Photo.PhotoStatus.PROCESSING)
+                .build();
+        when(photoRepository.findById(photo.getId())).thenReturn(Optional.of(photo));
+
+        original = exifSample();
+        readSizes = new ArrayList<>();
+        when(storageService.downloadRange(eq(KEY), eq(0L), anyLong())).thenAnswer(call -> {
+            long length = call.getArgument(2);
+            readSizes.add(length);
+            return new ByteArrayInputStream(Arrays.copyOf(original, (int) Math.min(length, original.length)));
+        });
+    }
+
+    @Test
+    void shouldReadSmallFileInOneRequest() throws IOException {
+        service.extract(photo.getId());
+
+        assertThat(readSizes).containsExactly(64 * KB);
+        assertThat(photo.getWidth()).isEqualTo(64);
+        assertThat(photo.getHeight()).isEqualTo(48);
+    }
+
+    @Test
+    void shouldDoubleReadUntilHeaderFits() throws IOException {
+        original = padded(exifSample(), 100 * KB);
+
+        service.extract(photo.getId());
+
+        assertThat(readSizes).containsExactly(64 * KB, 128 * KB);
+        assertThat(photo.getWidth()).isEqualTo(64);
+        assertThat(photo.getCameraModel()).isEqualTo("Canon EOS R5");
+    }
+
+    @Test
+    void shouldGrowReadUpToLimitAndKeepWhatItRead() throws IOException {
+        original = padded(exifSample(), 200 * KB);
+
+        service.extract(photo.getId());
+
+        assertThat(readSizes).containsExactly(64 * KB, 128 * KB, 256 * KB);
+        assertThat(photo.getWidth()).isEqualTo(64);
+    }
+
+    @Test
+    void shouldStopAtReadLimitWhenHeaderIsLonger() throws IOException {
+        original = padded(exifSample(), 300 * KB);
+
+        service.extract(photo.getId());
+
+        assertThat(readSizes).containsExactly(64 * KB, 128 * KB, 256 * KB);
+        assertThat(photo.getWidth()).isNull();
+        assertThat(photo.getMetadataExtractedAt()).isNotNull();
+    }
+
+    @Test
+    void shouldStoreCaptureTimeAndCamera() throws IOException {
+        Instant before = Instant.now();
+
+        service.extract(photo.getId());
+
+        assertThat(photo.getCapturedAt()).isEqualTo(Instant.parse("2024-07-14T09:30:15Z"));
+        assertThat(photo.getCameraMake()).isEqualTo("Canon");
+        assertThat(photo.getCameraModel()).isEqualTo("Canon EOS R5");
+        assertThat(photo.getOrientation()).isEqualTo(1);
+        assertThat(photo.getLatitude()).isNotNull();
+        assertThat(photo.getExif()).containsKey("Exif SubIFD");
+        assertThat(photo.getMetadataExtractedAt()).isBetween(before, Instant.now());
+        assertThat(photo.getStatus()).isEqualTo(Photo.PhotoStatus.PROCESSING);
+    }
+
+    @Test
+    void shouldKeepEarlierValuesMissingFromHeader() throws IOException {
+        // A recompressed original has lost the uploaded file's EXIF
+        ByteArrayOutputStream recompressed = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB), "jpeg", recompressed);
+        original = recompressed.toByteArray();
+        Instant captured = Instant.parse("2024-07-14T09:30:15Z");
+        Map<String, Map<String, String>> exif = Map.of("Exif IFD0", Map.of("Model", "Canon EOS R5"));
+        photo.setWidth(64);
+        photo.setOrientation(6);
+        photo.setCapturedAt(captured);
+        photo.setCameraMake("Canon");
+        photo.setCameraModel("Canon EOS R5");
+        photo.setLatitude(48.8583);
+        photo.setLongitude(2.2944);
+        photo.setExif(exif);
+
+        service.extract(photo.getId());
+
+        assertThat(photo.getWidth()).isEqualTo(32);
+        assertThat(photo.getHeight()).isEqualTo(24);
+        assertThat(photo.getOrientation()).isEqualTo(6);
+        assertThat(photo.getCapturedAt()).isEqualTo(captured);
+        assertThat(photo.getCameraMake()).isEqualTo("Canon");
+        assertThat(photo.getCameraModel()).isEqualTo("Canon EOS R5");
+        assertThat(photo.getLatitude()).isEqualTo(48.8583);
+        assertThat(photo.getLongitude()).isEqualTo(2.2944);
+    }
+
+    @Test
+    void shouldMarkThumbnailReadyWhenPreviewIsPublished() throws IOException {
+        when(renditionService.publishPreview(any(), any(), any()))
+                .thenReturn(Optional.of(PhotoRendition.builder().photoId(photo.getId()).name("thumb").build()));
+
+        service.extract(photo.getId());
+
+        assertThat(photo.getStatus()).isEqualTo(Photo.PhotoStatus.THUMBNAIL_READY);
+    }
+
+    @Test
+    void shouldKeepMetadataWhenPreviewFails() throws IOException {
+        when(renditionService.publishPreview(any(), any(), any())).thenThrow(new IOException("Storage unavailable"));
+
+        service.extract(photo.getId());
+
+        assertThat(photo.getCameraModel()).isEqualTo("Canon EOS R5");
+        assertThat(photo.getStatus()).isEqualTo(Photo.PhotoStatus.PROCESSING);
+    }
+
+    @Test
+    void shouldDropDeletedPhoto() {
+        UUID deleted = UUID.randomUUID();
+
+        assertThatThrownBy(() -> service.extract(deleted)).isInstanceOf(PhotoDeletedException.class);
+        verifyNoInteractions(storageService);
+    }
+
+    /**
+     * Insert comment segments after the EXIF segment, so the frame header starts past {@code padding} bytes.
+     */
+    private static byte[] padded(byte[] jpeg, long padding) {
+        int afterExif = 4 + (((jpeg[4] & 0xFF) << 8) | (jpeg[5] & 0xFF));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        output.write(jpeg, 0, afterExif);
+        for (long remaining = padding; remaining > 0; ) {
+            int payload = (int) Math.min(remaining, 0xFFFF - 2);
+            output.write(0xFF);
+            output.write(0xFE);
+            output.write((payload + 2) >> 8);
+            output.write((payload + 2) & 0xFF);
+            output.writeBytes(new byte[payload]);
+            remaining -= payload + 4;
+        }
+        output.write(jpeg, afterExif, jpeg.length - afterExif);
+        return output.toByteArray();
+    }
+
+    private static byte[] exifSample() throws IOException {
+        try (InputStream input = PhotoMetadataServiceTest.class.getResourceAsStream("/images/exif-sample.jpg")) {
+            return input.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.rapidphoto.uploader.application.service;
+
+import com.rapidphoto.uploader.domain.Photo;
+import com.rapidphoto.uploader.domain.ProcessingStage;
+import com.rapidphoto.uploader.domain.UploadJob;
+import com.rapidphoto.uploader.infrastructure.config.UploadVerificationProperties;
+import com.rapidphoto.uploader.infrastructure.repository.PhotoRepository;
+import com.rapidphoto.uploader.infrastructure.repository.UploadJobRepository;
+import com.rapidphoto.uploader.infrastructure.storage.StorageService;
+import com.rapidphoto.uploader.infrastructure.storage.StoredObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for verifying completed uploads against what the client declared.
+ * Tests: match -> size and checksum mismatches -> multipart uploads -> missing objects -> recording failures
+ */
+class UploadVerificationServiceTest {
+
+    private static final String KEY = "user/2026/10/16/photo.jpg";
+    private static final long SIZE = 1024;
+    private static final String CHECKSUM = "n4bQgYhMfWWaL+qgxVrQFaO/TxsrC4Is0V1sFbDwCgg=";
+    private static final long WAIT_MILLIS = 5000;
+
+    private StorageService storageService;
+    private PhotoRepository photoRepository;
+    private UploadJobRepository uploadJobRepository;
+    private ProcessingTaskService processingTaskService;
+    private PlatformTransactionManager transactionManager;
+    private UploadVerificationService service;
+
+    private UploadJob job;
+    private Photo photo;
+
+    @BeforeEach
+    void setUp() {
+        storageService = mock(StorageService.class);
+        photoRepository = mock(PhotoRepository.class);
+        uploadJobRepository = mock(UploadJobRepository.class);
+        processingTaskService = mock(ProcessingTaskService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+
+        UploadVerificationProperties properties = new UploadVerificationProperties();
+        properties.setBaseDelay(Duration.ofMillis(1));
+        properties.setMaxDelay(Duration.ofMillis(5));
+        properties.setMaxAttempts(3);
+        service = new UploadVerificationService(storageService, photoRepository, uploadJobRepository,
+                processingTaskService, properties, new TransactionTemplate(transactionManager));
+
+        job = UploadJob.builder().id(UUID.randomUUID()).status(UploadJob.UploadStatus.COMPLETE).build();
+        photo = Photo.builder()
+                .id(UUID.randomUUID())
+                .storageKey(KEY)
+                .fileSize(SIZE)
+                .declaredChecksum(CHECKSUM)
+                .status(Photo.PhotoStatus.PROCESSING)
+                .build();
+        when(uploadJobRepository.findById(job.getId())).thenReturn(Optional.of(job));
+        when(photoRepository.findById(photo.getId())).thenReturn(Optional.of(photo));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void shouldReleaseProcessingWhenUploadMatches() {
+        stored(SIZE, "\"etag\"", CHECKSUM);
+
+        service.verifyThenProcess(job, photo);
+
+        verify(processingTaskService, timeout(WAIT_MILLIS)).release(photo.getId(), ProcessingStage.first());
+        verify(photoRepository).updateContentHash(photo.getId(), CHECKSUM);
+        verify(processingTaskService, never()).cancel(any());
+        assertThat(photo.getStatus()).isEqualTo(Photo.PhotoStatus.PROCESSING);
+    }
+
+    @Test
+    void shouldFailOnSizeMismatch() {
+        stored(SIZE - 1, "\"etag\"", CHECKSUM);
+
+        service.verifyThenProcess(job, photo);
+
+        assertFailed("Uploaded file size 1023 does not match declared size 1024");
+    }
+
+    @Test
+    void shouldFailOnChecksumMismatch() {
+        stored(SIZE, "\"etag\"", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+
+        service.verifyThenProcess(job, photo);
+
+        assertFailed("Uploaded file checksum does not match declared checksum");
+    }
+
+    @Test
+    void shouldFailSingleRequestUploadWithoutStoredChecksum() {
+        stored(SIZE, "\"etag\"", null);
+
+        service.verifyThenProcess(job, photo);
+
+        assertFailed("Uploaded file has no stored checksum to verify the declared checksum against");
+    }
+
+    @Test
+    void shouldSkipChecksumOfMultipartUploads() {
+        // Multipart uploads have a part count in their ETag and at most a composite checksum
+        stored(SIZE, "\"9b2cf535f27731c974343645a3985328-4\"", null);
+
+        service.verifyThenProcess(job, photo);
+
+        verify(processingTaskService, timeout(WAIT_MILLIS)).release(photo.getId(), ProcessingStage.first());
+        verify(photoRepository, never()).updateContentHash(any(), anyString());
+        verify(processingTaskService, never()).cancel(any());
+    }
+
+    @Test
+    void shouldSkipCompositeChecksumOfMultipartUploads() {
+        stored(SIZE, "\"9b2cf535f27731c974343645a3985328-4\"", "Zm9vYmFy-4");
+
+        service.verifyThenProcess(job, photo);
+
+        verify(processingTaskService, timeout(WAIT_MILLIS)).release(photo.getId(), ProcessingStage.first());
+        verify(processingTaskService, never()).cancel(any());
+    }
+
+    @Test
+    void shouldStillEnforceSizeOfMultipartUploads() {
+        stored(SIZE + 1, "\"9b2cf535f27731c974343645a3985328-4\"", null);
+
+        service.verifyThenProcess(job, photo);
+
+        assertFailed("Uploaded file size 1025 does not match declared size 1024");
+    }
+
+    @Test
+    void shouldFailUploadNeverFoundInStorage() {
+        when(storageService.getObjectMetadata(KEY)).thenReturn(Optional.empty());
+
+        service.verifyThenProcess(job, photo);
+
+        assertFailed("Uploaded file not found in storage after 3 checks");
+        verify(storageService, timeout(WAIT_MILLIS).times(3)).getObjectMetadata(KEY);
+    }
+
+    @Test
+    void shouldRetryRecordingFailureUntilItCommits() {
+        stored(SIZE - 1, "\"etag\"", CHECKSUM);
+        doThrow(new IllegalStateException("Connection reset")).doNothing()
+                .when(processingTaskService).cancel(photo.getId());
+
+        service.verifyThenProcess(job, photo);
+
+        // The first transaction rolled back as a whole and the retry committed
+        verify(processingTaskService, timeout(WAIT_MILLIS).times(2)).cancel(photo.getId());
+        verify(transactionManager, timeout(WAIT_MILLIS)).rollback(any());
+        verify(transactionManager, timeout(WAIT_MILLIS)).commit(any());
+        verify(processingTaskService, never()).release(any(), any());
+        assertThat(photo.getStatus()).isEqualTo(Photo.PhotoStatus.FAILED);
+    }
+
+    private void stored(long contentLength, String eTag, String checksum) {
+        when(storageService.getObjectMetadata(KEY)).thenReturn(Optional.of(StoredObject.builder()
+                .key(KEY)
+                .contentLength(contentLength)
+                .eTag(eTag)
+                .checksumSha256(checksum)
+                .build()));
+    }
+
+    private void assertFailed(String reason) {
+        verify(processingTaskService, timeout(WAIT_MILLIS)).cancel(photo.getId());
+        verify(transactionManager, timeout(WAIT_MILLIS)).commit(any());
+        verify(processingTaskService, never()).release(any(), any());
+        assertThat(job.getStatus()).isEqualTo(UploadJob.UploadStatus.FAILED);
+        assertThat(job.getErrorMessage()).isEqualTo(reason);
+        assertThat(photo.getStatus()).isEqualTo(Photo.PhotoStatus.FAILED);
+    }
+}
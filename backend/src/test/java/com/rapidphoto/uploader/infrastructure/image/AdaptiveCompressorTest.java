@@ -0,0 +1,165 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import com.rapidphoto.uploader.infrastructure.processing.DecodeMemoryGovernor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * Unit tests for recompressing at the lowest quality that meets the target SSIM.
+ * Tests: quality within bounds -> target met on the sample -> maximum kept when unreachable -> formats skipped
+ */
+class AdaptiveCompressorTest {
+
+    private ImageProcessingProperties properties;
+    private ImageProcessingProperties.Compression config;
+    private ParallelResizer resizer;
+    private ImageCodec imageCodec;
+    private AdaptiveCompressor compressor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ImageProcessingProperties();
+        config = properties.getCompression();
+        resizer = new ParallelResizer(properties);
+        imageCodec = new ImageCodec(mock(DecodeMemoryGovernor.class), resizer);
+        compressor = new AdaptiveCompressor(imageCodec, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        resizer.shutdown();
+    }
+
+    @Test
+    void shouldChooseQualityWithinBoundsMeetingTargetOnMosaic() throws IOException {
+        // Larger than the 4x4 mosaic of 128 pixel tiles, so only the sampled tiles are searched
+        DecodedImage image = jpeg(photo(1200, 900));
+
+        AdaptiveCompressor.CompressionResult result = compressor.compress(image, new ByteArrayOutputStream());
+
+        assertThat(result.quality()).isBetween(config.getMinQuality(), config.getQuality());
+        assertThat(result.ssim()).isNotNull();
+        assertThat(result.ssim()).isGreaterThanOrEqualTo(config.getTargetSsim());
+    }
+
+    @Test
+    void shouldMeetTargetOnImagesSampledWhole() throws IOException {
+        // No larger than the mosaic, so the sample is the image itself and the output must meet the target
+        BufferedImage original = photo(400, 300);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        AdaptiveCompressor.CompressionResult result = compressor.compress(jpeg(original), output);
+
+        assertThat(result.quality()).isBetween(config.getMinQuality(), config.getQuality());
+        BufferedImage encoded = ImageIO.read(new ByteArrayInputStream(output.toByteArray()));
+        assertThat(Ssim.mean(original, encoded)).isCloseTo(result.ssim(), within(1e-9));
+        assertThat(Ssim.mean(original, encoded)).isGreaterThanOrEqualTo(config.getTargetSsim());
+    }
+
+    @Test
+    void shouldSearchDownToMinimumQualityForSmoothImages() throws IOException {
+        BufferedImage smooth = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 256; y++) {
+            for (int x = 0; x < 256; x++) {
+                smooth.setRGB(x, y, x << 16 | y << 8 | 128);
+            }
+        }
+
+        AdaptiveCompressor.CompressionResult result = compressor.compress(jpeg(smooth), new ByteArrayOutputStream());
+
+        assertThat(result.quality()).isLessThan(config.getQuality());
+        assertThat(result.quality()).isGreaterThanOrEqualTo(config.getMinQuality());
+        assertThat(result.ssim()).isGreaterThanOrEqualTo(config.getTargetSsim());
+    }
+
+    @Test
+    void shouldKeepMaximumQualityWhenTargetIsUnreachable() throws IOException {
+        config.setTargetSsim(0.9999);
+
+        AdaptiveCompressor.CompressionResult result = compressor.compress(jpeg(noise(300, 200)), new ByteArrayOutputStream());
+
+        assertThat(result.quality()).isEqualTo(config.getQuality());
+        assertThat(result.ssim()).isLessThan(config.getTargetSsim());
+    }
+
+    @Test
+    void shouldEncodeOtherFormatsAtConfiguredQualityWithoutSearching() throws IOException {
+        ImageCodec codec = mock(ImageCodec.class);
+        DecodedImage image = new DecodedImage(photo(600, 600), "png", 600, 600, 1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        AdaptiveCompressor.CompressionResult result = new AdaptiveCompressor(codec, properties).compress(image, output);
+
+        assertThat(result.quality()).isEqualTo(config.getQuality());
+        assertThat(result.ssim()).isNull();
+        verify(codec).encode(image, config.getQuality(), output);
+        verifyNoMoreInteractions(codec);
+    }
+
+    @Test
+    void shouldNotSearchWhenAdaptiveCompressionIsDisabled() throws IOException {
+        config.setAdaptive(false);
+        ImageCodec codec = mock(ImageCodec.class);
+        DecodedImage image = jpeg(photo(600, 600));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        AdaptiveCompressor.CompressionResult result = new AdaptiveCompressor(codec, properties).compress(image, output);
+
+        assertThat(result.ssim()).isNull();
+        verify(codec).encode(image, config.getQuality(), output);
+        verifyNoMoreInteractions(codec);
+    }
+
+    private static DecodedImage jpeg(BufferedImage image) {
+        return new DecodedImage(image, "jpeg", image.getWidth(), image.getHeight(), 1);
+    }
+
+    /**
+     * Gradients under soft texture and edges, roughly like a photo: detailed enough that
+     * quality matters, smooth enough that JPEG meets the target.
+     */
+    private static BufferedImage photo(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double texture = 40 * Math.sin(x / 9.0) * Math.cos(y / 13.0);
+                int edge = (x / 150 + y / 150) % 2 == 0 ? 30 : -30;
+                int r = clamp((int) (x * 200.0 / width + texture) + edge + 20);
+                int g = clamp((int) (y * 200.0 / height - texture) + 30);
+                int b = clamp((int) ((x + y) * 200.0 / (width + height) + texture / 2) - edge + 25);
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage noise(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(width * 31L + height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(1 << 24));
+            }
+        }
+        return image;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
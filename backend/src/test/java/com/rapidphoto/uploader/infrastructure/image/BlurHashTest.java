@@ -0,0 +1,98 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.function.IntBinaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the BlurHash encoder.
+ * Expected hashes were computed with a separate transcription of the reference
+ * encoder (https://github.com/woltapp/blurhash) over the same synthetic images; all
+ * images are smaller than the sampling grid, so every pixel is used, as in the reference.
+ * Tests: reference strings -> component counts -> sampling of large images
+ */
+class BlurHashTest {
+
+    @Test
+    void shouldMatchReferenceForGradient() {
+        BufferedImage gradient = image(32, 24, (x, y) -> rgb(x * 255 / 31, y * 255 / 23, 128));
+
+        assertThat(BlurHash.encode(gradient, 4, 3)).isEqualTo("L$HewF2swxX8l}WDjte;gJfjfQfj");
+        assertThat(BlurHash.encode(gradient, 1, 1)).isEqualTo("00HewF");
+    }
+
+    @Test
+    void shouldMatchReferenceForHardEdge() {
+        BufferedImage halves = image(20, 30, (x, y) -> x < 10 ? rgb(255, 0, 0) : rgb(0, 0, 255));
+
+        assertThat(BlurHash.encode(halves, 4, 3)).isEqualTo("L~LjfL|TwtJro3n~jsa}fQfQfQfQ");
+        assertThat(BlurHash.encode(halves, 9, 1)).isEqualTo("8~LjfL|TwtJrfQ$2wtWufQ");
+    }
+
+    @Test
+    void shouldMatchReferenceWithMaximumComponents() {
+        BufferedImage noise = image(40, 40, (x, y) -> rgb((x * x + y * y) % 256, (x * 7) % 256, (y * 13) % 256));
+
+        assertThat(BlurHash.encode(noise, 9, 9)).isEqualTo("|lG[.-Y^RmcUZncUihpFi#bSS2WWW.WWbFjaoJjaSNWpWpWpa|a|o1"
+                + "jtjtbQWVWWW.f7bFn*j?azb1Wqa|fRo1o2o1jua|bfa#azbHn*bHn*bHazjtjto1o1o1o1jtWpa|oYn%jaj?jabFWWW.f7jrjtjta"
+                + "|a|a|a|fQo1");
+    }
+
+    @Test
+    void shouldMatchReferenceForUniformImage() {
+        BufferedImage white = image(8, 8, (x, y) -> rgb(255, 255, 255));
+
+        assertThat(BlurHash.encode(white, 4, 3)).isEqualTo("LfTSUA~qfQ~q~qt7fQt7fQfQfQfQ");
+    }
+
+    @Test
+    void shouldEncodeLengthFromComponentCount() {
+        BufferedImage image = image(16, 16, (x, y) -> rgb(x * 16, y * 16, 0));
+
+        for (int xComponents = 1; xComponents <= 9; xComponents++) {
+            for (int yComponents = 1; yComponents <= 9; yComponents++) {
+                assertThat(BlurHash.encode(image, xComponents, yComponents))
+                        .hasSize(4 + 2 * xComponents * yComponents);
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidComponentCounts() {
+        BufferedImage image = image(4, 4, (x, y) -> 0);
+
+        assertThatThrownBy(() -> BlurHash.encode(image, 0, 3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BlurHash.encode(image, 4, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldSampleLargeImagesLikeTheirSampledGrid() {
+        // Blocks of 10x10 pixels; sampling every 10th pixel of the large image sees one pixel per block
+        BufferedImage large = image(960, 640, (x, y) -> blockColor(x / 10, y / 10));
+        BufferedImage grid = image(96, 64, BlurHashTest::blockColor);
+
+        assertThat(BlurHash.encode(large, 4, 3)).isEqualTo(BlurHash.encode(grid, 4, 3));
+    }
+
+    private static int blockColor(int x, int y) {
+        return rgb((x * 37) % 256, (y * 53) % 256, ((x + y) * 11) % 256);
+    }
+
+    private static BufferedImage image(int width, int height, IntBinaryOperator color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, color.applyAsInt(x, y));
+            }
+        }
+        return image;
+    }
+
+    private static int rgb(int r, int g, int b) {
+        return (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,108 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import com.rapidphoto.uploader.infrastructure.processing.DecodeMemoryGovernor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for reading metadata from the head of an image.
+ * The fixture is a 64x48 JPEG from a "Canon EOS R5" taken 2024-07-14 09:30:15 at
+ * 48°51'30"N 2°17'40"E, with a later modification date in IFD0.
+ * Tests: EXIF fields -> images without EXIF -> headers cut short -> unreadable input
+ */
+class ExifMetadataReaderTest {
+
+    private ExifMetadataReader reader;
+    private byte[] fixture;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reader = new ExifMetadataReader(new ImageCodec(mock(DecodeMemoryGovernor.class), null));
+        fixture = exifSample();
+    }
+
+    @Test
+    void shouldReadDimensionsCameraAndLocation() {
+        ImageMetadata metadata = reader.read(fixture, true).get();
+
+        assertThat(metadata.getWidth()).isEqualTo(64);
+        assertThat(metadata.getHeight()).isEqualTo(48);
+        assertThat(metadata.getOrientation()).isEqualTo(1);
+        // Make is padded with spaces in the file
+        assertThat(metadata.getCameraMake()).isEqualTo("Canon");
+        assertThat(metadata.getCameraModel()).isEqualTo("Canon EOS R5");
+        assertThat(metadata.getLatitude()).isCloseTo(48 + 51 / 60.0 + 30 / 3600.0, within(1e-9));
+        assertThat(metadata.getLongitude()).isCloseTo(2 + 17 / 60.0 + 40 / 3600.0, within(1e-9));
+        assertThat(metadata.getTags()).containsKeys("Exif IFD0", "Exif SubIFD", "GPS");
+    }
+
+    @Test
+    void shouldTakeCaptureTimeFromOriginalDateAsUtc() {
+        ImageMetadata metadata = reader.read(fixture, true).get();
+
+        // DateTimeOriginal wins over the modification time in IFD0; without an offset tag it is read as UTC
+        assertThat(metadata.getCapturedAt()).isEqualTo(Instant.parse("2024-07-14T09:30:15Z"));
+    }
+
+    @Test
+    void shouldReadOnlyDimensionsWithoutExif() throws IOException {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB), "jpeg", plain);
+
+        ImageMetadata metadata = reader.read(plain.toByteArray(), true).get();
+
+        assertThat(metadata.getWidth()).isEqualTo(30);
+        assertThat(metadata.getHeight()).isEqualTo(20);
+        assertThat(metadata.getOrientation()).isNull();
+        assertThat(metadata.getCapturedAt()).isNull();
+        assertThat(metadata.getCameraMake()).isNull();
+        assertThat(metadata.getLatitude()).isNull();
+    }
+
+    @Test
+    void shouldAskForLongerPrefixWhenHeaderIsCutShort() {
+        // Cut inside the EXIF segment, and halfway through the file
+        for (int length : new int[] {100, fixture.length / 2}) {
+            byte[] head = Arrays.copyOf(fixture, length);
+
+            assertThat(reader.read(head, false)).as("first %d bytes", length).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldNotAskForMoreWhenNoLongerPrefixIsAvailable() {
+        byte[] head = Arrays.copyOf(fixture, fixture.length / 2);
+
+        Optional<ImageMetadata> metadata = reader.read(head, true);
+
+        assertThat(metadata).isPresent();
+        assertThat(metadata.get().getWidth()).isNull();
+    }
+
+    @Test
+    void shouldReturnEmptyMetadataForUnreadableInput() {
+        ImageMetadata metadata = reader.read("not an image".getBytes(), true).get();
+
+        assertThat(metadata.getWidth()).isNull();
+        assertThat(metadata.getCapturedAt()).isNull();
+    }
+
+    private static byte[] exifSample() throws IOException {
+        try (InputStream input = ExifMetadataReaderTest.class.getResourceAsStream("/images/exif-sample.jpg")) {
+            return input.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for extracting the EXIF preview from the head of a JPEG.
+ * Fixtures are real JPEGs encoded by ImageIO, with an EXIF segment whose IFD1 points
+ * at a real JPEG preview inserted after the start-of-image marker.
+ * Tests: both byte orders -> segments before EXIF -> partial reads -> missing and malformed IFDs
+ */
+class ExifThumbnailExtractorTest {
+
+    /**
+     * Offsets within the TIFF structure built by {@link #exifSegment}.
+     */
+    private static final int IFD0 = 8;
+    private static final int IFD1 = IFD0 + 2 + 12 + 4;
+    private static final int PREVIEW = IFD1 + 2 + 2 * 12 + 4;
+
+    private ExifThumbnailExtractor extractor;
+    private byte[] preview;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        extractor = new ExifThumbnailExtractor();
+        preview = encode(160, 120, Color.ORANGE);
+    }
+
+    @Test
+    void shouldExtractPreviewFromLittleEndianExif() throws IOException {
+        byte[] jpeg = withExif(encode(1600, 1200, Color.BLUE), exifSegment(ByteOrder.LITTLE_ENDIAN, preview, false));
+
+        Optional<byte[]> extracted = extractor.extract(jpeg);
+
+        assertThat(extracted).isPresent();
+        assertThat(extracted.get()).isEqualTo(preview);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(extracted.get()));
+        assertThat(decoded.getWidth()).isEqualTo(160);
+        assertThat(decoded.getHeight()).isEqualTo(120);
+    }
+
+    @Test
+    void shouldExtractPreviewFromBigEndianExif() throws IOException {
+        byte[] jpeg = withExif(encode(1600, 1200, Color.BLUE), exifSegment(ByteOrder.BIG_ENDIAN, preview, false));
+
+        assertThat(extractor.extract(jpeg).get()).isEqualTo(preview);
+    }
+
+    @Test
+    void shouldReadPreviewLocationStoredAsShorts() throws IOException {
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            byte[] jpeg = withExif(encode(640, 480, Color.BLUE), exifSegment(order, preview, true));
+
+            assertThat(extractor.extract(jpeg).get()).as("%s", order).isEqualTo(preview);
+        }
+    }
+
+    @Test
+    void shouldFindExifAfterOtherSegmentsAndFillBytes() throws IOException {
+        // ImageIO writes a JFIF APP0 segment first; put EXIF after it, behind a fill byte
+        byte[] jpeg = encode(640, 480, Color.BLUE);
+        int afterApp0 = 4 + (((jpeg[4] & 0xFF) << 8) | (jpeg[5] & 0xFF));
+        byte[] segment = exifSegment(ByteOrder.BIG_ENDIAN, preview, false);
+        byte[] file = concat(Arrays.copyOfRange(jpeg, 0, afterApp0), new byte[] {(byte) 0xFF}, segment,
+                Arrays.copyOfRange(jpeg, afterApp0, jpeg.length));
+
+        assertThat(extractor.extract(file).get()).isEqualTo(preview);
+    }
+
+    @Test
+    void shouldOnlyExtractPreviewEntirelyWithinRead() throws IOException {
+        byte[] segment = exifSegment(ByteOrder.LITTLE_ENDIAN, preview, false);
+        byte[] jpeg = withExif(encode(1600, 1200, Color.BLUE), segment);
+        int segmentEnd = 2 + segment.length;
+
+        // Every read that ends inside the EXIF segment cuts off part of the preview
+        for (int length = 0; length < segmentEnd; length++) {
+            assertThat(extractor.extract(Arrays.copyOf(jpeg, length))).as("first %d bytes", length).isEmpty();
+        }
+        assertThat(extractor.extract(Arrays.copyOf(jpeg, segmentEnd)).get()).isEqualTo(preview);
+    }
+
+    @Test
+    void shouldReturnEmptyWithoutExifOrPreview() throws IOException {
+        assertThat(extractor.extract(new byte[0])).isEmpty();
+        assertThat(extractor.extract("GIF89a not a jpeg".getBytes(StandardCharsets.US_ASCII))).isEmpty();
+        assertThat(extractor.extract(encode(640, 480, Color.BLUE))).isEmpty();
+
+        // No IFD1 after IFD0
+        assertThat(extract(ByteOrder.LITTLE_ENDIAN, tiff -> tiff.putInt(IFD0 + 2 + 12, 0))).isEmpty();
+        // IFD1 without the preview tags
+        assertThat(extract(ByteOrder.LITTLE_ENDIAN, tiff -> tiff.putShort(IFD1, (short) 0))).isEmpty();
+    }
+
+    @Test
+    void shouldReturnEmptyForMalformedIfdsWithoutThrowing() throws IOException {
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            // IFD0 beyond the segment, or at a negative offset
+            assertThat(extract(order, tiff -> tiff.putInt(4, 1 << 20))).isEmpty();
+            assertThat(extract(order, tiff -> tiff.putInt(4, -8))).isEmpty();
+            // More IFD0 entries than the segment holds
+            assertThat(extract(order, tiff -> tiff.putShort(IFD0, (short) 0xFFFF))).isEmpty();
+            // IFD1 beyond the segment, or at a negative offset
+            assertThat(extract(order, tiff -> tiff.putInt(IFD0 + 2 + 12, 1 << 20))).isEmpty();
+            assertThat(extract(order, tiff -> tiff.putInt(IFD0 + 2 + 12, -1))).isEmpty();
+            // More IFD1 entries than the segment holds
+            assertThat(extract(order, tiff -> tiff.putShort(IFD1, (short) 0x7FFF))).isEmpty();
+            // Preview offset or length pointing past the segment, or overflowing
+            assertThat(extract(order, tiff -> tiff.putInt(IFD1 + 2 + 8, 1 << 20))).isEmpty();
+            assertThat(extract(order, tiff -> tiff.putInt(IFD1 + 2 + 12 + 8, preview.length + 1))).isEmpty();
+            assertThat(extract(order, tiff -> tiff.putInt(IFD1 + 2 + 12 + 8, Integer.MAX_VALUE))).isEmpty();
+            assertThat(extract(order, tiff -> tiff.putInt(IFD1 + 2 + 12 + 8, -1))).isEmpty();
+            // Preview that is not a JPEG
+            assertThat(extract(order, tiff -> tiff.put(PREVIEW + 1, (byte) 0))).isEmpty();
+        }
+        // A segment too short for the TIFF header
+        byte[] stub = concat(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE1, 0, 10},
+                "Exif\0\0II".getBytes(StandardCharsets.US_ASCII), new byte[] {(byte) 0xFF, (byte) 0xD9});
+        assertThat(extractor.extract(stub)).isEmpty();
+    }
+
+    /**
+     * Extract from a JPEG whose EXIF TIFF structure was altered after being built.
+     */
+    private Optional<byte[]> extract(ByteOrder order, Consumer<ByteBuffer> corruption) throws IOException {
+        byte[] segment = exifSegment(order, preview, false);
+        ByteBuffer tiff = ByteBuffer.wrap(segment, 10, segment.length - 10).slice().order(order);
+        corruption.accept(tiff);
+        return extractor.extract(withExif(encode(320, 240, Color.BLUE), segment));
+    }
+
+    /**
+     * An APP1 segment holding a TIFF structure: IFD0 with an orientation entry, then IFD1
+     * pointing at the preview, which follows it.
+     */
+    private static byte[] exifSegment(ByteOrder order, byte[] preview, boolean shortTypes) {
+        ByteBuffer tiff = ByteBuffer.allocate(PREVIEW + preview.length).order(order);
+        tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        tiff.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        tiff.putShort((short) 42);
+        tiff.putInt(IFD0);
+
+        tiff.putShort((short) 1);
+        entry(tiff, 0x0112, 1);
+        tiff.putInt(IFD1);
+
+        tiff.putShort((short) 2);
+        if (shortTypes) {
+            shortEntry(tiff, 0x0201, PREVIEW);
+            shortEntry(tiff, 0x0202, preview.length);
+        } else {
+            entry(tiff, 0x0201, PREVIEW);
+            entry(tiff, 0x0202, preview.length);
+        }
+        tiff.putInt(0);
+        tiff.put(preview);
+
+        ByteBuffer segment = ByteBuffer.allocate(4 + 6 + tiff.capacity());
+        segment.put((byte) 0xFF).put((byte) 0xE1).putShort((short) (2 + 6 + tiff.capacity()));
+        segment.put("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+        segment.put(tiff.array());
+        return segment.array();
+    }
+
+    private static void entry(ByteBuffer tiff, int tag, int value) {
+        tiff.putShort((short) tag).putShort((short) 4).putInt(1).putInt(value);
+    }
+
+    private static void shortEntry(ByteBuffer tiff, int tag, int value) {
+        tiff.putShort((short) tag).putShort((short) 3).putInt(1).putShort((short) value).putShort((short) 0);
+    }
+
+    /**
+     * Insert an EXIF segment directly after the start-of-image marker.
+     */
+    private static byte[] withExif(byte[] jpeg, byte[] segment) {
+        return concat(Arrays.copyOf(jpeg, 2), segment, Arrays.copyOfRange(jpeg, 2, jpeg.length));
+    }
+
+    private static byte[] encode(int width, int height, Color color) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", output);
+        return output.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            output.writeBytes(part);
+        }
+        return output.toByteArray();
+    }
+}
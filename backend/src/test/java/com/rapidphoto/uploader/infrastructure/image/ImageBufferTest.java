@@ -0,0 +1,199 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the chunked, spilling image buffer.
+ * Tests: writes across chunk boundaries -> spill past the threshold -> reads in place -> cleanup
+ */
+class ImageBufferTest {
+
+    private static final int CHUNK_SIZE = 16;
+    private static final int SPILL_THRESHOLD = 4 * CHUNK_SIZE;
+
+    private Path spillDirectory;
+    private ImageBufferPool pool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        spillDirectory = Files.createTempDirectory("image-buffer-test-");
+        ImageProcessingProperties properties = new ImageProcessingProperties();
+        properties.getBuffer().setChunkSize(DataSize.ofBytes(CHUNK_SIZE));
+        properties.getBuffer().setMaxPooledSize(DataSize.ofBytes(8 * CHUNK_SIZE));
+        properties.getBuffer().setSpillThreshold(DataSize.ofBytes(SPILL_THRESHOLD));
+        properties.getBuffer().setSpillDirectory(spillDirectory.toString());
+        pool = new ImageBufferPool(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(spillDirectory);
+    }
+
+    @Test
+    void shouldRoundTripContentAroundChunkBoundaries() throws IOException {
+        for (int length : new int[] {0, 1, CHUNK_SIZE - 1, CHUNK_SIZE, CHUNK_SIZE + 1, 3 * CHUNK_SIZE}) {
+            byte[] content = randomBytes(length);
+            try (ImageBuffer buffer = pool.newBuffer()) {
+                buffer.write(content);
+
+                assertThat(buffer.size()).isEqualTo((long) length);
+                assertThat(buffer.isSpilled()).isFalse();
+                assertThat(readInSteps(buffer.openStream(), 7)).isEqualTo(content);
+                assertThat(readByteByByte(buffer.openStream())).isEqualTo(content);
+            }
+        }
+    }
+
+    @Test
+    void shouldMixSingleByteAndArrayWrites() throws IOException {
+        byte[] content = randomBytes(2 * CHUNK_SIZE + 5);
+        try (ImageBuffer buffer = pool.newBuffer()) {
+            buffer.write(content, 0, CHUNK_SIZE - 1);
+            buffer.write(content[CHUNK_SIZE - 1]);
+            buffer.write(content[CHUNK_SIZE]);
+            buffer.write(content, CHUNK_SIZE + 1, content.length - CHUNK_SIZE - 1);
+
+            assertThat(readInSteps(buffer.openStream(), CHUNK_SIZE)).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void shouldStayInMemoryUpToSpillThreshold() throws IOException {
+        try (ImageBuffer buffer = pool.newBuffer()) {
+            buffer.write(randomBytes(SPILL_THRESHOLD));
+            assertThat(buffer.isSpilled()).isFalse();
+
+            // The first byte past the threshold needs a new chunk, which spills instead
+            buffer.write(1);
+            assertThat(buffer.isSpilled()).isTrue();
+            assertThat(buffer.size()).isEqualTo(SPILL_THRESHOLD + 1L);
+        }
+    }
+
+    @Test
+    void shouldSpillPastThresholdAndReadFromMapping() throws IOException {
+        byte[] content = randomBytes(10 * CHUNK_SIZE + 7);
+        try (ImageBuffer buffer = pool.newBuffer()) {
+            // Odd-sized writes so chunk boundaries fall inside writes
+            for (int off = 0; off < content.length; off += 5) {
+                buffer.write(content, off, Math.min(5, content.length - off));
+            }
+
+            assertThat(buffer.isSpilled()).isTrue();
+            assertThat(readInSteps(buffer.openStream(), 13)).isEqualTo(content);
+            assertThat(readByteByByte(buffer.openStream())).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void shouldReadSpilledContentEndingOnChunkBoundary() throws IOException {
+        byte[] content = randomBytes(8 * CHUNK_SIZE);
+        try (ImageBuffer buffer = pool.newBuffer()) {
+            buffer.write(content);
+
+            assertThat(buffer.isSpilled()).isTrue();
+            assertThat(readInSteps(buffer.openStream(), 64)).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void shouldNotLeaveSpillFilesBehind() throws IOException {
+        ImageBuffer buffer = pool.newBuffer();
+        buffer.write(randomBytes(6 * CHUNK_SIZE));
+        buffer.openStream().close();
+        assertThat(buffer.isSpilled()).isTrue();
+
+        buffer.close();
+        buffer.close();
+
+        assertThat(spillFiles()).isEqualTo(0L);
+    }
+
+    @Test
+    void shouldRejectWritesOnceOpenedForReading() throws IOException {
+        try (ImageBuffer buffer = pool.newBuffer()) {
+            buffer.write(randomBytes(3));
+            buffer.openStream();
+
+            assertThatThrownBy(() -> buffer.write(1)).isInstanceOf(IOException.class);
+            assertThatThrownBy(() -> buffer.write(new byte[4])).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    void shouldRejectUseAfterClose() throws IOException {
+        ImageBuffer buffer = pool.newBuffer();
+        buffer.write(randomBytes(3));
+        buffer.close();
+
+        assertThatThrownBy(buffer::openStream).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> buffer.write(1)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldRecycleChunksOfClosedBuffers() throws IOException {
+        ImageBuffer first = pool.newBuffer();
+        first.write(randomBytes(2 * CHUNK_SIZE));
+        first.close();
+
+        byte[] content = randomBytes(3 * CHUNK_SIZE);
+        try (ImageBuffer second = pool.newBuffer()) {
+            second.write(content);
+
+            // Recycled chunks still holding the first buffer's bytes must not leak into reads
+            assertThat(readInSteps(second.openStream(), CHUNK_SIZE)).isEqualTo(content);
+        }
+    }
+
+    private long spillFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            return files.count();
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] readInSteps(InputStream in, int step) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[step];
+        int n;
+        while ((n = in.read(b, 0, step)) != -1) {
+            out.write(b, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readByteByByte(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+        }
+        return out.toByteArray();
+    }
+}
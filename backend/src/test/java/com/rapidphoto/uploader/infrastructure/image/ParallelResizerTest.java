@@ -0,0 +1,172 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for tiled, parallel resizing.
+ * Tests: threshold -> tiles match a single strip across scales -> no seams -> alpha -> transparent edges
+ */
+class ParallelResizerTest {
+
+    private static final int[][] TARGET_SIZES = {
+            {40, 30},   // exact third
+            {37, 29},   // fractional downscale, tile edges fall between filter windows
+            {119, 91},  // barely smaller
+            {120, 90},  // same size
+            {300, 225}, // upscale
+            {13, 200},  // down in one axis, up in the other
+    };
+
+    @Test
+    void shouldResizeInParallelOnlyFromThreshold() throws IOException {
+        ParallelResizer resizer = resizer(100 * 100, 32, 2);
+        try {
+            assertThat(resizer.isParallel(new BufferedImage(100, 99, BufferedImage.TYPE_INT_RGB))).isFalse();
+            assertThat(resizer.isParallel(new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB))).isTrue();
+
+            BufferedImage small = resizer.resize(noise(50, 40, false), 25, 20);
+            assertThat(small.getWidth()).isEqualTo(25);
+            assertThat(small.getHeight()).isEqualTo(20);
+        } finally {
+            resizer.shutdown();
+        }
+    }
+
+    @Test
+    void shouldProduceSameOutputHoweverImageIsTiled() {
+        BufferedImage source = noise(120, 90, false);
+        ParallelResizer single = resizer(0, Integer.MAX_VALUE, 1);
+        try {
+            for (int tileRows : new int[] {1, 2, 3, 7, 32}) {
+                ParallelResizer tiled = resizer(0, tileRows, 4);
+                try {
+                    for (int[] size : TARGET_SIZES) {
+                        BufferedImage expected = single.resizeTiled(source, size[0], size[1]);
+                        BufferedImage actual = tiled.resizeTiled(source, size[0], size[1]);
+
+                        assertThat(pixels(actual))
+                                .as("%d rows per tile to %dx%d", tileRows, size[0], size[1])
+                                .isEqualTo(pixels(expected));
+                    }
+                } finally {
+                    tiled.shutdown();
+                }
+            }
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void shouldKeepUniformImageUniformAcrossTilesAndEdges() {
+        BufferedImage source = new BufferedImage(97, 61, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                source.setRGB(x, y, 0x336699);
+            }
+        }
+        ParallelResizer resizer = resizer(0, 3, 4);
+        try {
+            for (int[] size : TARGET_SIZES) {
+                int[] pixels = pixels(resizer.resizeTiled(source, size[0], size[1]));
+                for (int pixel : pixels) {
+                    assertThat(pixel & 0xFFFFFF).as("to %dx%d", size[0], size[1]).isEqualTo(0x336699);
+                }
+            }
+        } finally {
+            resizer.shutdown();
+        }
+    }
+
+    @Test
+    void shouldKeepAlphaOnlyWhenSourceHasIt() {
+        ParallelResizer resizer = resizer(0, 4, 2);
+        try {
+            BufferedImage opaque = resizer.resizeTiled(noise(60, 60, false), 20, 20);
+            assertThat(opaque.getType()).isEqualTo(BufferedImage.TYPE_INT_RGB);
+
+            BufferedImage source = noise(60, 60, true);
+            BufferedImage translucent = resizer.resizeTiled(source, 20, 20);
+            assertThat(translucent.getType()).isEqualTo(BufferedImage.TYPE_INT_ARGB);
+
+            ParallelResizer single = resizer(0, Integer.MAX_VALUE, 1);
+            try {
+                assertThat(pixels(translucent)).isEqualTo(pixels(single.resizeTiled(source, 20, 20)));
+            } finally {
+                single.shutdown();
+            }
+        } finally {
+            resizer.shutdown();
+        }
+    }
+
+    @Test
+    void shouldNotBleedColourOfTransparentPixelsIntoEdges() {
+        // Opaque white next to fully transparent black: blending straight alpha would grey the edge
+        BufferedImage source = new BufferedImage(64, 48, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                source.setRGB(x, y, x < 29 ? 0xFFFFFFFF : 0x00000000);
+            }
+        }
+        ParallelResizer resizer = resizer(0, 3, 4);
+        try {
+            for (int[] size : new int[][] {{21, 16}, {64, 48}, {150, 100}}) {
+                int[] pixels = pixels(resizer.resizeTiled(source, size[0], size[1]));
+                int partial = 0;
+                for (int pixel : pixels) {
+                    int alpha = pixel >>> 24;
+                    if (alpha > 0) {
+                        assertThat(pixel & 0xFFFFFF).as("to %dx%d", size[0], size[1]).isEqualTo(0xFFFFFF);
+                    }
+                    if (alpha > 0 && alpha < 255) {
+                        partial++;
+                    }
+                }
+                if (size[0] != source.getWidth()) {
+                    assertThat(partial).as("edge pixels to %dx%d", size[0], size[1]).isGreaterThan(0);
+                }
+            }
+        } finally {
+            resizer.shutdown();
+        }
+    }
+
+    private static ParallelResizer resizer(long parallelThreshold, int tileRows, int parallelism) {
+        ImageProcessingProperties properties = new ImageProcessingProperties();
+        properties.getResize().setParallelThreshold(parallelThreshold);
+        properties.getResize().setTileRows(tileRows);
+        properties.getResize().setParallelism(parallelism);
+        return new ParallelResizer(properties);
+    }
+
+    /**
+     * Random pixels over a gradient, so every tap of the filter matters.
+     */
+    private static BufferedImage noise(int width, int height, boolean alpha) {
+        BufferedImage image = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(width * 31L + height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int a = alpha ? random.nextInt(256) : 0xFF;
+                int r = (x * 255 / width + random.nextInt(64)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(64)) & 0xFF;
+                int b = random.nextInt(256);
+                image.setRGB(x, y, a << 24 | r << 16 | g << 8 | b);
+            }
+        }
+        return image;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}
@@ -0,0 +1,104 @@
+package com.rapidphoto.uploader.infrastructure.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for mean structural similarity.
+ * Tests: identical images -> degradation lowers the score -> symmetry -> small images -> size mismatch
+ */
+class SsimTest {
+
+    @Test
+    void shouldBeOneForIdenticalImages() {
+        BufferedImage image = noise(64, 48, 1);
+
+        assertThat(Ssim.mean(image, image)).isEqualTo(1.0);
+        assertThat(Ssim.mean(image, copy(image))).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldBeOneForIdenticalUniformImages() {
+        BufferedImage flat = new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB);
+
+        assertThat(Ssim.mean(flat, copy(flat))).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldDropAsImagesDiverge() {
+        BufferedImage image = noise(64, 48, 1);
+        BufferedImage slightly = perturb(image, 4);
+        BufferedImage heavily = perturb(image, 64);
+
+        double slight = Ssim.mean(image, slightly);
+        double heavy = Ssim.mean(image, heavily);
+        assertThat(slight).isLessThan(1.0);
+        assertThat(heavy).isLessThan(slight);
+        assertThat(Ssim.mean(image, noise(64, 48, 2))).isLessThan(heavy);
+    }
+
+    @Test
+    void shouldBeSymmetric() {
+        BufferedImage image = noise(40, 40, 1);
+        BufferedImage other = perturb(image, 16);
+
+        assertThat(Ssim.mean(image, other)).isEqualTo(Ssim.mean(other, image));
+    }
+
+    @Test
+    void shouldCompareImagesSmallerThanWindowWhole() {
+        BufferedImage image = noise(5, 3, 1);
+
+        assertThat(Ssim.mean(image, copy(image))).isEqualTo(1.0);
+        assertThat(Ssim.mean(image, perturb(image, 32))).isLessThan(1.0);
+    }
+
+    @Test
+    void shouldRejectImagesOfDifferentSizes() {
+        assertThatThrownBy(() -> Ssim.mean(noise(16, 16, 1), noise(16, 17, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static BufferedImage noise(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(1 << 24));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Shift every channel by up to {@code amount} either way.
+     */
+    private static BufferedImage perturb(BufferedImage image, int amount) {
+        BufferedImage result = copy(image);
+        Random random = new Random(amount);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int pixel = image.getRGB(x, y);
+                int perturbed = 0;
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    int channel = (pixel >> shift) & 0xFF;
+                    int moved = Math.max(0, Math.min(255, channel + random.nextInt(2 * amount + 1) - amount));
+                    perturbed |= moved << shift;
+                }
+                result.setRGB(x, y, perturbed);
+            }
+        }
+        return result;
+    }
+
+    private static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        copy.setData(image.getData());
+        return copy;
+    }
+}
@@ -0,0 +1,140 @@
+package com.rapidphoto.uploader.infrastructure.processing;
+
+import com.rapidphoto.uploader.infrastructure.config.ImageProcessingProperties;
+import com.rapidphoto.uploader.infrastructure.image.ImageRejectedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for decode admission against the shared memory budget.
+ * Tests: dimension limits -> reservations and release -> timeouts -> arrival order
+ */
+class DecodeMemoryGovernorTest {
+
+    private static final long BUDGET = 1024 * 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    @Test
+    void shouldRejectInvalidDimensions() {
+        DecodeMemoryGovernor governor = governor(Duration.ofMillis(50));
+
+        assertThatThrownBy(() -> governor.checkDimensions(0, 100)).isInstanceOf(ImageRejectedException.class);
+        assertThatThrownBy(() -> governor.checkDimensions(100, -1)).isInstanceOf(ImageRejectedException.class);
+    }
+
+    @Test
+    void shouldRejectImagesOverPixelLimit() {
+        DecodeMemoryGovernor governor = governor(Duration.ofMillis(50));
+
+        governor.checkDimensions(1000, 1000);
+        assertThatThrownBy(() -> governor.checkDimensions(1000, 1001)).isInstanceOf(ImageRejectedException.class);
+        assertThatThrownBy(() -> governor.reserve(1001, 1000, 1000)).isInstanceOf(ImageRejectedException.class);
+    }
+
+    @Test
+    void shouldRejectDecodesLargerThanWholeBudget() throws InterruptedException {
+        DecodeMemoryGovernor governor = governor(Duration.ofMillis(50));
+        long pixels = BUDGET / BYTES_PER_PIXEL;
+
+        assertThatThrownBy(() -> governor.reserve(1000, 1000, pixels + 1)).isInstanceOf(ImageRejectedException.class);
+
+        // The same image subsampled on decode fits
+        try (DecodeMemoryGovernor.Reservation reservation = governor.reserve(1000, 1000, pixels / 4).orElseThrow()) {
+            assertThat(governor.availableBytes()).isEqualTo(BUDGET - BUDGET / 4);
+        }
+    }
+
+    @Test
+    void shouldReserveRoundedUpSizeAndReleaseOnce() throws InterruptedException {
+        DecodeMemoryGovernor governor = governor(Duration.ofMillis(50));
+
+        DecodeMemoryGovernor.Reservation reservation = governor.reserve(10, 10, 100).orElseThrow();
+        assertThat(governor.availableBytes()).isEqualTo(BUDGET - 1024);
+
+        reservation.close();
+        reservation.close();
+        assertThat(governor.availableBytes()).isEqualTo(BUDGET);
+    }
+
+    @Test
+    void shouldTimeOutWhileBudgetIsExhausted() throws InterruptedException {
+        DecodeMemoryGovernor governor = governor(Duration.ofMillis(50));
+        long halfBudgetPixels = BUDGET / 2 / BYTES_PER_PIXEL;
+        DecodeMemoryGovernor.Reservation first = governor.reserve(1000, 1000, halfBudgetPixels).orElseThrow();
+        DecodeMemoryGovernor.Reservation second = governor.reserve(1000, 1000, halfBudgetPixels).orElseThrow();
+
+        assertThat(governor.reserve(10, 10, 100)).isEmpty();
+
+        first.close();
+        Optional<DecodeMemoryGovernor.Reservation> third = governor.reserve(10, 10, 100);
+        assertThat(third).isPresent();
+        third.get().close();
+        second.close();
+        assertThat(governor.availableBytes()).isEqualTo(BUDGET);
+    }
+
+    @Test
+    void shouldAdmitInArrivalOrder() throws Exception {
+        DecodeMemoryGovernor governor = governor(Duration.ofSeconds(10));
+        DecodeMemoryGovernor.Reservation held = governor.reserve(1000, 1000, BUDGET * 3 / 4 / BYTES_PER_PIXEL)
+                .orElseThrow();
+
+        // A large decode waits for budget...
+        CompletableFuture<Optional<DecodeMemoryGovernor.Reservation>> large = CompletableFuture.supplyAsync(
+                () -> reserveUnchecked(governor, BUDGET / 2 / BYTES_PER_PIXEL));
+        awaitSaturated(governor);
+
+        // ...and a small one arriving later waits behind it although it would fit right away
+        CompletableFuture<Optional<DecodeMemoryGovernor.Reservation>> small = CompletableFuture.supplyAsync(
+                () -> reserveUnchecked(governor, BUDGET / 8 / BYTES_PER_PIXEL));
+        Thread.sleep(200);
+        assertThat(small.isDone()).isFalse();
+        assertThat(governor.availableBytes()).isEqualTo(BUDGET / 4);
+
+        held.close();
+        Optional<DecodeMemoryGovernor.Reservation> largeReservation = large.get(5, TimeUnit.SECONDS);
+        Optional<DecodeMemoryGovernor.Reservation> smallReservation = small.get(5, TimeUnit.SECONDS);
+        assertThat(largeReservation).isPresent();
+        assertThat(smallReservation).isPresent();
+        assertThat(governor.availableBytes()).isEqualTo(BUDGET - BUDGET / 2 - BUDGET / 8);
+        assertThat(governor.isSaturated()).isFalse();
+
+        largeReservation.get().close();
+        smallReservation.get().close();
+    }
+
+    private static DecodeMemoryGovernor governor(Duration admissionTimeout) {
+        ImageProcessingProperties properties = new ImageProcessingProperties();
+        properties.getMemory().setBudget(DataSize.ofBytes(BUDGET));
+        properties.getMemory().setBytesPerPixel(BYTES_PER_PIXEL);
+        properties.getMemory().setMaxPixels(1_000_000L);
+        properties.getMemory().setAdmissionTimeout(admissionTimeout);
+        return new DecodeMemoryGovernor(properties);
+    }
+
+    private static Optional<DecodeMemoryGovernor.Reservation> reserveUnchecked(DecodeMemoryGovernor governor,
+                                                                             long pixels) {
+        try {
+            return governor.reserve(1000, 1000, pixels);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitSaturated(DecodeMemoryGovernor governor) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!governor.isSaturated()) {
+            assertThat(System.nanoTime() < deadline).isTrue();
+            Thread.sleep(5);
+        }
+    }
+}
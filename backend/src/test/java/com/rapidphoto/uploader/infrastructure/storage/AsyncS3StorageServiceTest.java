@@ -0,0 +1,225 @@
+package com.rapidphoto.uploader.infrastructure.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for mapping S3 errors in the async storage service.
+ * Each failure is also fed to {@link S3StorageService}, and both must report it the same way.
+ * The SDK may fail a future with the S3 error itself or wrapped in a CompletionException;
+ * either way the S3 error must be the cause of the reported failure.
+ * Tests: metadata -> missing objects -> other HEAD errors -> downloads -> deletes -> uploads
+ */
+class AsyncS3StorageServiceTest {
+
+    private static final String KEY = "user/2026/10/16/photo.jpg";
+
+    private S3AsyncClient s3AsyncClient;
+    private S3Client s3Client;
+    private AsyncS3StorageService service;
+    private S3StorageService syncService;
+
+    @BeforeEach
+    void setUp() {
+        S3StorageProperties properties = new S3StorageProperties();
+        properties.setBucketName("test-bucket");
+        s3AsyncClient = mock(S3AsyncClient.class);
+        s3Client = mock(S3Client.class);
+        service = new AsyncS3StorageService(s3AsyncClient, properties);
+        syncService = new S3StorageService(s3Client, null, null, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void shouldMapHeadResponseToStoredObject() throws Exception {
+        HeadObjectResponse response = HeadObjectResponse.builder()
+                .contentLength(2048L)
+                .contentType("image/jpeg")
+                .eTag("\"etag\"")
+                .checksumSHA256("c2hhMjU2")
+                .build();
+        when(s3AsyncClient.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(response));
+
+        StoredObject stored = service.getObjectMetadata(KEY).get().get();
+
+        assertThat(stored.getKey()).isEqualTo(KEY);
+        assertThat(stored.getContentLength()).isEqualTo(2048L);
+        assertThat(stored.getContentType()).isEqualTo("image/jpeg");
+        assertThat(stored.getETag()).isEqualTo("\"etag\"");
+        assertThat(stored.getChecksumSha256()).isEqualTo("c2hhMjU2");
+    }
+
+    @Test
+    void shouldReadMissingContentLengthAsZero() throws Exception {
+        when(s3AsyncClient.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(HeadObjectResponse.builder().build()));
+
+        assertThat(service.getObjectMetadata(KEY).get().get().getContentLength()).isEqualTo(0L);
+    }
+
+    @Test
+    void shouldReturnEmptyMetadataForMissingObject() throws Exception {
+        // HEAD responses have no body, so S3 often reports a missing key as a bare 404
+        for (S3Exception missing : new S3Exception[] {noSuchKey(), s3Exception(404)}) {
+            when(s3Client.headObject(any(HeadObjectRequest.class))).thenThrow(missing);
+            assertThat(syncService.getObjectMetadata(KEY)).isEmpty();
+
+            for (CompletableFuture<?> failed : failures(missing)) {
+                doReturn(failed).when(s3AsyncClient).headObject(any(HeadObjectRequest.class));
+
+                assertThat(service.getObjectMetadata(KEY).get()).as("%s", missing).isEqualTo(Optional.empty());
+            }
+        }
+    }
+
+    @Test
+    void shouldFailMetadataLikeSyncServiceForOtherErrors() {
+        for (S3Exception error : new S3Exception[] {s3Exception(403), s3Exception(500)}) {
+            when(s3Client.headObject(any(HeadObjectRequest.class))).thenThrow(error);
+            RuntimeException expected = thrownBy(() -> syncService.getObjectMetadata(KEY));
+
+            for (CompletableFuture<?> failed : failures(error)) {
+                doReturn(failed).when(s3AsyncClient).headObject(any(HeadObjectRequest.class));
+
+                assertSameFailure(service.getObjectMetadata(KEY), expected, error);
+            }
+            assertThat(expected).hasMessage("Failed to read file metadata from S3");
+        }
+    }
+
+    @Test
+    void shouldReportMissingFileOnDownloadLikeSyncService() {
+        S3Exception missing = noSuchKey();
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenThrow(missing);
+        RuntimeException expected = thrownBy(() -> syncService.downloadFile(KEY));
+
+        for (CompletableFuture<?> failed : failures(missing)) {
+            doReturn(failed).when(s3AsyncClient)
+                    .getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class));
+
+            assertSameFailure(service.downloadFile(KEY), expected, missing);
+        }
+        assertThat(expected).hasMessage("File not found in S3: " + KEY);
+    }
+
+    @Test
+    void shouldFailDownloadLikeSyncServiceForOtherErrors() {
+        S3Exception error = s3Exception(500);
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenThrow(error);
+        RuntimeException expected = thrownBy(() -> syncService.downloadFile(KEY));
+
+        for (CompletableFuture<?> failed : failures(error)) {
+            doReturn(failed).when(s3AsyncClient)
+                    .getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class));
+
+            assertSameFailure(service.downloadFile(KEY), expected, error);
+        }
+        assertThat(expected).hasMessage("Failed to download file from S3");
+    }
+
+    @Test
+    void shouldFailDeleteLikeSyncService() {
+        S3Exception error = s3Exception(403);
+        when(s3Client.deleteObject(any(DeleteObjectRequest.class))).thenThrow(error);
+        RuntimeException expected = thrownBy(() -> syncService.deleteFile(KEY));
+
+        for (CompletableFuture<?> failed : failures(error)) {
+            doReturn(failed).when(s3AsyncClient).deleteObject(any(DeleteObjectRequest.class));
+
+            assertSameFailure(service.deleteFile(KEY), expected, error);
+        }
+        assertThat(expected).hasMessage("Failed to delete file from S3");
+    }
+
+    @Test
+    void shouldFailUploadLikeSyncService() {
+        S3Exception error = s3Exception(500);
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class))).thenThrow(error);
+        RuntimeException expected = thrownBy(() ->
+                syncService.uploadFile(KEY, new ByteArrayInputStream(new byte[4]), "image/jpeg", 4));
+
+        for (CompletableFuture<?> failed : failures(error)) {
+            doReturn(failed).when(s3AsyncClient).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+
+            assertSameFailure(service.uploadFile(KEY, new ByteArrayInputStream(new byte[4]), "image/jpeg", 4),
+                    expected, error);
+        }
+        assertThat(expected).hasMessage("Failed to upload file to S3");
+    }
+
+    /**
+     * The async failure must match the sync one, with the S3 error itself as its cause.
+     */
+    private static void assertSameFailure(CompletableFuture<?> future, RuntimeException expected, S3Exception error) {
+        Throwable failure;
+        try {
+            future.get();
+            throw new AssertionError("Expected the future to fail");
+        } catch (ExecutionException e) {
+            failure = e.getCause();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+
+        assertThat(failure).isInstanceOf(expected.getClass());
+        assertThat(failure).hasMessage(expected.getMessage());
+        assertThat(failure.getCause()).isSameAs(error);
+        assertThat(expected.getCause()).isSameAs(error);
+    }
+
+    private static RuntimeException thrownBy(Runnable call) {
+        try {
+            call.run();
+        } catch (RuntimeException e) {
+            return e;
+        }
+        throw new AssertionError("Expected the call to fail");
+    }
+
+    /**
+     * A future failed with the error itself, and one failed with the error wrapped as a dependent stage would be.
+     */
+    private static List<CompletableFuture<?>> failures(Throwable error) {
+        return List.of(CompletableFuture.failedFuture(error),
+                CompletableFuture.failedFuture(new CompletionException(error)));
+    }
+
+    private static S3Exception noSuchKey() {
+        return NoSuchKeyException.builder().statusCode(404).message("The specified key does not exist.").build();
+    }
+
+    private static S3Exception s3Exception(int statusCode) {
+        return (S3Exception) S3Exception.builder().statusCode(statusCode).message("Status " + statusCode).build();
+    }
+}
@@ -0,0 +1,200 @@
+package com.rapidphoto.uploader.infrastructure.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for per-window download URLs.
+ * The storage stub numbers every URL it signs, so a reused URL is told apart from a
+ * newly signed one even when both were signed at the same time. URLs are compared by
+ * identity or as strings, since {@link URL#equals} resolves host names.
+ * Tests: window alignment -> reuse within a window -> next window -> batches -> eviction -> configuration
+ */
+class DownloadUrlCacheTest {
+
+    private static final int WINDOW_SECONDS = 900;
+    private static final int EXPIRATION_SECONDS = 3600;
+    private static final Instant WINDOW_START = Instant.parse("2026-10-16T12:15:00Z");
+
+    private S3StorageProperties properties;
+    private MutableClock clock;
+    private List<Signing> signings;
+    private StorageService storageService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new S3StorageProperties();
+        properties.setDownloadUrlWindowSeconds(WINDOW_SECONDS);
+        properties.setPresignedUrlExpirationSeconds(EXPIRATION_SECONDS);
+        properties.setDownloadUrlCacheSize(3);
+        clock = new MutableClock(WINDOW_START.plusSeconds(123));
+        signings = new ArrayList<>();
+
+        AtomicInteger counter = new AtomicInteger();
+        storageService = mock(StorageService.class);
+        when(storageService.generatePresignedDownloadUrls(any(), any(), any())).thenAnswer(call -> {
+            List<String> keys = call.getArgument(0);
+            Instant signingTime = call.getArgument(1);
+            Duration expiration = call.getArgument(2);
+            signings.add(new Signing(List.copyOf(keys), signingTime, expiration));
+            List<URL> urls = new ArrayList<>();
+            for (String key : keys) {
+                urls.add(url(key, signingTime, counter.incrementAndGet()));
+            }
+            return urls;
+        });
+    }
+
+    @Test
+    void shouldSignAtStartOfWindowForRestOfWindowPlusExpiration() {
+        DownloadUrlCache cache = cache();
+
+        cache.getDownloadUrl("a.jpg");
+
+        assertThat(signings).hasSize(1);
+        assertThat(signings.get(0).signingTime()).isEqualTo(WINDOW_START);
+        assertThat(signings.get(0).expiration()).isEqualTo(Duration.ofSeconds(WINDOW_SECONDS + EXPIRATION_SECONDS));
+    }
+
+    @Test
+    void shouldAlignWindowsToEpochRegardlessOfStartTime() {
+        // The last second of a window and the first of the next
+        clock.set(WINDOW_START.minusSeconds(1));
+        cache().getDownloadUrl("a.jpg");
+        clock.set(WINDOW_START);
+        cache().getDownloadUrl("a.jpg");
+
+        assertThat(signings.get(0).signingTime()).isEqualTo(WINDOW_START.minusSeconds(WINDOW_SECONDS));
+        assertThat(signings.get(1).signingTime()).isEqualTo(WINDOW_START);
+    }
+
+    @Test
+    void shouldReuseUrlWithinWindow() {
+        DownloadUrlCache cache = cache();
+        URL first = cache.getDownloadUrl("a.jpg");
+
+        clock.set(WINDOW_START.plusSeconds(WINDOW_SECONDS - 1));
+        URL later = cache.getDownloadUrl("a.jpg");
+
+        assertThat(later).isSameAs(first);
+        assertThat(signings).hasSize(1);
+    }
+
+    @Test
+    void shouldSignNewUrlInNextWindow() {
+        DownloadUrlCache cache = cache();
+        URL first = cache.getDownloadUrl("a.jpg");
+
+        clock.set(WINDOW_START.plusSeconds(WINDOW_SECONDS));
+        URL next = cache.getDownloadUrl("a.jpg");
+
+        assertThat(next.toString()).isNotEqualTo(first.toString());
+        assertThat(signings).hasSize(2);
+        assertThat(signings.get(1).signingTime()).isEqualTo(WINDOW_START.plusSeconds(WINDOW_SECONDS));
+        assertThat(cache.getDownloadUrl("a.jpg")).isSameAs(next);
+    }
+
+    @Test
+    void shouldSignOnlyUncachedKeysOfBatchTogether() {
+        DownloadUrlCache cache = cache();
+        URL cached = cache.getDownloadUrl("a.jpg");
+
+        Map<String, URL> urls = cache.getDownloadUrls(List.of("a.jpg", "b.jpg", "c.jpg", "b.jpg"));
+
+        assertThat(urls).hasSize(3);
+        assertThat(urls.get("a.jpg")).isSameAs(cached);
+        assertThat(signings).hasSize(2);
+        assertThat(signings.get(1).keys()).containsExactly("b.jpg", "c.jpg");
+        Map<String, URL> repeated = cache.getDownloadUrls(List.of("a.jpg", "b.jpg", "c.jpg"));
+        for (String key : urls.keySet()) {
+            assertThat(repeated.get(key)).isSameAs(urls.get(key));
+        }
+        assertThat(signings).hasSize(2);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedUrls() {
+        DownloadUrlCache cache = cache();
+        cache.getDownloadUrls(List.of("a.jpg", "b.jpg", "c.jpg"));
+        // Using "a" makes "b" the least recently used
+        cache.getDownloadUrl("a.jpg");
+
+        cache.getDownloadUrl("d.jpg");
+        cache.getDownloadUrls(List.of("a.jpg", "c.jpg", "d.jpg"));
+        assertThat(signings).hasSize(2);
+
+        cache.getDownloadUrl("b.jpg");
+        assertThat(signings).hasSize(3);
+        assertThat(signings.get(2).keys()).containsExactly("b.jpg");
+    }
+
+    @Test
+    void shouldRejectWindowShorterThanOneSecond() {
+        properties.setDownloadUrlWindowSeconds(0);
+
+        assertThatThrownBy(this::cache).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private DownloadUrlCache cache() {
+        return new DownloadUrlCache(storageService, properties, clock);
+    }
+
+    private static URL url(String key, Instant signingTime, int serial) {
+        try {
+            return URI.create("https://test-bucket.s3.amazonaws.com/" + key
+                    + "?X-Amz-Date=" + signingTime.getEpochSecond() + "&serial=" + serial).toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Signing(List<String> keys, Instant signingTime, Duration expiration) {
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void set(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.rapidphoto.uploader.infrastructure.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.auth.signer.AwsS3V4Signer;
+import software.amazon.awssdk.auth.signer.AwsSignerExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.signer.Presigner;
+import software.amazon.awssdk.core.signer.Signer;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests comparing batch-presigned URLs with the SDK's.
+ * The SDK presigner always signs at the current time, so it is given a signer that signs
+ * at the batch's signing time instead. The signing time lies in the past, so a URL the
+ * batch presigner fell back to the SDK for would carry a different date and fail the test.
+ */
+class S3BatchPresignerTest {
+
+    private static final String REGION = "eu-west-1";
+    private static final String BUCKET = "test-bucket";
+    private static final String CHECKSUM = "47DEQpj8HBSa+/TImW+5JCeuQeRkm5NMpJWZG3hi1FE=";
+    private static final Duration EXPIRATION = Duration.ofHours(1);
+    private static final List<String> KEYS = List.of(
+            "user/2024/01/02/plain.jpg",
+            "user/2024/01/02/a b+c=d~e.jpg",
+            "user/2024/01/02/ünïcødé 漢字.jpg");
+
+    private final AwsCredentialsProvider credentialsProvider = StaticCredentialsProvider.create(
+            AwsSessionCredentials.create("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY",
+                    "FwoGZXIvYXdzEJr//////////wEaDH+example/session=token"));
+
+    private S3Presigner s3Presigner;
+    private S3BatchPresigner batchPresigner;
+    private Instant signingTime;
+
+    @BeforeEach
+    void setUp() {
+        S3StorageProperties properties = new S3StorageProperties();
+        properties.setBucketName(BUCKET);
+        properties.setRegion(REGION);
+        s3Presigner = S3Presigner.builder()
+                .region(Region.of(REGION))
+                .credentialsProvider(credentialsProvider)
+                .build();
+        batchPresigner = new S3BatchPresigner(s3Presigner, credentialsProvider, properties, new ObjectMapper());
+        signingTime = Instant.now().truncatedTo(ChronoUnit.SECONDS).minusSeconds(60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Presigner.close();
+    }
+
+    @Test
+    void shouldPresignGetUrlsLikeSdk() {
+        List<URL> urls = batchPresigner.presign(
+                KEYS.stream().map(S3BatchPresigner.Request::get).toList(), signingTime, EXPIRATION);
+
+        assertThat(urls).hasSize(KEYS.size());
+        for (int i = 0; i < KEYS.size(); i++) {
+            String key = KEYS.get(i);
+            String expected = s3Presigner.presignGetObject(builder -> builder
+                    .signatureDuration(EXPIRATION)
+                    .getObjectRequest(GetObjectRequest.builder()
+                            .bucket(BUCKET)
+                            .key(key)
+                            .overrideConfiguration(config -> config.signer(new FixedTimeSigner(signingTime)))
+                            .build())).url().toString();
+            assertThat(urls.get(i).toString()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void shouldPresignPutUrlsLikeSdk() {
+        List<URL> urls = batchPresigner.presign(
+                KEYS.stream().map(key -> S3BatchPresigner.Request.put(key, "image/jpeg", CHECKSUM)).toList(),
+                signingTime, EXPIRATION);
+
+        assertThat(urls).hasSize(KEYS.size());
+        for (int i = 0; i < KEYS.size(); i++) {
+            String key = KEYS.get(i);
+            String expected = s3Presigner.presignPutObject(builder -> builder
+                    .signatureDuration(EXPIRATION)
+                    .putObjectRequest(PutObjectRequest.builder()
+                            .bucket(BUCKET)
+                            .key(key)
+                            .contentType("image/jpeg")
+                            .checksumSHA256(CHECKSUM)
+                            .overrideConfiguration(config -> config.signer(new FixedTimeSigner(signingTime)))
+                            .build())).url().toString();
+            assertThat(urls.get(i).toString()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void shouldSignIdenticalUrlsForSameInputs() {
+        List<S3BatchPresigner.Request> requests = List.of(
+                S3BatchPresigner.Request.get(KEYS.get(1)),
+                S3BatchPresigner.Request.put(KEYS.get(2), "image/png", null));
+
+        List<URL> first = batchPresigner.presign(requests, signingTime, EXPIRATION);
+        List<URL> second = batchPresigner.presign(requests, signingTime, EXPIRATION);
+
+        assertThat(first.stream().map(URL::toString))
+                .containsExactlyElementsOf(second.stream().map(URL::toString).toList());
+        assertThat(first.get(0).toString()).contains("X-Amz-Security-Token=");
+    }
+
+    /**
+     * The SDK's S3 signer, signing at a fixed time with the expiration counted from it.
+     */
+    @SuppressWarnings("deprecation")
+    private static final class FixedTimeSigner implements Signer, Presigner {
+
+        private final AwsS3V4Signer delegate = AwsS3V4Signer.create();
+        private final Instant signingTime;
+
+        private FixedTimeSigner(Instant signingTime) {
+            this.signingTime = signingTime;
+        }
+
+        @Override
+        public SdkHttpFullRequest sign(SdkHttpFullRequest request, ExecutionAttributes attributes) {
+            return delegate.sign(request, attributes);
+        }
+
+        @Override
+        public SdkHttpFullRequest presign(SdkHttpFullRequest request, ExecutionAttributes attributes) {
+            attributes.putAttribute(AwsSignerExecutionAttribute.SIGNING_CLOCK, Clock.fixed(signingTime, ZoneOffset.UTC));
+            attributes.putAttribute(AwsSignerExecutionAttribute.PRESIGNER_EXPIRATION, signingTime.plus(EXPIRATION));
+            return delegate.presign(request, attributes);
+        }
+    }
+}
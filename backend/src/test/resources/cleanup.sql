@@ -2,9 +2,14 @@
 -- Ensures clean state before each test
 
 DELETE FROM photo_tags;
+DELETE FROM processing_tasks;
+DELETE FROM content_objects;
+DELETE FROM photo_renditions;
+DELETE FROM policy_uploads;
 DELETE FROM photos;
 DELETE FROM users;
 DELETE FROM upload_jobs;
+DELETE FROM backfill_jobs;
 
 -- Reset sequences
 ALTER SEQUENCE IF EXISTS users_id_seq RESTART WITH 1;
@@ -9,7 +9,7 @@ export interface Photo {
   filename: string;
   fileSize: number;
   userId: string;
-  status: 'UPLOADING' | 'PROCESSING' | 'COMPLETE' | 'FAILED';
+  status: 'UPLOADING' | 'PROCESSING' | 'THUMBNAIL_READY' | 'COMPLETE' | 'FAILED';
   contentType: string;
   tags: string[];
   createdAt: string; // This is the upload timestamp